@@ -19,9 +19,12 @@
 package org.sleuthkit.autopsy.centralrepository.datamodel;
 
 import java.net.UnknownHostException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedHashSet;
 import java.util.stream.Collectors;
 import java.sql.Connection;
@@ -34,6 +37,7 @@
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import org.openide.util.NbBundle.Messages;
 import org.sleuthkit.autopsy.casemodule.Case;
@@ -52,12 +56,16 @@
 public abstract class AbstractSqlEamDb implements EamDb {
 
     private final static Logger LOGGER = Logger.getLogger(AbstractSqlEamDb.class.getName());
+    // SQLite allows at most 999 parameters in a statement
+    private final static int KNOWN_BAD_VALUES_PER_QUERY = 500;
 
     protected final List<CorrelationAttribute.Type> DEFAULT_CORRELATION_TYPES;
 
     private int bulkArtifactsCount;
     protected int bulkArtifactsThreshold;
     private final Map<String, Collection<CorrelationAttribute>> bulkArtifacts;
+    private final ReferenceSetFilters referenceSetFilters;
+    private final MetadataCache metadataCache;
 
     /**
      * Connect to the DB and initialize it.
@@ -67,6 +75,8 @@ public abstract class AbstractSqlEamDb implements EamDb {
     protected AbstractSqlEamDb() throws EamDbException {
         bulkArtifactsCount = 0;
         bulkArtifacts = new HashMap<>();
+        referenceSetFilters = new ReferenceSetFilters(this);
+        metadataCache = new MetadataCache(this);
 
         DEFAULT_CORRELATION_TYPES = CorrelationAttribute.getDefaultCorrelationTypes();
         DEFAULT_CORRELATION_TYPES.forEach((type) -> {
@@ -79,6 +89,40 @@ protected AbstractSqlEamDb() throws EamDbException {
      */
     protected abstract Connection connect() throws EamDbException;
 
+    /**
+     * Get the directory in which the filters of the reference set values are
+     * saved between sessions.
+     *
+     * @return The directory, or null if the filters are not to be saved.
+     */
+    protected Path getReferenceSetFilterDirectory() {
+        return null;
+    }
+
+    /**
+     * Whether or not the database can be updated by other nodes, in which
+     * case the cached metadata is checked for remote changes and the filters
+     * of the reference set values are periodically caught up with the
+     * database.
+     *
+     * @return true if the database can be updated remotely
+     */
+    protected boolean mayBeUpdatedRemotely() {
+        return false;
+    }
+
+    /**
+     * Discard the cached metadata and the filters of the reference set
+     * values, which must be done when the database settings change or the
+     * database is reset.
+     *
+     * @param deleteSavedFilters true to also delete the saved filters
+     */
+    protected void clearCaches(boolean deleteSavedFilters) {
+        metadataCache.clear();
+        referenceSetFilters.clear(deleteSavedFilters);
+    }
+
     /**
      * Add a new name/value pair in the db_info table.
      *
@@ -338,6 +382,7 @@ public void updateCase(CorrelationCase eamCase) throws EamDbException {
             EamDbUtil.closePreparedStatement(preparedStatement);
             EamDbUtil.closeConnection(conn);
         }
+        metadataCache.caseChanged(eamCase.getCaseUUID());
     }
 
     /**
@@ -349,8 +394,17 @@ public void updateCase(CorrelationCase eamCase) throws EamDbException {
      */
     @Override
     public CorrelationCase getCaseByUUID(String caseUUID) throws EamDbException {
-        // @@@ We should have a cache here...
+        return metadataCache.getCase(caseUUID, () -> loadCaseByUUID(caseUUID));
+    }
 
+    /**
+     * Retrieves Case details based on Case UUID from the database
+     *
+     * @param caseUUID unique identifier for a case
+     *
+     * @return The retrieved case, or null if there is no such case
+     */
+    private CorrelationCase loadCaseByUUID(String caseUUID) throws EamDbException {
         Connection conn = connect();
 
         CorrelationCase eamCaseResult = null;
@@ -462,7 +516,20 @@ public CorrelationDataSource getDataSource(CorrelationCase correlationCase, Stri
         if(correlationCase == null) {
             throw new EamDbException("CorrelationCase argument is null");
         }
-        
+
+        return metadataCache.getDataSource(correlationCase.getID(), dataSourceDeviceId,
+                () -> loadDataSource(correlationCase.getID(), dataSourceDeviceId));
+    }
+
+    /**
+     * Retrieves Data Source details from the database
+     *
+     * @param caseId the database ID of the case of the data source
+     * @param dataSourceDeviceId the data source device ID number
+     *
+     * @return The data source, or null if there is no such data source
+     */
+    private CorrelationDataSource loadDataSource(int caseId, String dataSourceDeviceId) throws EamDbException {
         Connection conn = connect();
 
         CorrelationDataSource eamDataSourceResult = null;
@@ -474,7 +541,7 @@ public CorrelationDataSource getDataSource(CorrelationCase correlationCase, Stri
         try {
             preparedStatement = conn.prepareStatement(sql);
             preparedStatement.setString(1, dataSourceDeviceId);
-            preparedStatement.setInt(2, correlationCase.getID());
+            preparedStatement.setInt(2, caseId);
             resultSet = preparedStatement.executeQuery();
             if (resultSet.next()) {
                 eamDataSourceResult = getEamDataSourceFromResultSet(resultSet);
@@ -547,14 +614,12 @@ public void addArtifact(CorrelationAttribute eamArtifact) throws EamDbException
         List<CorrelationAttributeInstance> eamInstances = eamArtifact.getInstances();
         PreparedStatement preparedStatement = null;
 
-        // @@@ We should cache the case and data source IDs in memory
         String tableName = EamDbUtil.correlationTypeToInstanceTableName(eamArtifact.getCorrelationType());
         StringBuilder sql = new StringBuilder();
         sql.append("INSERT INTO ");
         sql.append(tableName);
         sql.append("(case_id, data_source_id, value, file_path, known_status, comment) ");
-        sql.append("VALUES ((SELECT id FROM cases WHERE case_uid=? LIMIT 1), ");
-        sql.append("(SELECT id FROM data_sources WHERE device_id=? AND case_id=? LIMIT 1), ?, ?, ?, ?) ");
+        sql.append("VALUES (?, ?, ?, ?, ?, ?) ");
         sql.append(getConflictClause());
        
         try {
@@ -571,16 +636,15 @@ public void addArtifact(CorrelationAttribute eamArtifact) throws EamDbException
                         throw new EamDbException("CorrelationAttributeInstance has null known status");
                     }
                     
-                    preparedStatement.setString(1, eamInstance.getCorrelationCase().getCaseUUID());
-                    preparedStatement.setString(2, eamInstance.getCorrelationDataSource().getDeviceID());
-                    preparedStatement.setInt(3, eamInstance.getCorrelationDataSource().getCaseID());
-                    preparedStatement.setString(4, eamArtifact.getCorrelationValue());
-                    preparedStatement.setString(5, eamInstance.getFilePath());
-                    preparedStatement.setByte(6, eamInstance.getKnownStatus().getFileKnownValue());
+                    preparedStatement.setInt(1, getCaseId(eamInstance.getCorrelationCase()));
+                    preparedStatement.setInt(2, getDataSourceId(eamInstance.getCorrelationDataSource()));
+                    preparedStatement.setString(3, eamArtifact.getCorrelationValue());
+                    preparedStatement.setString(4, eamInstance.getFilePath());
+                    preparedStatement.setByte(5, eamInstance.getKnownStatus().getFileKnownValue());
                     if ("".equals(eamInstance.getComment())) {
-                        preparedStatement.setNull(7, Types.INTEGER);
+                        preparedStatement.setNull(6, Types.INTEGER);
                     } else {
-                        preparedStatement.setString(7, eamInstance.getComment());
+                        preparedStatement.setString(6, eamInstance.getComment());
                     }
 
                     preparedStatement.executeUpdate();
@@ -594,6 +658,43 @@ public void addArtifact(CorrelationAttribute eamArtifact) throws EamDbException
         }
     }
 
+    /**
+     * Get the database ID of a case, from the cache when possible
+     *
+     * @param correlationCase the case
+     *
+     * @return the ID of the case in the database
+     *
+     * @throws EamDbException if the case is not in the database
+     */
+    private int getCaseId(CorrelationCase correlationCase) throws EamDbException {
+        String caseUUID = correlationCase.getCaseUUID();
+        Integer caseId = metadataCache.getCaseId(caseUUID, () -> loadCaseByUUID(caseUUID));
+        if (caseId == null) {
+            throw new EamDbException("Case " + caseUUID + " is not in the central repository"); // NON-NLS
+        }
+        return caseId;
+    }
+
+    /**
+     * Get the database ID of a data source, from the cache when possible
+     *
+     * @param dataSource the data source
+     *
+     * @return the ID of the data source in the database
+     *
+     * @throws EamDbException if the data source is not in the database
+     */
+    private int getDataSourceId(CorrelationDataSource dataSource) throws EamDbException {
+        int caseId = dataSource.getCaseID();
+        String deviceId = dataSource.getDeviceID();
+        CorrelationDataSource storedDataSource = metadataCache.getDataSource(caseId, deviceId, () -> loadDataSource(caseId, deviceId));
+        if (storedDataSource == null) {
+            throw new EamDbException("Data source " + deviceId + " is not in the central repository"); // NON-NLS
+        }
+        return storedDataSource.getID();
+    }
+
     /**
      * Retrieves eamArtifact instances from the database that are associated
      * with the eamArtifactType and eamArtifactValue of the given eamArtifact.
@@ -950,8 +1051,7 @@ public void bulkInsertArtifacts() throws EamDbException {
                     sql.append("INSERT INTO ");
                     sql.append(tableName);
                     sql.append(" (case_id, data_source_id, value, file_path, known_status, comment) ");
-                    sql.append("VALUES ((SELECT id FROM cases WHERE case_uid=? LIMIT 1), ");
-                    sql.append("(SELECT id FROM data_sources WHERE device_id=? AND case_id=? LIMIT 1), ?, ?, ?, ?) ");
+                    sql.append("VALUES (?, ?, ?, ?, ?, ?) ");
                     sql.append(getConflictClause());
 
                     bulkPs = conn.prepareStatement(sql.toString());
@@ -973,16 +1073,15 @@ public void bulkInsertArtifacts() throws EamDbException {
                                     throw new EamDbException("Correlation attribute instance has null known known status");
                                 }
                                 
-                                bulkPs.setString(1, eamInstance.getCorrelationCase().getCaseUUID());
-                                bulkPs.setString(2, eamInstance.getCorrelationDataSource().getDeviceID());
-                                bulkPs.setInt(3, eamInstance.getCorrelationDataSource().getCaseID());
-                                bulkPs.setString(4, eamArtifact.getCorrelationValue());
-                                bulkPs.setString(5, eamInstance.getFilePath());
-                                bulkPs.setByte(6, eamInstance.getKnownStatus().getFileKnownValue());
+                                bulkPs.setInt(1, getCaseId(eamInstance.getCorrelationCase()));
+                                bulkPs.setInt(2, getDataSourceId(eamInstance.getCorrelationDataSource()));
+                                bulkPs.setString(3, eamArtifact.getCorrelationValue());
+                                bulkPs.setString(4, eamInstance.getFilePath());
+                                bulkPs.setByte(5, eamInstance.getKnownStatus().getFileKnownValue());
                                 if ("".equals(eamInstance.getComment())) {
-                                    bulkPs.setNull(7, Types.INTEGER);
+                                    bulkPs.setNull(6, Types.INTEGER);
                                 } else {
-                                    bulkPs.setString(7, eamInstance.getComment());
+                                    bulkPs.setString(6, eamInstance.getComment());
                                 }
                                 bulkPs.addBatch();
                             }
@@ -1346,6 +1445,85 @@ public List<String> getListCasesHavingArtifactInstancesKnownBad(CorrelationAttri
         return caseNames.stream().collect(Collectors.toList());
     }
 
+    /**
+     * Gets the lists of distinct case display names, where each case has 1+
+     * Artifact Instance with knownStatus = "Bad", for several values at once,
+     * with one query for each group of up to KNOWN_BAD_VALUES_PER_QUERY
+     * values.
+     *
+     * @param aType  EamArtifact.Type to search for
+     * @param values Values to search for
+     *
+     * @return Lists of cases containing artifacts with instances marked as bad,
+     * by value. Values with no such instances are not in the map.
+     *
+     * @throws EamDbException
+     */
+    @Override
+    public Map<String, List<String>> getListCasesHavingArtifactInstancesKnownBad(CorrelationAttribute.Type aType, Collection<String> values) throws EamDbException {
+        if(aType == null) {
+            throw new EamDbException("Correlation type is null");
+        }
+
+        Map<String, Collection<String>> caseNamesByValue = new HashMap<>();
+        List<String> distinctValues = new ArrayList<>(new LinkedHashSet<>(values));
+        if (distinctValues.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        Connection conn = connect();
+
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+
+        String tableName = EamDbUtil.correlationTypeToInstanceTableName(aType);
+        try {
+            for (int first = 0; first < distinctValues.size(); first += KNOWN_BAD_VALUES_PER_QUERY) {
+                List<String> queryValues = distinctValues.subList(first, Math.min(distinctValues.size(), first + KNOWN_BAD_VALUES_PER_QUERY));
+                StringBuilder sql = new StringBuilder();
+                sql.append("SELECT DISTINCT value, case_name FROM ");
+                sql.append(tableName);
+                sql.append(" INNER JOIN cases ON ");
+                sql.append(tableName);
+                sql.append(".case_id=cases.id WHERE ");
+                sql.append(tableName);
+                sql.append(".value IN (");
+                sql.append(queryValues.stream().map(value -> "?").collect(Collectors.joining(", ")));
+                sql.append(") AND ");
+                sql.append(tableName);
+                sql.append(".known_status=?");
+
+                preparedStatement = conn.prepareStatement(sql.toString());
+                int parameter = 1;
+                for (String value : queryValues) {
+                    preparedStatement.setString(parameter++, value);
+                }
+                preparedStatement.setByte(parameter, TskData.FileKnown.BAD.getFileKnownValue());
+                resultSet = preparedStatement.executeQuery();
+                while (resultSet.next()) {
+                    caseNamesByValue.computeIfAbsent(resultSet.getString("value"), value -> new LinkedHashSet<>())
+                            .add(resultSet.getString("case_name"));
+                }
+                EamDbUtil.closeResultSet(resultSet);
+                resultSet = null;
+                EamDbUtil.closePreparedStatement(preparedStatement);
+                preparedStatement = null;
+            }
+        } catch (SQLException ex) {
+            throw new EamDbException("Error getting notable artifact instances.", ex); // NON-NLS
+        } finally {
+            EamDbUtil.closePreparedStatement(preparedStatement);
+            EamDbUtil.closeResultSet(resultSet);
+            EamDbUtil.closeConnection(conn);
+        }
+
+        Map<String, List<String>> caseNames = new HashMap<>();
+        for (Map.Entry<String, Collection<String>> entry : caseNamesByValue.entrySet()) {
+            caseNames.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        return caseNames;
+    }
+
     /**
      * Remove a reference set and all entries contained in it.
      *
@@ -1354,8 +1532,10 @@ public List<String> getListCasesHavingArtifactInstancesKnownBad(CorrelationAttri
      */
     @Override
     public void deleteReferenceSet(int referenceSetID) throws EamDbException {
+        referenceSetFilters.referenceSetDeleted(referenceSetID);
         deleteReferenceSetEntries(referenceSetID);
         deleteReferenceSetEntry(referenceSetID);
+        metadataCache.referenceSetChanged(referenceSetID);
     }
 
     /**
@@ -1455,6 +1635,9 @@ public boolean isFileHashInReferenceSet(String hash, int referenceSetID) throws
      */
     @Override
     public boolean isValueInReferenceSet(String value, int referenceSetID, int correlationTypeID) throws EamDbException {
+        if (referenceSetFilters.isDefinitelyAbsent(value, referenceSetID, correlationTypeID)) {
+            return false;
+        }
 
         Connection conn = connect();
 
@@ -1615,6 +1798,19 @@ public List<EamOrganization> getOrganizations() throws EamDbException {
      */
     @Override
     public EamOrganization getOrganizationByID(int orgID) throws EamDbException {
+        return metadataCache.getOrganization(orgID, () -> loadOrganizationByID(orgID));
+    }
+
+    /**
+     * Get an organization having the given ID from the database
+     *
+     * @param orgID The id to look up
+     *
+     * @return The organization with the given ID
+     *
+     * @throws EamDbException
+     */
+    private EamOrganization loadOrganizationByID(int orgID) throws EamDbException {
         Connection conn = connect();
 
         PreparedStatement preparedStatement = null;
@@ -1685,6 +1881,7 @@ public void updateOrganization(EamOrganization updatedOrganization) throws EamDb
             EamDbUtil.closePreparedStatement(preparedStatement);
             EamDbUtil.closeConnection(conn);
         }
+        metadataCache.organizationChanged(updatedOrganization.getOrgID());
     }
 
     @Messages({"AbstractSqlEamDb.deleteOrganization.inUseException.message=Can not delete organization "
@@ -1722,6 +1919,7 @@ public void deleteOrganization(EamOrganization organizationToDelete) throws EamD
             EamDbUtil.closeResultSet(resultSet);
             EamDbUtil.closeConnection(conn);
         }
+        metadataCache.organizationChanged(organizationToDelete.getOrgID());
     }
 
     /**
@@ -1799,6 +1997,20 @@ public int newReferenceSet(EamGlobalSet eamGlobalSet) throws EamDbException {
      */
     @Override
     public EamGlobalSet getReferenceSetByID(int referenceSetID) throws EamDbException {
+        return metadataCache.getReferenceSet(referenceSetID, () -> loadReferenceSetByID(referenceSetID));
+    }
+
+    /**
+     * Get a reference set by ID from the database
+     *
+     * @param referenceSetID The ID to look up
+     *
+     * @return The global set associated with the ID, or null if there is no
+     *         such set
+     *
+     * @throws EamDbException
+     */
+    private EamGlobalSet loadReferenceSetByID(int referenceSetID) throws EamDbException {
         Connection conn = connect();
 
         PreparedStatement preparedStatement1 = null;
@@ -1901,6 +2113,7 @@ public void addReferenceInstance(EamGlobalFileInstance eamGlobalFileInstance, Co
             EamDbUtil.closePreparedStatement(preparedStatement);
             EamDbUtil.closeConnection(conn);
         }
+        referenceSetFilters.valuesAdded(Collections.singleton(eamGlobalFileInstance), correlationType.getId());
     }
 
     /**
@@ -1952,33 +2165,46 @@ public void bulkInsertReferenceTypeEntries(Set<EamGlobalFileInstance> globalInst
             throw new EamDbException("Null set of EamGlobalFileInstance");
         }
 
+        for (EamGlobalFileInstance globalInstance : globalInstances) {
+            if(globalInstance.getKnownStatus() == null){
+                throw new EamDbException("EamGlobalFileInstance with value " + globalInstance.getMD5Hash() + " has null known status");
+            }
+        }
+
+        // FUTURE: have a separate global_files table for each Type.
+        String tableName = EamDbUtil.correlationTypeToReferenceTableName(contentType);
+        // Insert the rows in a consistent order, so that concurrent imports
+        // into the same set that conflict on duplicate values wait on each
+        // other in the same order instead of deadlocking
+        List<EamGlobalFileInstance> instances = new ArrayList<>(globalInstances);
+        instances.sort(Comparator.comparingInt(EamGlobalFileInstance::getGlobalSetID)
+                .thenComparing(EamGlobalFileInstance::getMD5Hash));
+        int rowsPerStatement = Math.max(1, getReferenceInsertRowsPerStatement());
+        int fullStatements = instances.size() / rowsPerStatement;
+        int remainingRows = instances.size() % rowsPerStatement;
+
         Connection conn = connect();
 
         PreparedStatement bulkPs = null;
+        PreparedStatement remainderPs = null;
         try {
             conn.setAutoCommit(false);
 
-            // FUTURE: have a separate global_files table for each Type.
-            String sql = "INSERT INTO %s(reference_set_id, value, known_status, comment) VALUES (?, ?, ?, ?) "
-                    + getConflictClause();
-
-            bulkPs = conn.prepareStatement(String.format(sql, EamDbUtil.correlationTypeToReferenceTableName(contentType)));
-
-            for (EamGlobalFileInstance globalInstance : globalInstances) {
-                if(globalInstance.getKnownStatus() == null){
-                    throw new EamDbException("EamGlobalFileInstance with value " + globalInstance.getMD5Hash() + " has null known status");
+            if (fullStatements > 0) {
+                bulkPs = conn.prepareStatement(getReferenceInsertSql(tableName, rowsPerStatement));
+                for (int i = 0; i < fullStatements; i++) {
+                    setReferenceInsertParameters(bulkPs, instances, i * rowsPerStatement, rowsPerStatement);
+                    bulkPs.addBatch();
                 }
-                
-                bulkPs.setInt(1, globalInstance.getGlobalSetID());
-                bulkPs.setString(2, globalInstance.getMD5Hash());
-                bulkPs.setByte(3, globalInstance.getKnownStatus().getFileKnownValue());
-                bulkPs.setString(4, globalInstance.getComment());
-                bulkPs.addBatch();
+                bulkPs.executeBatch();
+            }
+            if (remainingRows > 0) {
+                remainderPs = conn.prepareStatement(getReferenceInsertSql(tableName, remainingRows));
+                setReferenceInsertParameters(remainderPs, instances, fullStatements * rowsPerStatement, remainingRows);
+                remainderPs.executeUpdate();
             }
-
-            bulkPs.executeBatch();
             conn.commit();
-        } catch (SQLException | EamDbException ex) {
+        } catch (SQLException ex) {
             try {
                 conn.rollback();
             } catch (SQLException ex2) {
@@ -1987,6 +2213,169 @@ public void bulkInsertReferenceTypeEntries(Set<EamGlobalFileInstance> globalInst
             throw new EamDbException("Error inserting bulk artifacts.", ex); // NON-NLS           
         } finally {
             EamDbUtil.closePreparedStatement(bulkPs);
+            EamDbUtil.closePreparedStatement(remainderPs);
+            EamDbUtil.closeConnection(conn);
+        }
+        referenceSetFilters.valuesAdded(globalInstances, contentType.getId());
+    }
+
+    /**
+     * Get the number of rows to insert with each statement when inserting
+     * reference entries in bulk. Inserting several rows per statement saves
+     * a round trip to the server for each row.
+     *
+     * @return the number of rows per INSERT statement
+     */
+    protected int getReferenceInsertRowsPerStatement() {
+        return 1;
+    }
+
+    private String getReferenceInsertSql(String tableName, int rows) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("INSERT INTO ").append(tableName).append("(reference_set_id, value, known_status, comment) VALUES ");
+        for (int i = 0; i < rows; i++) {
+            sql.append((i == 0) ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+        }
+        sql.append(" ").append(getConflictClause());
+        return sql.toString();
+    }
+
+    private static void setReferenceInsertParameters(PreparedStatement preparedStatement, List<EamGlobalFileInstance> instances, int first, int rows) throws SQLException {
+        for (int i = 0; i < rows; i++) {
+            EamGlobalFileInstance globalInstance = instances.get(first + i);
+            int column = i * 4;
+            preparedStatement.setInt(column + 1, globalInstance.getGlobalSetID());
+            preparedStatement.setString(column + 2, globalInstance.getMD5Hash());
+            preparedStatement.setByte(column + 3, globalInstance.getKnownStatus().getFileKnownValue());
+            preparedStatement.setString(column + 4, globalInstance.getComment());
+        }
+    }
+
+    /**
+     * Prepare the reference table of a type for the import of a large number
+     * of entries. Nothing needs to be done by default.
+     *
+     * @param contentType the Type of the entries to be imported
+     *
+     * @throws EamDbException
+     */
+    @Override
+    public void startBulkReferenceImport(CorrelationAttribute.Type contentType) throws EamDbException {
+    }
+
+    /**
+     * Restore the indexes of the reference table of a type after the import
+     * of a large number of entries. Nothing needs to be done by default.
+     *
+     * @param contentType the Type of the imported entries
+     *
+     * @throws EamDbException
+     */
+    @Override
+    public void finishBulkReferenceImport(CorrelationAttribute.Type contentType) throws EamDbException {
+    }
+
+    /**
+     * Get the largest id in a reference table, used by the filters of the
+     * reference set values to find the entries added since a filter was
+     * built.
+     *
+     * @param tableName The reference table
+     *
+     * @return the largest id, or 0 if the table is empty
+     *
+     * @throws EamDbException
+     */
+    long getMaxReferenceId(String tableName) throws EamDbException {
+        Connection conn = connect();
+
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        String sql = "SELECT MAX(id) FROM %s";
+
+        try {
+            preparedStatement = conn.prepareStatement(String.format(sql, tableName));
+            resultSet = preparedStatement.executeQuery();
+            resultSet.next();
+            return resultSet.getLong(1);
+        } catch (SQLException ex) {
+            throw new EamDbException("Error getting largest id in " + tableName, ex); // NON-NLS
+        } finally {
+            EamDbUtil.closePreparedStatement(preparedStatement);
+            EamDbUtil.closeResultSet(resultSet);
+            EamDbUtil.closeConnection(conn);
+        }
+    }
+
+    /**
+     * Count the entries of a reference set up to an id.
+     *
+     * @param tableName      The reference table
+     * @param referenceSetID The reference set
+     * @param maxId          The largest id to count
+     *
+     * @return the number of entries
+     *
+     * @throws EamDbException
+     */
+    long countReferenceValues(String tableName, int referenceSetID, long maxId) throws EamDbException {
+        Connection conn = connect();
+
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        String sql = "SELECT count(*) FROM %s WHERE reference_set_id=? AND id <= ?";
+
+        try {
+            preparedStatement = conn.prepareStatement(String.format(sql, tableName));
+            preparedStatement.setInt(1, referenceSetID);
+            preparedStatement.setLong(2, maxId);
+            resultSet = preparedStatement.executeQuery();
+            resultSet.next();
+            return resultSet.getLong(1);
+        } catch (SQLException ex) {
+            throw new EamDbException("Error counting entries in reference set " + referenceSetID, ex); // NON-NLS
+        } finally {
+            EamDbUtil.closePreparedStatement(preparedStatement);
+            EamDbUtil.closeResultSet(resultSet);
+            EamDbUtil.closeConnection(conn);
+        }
+    }
+
+    /**
+     * Read the values of the entries of a reference set with ids in a range.
+     *
+     * @param tableName      The reference table
+     * @param referenceSetID The reference set
+     * @param afterId        The ids read are greater than this id
+     * @param upToId         The ids read are less than or equal to this id
+     * @param consumer       Receives the values
+     *
+     * @throws EamDbException
+     */
+    void readReferenceValues(String tableName, int referenceSetID, long afterId, long upToId, Consumer<String> consumer) throws EamDbException {
+        Connection conn = connect();
+
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        String sql = "SELECT value FROM %s WHERE id > ? AND id <= ? AND reference_set_id=?";
+
+        try {
+            preparedStatement = conn.prepareStatement(String.format(sql, tableName));
+            preparedStatement.setLong(1, afterId);
+            preparedStatement.setLong(2, upToId);
+            preparedStatement.setInt(3, referenceSetID);
+            resultSet = preparedStatement.executeQuery();
+            while (resultSet.next()) {
+                String value = resultSet.getString(1);
+                if (null != value) {
+                    consumer.accept(value);
+                }
+            }
+        } catch (SQLException ex) {
+            throw new EamDbException("Error reading entries of reference set " + referenceSetID, ex); // NON-NLS
+        } finally {
+            EamDbUtil.closePreparedStatement(preparedStatement);
+            EamDbUtil.closeResultSet(resultSet);
             EamDbUtil.closeConnection(conn);
         }
     }
@@ -2098,11 +2487,23 @@ public int newCorrelationType(CorrelationAttribute.Type newType) throws EamDbExc
             EamDbUtil.closeResultSet(resultSet);
             EamDbUtil.closeConnection(conn);
         }
+        metadataCache.correlationTypesChanged();
         return typeId;
     }
 
     @Override
     public List<CorrelationAttribute.Type> getDefinedCorrelationTypes() throws EamDbException {
+        return metadataCache.getCorrelationTypes(this::loadCorrelationTypes);
+    }
+
+    /**
+     * Get all of the correlation types from the database.
+     *
+     * @return List of all EamArtifact.Type's
+     *
+     * @throws EamDbException
+     */
+    private List<CorrelationAttribute.Type> loadCorrelationTypes() throws EamDbException {
         Connection conn = connect();
 
         List<CorrelationAttribute.Type> aTypes = new ArrayList<>();
@@ -2138,28 +2539,9 @@ public List<CorrelationAttribute.Type> getDefinedCorrelationTypes() throws EamDb
      */
     @Override
     public List<CorrelationAttribute.Type> getEnabledCorrelationTypes() throws EamDbException {
-        Connection conn = connect();
-
-        List<CorrelationAttribute.Type> aTypes = new ArrayList<>();
-        PreparedStatement preparedStatement = null;
-        ResultSet resultSet = null;
-        String sql = "SELECT * FROM correlation_types WHERE enabled=1";
-
-        try {
-            preparedStatement = conn.prepareStatement(sql);
-            resultSet = preparedStatement.executeQuery();
-            while (resultSet.next()) {
-                aTypes.add(getCorrelationTypeFromResultSet(resultSet));
-            }
-            return aTypes;
-
-        } catch (SQLException ex) {
-            throw new EamDbException("Error getting enabled correlation types.", ex); // NON-NLS
-        } finally {
-            EamDbUtil.closePreparedStatement(preparedStatement);
-            EamDbUtil.closeResultSet(resultSet);
-            EamDbUtil.closeConnection(conn);
-        }
+        List<CorrelationAttribute.Type> aTypes = getDefinedCorrelationTypes();
+        aTypes.removeIf(aType -> !aType.isEnabled());
+        return aTypes;
     }
 
     /**
@@ -2173,28 +2555,9 @@ public List<CorrelationAttribute.Type> getEnabledCorrelationTypes() throws EamDb
      */
     @Override
     public List<CorrelationAttribute.Type> getSupportedCorrelationTypes() throws EamDbException {
-        Connection conn = connect();
-
-        List<CorrelationAttribute.Type> aTypes = new ArrayList<>();
-        PreparedStatement preparedStatement = null;
-        ResultSet resultSet = null;
-        String sql = "SELECT * FROM correlation_types WHERE supported=1";
-
-        try {
-            preparedStatement = conn.prepareStatement(sql);
-            resultSet = preparedStatement.executeQuery();
-            while (resultSet.next()) {
-                aTypes.add(getCorrelationTypeFromResultSet(resultSet));
-            }
-            return aTypes;
-
-        } catch (SQLException ex) {
-            throw new EamDbException("Error getting supported correlation types.", ex); // NON-NLS
-        } finally {
-            EamDbUtil.closePreparedStatement(preparedStatement);
-            EamDbUtil.closeResultSet(resultSet);
-            EamDbUtil.closeConnection(conn);
-        }
+        List<CorrelationAttribute.Type> aTypes = getDefinedCorrelationTypes();
+        aTypes.removeIf(aType -> !aType.isSupported());
+        return aTypes;
     }
 
     /**
@@ -2226,7 +2589,7 @@ public void updateCorrelationType(CorrelationAttribute.Type aType) throws EamDbE
             EamDbUtil.closePreparedStatement(preparedStatement);
             EamDbUtil.closeConnection(conn);
         }
-
+        metadataCache.correlationTypesChanged();
     }
 
     /**
@@ -2240,31 +2603,12 @@ public void updateCorrelationType(CorrelationAttribute.Type aType) throws EamDbE
      */
     @Override
     public CorrelationAttribute.Type getCorrelationTypeById(int typeId) throws EamDbException {
-        Connection conn = connect();
-
-        CorrelationAttribute.Type aType;
-        PreparedStatement preparedStatement = null;
-        ResultSet resultSet = null;
-        String sql = "SELECT * FROM correlation_types WHERE id=?";
-
-        try {
-            preparedStatement = conn.prepareStatement(sql);
-            preparedStatement.setInt(1, typeId);
-            resultSet = preparedStatement.executeQuery();
-            if(resultSet.next()) {
-                aType = getCorrelationTypeFromResultSet(resultSet);
+        for (CorrelationAttribute.Type aType : getDefinedCorrelationTypes()) {
+            if (aType.getId() == typeId) {
                 return aType;
-            } else {
-                throw new EamDbException("Failed to find entry for correlation type ID = " + typeId);
             }
-
-        } catch (SQLException ex) {
-            throw new EamDbException("Error getting correlation type by id.", ex); // NON-NLS
-        } finally {
-            EamDbUtil.closePreparedStatement(preparedStatement);
-            EamDbUtil.closeResultSet(resultSet);
-            EamDbUtil.closeConnection(conn);
         }
+        throw new EamDbException("Failed to find entry for correlation type ID = " + typeId);
     }
 
     /**
@@ -2475,6 +2819,7 @@ public void upgradeSchema() throws EamDbException, SQLException {
             }
 
             conn.commit();
+            metadataCache.clear();
             LOGGER.log(Level.INFO, "Central Repository upgraded to version " + CURRENT_DB_SCHEMA_VERSION);
         } catch (SQLException | EamDbException ex) {
             try {
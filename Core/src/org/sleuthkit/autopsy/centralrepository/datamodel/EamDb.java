@@ -19,7 +19,9 @@
 package org.sleuthkit.autopsy.centralrepository.datamodel;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.sleuthkit.datamodel.TskData;
 import org.sleuthkit.autopsy.casemodule.Case;
@@ -353,6 +355,20 @@ static boolean isEnabled() {
      */
     List<String> getListCasesHavingArtifactInstancesKnownBad(CorrelationAttribute.Type aType, String value) throws EamDbException;
 
+    /**
+     * Gets the lists of distinct case display names, where each case has 1+
+     * Artifact Instance with knownStatus = "Bad", for several values at once.
+     *
+     * @param aType  EamArtifact.Type to search for
+     * @param values Values to search for
+     *
+     * @return Lists of cases containing artifacts with instances marked as bad,
+     * by value. Values with no such instances are not in the map.
+     *
+     * @throws EamDbException
+     */
+    Map<String, List<String>> getListCasesHavingArtifactInstancesKnownBad(CorrelationAttribute.Type aType, Collection<String> values) throws EamDbException;
+
     /**
      * Remove a reference set and all values contained in it.
      *
@@ -530,6 +546,29 @@ static boolean isEnabled() {
      */
     void bulkInsertReferenceTypeEntries(Set<EamGlobalFileInstance> globalInstances, CorrelationAttribute.Type contentType) throws EamDbException;
 
+    /**
+     * Prepare the reference table of a type for the import of a large number
+     * of entries. The central repository may stop maintaining some indexes of
+     * the table until finishBulkReferenceImport is called, which makes the
+     * import faster and lookups in the table slower in the meantime. Every
+     * call must be followed by a call to finishBulkReferenceImport.
+     *
+     * @param contentType the Type of the entries to be imported
+     *
+     * @throws EamDbException
+     */
+    void startBulkReferenceImport(CorrelationAttribute.Type contentType) throws EamDbException;
+
+    /**
+     * Restore the indexes of the reference table of a type after the import
+     * of a large number of entries.
+     *
+     * @param contentType the Type of the imported entries
+     *
+     * @throws EamDbException
+     */
+    void finishBulkReferenceImport(CorrelationAttribute.Type contentType) throws EamDbException;
+
     /**
      * Get all reference entries having a given correlation type and value
      *
@@ -0,0 +1,421 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.centralrepository.datamodel;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A cache of the correlation types, cases, data sources, organizations and
+ * reference sets of a central repository, so that they are not queried for
+ * every correlation attribute that is looked up or inserted.
+ *
+ * The cache holds copies of the objects and hands out copies, so that callers
+ * that modify the objects they are given do not modify the cache. Entries are
+ * invalidated when this node updates them. If the central repository can be
+ * updated by other nodes, every update also writes a new change stamp to the
+ * db_info table, and the stamp is checked at most every
+ * REMOTE_CHANGE_CHECK_INTERVAL_MILLIS; when it has changed, the whole cache is
+ * discarded.
+ */
+@ThreadSafe
+final class MetadataCache {
+
+    private static final String CHANGE_STAMP_NAME = "METADATA_CHANGE_STAMP"; //NON-NLS
+    private static final long REMOTE_CHANGE_CHECK_INTERVAL_MILLIS = 5000;
+    private static final int MAX_CASES = 1000;
+    private static final int MAX_DATA_SOURCES = 5000;
+    private static final int MAX_ORGANIZATIONS = 1000;
+    private static final int MAX_REFERENCE_SETS = 1000;
+
+    private final AbstractSqlEamDb db;
+    private final Cache<String, CorrelationCase> casesByUUID = CacheBuilder.newBuilder().maximumSize(MAX_CASES).build();
+    private final Cache<DataSourceKey, CorrelationDataSource> dataSources = CacheBuilder.newBuilder().maximumSize(MAX_DATA_SOURCES).build();
+    private final Cache<Integer, EamOrganization> organizations = CacheBuilder.newBuilder().maximumSize(MAX_ORGANIZATIONS).build();
+    private final Cache<Integer, EamGlobalSet> referenceSets = CacheBuilder.newBuilder().maximumSize(MAX_REFERENCE_SETS).build();
+    /*
+     * Values are only added to the cache if no invalidation happened while
+     * they were being loaded, so that a value read before an update is not
+     * cached after it.
+     */
+    private final Object lock = new Object();
+    @GuardedBy("lock")
+    private long generation;
+    @GuardedBy("lock")
+    private List<CorrelationAttribute.Type> correlationTypes;
+    private final Object remoteCheckLock = new Object();
+    @GuardedBy("remoteCheckLock")
+    private String lastChangeStamp;
+    @GuardedBy("remoteCheckLock")
+    private long lastRemoteCheckMillis;
+
+    /**
+     * Loads a value from the database when it is not in the cache.
+     */
+    @FunctionalInterface
+    interface Loader<T> {
+
+        /**
+         * Loads the value.
+         *
+         * @return The value, or null if it does not exist.
+         *
+         * @throws EamDbException
+         */
+        T load() throws EamDbException;
+    }
+
+    /**
+     * Constructs a cache of the metadata of a central repository.
+     *
+     * @param db The central repository.
+     */
+    MetadataCache(AbstractSqlEamDb db) {
+        this.db = db;
+    }
+
+    /**
+     * Gets a case.
+     *
+     * @param caseUUID The UUID of the case.
+     * @param loader   Loads the case if it is not cached.
+     *
+     * @return A copy of the case, or null if there is no such case.
+     *
+     * @throws EamDbException
+     */
+    CorrelationCase getCase(String caseUUID, Loader<CorrelationCase> loader) throws EamDbException {
+        if (caseUUID == null) {
+            return loader.load();
+        }
+        CorrelationCase eamCase = get(casesByUUID, caseUUID, loader);
+        return (eamCase == null) ? null : copyOf(eamCase);
+    }
+
+    /**
+     * Gets the database id of a case, without copying the case.
+     *
+     * @param caseUUID The UUID of the case.
+     * @param loader   Loads the case if it is not cached.
+     *
+     * @return The id of the case, or null if there is no such case.
+     *
+     * @throws EamDbException
+     */
+    Integer getCaseId(String caseUUID, Loader<CorrelationCase> loader) throws EamDbException {
+        CorrelationCase eamCase = (caseUUID == null) ? loader.load() : get(casesByUUID, caseUUID, loader);
+        return (eamCase == null) ? null : eamCase.getID();
+    }
+
+    /**
+     * Gets a data source.
+     *
+     * @param caseId   The database id of the case of the data source.
+     * @param deviceId The device id of the data source.
+     * @param loader   Loads the data source if it is not cached.
+     *
+     * @return The data source, or null if there is no such data source.
+     *
+     * @throws EamDbException
+     */
+    CorrelationDataSource getDataSource(int caseId, String deviceId, Loader<CorrelationDataSource> loader) throws EamDbException {
+        // Data sources are immutable, so they are not copied.
+        return get(dataSources, new DataSourceKey(caseId, deviceId), loader);
+    }
+
+    /**
+     * Gets an organization.
+     *
+     * @param orgId  The id of the organization.
+     * @param loader Loads the organization if it is not cached.
+     *
+     * @return A copy of the organization, or null if there is no such
+     *         organization.
+     *
+     * @throws EamDbException
+     */
+    EamOrganization getOrganization(int orgId, Loader<EamOrganization> loader) throws EamDbException {
+        EamOrganization org = get(organizations, orgId, loader);
+        return (org == null) ? null : copyOf(org);
+    }
+
+    /**
+     * Gets a reference set.
+     *
+     * @param referenceSetId The id of the reference set.
+     * @param loader         Loads the reference set if it is not cached.
+     *
+     * @return A copy of the reference set, or null if there is no such
+     *         reference set.
+     *
+     * @throws EamDbException
+     */
+    EamGlobalSet getReferenceSet(int referenceSetId, Loader<EamGlobalSet> loader) throws EamDbException {
+        EamGlobalSet referenceSet = get(referenceSets, referenceSetId, loader);
+        return (referenceSet == null) ? null : copyOf(referenceSet);
+    }
+
+    /**
+     * Gets all of the correlation types defined in the central repository.
+     *
+     * @param loader Loads the correlation types if they are not cached.
+     *
+     * @return Copies of the correlation types.
+     *
+     * @throws EamDbException
+     */
+    List<CorrelationAttribute.Type> getCorrelationTypes(Loader<List<CorrelationAttribute.Type>> loader) throws EamDbException {
+        checkForRemoteChanges();
+        List<CorrelationAttribute.Type> types;
+        long loadGeneration;
+        synchronized (lock) {
+            types = correlationTypes;
+            loadGeneration = generation;
+        }
+        if (types == null) {
+            types = new ArrayList<>();
+            for (CorrelationAttribute.Type type : loader.load()) {
+                types.add(copyOf(type));
+            }
+            types = Collections.unmodifiableList(types);
+            synchronized (lock) {
+                if (generation == loadGeneration) {
+                    correlationTypes = types;
+                }
+            }
+        }
+        List<CorrelationAttribute.Type> copies = new ArrayList<>(types.size());
+        for (CorrelationAttribute.Type type : types) {
+            copies.add(copyOf(type));
+        }
+        return copies;
+    }
+
+    /**
+     * Invalidates a case after it has been updated.
+     *
+     * @param caseUUID The UUID of the case.
+     *
+     * @throws EamDbException
+     */
+    void caseChanged(String caseUUID) throws EamDbException {
+        synchronized (lock) {
+            generation++;
+            casesByUUID.invalidate(caseUUID);
+        }
+        publishChange();
+    }
+
+    /**
+     * Invalidates an organization, and the cases that refer to it, after it
+     * has been updated or deleted.
+     *
+     * @param orgId The id of the organization.
+     *
+     * @throws EamDbException
+     */
+    void organizationChanged(int orgId) throws EamDbException {
+        synchronized (lock) {
+            generation++;
+            organizations.invalidate(orgId);
+            casesByUUID.invalidateAll();
+        }
+        publishChange();
+    }
+
+    /**
+     * Invalidates a reference set after it has been deleted.
+     *
+     * @param referenceSetId The id of the reference set.
+     *
+     * @throws EamDbException
+     */
+    void referenceSetChanged(int referenceSetId) throws EamDbException {
+        synchronized (lock) {
+            generation++;
+            referenceSets.invalidate(referenceSetId);
+        }
+        publishChange();
+    }
+
+    /**
+     * Invalidates the correlation types after one has been added or updated.
+     *
+     * @throws EamDbException
+     */
+    void correlationTypesChanged() throws EamDbException {
+        synchronized (lock) {
+            generation++;
+            correlationTypes = null;
+        }
+        publishChange();
+    }
+
+    /**
+     * Discards the whole cache, which must be done when the database settings
+     * change or the database is reset.
+     */
+    void clear() {
+        discardAll();
+        synchronized (remoteCheckLock) {
+            lastChangeStamp = null;
+            lastRemoteCheckMillis = 0;
+        }
+    }
+
+    private void discardAll() {
+        synchronized (lock) {
+            generation++;
+            correlationTypes = null;
+            casesByUUID.invalidateAll();
+            dataSources.invalidateAll();
+            organizations.invalidateAll();
+            referenceSets.invalidateAll();
+        }
+    }
+
+    private <K, V> V get(Cache<K, V> cache, K key, Loader<V> loader) throws EamDbException {
+        checkForRemoteChanges();
+        V value = cache.getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        long loadGeneration;
+        synchronized (lock) {
+            loadGeneration = generation;
+        }
+        value = loader.load();
+        if (value != null) {
+            synchronized (lock) {
+                if (generation == loadGeneration) {
+                    cache.put(key, value);
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Discards the cache if another node has changed the metadata since the
+     * last check.
+     */
+    private void checkForRemoteChanges() throws EamDbException {
+        if (!db.mayBeUpdatedRemotely()) {
+            return;
+        }
+        synchronized (remoteCheckLock) {
+            long now = System.currentTimeMillis();
+            if (now - lastRemoteCheckMillis < REMOTE_CHANGE_CHECK_INTERVAL_MILLIS) {
+                return;
+            }
+            String changeStamp = db.getDbInfo(CHANGE_STAMP_NAME);
+            lastRemoteCheckMillis = now;
+            if (!Objects.equals(changeStamp, lastChangeStamp)) {
+                lastChangeStamp = changeStamp;
+                discardAll();
+            }
+        }
+    }
+
+    /**
+     * Tells the other nodes that the metadata has changed. This node discards
+     * its own cache once more when it next sees the new stamp, which is
+     * harmless.
+     */
+    private void publishChange() throws EamDbException {
+        if (!db.mayBeUpdatedRemotely()) {
+            return;
+        }
+        String changeStamp = UUID.randomUUID().toString();
+        if (db.getDbInfo(CHANGE_STAMP_NAME) == null) {
+            db.newDbInfo(CHANGE_STAMP_NAME, changeStamp);
+        } else {
+            db.updateDbInfo(CHANGE_STAMP_NAME, changeStamp);
+        }
+    }
+
+    private static CorrelationCase copyOf(CorrelationCase eamCase) {
+        return new CorrelationCase(eamCase.getID(),
+                eamCase.getCaseUUID(),
+                (eamCase.getOrg() == null) ? null : copyOf(eamCase.getOrg()),
+                eamCase.getDisplayName(),
+                eamCase.getCreationDate(),
+                eamCase.getCaseNumber(),
+                eamCase.getExaminerName(),
+                eamCase.getExaminerEmail(),
+                eamCase.getExaminerPhone(),
+                eamCase.getNotes());
+    }
+
+    private static EamOrganization copyOf(EamOrganization org) {
+        return new EamOrganization(org.getOrgID(), org.getName(), org.getPocName(), org.getPocEmail(), org.getPocPhone());
+    }
+
+    private static EamGlobalSet copyOf(EamGlobalSet referenceSet) throws EamDbException {
+        return new EamGlobalSet(referenceSet.getGlobalSetID(),
+                referenceSet.getOrgID(),
+                referenceSet.getSetName(),
+                referenceSet.getVersion(),
+                referenceSet.getFileKnownStatus(),
+                referenceSet.isReadOnly(),
+                (referenceSet.getType() == null) ? null : copyOf(referenceSet.getType()),
+                referenceSet.getImportDate());
+    }
+
+    private static CorrelationAttribute.Type copyOf(CorrelationAttribute.Type type) throws EamDbException {
+        return new CorrelationAttribute.Type(type.getId(), type.getDisplayName(), type.getDbTableName(), type.isSupported(), type.isEnabled());
+    }
+
+    /**
+     * The key of a data source, which is unique within its case.
+     */
+    @Immutable
+    private static final class DataSourceKey {
+
+        private final int caseId;
+        private final String deviceId;
+
+        DataSourceKey(int caseId, String deviceId) {
+            this.caseId = caseId;
+            this.deviceId = deviceId;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof DataSourceKey)) {
+                return false;
+            }
+            DataSourceKey that = (DataSourceKey) other;
+            return caseId == that.caseId && Objects.equals(deviceId, that.deviceId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * caseId + Objects.hashCode(deviceId);
+        }
+    }
+}
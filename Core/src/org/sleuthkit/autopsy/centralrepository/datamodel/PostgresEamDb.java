@@ -18,6 +18,8 @@
  */
 package org.sleuthkit.autopsy.centralrepository.datamodel;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -29,6 +31,7 @@
 import org.sleuthkit.autopsy.coordinationservice.CoordinationService;
 import org.sleuthkit.autopsy.core.UserPreferences;
 import org.sleuthkit.autopsy.coreutils.Logger;
+import org.sleuthkit.autopsy.coreutils.PlatformUtil;
 
 /**
  * Central Repository database implementation using Postgres as a
@@ -39,10 +42,12 @@ public class PostgresEamDb extends AbstractSqlEamDb {
     private final static Logger LOGGER = Logger.getLogger(PostgresEamDb.class.getName());
 
     private final static String CONFLICT_CLAUSE = "ON CONFLICT DO NOTHING";
+    private final static String REFERENCE_SET_FILTER_DIRECTORY = "central_repository_filters"; // NON-NLS
 
     private static PostgresEamDb instance;
 
     private static final int CONN_POOL_SIZE = 10;
+    private static final int REFERENCE_INSERT_ROWS_PER_STATEMENT = 500;
     private BasicDataSource connectionPool = null;
 
     private final PostgresEamDbSettings dbSettings;
@@ -92,6 +97,7 @@ public void updateSettings() {
             dbSettings.loadSettings();
             bulkArtifactsThreshold = dbSettings.getBulkThreshold();
         }
+        clearCaches(false);
     }
 
     @Override
@@ -128,6 +134,7 @@ public void reset() throws EamDbException {
         } finally {
             EamDbUtil.closeConnection(conn);
         }
+        clearCaches(true);
 
         dbSettings.insertDefaultDatabaseContent();
     }
@@ -190,6 +197,28 @@ protected Connection connect() throws EamDbException {
     protected String getConflictClause() {
         return CONFLICT_CLAUSE;
     }
+
+    /**
+     * The filters are saved in the user config directory, in a directory for
+     * the server and database.
+     */
+    @Override
+    protected Path getReferenceSetFilterDirectory() {
+        synchronized (this) {
+            String databaseName = (dbSettings.getHost() + "_" + dbSettings.getPort() + "_" + dbSettings.getDbName()).replaceAll("[^A-Za-z0-9._-]", "_"); //NON-NLS
+            return Paths.get(PlatformUtil.getUserConfigDirectory(), REFERENCE_SET_FILTER_DIRECTORY, databaseName);
+        }
+    }
+
+    @Override
+    protected boolean mayBeUpdatedRemotely() {
+        return true;
+    }
+
+    @Override
+    protected int getReferenceInsertRowsPerStatement() {
+        return REFERENCE_INSERT_ROWS_PER_STATEMENT;
+    }
     
     /**
      * Gets an exclusive lock (if applicable).
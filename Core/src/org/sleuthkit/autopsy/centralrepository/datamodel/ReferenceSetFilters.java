@@ -0,0 +1,564 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.centralrepository.datamodel;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.Funnels;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
+import java.util.logging.Level;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import org.sleuthkit.autopsy.coreutils.Logger;
+
+/**
+ * Bloom filters of the values in the reference sets of a central repository,
+ * which answer most lookups of values that are not in a reference set without
+ * querying the central repository.
+ *
+ * The filter for a reference set is loaded or built in the background the
+ * first time a value is looked up in the set; until it is ready, lookups go
+ * to the database. Filters are saved in the directory given by the central
+ * repository along with the largest reference entry id they cover, so that a
+ * saved filter only needs to be caught up with the entries added since it was
+ * saved. Values added by this node are added to the filters as they are
+ * inserted. If the central repository can be updated by other nodes, the
+ * filters are also caught up with the entries added since they were last
+ * checked at most every REMOTE_UPDATE_CHECK_INTERVAL_MILLIS.
+ *
+ * A filter is sized for the number of values in its set when it is built. If
+ * the set grows so much that the expected false positive probability of the
+ * filter exceeds MAX_FALSE_POSITIVE_PROBABILITY, the filter is rebuilt from
+ * the database for the new number of values, and the saturated filter keeps
+ * answering lookups until the new one is ready.
+ */
+@ThreadSafe
+final class ReferenceSetFilters {
+
+    private static final Logger LOGGER = Logger.getLogger(ReferenceSetFilters.class.getName());
+    private static final Funnel<CharSequence> FUNNEL = Funnels.stringFunnel(StandardCharsets.UTF_8);
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+    private static final double MAX_FALSE_POSITIVE_PROBABILITY = 0.05;
+    private static final int MIN_EXPECTED_VALUES = 10000;
+    private static final long SCAN_CHUNK_IDS = 100000;
+    private static final long REMOTE_UPDATE_CHECK_INTERVAL_MILLIS = 30000;
+    /*
+     * Entry ids are assigned before the entries are committed, so an entry
+     * added by another node can become visible after entries with larger ids.
+     * Catching up from a remote update check rereads this many ids before the
+     * last id that was read, for a few checks after entries were added.
+     */
+    private static final long REMOTE_UPDATE_LOOKBACK_IDS = 100000;
+    private static final int REMOTE_UPDATE_RECHECKS = 2;
+    private static final int FILE_FORMAT_VERSION = 1;
+    private static final String FILE_EXTENSION = ".bloom"; //NON-NLS
+
+    private final AbstractSqlEamDb db;
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("Reference-Set-Filter-Loader-%d").setDaemon(true).build());
+    private final Map<List<Integer>, SetFilter> filters = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs the Bloom filters of the values in the reference sets of a
+     * central repository.
+     *
+     * @param db The central repository.
+     */
+    ReferenceSetFilters(AbstractSqlEamDb db) {
+        this.db = db;
+    }
+
+    /**
+     * Determines whether a value is certainly not in a reference set. A
+     * result of false means that the database has to be queried.
+     *
+     * @param value             The value.
+     * @param referenceSetID    The id of the reference set.
+     * @param correlationTypeID The correlation type id of the value.
+     *
+     * @return True if the value is not in the reference set.
+     */
+    boolean isDefinitelyAbsent(String value, int referenceSetID, int correlationTypeID) {
+        if (null == value) {
+            return false;
+        }
+        SetFilter setFilter = filters.computeIfAbsent(key(referenceSetID, correlationTypeID), k -> {
+            SetFilter newFilter = new SetFilter(referenceSetID, correlationTypeID);
+            loader.submit(() -> load(newFilter));
+            return newFilter;
+        });
+        if (!setFilter.isReady()) {
+            return false;
+        }
+        if (db.mayBeUpdatedRemotely()) {
+            scheduleRemoteUpdateCheck(setFilter);
+        }
+        return !setFilter.mightContain(value);
+    }
+
+    /**
+     * Adds values that have been inserted into reference sets by this node to
+     * the filters.
+     *
+     * @param instances         The inserted reference entries.
+     * @param correlationTypeID The correlation type id of the entries.
+     */
+    void valuesAdded(Collection<EamGlobalFileInstance> instances, int correlationTypeID) {
+        for (EamGlobalFileInstance instance : instances) {
+            SetFilter setFilter = filters.get(key(instance.getGlobalSetID(), correlationTypeID));
+            if (null != setFilter && null != instance.getMD5Hash() && setFilter.put(instance.getMD5Hash())) {
+                scheduleRebuild(setFilter);
+            }
+        }
+    }
+
+    /**
+     * Discards the filters of a reference set that has been deleted.
+     *
+     * @param referenceSetID The id of the reference set.
+     */
+    void referenceSetDeleted(int referenceSetID) {
+        filters.entrySet().removeIf(entry -> {
+            if (entry.getValue().referenceSetID == referenceSetID) {
+                entry.getValue().discard();
+                return true;
+            }
+            return false;
+        });
+        loader.submit(() -> deleteFilterFiles(referenceSetID));
+    }
+
+    /**
+     * Discards all of the filters, for example when the central repository
+     * settings have changed.
+     *
+     * @param deleteFiles Whether or not to delete the saved filters as well,
+     *                    when the central repository has been reset.
+     */
+    void clear(boolean deleteFiles) {
+        filters.values().forEach(SetFilter::discard);
+        filters.clear();
+        if (deleteFiles) {
+            loader.submit(() -> deleteFilterFiles(null));
+        }
+    }
+
+    private static List<Integer> key(int referenceSetID, int correlationTypeID) {
+        return Arrays.asList(referenceSetID, correlationTypeID);
+    }
+
+    /**
+     * Loads the filter for a reference set from its file, catching it up with
+     * the entries added since it was saved, or builds it from the database if
+     * there is no usable file. Runs in the loader thread.
+     */
+    private void load(SetFilter setFilter) {
+        try {
+            String tableName = EamDbUtil.correlationTypeToReferenceTableName(db.getCorrelationTypeById(setFilter.correlationTypeID));
+            EamGlobalSet referenceSet = db.getReferenceSetByID(setFilter.referenceSetID);
+            if (null == referenceSet) {
+                return;
+            }
+            Path filterFile = getFilterFile(tableName, setFilter.referenceSetID);
+            SavedFilter saved = (null != filterFile) ? readFilterFile(filterFile, referenceSet, tableName, setFilter.referenceSetID) : null;
+
+            BloomFilter<CharSequence> bloomFilter;
+            long coveredMaxId;
+            long count;
+            if (null != saved) {
+                bloomFilter = saved.bloomFilter;
+                coveredMaxId = saved.maxId;
+                count = saved.count;
+            } else {
+                coveredMaxId = db.getMaxReferenceId(tableName);
+                count = db.countReferenceValues(tableName, setFilter.referenceSetID, coveredMaxId);
+                bloomFilter = buildFilter(tableName, setFilter.referenceSetID, coveredMaxId, count);
+            }
+
+            long currentMaxId = db.getMaxReferenceId(tableName);
+            boolean rebuilt = false;
+            if (currentMaxId > coveredMaxId) {
+                long from = db.mayBeUpdatedRemotely() ? Math.max(0, coveredMaxId - REMOTE_UPDATE_LOOKBACK_IDS) : coveredMaxId;
+                readValues(tableName, setFilter.referenceSetID, from, currentMaxId, bloomFilter);
+                count = db.countReferenceValues(tableName, setFilter.referenceSetID, currentMaxId);
+                if (isSaturated(bloomFilter)) {
+                    // the set has outgrown the filter since the filter was built
+                    bloomFilter = buildFilter(tableName, setFilter.referenceSetID, currentMaxId, count);
+                    rebuilt = true;
+                }
+            }
+            if (null != filterFile && (null == saved || currentMaxId > coveredMaxId || rebuilt)) {
+                writeFilterFile(filterFile, referenceSet, currentMaxId, count, bloomFilter);
+            }
+            setFilter.publish(bloomFilter, currentMaxId);
+        } catch (EamDbException | IOException ex) {
+            LOGGER.log(Level.WARNING, String.format("Failed to load the filter for reference set %d, values will be looked up in the database", setFilter.referenceSetID), ex); //NON-NLS
+        }
+    }
+
+    /**
+     * Schedules a rebuild of a filter that has become saturated, unless one is
+     * already scheduled.
+     */
+    private void scheduleRebuild(SetFilter setFilter) {
+        if (setFilter.startRebuild()) {
+            loader.submit(() -> rebuild(setFilter));
+        }
+    }
+
+    /**
+     * Rebuilds the filter for a reference set from the database, sized for
+     * the current number of values in the set, and saves it. Runs in the
+     * loader thread.
+     */
+    private void rebuild(SetFilter setFilter) {
+        try {
+            String tableName = EamDbUtil.correlationTypeToReferenceTableName(db.getCorrelationTypeById(setFilter.correlationTypeID));
+            EamGlobalSet referenceSet = db.getReferenceSetByID(setFilter.referenceSetID);
+            if (null == referenceSet) {
+                setFilter.rebuildFailed();
+                return;
+            }
+            long currentMaxId = db.getMaxReferenceId(tableName);
+            long count = db.countReferenceValues(tableName, setFilter.referenceSetID, currentMaxId);
+            BloomFilter<CharSequence> bloomFilter = buildFilter(tableName, setFilter.referenceSetID, currentMaxId, count);
+            Path filterFile = getFilterFile(tableName, setFilter.referenceSetID);
+            if (null != filterFile) {
+                writeFilterFile(filterFile, referenceSet, currentMaxId, count, bloomFilter);
+            }
+            setFilter.publish(bloomFilter, currentMaxId);
+        } catch (EamDbException | IOException ex) {
+            setFilter.rebuildFailed();
+            LOGGER.log(Level.WARNING, String.format("Failed to rebuild the filter for reference set %d", setFilter.referenceSetID), ex); //NON-NLS
+        }
+    }
+
+    /**
+     * Builds a filter sized for the number of values in a reference set, with
+     * room for the set to grow, from the entries with ids up to a maximum.
+     */
+    private BloomFilter<CharSequence> buildFilter(String tableName, int referenceSetID, long maxId, long count) throws EamDbException {
+        BloomFilter<CharSequence> bloomFilter = BloomFilter.create(FUNNEL, Math.max(MIN_EXPECTED_VALUES, count + count / 4), FALSE_POSITIVE_PROBABILITY);
+        readValues(tableName, referenceSetID, 0, maxId, bloomFilter);
+        return bloomFilter;
+    }
+
+    private static boolean isSaturated(BloomFilter<CharSequence> bloomFilter) {
+        return bloomFilter.expectedFpp() > MAX_FALSE_POSITIVE_PROBABILITY;
+    }
+
+    /**
+     * Schedules a check for entries added to the reference set by other nodes
+     * if the filter was last checked more than
+     * REMOTE_UPDATE_CHECK_INTERVAL_MILLIS ago.
+     */
+    private void scheduleRemoteUpdateCheck(SetFilter setFilter) {
+        if (System.currentTimeMillis() - setFilter.lastChecked < REMOTE_UPDATE_CHECK_INTERVAL_MILLIS
+                || !setFilter.checking.compareAndSet(false, true)) {
+            return;
+        }
+        loader.submit(() -> {
+            try {
+                String tableName = EamDbUtil.correlationTypeToReferenceTableName(db.getCorrelationTypeById(setFilter.correlationTypeID));
+                long currentMaxId = db.getMaxReferenceId(tableName);
+                long coveredMaxId = setFilter.getCoveredMaxId();
+                if (currentMaxId > coveredMaxId) {
+                    setFilter.rechecks = REMOTE_UPDATE_RECHECKS;
+                } else if (setFilter.rechecks > 0) {
+                    setFilter.rechecks--;
+                } else {
+                    return;
+                }
+                List<String> values = new ArrayList<>();
+                db.readReferenceValues(tableName, setFilter.referenceSetID, Math.max(0, coveredMaxId - REMOTE_UPDATE_LOOKBACK_IDS), currentMaxId, values::add);
+                boolean saturated = false;
+                for (String value : values) {
+                    saturated |= setFilter.put(value);
+                }
+                setFilter.setCoveredMaxId(Math.max(coveredMaxId, currentMaxId));
+                if (saturated) {
+                    scheduleRebuild(setFilter);
+                }
+            } catch (EamDbException ex) {
+                LOGGER.log(Level.WARNING, String.format("Failed to check reference set %d for updates", setFilter.referenceSetID), ex); //NON-NLS
+            } finally {
+                setFilter.lastChecked = System.currentTimeMillis();
+                setFilter.checking.set(false);
+            }
+        });
+    }
+
+    /**
+     * Reads the values of the entries of a reference set with ids in a range
+     * into a Bloom filter, a chunk of ids at a time.
+     */
+    private void readValues(String tableName, int referenceSetID, long afterId, long upToId, BloomFilter<CharSequence> bloomFilter) throws EamDbException {
+        for (long chunkStart = afterId; chunkStart < upToId; chunkStart += SCAN_CHUNK_IDS) {
+            db.readReferenceValues(tableName, referenceSetID, chunkStart, Math.min(upToId, chunkStart + SCAN_CHUNK_IDS), bloomFilter::put);
+        }
+    }
+
+    private Path getFilterFile(String tableName, int referenceSetID) {
+        Path directory = db.getReferenceSetFilterDirectory();
+        return (null != directory) ? directory.resolve(tableName + "_" + referenceSetID + FILE_EXTENSION) : null;
+    }
+
+    /**
+     * Reads a saved filter, if there is one that is still valid: the reference
+     * set must have the same name and version, and the entries of the set
+     * that the filter covers must still be in the database.
+     */
+    private SavedFilter readFilterFile(Path filterFile, EamGlobalSet referenceSet, String tableName, int referenceSetID) throws EamDbException {
+        if (!Files.isRegularFile(filterFile)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(filterFile)))) {
+            if (in.readInt() != FILE_FORMAT_VERSION
+                    || !in.readUTF().equals(referenceSet.getSetName())
+                    || !in.readUTF().equals(referenceSet.getVersion())) {
+                return null;
+            }
+            long maxId = in.readLong();
+            long count = in.readLong();
+            if (db.getMaxReferenceId(tableName) < maxId || db.countReferenceValues(tableName, referenceSetID, maxId) != count) {
+                return null;
+            }
+            return new SavedFilter(BloomFilter.readFrom(in, FUNNEL), maxId, count);
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "Failed to read reference set filter " + filterFile, ex); //NON-NLS
+            return null;
+        }
+    }
+
+    private static void writeFilterFile(Path filterFile, EamGlobalSet referenceSet, long maxId, long count, BloomFilter<CharSequence> bloomFilter) throws IOException {
+        Files.createDirectories(filterFile.getParent());
+        Path tempFile = filterFile.resolveSibling(filterFile.getFileName() + ".tmp"); //NON-NLS
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(FILE_FORMAT_VERSION);
+            out.writeUTF(referenceSet.getSetName());
+            out.writeUTF(referenceSet.getVersion());
+            out.writeLong(maxId);
+            out.writeLong(count);
+            bloomFilter.writeTo(out);
+        }
+        Files.move(tempFile, filterFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Deletes the saved filters of a reference set, or of all reference sets.
+     *
+     * @param referenceSetID The id of the reference set, or null for all sets.
+     */
+    private void deleteFilterFiles(Integer referenceSetID) {
+        Path directory = db.getReferenceSetFilterDirectory();
+        if (null == directory || !Files.isDirectory(directory)) {
+            return;
+        }
+        String suffix = (null != referenceSetID) ? "_" + referenceSetID + FILE_EXTENSION : FILE_EXTENSION;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + suffix)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Failed to delete reference set filters in " + directory, ex); //NON-NLS
+        }
+    }
+
+    /**
+     * A filter read from a file.
+     */
+    private static final class SavedFilter {
+
+        private final BloomFilter<CharSequence> bloomFilter;
+        private final long maxId;
+        private final long count;
+
+        private SavedFilter(BloomFilter<CharSequence> bloomFilter, long maxId, long count) {
+            this.bloomFilter = bloomFilter;
+            this.maxId = maxId;
+            this.count = count;
+        }
+    }
+
+    /**
+     * The filter for the values of one correlation type in one reference set.
+     * Lookups are lock free unless they overlap the addition of values.
+     */
+    @ThreadSafe
+    private static final class SetFilter {
+
+        private final int referenceSetID;
+        private final int correlationTypeID;
+        private final StampedLock lock = new StampedLock();
+        private final AtomicBoolean checking = new AtomicBoolean();
+        private volatile boolean ready;
+        private volatile long lastChecked;
+        private volatile int rechecks;
+        @GuardedBy("lock")
+        private BloomFilter<CharSequence> bloomFilter;
+        @GuardedBy("lock")
+        private long coveredMaxId;
+        @GuardedBy("lock")
+        private boolean discarded;
+        @GuardedBy("lock")
+        private boolean rebuilding;
+        /*
+         * Values added while the filter is being loaded or rebuilt, which may
+         * have been committed after the load or rebuild read the entries.
+         */
+        @GuardedBy("lock")
+        private final List<String> pendingValues = new ArrayList<>();
+
+        private SetFilter(int referenceSetID, int correlationTypeID) {
+            this.referenceSetID = referenceSetID;
+            this.correlationTypeID = correlationTypeID;
+        }
+
+        boolean isReady() {
+            return ready;
+        }
+
+        boolean mightContain(String value) {
+            long stamp = lock.tryOptimisticRead();
+            boolean result = bloomFilter.mightContain(value);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    result = bloomFilter.mightContain(value);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Adds a value to the filter.
+         *
+         * @param value The value.
+         *
+         * @return True if the filter has become saturated and should be
+         *         rebuilt.
+         */
+        boolean put(String value) {
+            long stamp = lock.writeLock();
+            try {
+                if ((null == bloomFilter || rebuilding) && !discarded) {
+                    pendingValues.add(value);
+                }
+                if (null != bloomFilter) {
+                    bloomFilter.put(value);
+                    return !rebuilding && isSaturated(bloomFilter);
+                }
+                return false;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        boolean startRebuild() {
+            long stamp = lock.writeLock();
+            try {
+                if (discarded || rebuilding || !ready) {
+                    return false;
+                }
+                rebuilding = true;
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void rebuildFailed() {
+            long stamp = lock.writeLock();
+            try {
+                rebuilding = false;
+                pendingValues.clear();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void publish(BloomFilter<CharSequence> loadedFilter, long maxId) {
+            long stamp = lock.writeLock();
+            try {
+                if (discarded) {
+                    return;
+                }
+                pendingValues.forEach(loadedFilter::put);
+                pendingValues.clear();
+                bloomFilter = loadedFilter;
+                coveredMaxId = maxId;
+                rebuilding = false;
+                lastChecked = System.currentTimeMillis();
+                ready = true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        long getCoveredMaxId() {
+            long stamp = lock.readLock();
+            try {
+                return coveredMaxId;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void setCoveredMaxId(long maxId) {
+            long stamp = lock.writeLock();
+            try {
+                coveredMaxId = maxId;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void discard() {
+            long stamp = lock.writeLock();
+            try {
+                discarded = true;
+                pendingValues.clear();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+}
@@ -19,13 +19,18 @@
 package org.sleuthkit.autopsy.centralrepository.datamodel;
 
 import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import org.apache.commons.dbcp2.BasicDataSource;
 import org.sleuthkit.autopsy.coreutils.Logger;
@@ -41,12 +46,20 @@
 public class SqliteEamDb extends AbstractSqlEamDb {
 
     private final static Logger LOGGER = Logger.getLogger(SqliteEamDb.class.getName());
+    private final static String REFERENCE_SET_FILTER_DIRECTORY = "reference_set_filters"; // NON-NLS
+    private final static String DROP_REFERENCE_TYPES_VALUE_INDEX = "DROP INDEX IF EXISTS %s_value"; // NON-NLS
+    private final static String DROP_REFERENCE_TYPES_VALUE_KNOWN_STATUS_INDEX = "DROP INDEX IF EXISTS %s_value_known_status"; // NON-NLS
 
     private static SqliteEamDb instance;
 
     private BasicDataSource connectionPool = null;
 
     private final SqliteEamDbSettings dbSettings;
+
+    // The number of bulk reference imports in progress, only modified while
+    // holding the exclusive lock. The reference indexes are restored when it
+    // drops to 0.
+    private volatile int bulkReferenceImports = 0;
     
     // While the Sqlite database should only be used for single users, it is still
     // possible for multiple threads to attempt to write to the database simultaneously. 
@@ -97,6 +110,7 @@ public void updateSettings() {
             dbSettings.loadSettings();
             bulkArtifactsThreshold = dbSettings.getBulkThreshold();
         }
+        clearCaches(false);
     }
 
     @Override
@@ -139,6 +153,7 @@ public void reset() throws EamDbException {
             } finally {
                 EamDbUtil.closeConnection(conn);
             }
+            clearCaches(true);
 
             dbSettings.insertDefaultDatabaseContent();
         } finally {
@@ -167,6 +182,29 @@ private void setupConnectionPool() throws EamDbException {
         connectionPool.setMaxWaitMillis(1000);
         connectionPool.setValidationQuery(dbSettings.getValidationQuery());
         connectionPool.setConnectionInitSqls(Arrays.asList("PRAGMA foreign_keys = ON"));
+
+        // Restore any reference indexes left dropped by a bulk import that
+        // did not finish, e.g. because the application crashed.
+        if (bulkReferenceImports == 0) {
+            try (Connection conn = connectionPool.getConnection()) {
+                createReferenceIndexes(conn);
+            } catch (SQLException ex) {
+                LOGGER.log(Level.WARNING, "Failed to restore the reference indexes.", ex); // NON-NLS
+            }
+        }
+    }
+
+    private void createReferenceIndexes(Connection conn) throws SQLException {
+        for (CorrelationAttribute.Type type : DEFAULT_CORRELATION_TYPES) {
+            // FUTURE: support other reference types
+            if (type.getId() == CorrelationAttribute.FILES_TYPE_ID) {
+                String tableName = EamDbUtil.correlationTypeToReferenceTableName(type);
+                try (Statement statement = conn.createStatement()) {
+                    statement.execute(String.format(SqliteEamDbSettings.REFERENCE_TYPES_VALUE_INDEX, tableName, tableName));
+                    statement.execute(String.format(SqliteEamDbSettings.REFERENCE_TYPES_VALUE_KNOWN_STATUS_INDEX, tableName, tableName));
+                }
+            }
+        }
     }
 
     /**
@@ -201,6 +239,13 @@ protected String getConflictClause() {
         return "";
     }
 
+    @Override
+    protected Path getReferenceSetFilterDirectory() {
+        synchronized (this) {
+            return Paths.get(dbSettings.getDbDirectory(), REFERENCE_SET_FILTER_DIRECTORY);
+        }
+    }
+
    
     /**
      * Add a new name/value pair in the db_info table.
@@ -629,6 +674,28 @@ public List<String> getListCasesHavingArtifactInstancesKnownBad(CorrelationAttri
             releaseSharedLock();
         }       
     }    
+
+    /**
+     * Gets the lists of distinct case display names, where each case has 1+
+     * Artifact Instance with knownStatus = "Bad", for several values at once.
+     *
+     * @param aType  EamArtifact.Type to search for
+     * @param values Values to search for
+     *
+     * @return Lists of cases containing artifacts with instances marked as bad,
+     * by value. Values with no such instances are not in the map.
+     *
+     * @throws EamDbException
+     */
+    @Override
+    public Map<String, List<String>> getListCasesHavingArtifactInstancesKnownBad(CorrelationAttribute.Type aType, Collection<String> values) throws EamDbException {
+        try{
+            acquireSharedLock();
+            return super.getListCasesHavingArtifactInstancesKnownBad(aType, values);
+        } finally {
+            releaseSharedLock();
+        }
+    }
     
     /**
      * Remove a reference set and all values contained in it.
@@ -661,6 +728,36 @@ public boolean isValueInReferenceSet(String value, int referenceSetID, int corre
             releaseSharedLock();
         }          
     }
+
+    @Override
+    long getMaxReferenceId(String tableName) throws EamDbException {
+        try {
+            acquireSharedLock();
+            return super.getMaxReferenceId(tableName);
+        } finally {
+            releaseSharedLock();
+        }
+    }
+
+    @Override
+    long countReferenceValues(String tableName, int referenceSetID, long maxId) throws EamDbException {
+        try {
+            acquireSharedLock();
+            return super.countReferenceValues(tableName, referenceSetID, maxId);
+        } finally {
+            releaseSharedLock();
+        }
+    }
+
+    @Override
+    void readReferenceValues(String tableName, int referenceSetID, long afterId, long upToId, Consumer<String> consumer) throws EamDbException {
+        try {
+            acquireSharedLock();
+            super.readReferenceValues(tableName, referenceSetID, afterId, upToId, consumer);
+        } finally {
+            releaseSharedLock();
+        }
+    }
     
     /**
      * Check whether a reference set with the given name/version is in the central repo.
@@ -862,6 +959,66 @@ public void bulkInsertReferenceTypeEntries(Set<EamGlobalFileInstance> globalInst
             releaseExclusiveLock();
         }  
     }    
+
+    /**
+     * Drop the value indexes of the reference table for the duration of a
+     * bulk import, since updating them for every inserted row is most of the
+     * cost of the import. The unique constraint on the reference set and
+     * value is kept, so duplicates are still ignored.
+     *
+     * @param contentType the Type of the entries to be imported
+     *
+     * @throws EamDbException
+     */
+    @Override
+    public void startBulkReferenceImport(CorrelationAttribute.Type contentType) throws EamDbException {
+        try {
+            acquireExclusiveLock();
+            if (bulkReferenceImports++ > 0) {
+                return;
+            }
+            String tableName = EamDbUtil.correlationTypeToReferenceTableName(contentType);
+            Connection conn = connect();
+            try (Statement statement = conn.createStatement()) {
+                statement.execute(String.format(DROP_REFERENCE_TYPES_VALUE_INDEX, tableName));
+                statement.execute(String.format(DROP_REFERENCE_TYPES_VALUE_KNOWN_STATUS_INDEX, tableName));
+            } catch (SQLException ex) {
+                throw new EamDbException("Error dropping reference indexes.", ex); // NON-NLS
+            } finally {
+                EamDbUtil.closeConnection(conn);
+            }
+        } finally {
+            releaseExclusiveLock();
+        }
+    }
+
+    /**
+     * Recreate the value indexes of the reference table once the last bulk
+     * import has finished.
+     *
+     * @param contentType the Type of the imported entries
+     *
+     * @throws EamDbException
+     */
+    @Override
+    public void finishBulkReferenceImport(CorrelationAttribute.Type contentType) throws EamDbException {
+        try {
+            acquireExclusiveLock();
+            if (bulkReferenceImports == 0 || --bulkReferenceImports > 0) {
+                return;
+            }
+            Connection conn = connect();
+            try {
+                createReferenceIndexes(conn);
+            } catch (SQLException ex) {
+                throw new EamDbException("Error creating reference indexes.", ex); // NON-NLS
+            } finally {
+                EamDbUtil.closeConnection(conn);
+            }
+        } finally {
+            releaseExclusiveLock();
+        }
+    }
     
     /**
      * Get all reference entries having a given correlation type and value
@@ -48,6 +48,9 @@ public final class SqliteEamDbSettings {
     private static final String PRAGMA_SYNC_OFF = "PRAGMA synchronous = OFF";
     private static final String PRAGMA_SYNC_NORMAL = "PRAGMA synchronous = NORMAL";
     private static final String PRAGMA_JOURNAL_WAL = "PRAGMA journal_mode = WAL";
+    // Each "%s" will be replaced with the relevant reference_TYPE table name.
+    static final String REFERENCE_TYPES_VALUE_INDEX = "CREATE INDEX IF NOT EXISTS %s_value ON %s (value)"; // NON-NLS
+    static final String REFERENCE_TYPES_VALUE_KNOWN_STATUS_INDEX = "CREATE INDEX IF NOT EXISTS %s_value_known_status ON %s (value, known_status)"; // NON-NLS
     private static final String PRAGMA_READ_UNCOMMITTED_TRUE = "PRAGMA read_uncommitted = True";
     private static final String PRAGMA_ENCODING_UTF8 = "PRAGMA encoding = 'UTF-8'";
     private static final String PRAGMA_PAGE_SIZE_4096 = "PRAGMA page_size = 4096";
@@ -318,10 +321,6 @@ public boolean initializeDatabaseSchema() {
         createReferenceTypesTableTemplate.append("foreign key (reference_set_id) references reference_sets(id) ON UPDATE SET NULL ON DELETE SET NULL");
         createReferenceTypesTableTemplate.append(")");
 
-        // Each "%s" will be replaced with the relevant reference_TYPE table name.
-        String referenceTypesIdx1 = "CREATE INDEX IF NOT EXISTS %s_value ON %s (value)";
-        String referenceTypesIdx2 = "CREATE INDEX IF NOT EXISTS %s_value_known_status ON %s (value, known_status)";
-
         StringBuilder createCorrelationTypesTable = new StringBuilder();
         createCorrelationTypesTable.append("CREATE TABLE IF NOT EXISTS correlation_types (");
         createCorrelationTypesTable.append("id integer primary key autoincrement NOT NULL,");
@@ -410,8 +409,8 @@ public boolean initializeDatabaseSchema() {
                 // FUTURE: allow more than the FILES type
                 if (type.getId() == CorrelationAttribute.FILES_TYPE_ID) {
                     stmt.execute(String.format(createReferenceTypesTableTemplate.toString(), reference_type_dbname, reference_type_dbname));
-                    stmt.execute(String.format(referenceTypesIdx1, reference_type_dbname, reference_type_dbname));
-                    stmt.execute(String.format(referenceTypesIdx2, reference_type_dbname, reference_type_dbname));
+                    stmt.execute(String.format(REFERENCE_TYPES_VALUE_INDEX, reference_type_dbname, reference_type_dbname));
+                    stmt.execute(String.format(REFERENCE_TYPES_VALUE_KNOWN_STATUS_INDEX, reference_type_dbname, reference_type_dbname));
                 }
             }
         } catch (SQLException ex) {
@@ -20,7 +20,10 @@
 
 import org.sleuthkit.autopsy.centralrepository.datamodel.CorrelationCase;
 import org.sleuthkit.autopsy.centralrepository.datamodel.EamDbException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 import org.openide.util.NbBundle.Messages;
@@ -30,7 +33,7 @@
 import org.sleuthkit.autopsy.casemodule.services.Blackboard;
 import org.sleuthkit.autopsy.core.RuntimeProperties;
 import org.sleuthkit.autopsy.coreutils.MessageNotifyUtil;
-import org.sleuthkit.autopsy.ingest.FileIngestModule;
+import org.sleuthkit.autopsy.ingest.BatchFileIngestModule;
 import org.sleuthkit.autopsy.ingest.IngestJobContext;
 import org.sleuthkit.autopsy.ingest.IngestMessage;
 import org.sleuthkit.autopsy.ingest.IngestModuleReferenceCounter;
@@ -58,7 +61,7 @@
  */
 @Messages({"IngestModule.prevTaggedSet.text=Previously Tagged As Notable (Central Repository)",
     "IngestModule.prevCaseComment.text=Previous Case: "})
-final class IngestModule implements FileIngestModule {
+final class IngestModule implements BatchFileIngestModule {
 
     static final boolean DEFAULT_FLAG_TAGGED_NOTABLE_ITEMS = true;
 
@@ -85,6 +88,19 @@ final class IngestModule implements FileIngestModule {
 
     @Override
     public ProcessResult process(AbstractFile abstractFile) {
+        return process(Collections.singletonList(abstractFile));
+    }
+
+    /**
+     * Processes a batch of files, looking up whether any of them were
+     * previously marked as notable with a single query for the batch.
+     *
+     * @param files The files to analyze.
+     *
+     * @return A result code indicating success or failure of the processing.
+     */
+    @Override
+    public ProcessResult process(List<AbstractFile> files) {
         if (EamDb.isEnabled() == false) {
             /*
              * Not signaling an error for now. This is a workaround for the way
@@ -102,10 +118,6 @@ public ProcessResult process(AbstractFile abstractFile) {
             return ProcessResult.ERROR;
         }
 
-        if (!EamArtifactUtil.isValidCentralRepoFile(abstractFile)) {
-            return ProcessResult.OK;
-        }
-
         EamDb dbManager;
         try {
             dbManager = EamDb.getInstance();
@@ -119,48 +131,72 @@ public ProcessResult process(AbstractFile abstractFile) {
             return ProcessResult.OK;
         }
 
-        // get the hash because we're going to correlate it
-        String md5 = abstractFile.getMd5Hash();
-        if ((md5 == null) || (HashUtility.isNoDataMd5(md5))) {
+        // get the hashes because we're going to correlate them
+        List<AbstractFile> hashedFiles = new ArrayList<>(files.size());
+        for (AbstractFile abstractFile : files) {
+            if (!EamArtifactUtil.isValidCentralRepoFile(abstractFile)) {
+                continue;
+            }
+            String md5 = abstractFile.getMd5Hash();
+            if ((md5 == null) || (HashUtility.isNoDataMd5(md5))) {
+                continue;
+            }
+            hashedFiles.add(abstractFile);
+        }
+        if (hashedFiles.isEmpty()) {
             return ProcessResult.OK;
         }
 
         /*
-         * Search the central repo to see if this file was previously marked as
-         * being bad. Create artifact if it was.
+         * Search the central repo to see if these files were previously marked
+         * as being bad. Create artifacts for the ones that were.
          */
-        if (abstractFile.getKnown() != TskData.FileKnown.KNOWN && flagTaggedNotableItems) {
-            try {
-                TimingMetric timingMetric = EnterpriseHealthMonitor.getTimingMetric("Correlation Engine: Notable artifact query");
-                List<String> caseDisplayNamesList = dbManager.getListCasesHavingArtifactInstancesKnownBad(filesType, md5);
-                EnterpriseHealthMonitor.submitTimingMetric(timingMetric);
-                if (!caseDisplayNamesList.isEmpty()) {
-                    postCorrelatedBadFileToBlackboard(abstractFile, caseDisplayNamesList);
+        if (flagTaggedNotableItems) {
+            List<String> md5s = new ArrayList<>(hashedFiles.size());
+            for (AbstractFile abstractFile : hashedFiles) {
+                if (abstractFile.getKnown() != TskData.FileKnown.KNOWN) {
+                    md5s.add(abstractFile.getMd5Hash());
+                }
+            }
+            if (!md5s.isEmpty()) {
+                try {
+                    TimingMetric timingMetric = EnterpriseHealthMonitor.getTimingMetric("Correlation Engine: Notable artifact query");
+                    Map<String, List<String>> caseDisplayNamesByMd5 = dbManager.getListCasesHavingArtifactInstancesKnownBad(filesType, md5s);
+                    EnterpriseHealthMonitor.submitTimingMetric(timingMetric);
+                    for (AbstractFile abstractFile : hashedFiles) {
+                        List<String> caseDisplayNamesList = caseDisplayNamesByMd5.get(abstractFile.getMd5Hash());
+                        if (caseDisplayNamesList != null && abstractFile.getKnown() != TskData.FileKnown.KNOWN) {
+                            postCorrelatedBadFileToBlackboard(abstractFile, caseDisplayNamesList);
+                        }
+                    }
+                } catch (EamDbException ex) {
+                    logger.log(Level.SEVERE, "Error searching database for artifact.", ex); // NON-NLS
+                    return ProcessResult.ERROR;
                 }
-            } catch (EamDbException ex) {
-                logger.log(Level.SEVERE, "Error searching database for artifact.", ex); // NON-NLS
-                return ProcessResult.ERROR;
             }
         }
 
-        // insert this file into the central repository
-        try {
-            CorrelationAttribute eamArtifact = new CorrelationAttribute(filesType, md5);
-            CorrelationAttributeInstance cefi = new CorrelationAttributeInstance(
-                    eamCase,
-                    eamDataSource,
-                    abstractFile.getParentPath() + abstractFile.getName(),
-                    null,
-                    TskData.FileKnown.UNKNOWN // NOTE: Known status in the CR is based on tagging, not hashes like the Case Database.
-            );
-            eamArtifact.addInstance(cefi);
-            dbManager.prepareBulkArtifact(eamArtifact);
-        } catch (EamDbException ex) {
-            logger.log(Level.SEVERE, "Error adding artifact to bulk artifacts.", ex); // NON-NLS
-            return ProcessResult.ERROR;
+        // insert these files into the central repository
+        ProcessResult result = ProcessResult.OK;
+        for (AbstractFile abstractFile : hashedFiles) {
+            try {
+                CorrelationAttribute eamArtifact = new CorrelationAttribute(filesType, abstractFile.getMd5Hash());
+                CorrelationAttributeInstance cefi = new CorrelationAttributeInstance(
+                        eamCase,
+                        eamDataSource,
+                        abstractFile.getParentPath() + abstractFile.getName(),
+                        null,
+                        TskData.FileKnown.UNKNOWN // NOTE: Known status in the CR is based on tagging, not hashes like the Case Database.
+                );
+                eamArtifact.addInstance(cefi);
+                dbManager.prepareBulkArtifact(eamArtifact);
+            } catch (EamDbException ex) {
+                logger.log(Level.SEVERE, "Error adding artifact to bulk artifacts.", ex); // NON-NLS
+                result = ProcessResult.ERROR;
+            }
         }
 
-        return ProcessResult.OK;
+        return result;
     }
 
     @Override
@@ -46,6 +46,9 @@ public final class UserPreferences {
     public static final String HIDE_SLACK_FILES_IN_VIEWS_TREE = "HideSlackFilesInViewsTree"; //NON-NLS 
     public static final String DISPLAY_TIMES_IN_LOCAL_TIME = "DisplayTimesInLocalTime"; //NON-NLS
     public static final String NUMBER_OF_FILE_INGEST_THREADS = "NumberOfFileIngestThreads"; //NON-NLS
+    public static final String USE_WORK_STEALING_FILE_INGEST_SCHEDULER = "UseWorkStealingFileIngestScheduler"; //NON-NLS
+    public static final String FILE_INGEST_BATCH_SIZE = "FileIngestBatchSize"; //NON-NLS
+    public static final String USE_MAPPED_HASH_SET_LOOKUP = "UseMappedHashSetLookup"; //NON-NLS
     public static final String IS_MULTI_USER_MODE_ENABLED = "IsMultiUserModeEnabled"; //NON-NLS
     public static final String EXTERNAL_DATABASE_HOSTNAME_OR_IP = "ExternalDatabaseHostnameOrIp"; //NON-NLS
     public static final String EXTERNAL_DATABASE_PORTNUMBER = "ExternalDatabasePortNumber"; //NON-NLS
@@ -59,6 +62,7 @@ public final class UserPreferences {
     private static final String MESSAGE_SERVICE_USER = "MessageServiceUser"; //NON-NLS
     private static final String MESSAGE_SERVICE_HOST = "MessageServiceHost"; //NON-NLS
     private static final String MESSAGE_SERVICE_PORT = "MessageServicePort"; //NON-NLS
+    private static final String SEND_BATCHED_REMOTE_EVENTS = "SendBatchedRemoteEvents"; //NON-NLS
     public static final String PROCESS_TIME_OUT_ENABLED = "ProcessTimeOutEnabled"; //NON-NLS
     public static final String PROCESS_TIME_OUT_HOURS = "ProcessTimeOutHours"; //NON-NLS
     private static final int DEFAULT_PROCESS_TIMEOUT_HR = 60;
@@ -187,6 +191,81 @@ public static void setNumberOfFileIngestThreads(int value) {
         preferences.putInt(NUMBER_OF_FILE_INGEST_THREADS, value);
     }
 
+    /**
+     * Reads the persisted setting of whether the file ingest threads should
+     * take their tasks from per-thread work stealing queues instead of the
+     * shared, prioritized file ingest task queue. The setting takes effect the
+     * next time the application is started.
+     *
+     * @return True if the work stealing scheduler is enabled, false otherwise.
+     */
+    public static boolean useWorkStealingFileIngestScheduler() {
+        return preferences.getBoolean(USE_WORK_STEALING_FILE_INGEST_SCHEDULER, false);
+    }
+
+    /**
+     * Stores the persisted setting of whether the file ingest threads should
+     * take their tasks from per-thread work stealing queues.
+     *
+     * @param enabled True if the work stealing scheduler is enabled, false
+     *                otherwise.
+     */
+    public static void setUseWorkStealingFileIngestScheduler(boolean enabled) {
+        preferences.putBoolean(USE_WORK_STEALING_FILE_INGEST_SCHEDULER, enabled);
+    }
+
+    /**
+     * Reads the persisted maximum number of files a file ingest thread passes
+     * through the file ingest pipeline at once. A value of one, the default,
+     * means files are processed one at a time. The setting takes effect the
+     * next time the application is started.
+     *
+     * @return The file ingest batch size.
+     */
+    public static int fileIngestBatchSize() {
+        int batchSize = preferences.getInt(FILE_INGEST_BATCH_SIZE, 1);
+        if (batchSize < 1) {
+            batchSize = 1;
+        }
+        return batchSize;
+    }
+
+    /**
+     * Stores the persisted maximum number of files a file ingest thread passes
+     * through the file ingest pipeline at once.
+     *
+     * @param value The file ingest batch size.
+     */
+    public static void setFileIngestBatchSize(int value) {
+        if (value < 1) {
+            value = 1;
+        }
+        preferences.putInt(FILE_INGEST_BATCH_SIZE, value);
+    }
+
+    /**
+     * Reads the persisted setting of whether hash sets that do not accept
+     * updates should be looked up in memory-mapped lookup indexes compiled
+     * from the hash sets instead of through The Sleuth Kit. The setting takes
+     * effect the next time the hash sets are loaded.
+     *
+     * @return True if the mapped lookup indexes are enabled, false otherwise.
+     */
+    public static boolean useMappedHashSetLookup() {
+        return preferences.getBoolean(USE_MAPPED_HASH_SET_LOOKUP, false);
+    }
+
+    /**
+     * Stores the persisted setting of whether hash sets that do not accept
+     * updates should be looked up in memory-mapped lookup indexes.
+     *
+     * @param enabled True if the mapped lookup indexes are enabled, false
+     *                otherwise.
+     */
+    public static void setUseMappedHashSetLookup(boolean enabled) {
+        preferences.putBoolean(USE_MAPPED_HASH_SET_LOOKUP, enabled);
+    }
+
     /**
      * Reads persisted case database connection info.
      *
@@ -275,6 +354,29 @@ public static void setMessageServiceConnectionInfo(MessageServiceConnectionInfo
         }
     }
 
+    /**
+     * Reads the persisted setting of whether events should be sent to other
+     * nodes as binary batches rather than one serialized message per event.
+     * Versions of Autopsy that predate the batches ignore them, so this should
+     * only be enabled once every node has been upgraded. A node stops sending
+     * batches when it receives an event from a node that cannot read them.
+     *
+     * @return True if batches are sent, false otherwise.
+     */
+    public static boolean sendBatchedRemoteEvents() {
+        return preferences.getBoolean(SEND_BATCHED_REMOTE_EVENTS, false);
+    }
+
+    /**
+     * Stores the persisted setting of whether events should be sent to other
+     * nodes as binary batches.
+     *
+     * @param enabled True if batches are sent, false otherwise.
+     */
+    public static void setSendBatchedRemoteEvents(boolean enabled) {
+        preferences.putBoolean(SEND_BATCHED_REMOTE_EVENTS, enabled);
+    }
+
     /**
      * Reads persisted message service connection info.
      *
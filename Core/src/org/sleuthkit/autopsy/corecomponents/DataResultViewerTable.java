@@ -64,7 +64,9 @@
 import org.sleuthkit.autopsy.corecomponentinterfaces.DataResultViewer;
 import org.sleuthkit.autopsy.coreutils.Logger;
 import org.sleuthkit.autopsy.coreutils.ThreadConfined;
+import org.sleuthkit.autopsy.datamodel.ContentNodeSelectionInfo;
 import org.sleuthkit.autopsy.datamodel.NodeSelectionInfo;
+import org.sleuthkit.autopsy.datamodel.QuerySortableChildren;
 
 /**
  * A tabular result viewer that displays the children of the given root node
@@ -90,6 +92,14 @@ public final class DataResultViewerTable extends AbstractDataResultViewer {
     private final Outline outline;
     private final TableListener outlineViewListener;
     private Node rootNode;
+    /*
+     * The children of the root node, if they are sorted by the query that
+     * loads them rather than by the table, and the property they are
+     * currently sorted by.
+     */
+    private QuerySortableChildren sortableChildren;
+    private String querySortProperty;
+    private boolean querySortAscending = true;
 
     /**
      * Constructs a tabular result viewer that displays the children of the
@@ -231,10 +241,12 @@ public void setNode(Node rootNode) {
              */
             if (rootNode != null && rootNode.getChildren().getNodesCount() > 0) {
                 this.rootNode = rootNode;
+                this.sortableChildren = rootNode.getLookup().lookup(QuerySortableChildren.class);
                 this.getExplorerManager().setRootContext(this.rootNode);
                 setupTable();
             } else {
                 Node emptyNode = new AbstractNode(Children.LEAF);
+                this.sortableChildren = null;
                 this.getExplorerManager().setRootContext(emptyNode);
                 outline.setAutoResizeMode(JTable.AUTO_RESIZE_ALL_COLUMNS);
                 outlineViewListener.listenToVisibilityChanges(false);
@@ -317,10 +329,20 @@ private void setupTable() {
             if (rootNode instanceof TableFilterNode) {
                 NodeSelectionInfo selectedChildInfo = ((TableFilterNode) rootNode).getChildNodeSelectionInfo();
                 if (null != selectedChildInfo) {
-                    Node[] childNodes = rootNode.getChildren().getNodes(true);
-                    for (int i = 0; i < childNodes.length; ++i) {
-                        Node childNode = childNodes[i];
-                        if (selectedChildInfo.matches(childNode)) {
+                    /*
+                     * Find the child by its position, without creating the
+                     * nodes of lazily loaded children.
+                     */
+                    Children children = rootNode.getChildren();
+                    int start = 0;
+                    int end = children.getNodesCount();
+                    if (sortableChildren != null && selectedChildInfo instanceof ContentNodeSelectionInfo) {
+                        start = sortableChildren.indexOf(((ContentNodeSelectionInfo) selectedChildInfo).getContentId());
+                        end = (start < 0) ? start : start + 1;
+                    }
+                    for (int i = start; i < end; ++i) {
+                        Node childNode = children.getNodeAt(i);
+                        if (childNode != null && selectedChildInfo.matches(childNode)) {
                             try {
                                 this.getExplorerManager().setSelectedNodes(new Node[]{childNode});
                             } catch (PropertyVetoException ex) {
@@ -410,10 +432,12 @@ synchronized private void assignColumns(List<Property<?>> props) {
         for (int i = 0; i < props.size(); i++) {
             final Property<?> prop = props.get(i);
             prop.setValue("ComparableColumnTTV", Boolean.TRUE); //NON-NLS
-            //First property column is sorted initially
+            //First property column is sorted initially, unless the children are sorted by their query
             if (i == 0) {
                 prop.setValue("TreeColumnTTV", Boolean.TRUE); // Identifies special property representing first (tree) column. NON-NLS
-                prop.setValue("SortingColumnTTV", Boolean.TRUE); // TreeTableView should be initially sorted by this property column. NON-NLS
+                if (sortableChildren == null) {
+                    prop.setValue("SortingColumnTTV", Boolean.TRUE); // TreeTableView should be initially sorted by this property column. NON-NLS
+                }
             }
             propStrings[2 * i] = prop.getName();
             propStrings[2 * i + 1] = prop.getDisplayName();
@@ -482,7 +506,15 @@ private synchronized void storeColumnSorting() {
                 //store sort rank and order
                 final String columnSortOrderKey = ResultViewerPersistence.getColumnSortOrderKey(tfn, columnName);
                 final String columnSortRankKey = ResultViewerPersistence.getColumnSortRankKey(tfn, columnName);
-                if (etc.isSorted() && (columnModel.isColumnHidden(etc) == false)) {
+                if (sortableChildren != null) {
+                    if (columnName.equals(querySortProperty)) {
+                        preferences.putBoolean(columnSortOrderKey, querySortAscending);
+                        preferences.putInt(columnSortRankKey, 1);
+                    } else {
+                        preferences.remove(columnSortOrderKey);
+                        preferences.remove(columnSortRankKey);
+                    }
+                } else if (etc.isSorted() && (columnModel.isColumnHidden(etc) == false)) {
                     preferences.putBoolean(columnSortOrderKey, etc.isAscending());
                     preferences.putInt(columnSortRankKey, etc.getSortRank());
                 } else {
@@ -517,11 +549,55 @@ private synchronized void loadColumnSorting() {
                 Boolean sortOrder = preferences.getBoolean(ResultViewerPersistence.getColumnSortOrderKey(tfn, propName), true);
                 sortInfos.add(new ColumnSortInfo(entry.getKey(), sortRank, sortOrder));
             });
+            if (sortableChildren != null) {
+                //only the highest ranked sort can be applied by the query.
+                querySortProperty = null;
+                querySortAscending = true;
+                sortInfos.stream().filter(sortInfo -> sortInfo.rank > 0).findFirst().ifPresent(sortInfo -> {
+                    String propName = propertiesMap.get(sortInfo.modelIndex).getName();
+                    if (sortableChildren.canSortBy(propName)) {
+                        querySortProperty = propName;
+                        querySortAscending = sortInfo.order;
+                        sortableChildren.sortBy(propName, sortInfo.order);
+                    }
+                });
+                return;
+            }
             //apply sort information in rank order.
             sortInfos.forEach(sortInfo -> outline.setColumnSorted(sortInfo.modelIndex, sortInfo.order, sortInfo.rank));
         }
     }
 
+    /**
+     * Sorts the children of the root node by the query that loads them
+     * instead of in the table, in response to a click on a column header.
+     * Clicking the column the children are sorted by reverses the order.
+     *
+     * @param e The mouse event for the click.
+     */
+    private synchronized void applyQuerySort(MouseEvent e) {
+        int viewIndex = outline.getTableHeader().columnAtPoint(e.getPoint());
+        if (viewIndex < 0) {
+            return;
+        }
+        TableColumn clickedColumn = outline.getColumnModel().getColumn(viewIndex);
+        ETableColumnModel columnModel = (ETableColumnModel) outline.getColumnModel();
+        String clickedProperty = null;
+        for (Map.Entry<String, ETableColumn> entry : columnMap.entrySet()) {
+            //clear the sort the table applied for the click
+            columnModel.setColumnSorted(entry.getValue(), true, 0);
+            if (entry.getValue() == clickedColumn) {
+                clickedProperty = entry.getKey();
+            }
+        }
+        if (clickedProperty == null || sortableChildren.canSortBy(clickedProperty) == false) {
+            return;
+        }
+        querySortAscending = clickedProperty.equals(querySortProperty) ? !querySortAscending : true;
+        querySortProperty = clickedProperty;
+        sortableChildren.sortBy(querySortProperty, querySortAscending);
+    }
+
     /**
      * Reads and applies the column visibility information persisted to the
      * preferences file.
@@ -715,6 +791,9 @@ public void mouseReleased(MouseEvent e) {
         @Override
         public void mouseClicked(MouseEvent e) {
             //the user clicked a column header
+            if (sortableChildren != null) {
+                applyQuerySort(e);
+            }
             storeColumnSorting();
         }
 
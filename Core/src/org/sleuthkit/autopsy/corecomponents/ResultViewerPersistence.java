@@ -124,12 +124,16 @@ static List<Node.Property<?>> getAllChildProperties(Node node, int maxRows) {
      * @param propertiesAcc Accumulator for discovered properties.
      */
     static private void getAllChildPropertiesHelper(Node node, int maxRows, Set<Node.Property<?>> propertiesAcc) {
+        /*
+         * Only the first maxRows children are visited, by index, so that lazy
+         * children only create the nodes that are visited.
+         */
         Children children = node.getChildren();
-        int childCount = 0;
-        for (Node child : children.getNodes()) {
-            childCount++;
-            if (childCount > maxRows) {
-                return;
+        int childCount = Math.min(children.getNodesCount(), maxRows);
+        for (int i = 0; i < childCount; i++) {
+            Node child = children.getNodeAt(i);
+            if (child == null) {
+                continue;
             }
             for (Node.PropertySet ps : child.getPropertySets()) {
                 final Node.Property<?>[] props = ps.getProperties();
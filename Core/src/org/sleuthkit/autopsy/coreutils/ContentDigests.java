@@ -0,0 +1,308 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.coreutils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.concurrent.Immutable;
+import javax.xml.bind.DatatypeConverter;
+import org.sleuthkit.autopsy.casemodule.Case;
+import org.sleuthkit.datamodel.Content;
+import org.sleuthkit.datamodel.TskCoreException;
+
+/**
+ * The digests (MD5, SHA-1 and SHA-256) of a piece of content, and the service
+ * that calculates them.
+ *
+ * All of the digests requested are calculated in a single pass over the
+ * content, reading it in large chunks into buffers that each thread reuses
+ * from one piece of content to the next. Large content, such as images, is
+ * read on the calling thread while the digests of the previous chunk are
+ * updated on other threads, so that reading and hashing overlap and each
+ * digest runs on its own core.
+ *
+ * The digests calculated for content in the current case are kept, by object
+ * ID, so that modules that need them after the content has been hashed do not
+ * read the content again. The MD5 hash of a file is also saved in the case
+ * database by the hash lookup module. Checks of the integrity of content must
+ * recalculate the digests instead, since the content may have changed since
+ * they were calculated.
+ */
+@Immutable
+public final class ContentDigests {
+
+    /**
+     * The digest algorithms.
+     */
+    public enum Algorithm {
+        MD5("MD5"), //NON-NLS
+        SHA1("SHA-1"), //NON-NLS
+        SHA256("SHA-256"); //NON-NLS
+
+        private final String jcaName;
+
+        private Algorithm(String jcaName) {
+            this.jcaName = jcaName;
+        }
+
+        private MessageDigest newMessageDigest() {
+            try {
+                return MessageDigest.getInstance(jcaName);
+            } catch (NoSuchAlgorithmException ex) {
+                // Every Java platform is required to support these algorithms
+                throw new IllegalStateException("Missing digest algorithm " + jcaName, ex); //NON-NLS
+            }
+        }
+    }
+
+    /**
+     * Receives the progress of calculating the digests of content.
+     */
+    public interface ProgressListener {
+
+        /**
+         * Called after each chunk of the content has been read.
+         *
+         * @param bytesRead The number of bytes of the content read so far.
+         *
+         * @return True to continue, false to stop calculating the digests.
+         */
+        boolean bytesRead(long bytesRead);
+    }
+
+    private static final int BUFFER_LENGTH = 1024 * 1024;
+    private static final long PARALLEL_THRESHOLD = 64L * 1024 * 1024;
+    private static final int MAX_CACHED_DIGESTS = 20000;
+    private static final ThreadLocal<byte[][]> readBuffers = ThreadLocal.withInitial(() -> new byte[2][BUFFER_LENGTH]);
+    private static final ExecutorService digestExecutor = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("content-digest-%d").setDaemon(true).build()); //NON-NLS
+    private static final Cache<Long, ContentDigests> digestsByObjectId = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_DIGESTS)
+            .build();
+
+    static {
+        Case.addEventTypeSubscriber(EnumSet.of(Case.Events.CURRENT_CASE), evt -> digestsByObjectId.invalidateAll());
+    }
+
+    private final Map<Algorithm, String> digests;
+
+    private ContentDigests(Map<Algorithm, String> digests) {
+        this.digests = Collections.unmodifiableMap(digests);
+    }
+
+    /**
+     * Gets the MD5 hash of content, calculating it if it has not already been
+     * calculated.
+     *
+     * @param content The content.
+     *
+     * @return The digests.
+     *
+     * @throws TskCoreException If the content cannot be read.
+     */
+    public static ContentDigests calculate(Content content) throws TskCoreException {
+        return calculate(content, EnumSet.of(Algorithm.MD5), null);
+    }
+
+    /**
+     * Gets the digests of content, calculating any of them that have not
+     * already been calculated.
+     *
+     * @param content    The content.
+     * @param algorithms The algorithms of the digests to get.
+     * @param listener   A listener for the progress of reading the content,
+     *                   which can stop the calculation, or null.
+     *
+     * @return The digests, which may include ones that were not requested, or
+     *         null if the listener stopped the calculation.
+     *
+     * @throws TskCoreException If the content cannot be read.
+     */
+    public static ContentDigests calculate(Content content, Set<Algorithm> algorithms, ProgressListener listener) throws TskCoreException {
+        ContentDigests cached = digestsByObjectId.getIfPresent(content.getId());
+        if (cached != null && cached.digests.keySet().containsAll(algorithms)) {
+            return cached;
+        }
+        return calculate(content, algorithms, listener, cached);
+    }
+
+    /**
+     * Calculates the digests of content by reading it, even if they have
+     * already been calculated, e.g., to verify the integrity of the content.
+     * The digests are kept for later calls to calculate().
+     *
+     * @param content    The content.
+     * @param algorithms The algorithms of the digests to calculate.
+     * @param listener   A listener for the progress of reading the content,
+     *                   which can stop the calculation, or null.
+     *
+     * @return The digests, or null if the listener stopped the calculation.
+     *
+     * @throws TskCoreException If the content cannot be read.
+     */
+    public static ContentDigests recalculate(Content content, Set<Algorithm> algorithms, ProgressListener listener) throws TskCoreException {
+        return calculate(content, algorithms, listener, null);
+    }
+
+    private static ContentDigests calculate(Content content, Set<Algorithm> algorithms, ProgressListener listener, ContentDigests cached) throws TskCoreException {
+        Map<Algorithm, MessageDigest> messageDigests = new EnumMap<>(Algorithm.class);
+        for (Algorithm algorithm : algorithms) {
+            messageDigests.put(algorithm, algorithm.newMessageDigest());
+        }
+        boolean completed;
+        if (content.getSize() >= PARALLEL_THRESHOLD) {
+            completed = updateInParallel(content, new ArrayList<>(messageDigests.values()), listener);
+        } else {
+            completed = update(content, new ArrayList<>(messageDigests.values()), listener);
+        }
+        if (!completed) {
+            return null;
+        }
+
+        Map<Algorithm, String> calculated = new EnumMap<>(Algorithm.class);
+        if (cached != null) {
+            calculated.putAll(cached.digests);
+        }
+        for (Map.Entry<Algorithm, MessageDigest> entry : messageDigests.entrySet()) {
+            calculated.put(entry.getKey(), DatatypeConverter.printHexBinary(entry.getValue().digest()).toLowerCase());
+        }
+        ContentDigests contentDigests = new ContentDigests(calculated);
+        digestsByObjectId.put(content.getId(), contentDigests);
+        return contentDigests;
+    }
+
+    /**
+     * Gets the MD5 hash of the content.
+     *
+     * @return The hash as a lower case hex string, or null if it was not
+     *         calculated.
+     */
+    public String getMd5() {
+        return digests.get(Algorithm.MD5);
+    }
+
+    /**
+     * Gets the digest of the content calculated with an algorithm.
+     *
+     * @param algorithm The algorithm.
+     *
+     * @return The digest as a lower case hex string, or null if it was not
+     *         calculated.
+     */
+    public String getDigest(Algorithm algorithm) {
+        return digests.get(algorithm);
+    }
+
+    /**
+     * Gets the algorithms the digests were calculated with.
+     *
+     * @return The algorithms.
+     */
+    public Set<Algorithm> getAlgorithms() {
+        return Collections.unmodifiableSet(digests.keySet());
+    }
+
+    private static boolean update(Content content, List<MessageDigest> messageDigests, ProgressListener listener) throws TskCoreException {
+        byte[] buffer = readBuffers.get()[0];
+        long offset = 0;
+        int length;
+        while ((length = read(content, buffer, offset)) > 0) {
+            for (MessageDigest messageDigest : messageDigests) {
+                messageDigest.update(buffer, 0, length);
+            }
+            offset += length;
+            if (listener != null && !listener.bytesRead(offset)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Updates the digests with each chunk of the content on the digest
+     * threads, one task per digest, while the next chunk is read into the
+     * other buffer on this thread.
+     */
+    private static boolean updateInParallel(Content content, List<MessageDigest> messageDigests, ProgressListener listener) throws TskCoreException {
+        byte[][] buffers = readBuffers.get();
+        List<Future<?>> updates = new ArrayList<>(messageDigests.size());
+        try {
+            int current = 0;
+            long offset = 0;
+            int length = read(content, buffers[current], offset);
+            while (length > 0) {
+                final byte[] buffer = buffers[current];
+                final int bufferLength = length;
+                for (MessageDigest messageDigest : messageDigests) {
+                    updates.add(digestExecutor.submit(() -> messageDigest.update(buffer, 0, bufferLength)));
+                }
+                offset += length;
+                if (listener != null && !listener.bytesRead(offset)) {
+                    return false;
+                }
+                current ^= 1;
+                length = read(content, buffers[current], offset);
+                awaitUpdates(updates);
+            }
+            return true;
+        } finally {
+            // The buffers must not be reused while a digest is still reading
+            // them
+            awaitUpdates(updates);
+        }
+    }
+
+    private static void awaitUpdates(List<Future<?>> updates) throws TskCoreException {
+        Throwable error = null;
+        for (Future<?> update : updates) {
+            try {
+                Uninterruptibles.getUninterruptibly(update);
+            } catch (ExecutionException ex) {
+                error = ex.getCause();
+            }
+        }
+        updates.clear();
+        if (error != null) {
+            throw new TskCoreException("Error updating digest", error); //NON-NLS
+        }
+    }
+
+    private static int read(Content content, byte[] buffer, long offset) throws TskCoreException {
+        int length = (int) Math.min(buffer.length, content.getSize() - offset);
+        if (length <= 0) {
+            return 0;
+        }
+        return Math.max(0, content.read(buffer, offset, length));
+    }
+}
@@ -39,6 +39,16 @@ public ContentNodeSelectionInfo(Content content) {
         this.contentId = content.getId();
     }
 
+    /**
+     * Gets the object id of the content represented by the node to be
+     * selected.
+     *
+     * @return The object id.
+     */
+    public long getContentId() {
+        return contentId;
+    }
+
     /**
      * Determines whether or not a given node satisfies the stored node
      * selection criteria.
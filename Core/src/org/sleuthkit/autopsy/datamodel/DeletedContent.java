@@ -39,11 +39,9 @@
 import org.openide.util.lookup.Lookups;
 import org.openide.windows.WindowManager;
 import org.sleuthkit.autopsy.casemodule.Case;
-import org.sleuthkit.autopsy.casemodule.NoCurrentCaseException;
 import org.sleuthkit.autopsy.core.UserPreferences;
 import org.sleuthkit.autopsy.coreutils.Logger;
 import static org.sleuthkit.autopsy.datamodel.Bundle.*;
-import org.sleuthkit.autopsy.ingest.IngestManager;
 import org.sleuthkit.datamodel.AbstractFile;
 import org.sleuthkit.datamodel.Content;
 import org.sleuthkit.datamodel.ContentVisitor;
@@ -169,71 +167,37 @@ public static class DeletedContentsChildren extends ChildFactory<DeletedContent.
 
         public DeletedContentsChildren(SleuthkitCase skCase) {
             this.skCase = skCase;
-            this.notifier = new DeletedContentsChildrenObservable();
+            this.notifier = new DeletedContentsChildrenObservable(skCase);
         }
 
         /**
-         * Listens for case and ingest invest. Updates observers when events are
-         * fired. Other nodes are listening to this for changes.
+         * Listens for changes to the counts of files in the ViewsCountCache,
+         * which listens for the case and ingest events that change them.
+         * Updates observers when the counts change. Other nodes are listening
+         * to this for changes.
          */
         private static final class DeletedContentsChildrenObservable extends Observable {
             private static final Set<Case.Events> CASE_EVENTS_OF_INTEREST = EnumSet.of(
-                Case.Events.DATA_SOURCE_ADDED,
                 Case.Events.CURRENT_CASE
             );
+            private final SleuthkitCase skCase;
+            private final Observer countsObserver = (Observable o, Object arg) -> update();
 
-            DeletedContentsChildrenObservable() {
-                IngestManager.getInstance().addIngestJobEventListener(pcl);
-                IngestManager.getInstance().addIngestModuleEventListener(pcl);
+            DeletedContentsChildrenObservable(SleuthkitCase skCase) {
+                this.skCase = skCase;
+                ViewsCountCache.getInstance(skCase).addObserver(countsObserver);
                 Case.addEventTypeSubscriber(CASE_EVENTS_OF_INTEREST, pcl);
             }
 
             private void removeListeners() {
                 deleteObservers();
-                IngestManager.getInstance().removeIngestJobEventListener(pcl);
-                IngestManager.getInstance().removeIngestModuleEventListener(pcl);
+                ViewsCountCache.getInstance(skCase).deleteObserver(countsObserver);
                 Case.removeEventTypeSubscriber(CASE_EVENTS_OF_INTEREST, pcl);
             }
 
             private final PropertyChangeListener pcl = (PropertyChangeEvent evt) -> {
                 String eventType = evt.getPropertyName();
-                if (eventType.equals(IngestManager.IngestModuleEvent.CONTENT_CHANGED.toString())) {
-                    /**
-                     * + // @@@ COULD CHECK If the new file is deleted
-                     * before notifying... Checking for a current case is a
-                     * stop gap measure	+ update(); until a different way of
-                     * handling the closing of cases is worked out.
-                     * Currently, remote events may be received for a case
-                     * that is already closed.
-                     */
-                    try {
-                        Case.getCurrentCaseThrows();
-                        // new file was added
-                        // @@@ COULD CHECK If the new file is deleted before notifying...
-                        update();
-                    } catch (NoCurrentCaseException notUsed) {
-                        /**
-                         * Case is closed, do nothing.
-                         */
-                    }
-                } else if (eventType.equals(IngestManager.IngestJobEvent.COMPLETED.toString())
-                        || eventType.equals(IngestManager.IngestJobEvent.CANCELLED.toString())
-                        || eventType.equals(Case.Events.DATA_SOURCE_ADDED.toString())) {
-                    /**
-                     * Checking for a current case is a stop gap measure
-                     * until a different way of handling the closing of
-                     * cases is worked out. Currently, remote events may be
-                     * received for a case that is already closed.
-                     */
-                    try {
-                        Case.getCurrentCaseThrows();
-                        update();
-                    } catch (NoCurrentCaseException notUsed) {
-                        /**
-                         * Case is closed, do nothing.
-                         */
-                    }
-                } else if (eventType.equals(Case.Events.CURRENT_CASE.toString())) {
+                if (eventType.equals(Case.Events.CURRENT_CASE.toString())) {
                     // case was closed. Remove listeners so that we don't get called with a stale case handle
                     if (evt.getNewValue() == null) {
                         removeListeners();
@@ -301,7 +265,7 @@ private void updateDisplayName() {
                 //get count of children without preloading all children nodes
                 final long count = DeletedContentChildren.calculateItems(skCase, filter);
                 //final long count = getChildren().getNodesCount(true);
-                super.setDisplayName(filter.getDisplayName() + " (" + count + ")");
+                super.setDisplayName(filter.getDisplayName() + FileTypes.getCountSuffix(count));
             }
 
             @Override
@@ -406,6 +370,10 @@ protected boolean createKeys(List<AbstractFile> list) {
             }
 
             static private String makeQuery(DeletedContent.DeletedContentFilter filter) {
+                return makeWhereClause(filter) + " LIMIT " + MAX_OBJECTS; //NON-NLS
+            }
+
+            static private String makeWhereClause(DeletedContent.DeletedContentFilter filter) {
                 String query = "";
                 switch (filter) {
                     case FS_DELETED_FILTER:
@@ -443,7 +411,6 @@ static private String makeQuery(DeletedContent.DeletedContentFilter filter) {
                             + " OR known IS NULL)"; //NON-NLS
                 }
 
-                query += " LIMIT " + MAX_OBJECTS; //NON-NLS
                 return query;
             }
 
@@ -462,20 +429,17 @@ private List<AbstractFile> runFsQuery() {
             }
 
             /**
-             * Get children count without actually loading all nodes
+             * Get children count from the ViewsCountCache without actually
+             * loading all nodes
              *
              * @param sleuthkitCase
              * @param filter
              *
-             * @return
+             * @return The count, or a negative value if it has not been
+             *         computed yet or is not shown
              */
             static long calculateItems(SleuthkitCase sleuthkitCase, DeletedContent.DeletedContentFilter filter) {
-                try {
-                    return sleuthkitCase.countFilesWhere(makeQuery(filter));
-                } catch (TskCoreException ex) {
-                    logger.log(Level.SEVERE, "Error getting deleted files search view count", ex); //NON-NLS
-                    return 0;
-                }
+                return ViewsCountCache.getInstance(sleuthkitCase).getCount(makeWhereClause(filter));
             }
 
             @Override
@@ -36,10 +36,8 @@
 import org.openide.util.NbBundle;
 import org.openide.util.lookup.Lookups;
 import org.sleuthkit.autopsy.casemodule.Case;
-import org.sleuthkit.autopsy.casemodule.NoCurrentCaseException;
 import org.sleuthkit.autopsy.core.UserPreferences;
 import org.sleuthkit.autopsy.coreutils.Logger;
-import org.sleuthkit.autopsy.ingest.IngestManager;
 import org.sleuthkit.datamodel.AbstractFile;
 import org.sleuthkit.datamodel.Content;
 import org.sleuthkit.datamodel.ContentVisitor;
@@ -51,7 +49,6 @@
 import org.sleuthkit.datamodel.LocalFile;
 import org.sleuthkit.datamodel.SlackFile;
 import org.sleuthkit.datamodel.SleuthkitCase;
-import org.sleuthkit.datamodel.TskCoreException;
 import org.sleuthkit.datamodel.TskData;
 import org.sleuthkit.datamodel.VirtualDirectory;
 
@@ -165,68 +162,37 @@ public static class FileSizeRootChildren extends ChildFactory<org.sleuthkit.auto
 
         public FileSizeRootChildren(SleuthkitCase skCase) {
             this.skCase = skCase;
-            notifier = new FileSizeRootChildrenObservable();
+            notifier = new FileSizeRootChildrenObservable(skCase);
         }
 
         /**
-         * Listens for case and ingest invest. Updates observers when events are
-         * fired. Size-based nodes are listening to this for changes.
+         * Listens for changes to the counts of files in the ViewsCountCache,
+         * which listens for the case and ingest events that change them.
+         * Updates observers when the counts change. Size-based nodes are
+         * listening to this for changes.
          */
         private static final class FileSizeRootChildrenObservable extends Observable {
 
-            private static final Set<Case.Events> CASE_EVENTS_OF_INTEREST = EnumSet.of(Case.Events.DATA_SOURCE_ADDED, Case.Events.CURRENT_CASE);
+            private static final Set<Case.Events> CASE_EVENTS_OF_INTEREST = EnumSet.of(Case.Events.CURRENT_CASE);
+            private final SleuthkitCase skCase;
+            private final Observer countsObserver = (Observable o, Object arg) -> update();
 
-            FileSizeRootChildrenObservable() {
-                IngestManager.getInstance().addIngestJobEventListener(pcl);
-                IngestManager.getInstance().addIngestModuleEventListener(pcl);
+            FileSizeRootChildrenObservable(SleuthkitCase skCase) {
+                this.skCase = skCase;
+                ViewsCountCache.getInstance(skCase).addObserver(countsObserver);
                 Case.addEventTypeSubscriber(CASE_EVENTS_OF_INTEREST, pcl);
             }
 
             private void removeListeners() {
                 deleteObservers();
-                IngestManager.getInstance().removeIngestJobEventListener(pcl);
-                IngestManager.getInstance().removeIngestModuleEventListener(pcl);
+                ViewsCountCache.getInstance(skCase).deleteObserver(countsObserver);
                 Case.removeEventTypeSubscriber(CASE_EVENTS_OF_INTEREST, pcl);
             }
 
             private final PropertyChangeListener pcl = (PropertyChangeEvent evt) -> {
                 String eventType = evt.getPropertyName();
 
-                if (eventType.equals(IngestManager.IngestModuleEvent.CONTENT_CHANGED.toString())) {
-                    /**
-                     * Checking for a current case is a stop gap measure until a
-                     * different way of handling the closing of cases is worked
-                     * out. Currently, remote events may be received for a case
-                     * that is already closed.
-                     */
-                    try {
-                        // new file was added
-                        // @@@ could check the size here and only fire off updates if we know the file meets the min size criteria
-                        Case.getCurrentCaseThrows();
-                        update();
-                    } catch (NoCurrentCaseException notUsed) {
-                        /**
-                         * Case is closed, do nothing.
-                         */
-                    }
-                } else if (eventType.equals(IngestManager.IngestJobEvent.COMPLETED.toString())
-                        || eventType.equals(IngestManager.IngestJobEvent.CANCELLED.toString())
-                        || eventType.equals(Case.Events.DATA_SOURCE_ADDED.toString())) {
-                    /**
-                     * Checking for a current case is a stop gap measure until a
-                     * different way of handling the closing of cases is worked
-                     * out. Currently, remote events may be received for a case
-                     * that is already closed.
-                     */
-                    try {
-                        Case.getCurrentCaseThrows();
-                        update();
-                    } catch (NoCurrentCaseException notUsed) {
-                        /**
-                         * Case is closed, do nothing.
-                         */
-                    }
-                } else if (eventType.equals(Case.Events.CURRENT_CASE.toString())) {
+                if (eventType.equals(Case.Events.CURRENT_CASE.toString())) {
                     // case was closed. Remove listeners so that we don't get called with a stale case handle
                     if (evt.getNewValue() == null) {
                         removeListeners();
@@ -310,7 +276,7 @@ public void update(Observable o, Object arg) {
 
             private void updateDisplayName() {
                 final long numVisibleChildren = FileSizeChildren.calculateItems(skCase, filter);
-                super.setDisplayName(filter.getDisplayName() + " (" + numVisibleChildren + ")");
+                super.setDisplayName(filter.getDisplayName() + FileTypes.getCountSuffix(numVisibleChildren));
             }
 
             @Override
@@ -445,17 +411,14 @@ private List<AbstractFile> runFsQuery() {
             }
 
             /**
-             * Get children count without actually loading all nodes
+             * Get children count from the ViewsCountCache without actually
+             * loading all nodes
              *
-             * @return
+             * @return The count, or a negative value if it has not been
+             *         computed yet or is not shown
              */
             static long calculateItems(SleuthkitCase sleuthkitCase, FileSizeFilter filter) {
-                try {
-                    return sleuthkitCase.countFilesWhere(makeQuery(filter));
-                } catch (TskCoreException ex) {
-                    logger.log(Level.SEVERE, "Error getting files by size search view count", ex); //NON-NLS
-                    return 0;
-                }
+                return ViewsCountCache.getInstance(sleuthkitCase).getCount(makeQuery(filter));
             }
 
             @Override
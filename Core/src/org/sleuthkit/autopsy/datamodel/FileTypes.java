@@ -24,16 +24,12 @@
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
-import java.util.logging.Level;
-import javax.swing.SwingWorker;
 import org.openide.nodes.AbstractNode;
 import org.openide.nodes.Children;
 import org.openide.nodes.Sheet;
 import org.openide.util.Lookup;
 import org.openide.util.NbBundle;
 import org.openide.util.lookup.Lookups;
-import org.sleuthkit.autopsy.coreutils.Logger;
 import org.sleuthkit.datamodel.BlackboardArtifact;
 import org.sleuthkit.datamodel.BlackboardAttribute;
 import org.sleuthkit.datamodel.Content;
@@ -53,28 +49,13 @@
  */
 public final class FileTypes implements AutopsyVisitableItem {
 
-    private static final Logger logger = Logger.getLogger(FileTypes.class.getName());
     @NbBundle.Messages("FileTypes.name.text=File Types")
     private static final String NAME = Bundle.FileTypes_name_text();
-    /**
-     * Threshold used to limit db queries for child node counts. When the
-     * tsk_files table has more than this number of rows, we don't query for the
-     * child node counts, and since we don't have an accurate number we don't
-     * show the counts.
-     */
-    private static final int NODE_COUNT_FILE_TABLE_THRESHOLD = 1_000_000;
-    /**
-     * Used to keep track of whether we have hit
-     * NODE_COUNT_FILE_TABLE_THRESHOLD. If we have, we stop querying for the
-     * number of rows in tsk_files, since it is already too large.
-     */
-    private boolean showCounts = true;
 
     private final SleuthkitCase skCase;
 
     FileTypes(SleuthkitCase skCase) {
         this.skCase = skCase;
-        updateShowCounts();
     }
 
     @Override
@@ -86,26 +67,6 @@ SleuthkitCase getSleuthkitCase() {
         return skCase;
     }
 
-    /**
-     * Check the db to determine if the nodes should show child counts.
-     */
-    void updateShowCounts() {
-        /*
-         * once we have passed the threshold, we don't need to keep checking the
-         * number of rows in tsk_files
-         */
-        if (showCounts) {
-            try {
-                if (skCase.countFilesWhere("1=1") > NODE_COUNT_FILE_TABLE_THRESHOLD) { //NON-NLS
-                    showCounts = false;
-                }
-            } catch (TskCoreException tskCoreException) {
-                showCounts = false;
-                logger.log(Level.SEVERE, "Error counting files.", tskCoreException); //NON-NLS
-            }
-        }
-    }
-
     /**
      * Node which will contain By Mime Type and By Extension nodes.
      */
@@ -202,16 +163,12 @@ protected AbstractNode defaultVisit(Content di) {
 
     static abstract class BGCountUpdatingNode extends DisplayableItemNode implements Observer {
 
-        private long childCount = -1;
-        private FileTypes typesRoot;
-
-        BGCountUpdatingNode(FileTypes typesRoot, Children children) {
-            this(typesRoot, children, null);
+        BGCountUpdatingNode(Children children) {
+            this(children, null);
         }
 
-        BGCountUpdatingNode(FileTypes typesRoot, Children children, Lookup lookup) {
+        BGCountUpdatingNode(Children children, Lookup lookup) {
             super(children, lookup);
-            this.typesRoot = typesRoot;
         }
 
         @Override
@@ -222,45 +179,40 @@ public void update(Observable o, Object arg) {
         abstract String getDisplayNameBase();
 
         /**
-         * Calculate the number of children of this node, possibly by querying
-         * the DB.
+         * Get the number of children of this node from the ViewsCountCache.
          *
-         * @return @throws TskCoreException if there was an error querying the
-         *         DB to calculate the number of children.
+         * @return The number of children, or a negative value if they have
+         *         not been counted yet or the count is not shown.
          */
-        abstract long calculateChildCount() throws TskCoreException;
+        abstract long calculateChildCount();
 
         /**
          * Updates the display name of the mediaSubTypeNode to include the count
-         * of files which it represents.
+         * of files which it represents. The count is read from the
+         * ViewsCountCache, which notifies the observers of the node when it
+         * has been computed.
          */
-        @NbBundle.Messages("FileTypes.bgCounting.placeholder= (counting...)")
         void updateDisplayName() {
-            if (typesRoot.showCounts) {
-                //only show "(counting...)" the first time, otherwise it is distracting.
-                setDisplayName(getDisplayNameBase() + ((childCount < 0) ? Bundle.FileTypes_bgCounting_placeholder()
-                        : ("(" + childCount + ")"))); //NON-NLS
-                new SwingWorker<Long, Void>() {
-                    @Override
-                    protected Long doInBackground() throws Exception {
-                        return calculateChildCount();
-                    }
-
-                    @Override
-                    protected void done() {
-                        try {
-                            childCount = get();
-                            setDisplayName(getDisplayNameBase() + " (" + childCount + ")"); //NON-NLS
-                        } catch (InterruptedException | ExecutionException ex) {
-                            setDisplayName(getDisplayNameBase());
-                            logger.log(Level.WARNING, "Failed to get count of files for " + getDisplayNameBase(), ex); //NON-NLS
-                        }
-                    }
-                }.execute();
-            } else {
-                setDisplayName(getDisplayNameBase() + ((childCount < 0) ? "" : (" (" + childCount + "+)"))); //NON-NLS
-            }
+            setDisplayName(getDisplayNameBase() + getCountSuffix(calculateChildCount()));
+        }
+    }
+
+    /**
+     * Formats a count of files read from the ViewsCountCache for display after
+     * the name of a node.
+     *
+     * @param count The count, or one of the ViewsCountCache values for a count
+     *              that has not been computed yet or is not shown.
+     *
+     * @return The text to append to the name of the node.
+     */
+    @NbBundle.Messages({"FileTypes.bgCounting.placeholder= (counting...)",
+        "FileTypes.bgCounting.notShown= (...)"})
+    static String getCountSuffix(long count) {
+        if (count == ViewsCountCache.COUNT_NOT_SHOWN) {
+            return Bundle.FileTypes_bgCounting_notShown();
         }
+        return (count < 0) ? Bundle.FileTypes_bgCounting_placeholder() : (" (" + count + ")"); //NON-NLS
     }
 
     /**
@@ -26,7 +26,6 @@
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Set;
-import java.util.logging.Level;
 import java.util.stream.Collectors;
 import org.apache.commons.lang.StringUtils;
 import org.openide.nodes.ChildFactory;
@@ -37,13 +36,9 @@
 import org.openide.util.NbBundle.Messages;
 import org.openide.util.lookup.Lookups;
 import org.sleuthkit.autopsy.casemodule.Case;
-import org.sleuthkit.autopsy.casemodule.NoCurrentCaseException;
 import org.sleuthkit.autopsy.core.UserPreferences;
 import org.sleuthkit.autopsy.coreutils.Logger;
-import org.sleuthkit.autopsy.datamodel.FileTypes.FileTypesKey;
-import org.sleuthkit.autopsy.ingest.IngestManager;
 import org.sleuthkit.datamodel.SleuthkitCase;
-import org.sleuthkit.datamodel.TskCoreException;
 import org.sleuthkit.datamodel.TskData;
 
 /**
@@ -53,11 +48,9 @@ public final class FileTypesByExtension implements AutopsyVisitableItem {
 
     private final static Logger logger = Logger.getLogger(FileTypesByExtension.class.getName());
     private final SleuthkitCase skCase;
-    private final FileTypes typesRoot;
 
     public FileTypesByExtension(FileTypes typesRoot) {
         this.skCase = typesRoot.getSleuthkitCase();
-        this.typesRoot = typesRoot;
     }
 
     public SleuthkitCase getSleuthkitCase() {
@@ -70,55 +63,38 @@ public <T> T accept(AutopsyItemVisitor<T> visitor) {
     }
 
     /**
-     * Listens for case and ingest invest. Updates observers when events are
-     * fired. FileType and FileTypes nodes are all listening to this.
+     * Listens for changes to the counts of files in the ViewsCountCache, which
+     * listens for the case and ingest events that change them. Updates
+     * observers when the counts change. FileType and FileTypes nodes are all
+     * listening to this.
      */
     private class FileTypesByExtObservable extends Observable {
 
         private final PropertyChangeListener pcl;
+        private final Observer countsObserver;
         private final Set<Case.Events> CASE_EVENTS_OF_INTEREST;
 
         private FileTypesByExtObservable() {
             super();
-            this.CASE_EVENTS_OF_INTEREST = EnumSet.of(Case.Events.DATA_SOURCE_ADDED, Case.Events.CURRENT_CASE);
+            this.CASE_EVENTS_OF_INTEREST = EnumSet.of(Case.Events.CURRENT_CASE);
             this.pcl = (PropertyChangeEvent evt) -> {
                 String eventType = evt.getPropertyName();
-                if (eventType.equals(IngestManager.IngestModuleEvent.CONTENT_CHANGED.toString())
-                        || eventType.equals(IngestManager.IngestJobEvent.COMPLETED.toString())
-                        || eventType.equals(IngestManager.IngestJobEvent.CANCELLED.toString())
-                        || eventType.equals(Case.Events.DATA_SOURCE_ADDED.toString())) {
-                    /**
-                     * Checking for a current case is a stop gap measure until a
-                     * different way of handling the closing of cases is worked
-                     * out. Currently, remote events may be received for a case
-                     * that is already closed.
-                     */
-                    try {
-                        Case.getCurrentCaseThrows();
-                        typesRoot.updateShowCounts();
-                        update();
-                    } catch (NoCurrentCaseException notUsed) {
-                        /**
-                         * Case is closed, do nothing.
-                         */
-                    }
-                } else if (eventType.equals(Case.Events.CURRENT_CASE.toString())) {
+                if (eventType.equals(Case.Events.CURRENT_CASE.toString())) {
                     // case was closed. Remove listeners so that we don't get called with a stale case handle
                     if (evt.getNewValue() == null) {
                         removeListeners();
                     }
                 }
             };
+            this.countsObserver = (Observable o, Object arg) -> update();
 
-            IngestManager.getInstance().addIngestJobEventListener(pcl);
-            IngestManager.getInstance().addIngestModuleEventListener(pcl);
+            ViewsCountCache.getInstance(skCase).addObserver(countsObserver);
             Case.addEventTypeSubscriber(CASE_EVENTS_OF_INTEREST, pcl);
         }
 
         private void removeListeners() {
             deleteObservers();
-            IngestManager.getInstance().removeIngestJobEventListener(pcl);
-            IngestManager.getInstance().removeIngestModuleEventListener(pcl);
+            ViewsCountCache.getInstance(skCase).deleteObserver(countsObserver);
             Case.removeEventTypeSubscriber(CASE_EVENTS_OF_INTEREST, pcl);
         }
 
@@ -286,8 +262,11 @@ class FileExtensionNode extends FileTypes.BGCountUpdatingNode {
          *               should refresh
          */
         FileExtensionNode(FileTypesByExtension.SearchFilterInterface filter, SleuthkitCase skCase, FileTypesByExtObservable o) {
-            super(typesRoot, Children.create(new FileExtensionNodeChildren(filter, skCase, o), true),
-                    Lookups.singleton(filter.getDisplayName()));
+            this(filter, o, new PagedFileChildren(skCase, createQuery(filter), o));
+        }
+
+        private FileExtensionNode(FileTypesByExtension.SearchFilterInterface filter, FileTypesByExtObservable o, PagedFileChildren children) {
+            super(children, Lookups.fixed(filter.getDisplayName(), children));
             this.filter = filter;
             super.setName(filter.getDisplayName());
             updateDisplayName();
@@ -342,8 +321,8 @@ String getDisplayNameBase() {
         }
 
         @Override
-        long calculateChildCount() throws TskCoreException {
-            return skCase.countFilesWhere(createQuery(filter));
+        long calculateChildCount() {
+            return ViewsCountCache.getInstance(skCase).getCount(createQuery(filter));
         }
     }
 
@@ -365,65 +344,6 @@ private String createQuery(FileTypesByExtension.SearchFilterInterface filter) {
                         .collect(Collectors.joining(", ")) + "))";
     }
 
-    /**
-     * Child node factory for a specific file type - does the database query.
-     */
-    private class FileExtensionNodeChildren extends ChildFactory.Detachable<FileTypesKey> implements Observer {
-
-        private final SleuthkitCase skCase;
-        private final FileTypesByExtension.SearchFilterInterface filter;
-        private final Observable notifier;
-
-        /**
-         *
-         * @param filter Extensions to display
-         * @param skCase
-         * @param o      Observable that will notify when there could be new
-         *               data to display
-         */
-        private FileExtensionNodeChildren(FileTypesByExtension.SearchFilterInterface filter, SleuthkitCase skCase, Observable o) {
-            super();
-            this.filter = filter;
-            this.skCase = skCase;
-            notifier = o;
-        }
-
-        @Override
-        protected void addNotify() {
-            if (notifier != null) {
-                notifier.addObserver(this);
-            }
-        }
-
-        @Override
-        protected void removeNotify() {
-            if (notifier != null) {
-                notifier.deleteObserver(this);
-            }
-        }
-
-        @Override
-        public void update(Observable o, Object arg) {
-            refresh(true);
-        }
-
-        @Override
-        protected boolean createKeys(List<FileTypesKey> list) {
-            try {
-                list.addAll(skCase.findAllFilesWhere(createQuery(filter))
-                        .stream().map(f -> new FileTypesKey(f)).collect(Collectors.toList()));
-            } catch (TskCoreException ex) {
-                logger.log(Level.SEVERE, "Couldn't get search results", ex); //NON-NLS
-            }
-            return true;
-        }
-
-        @Override
-        protected Node createNodeForKey(FileTypesKey key) {
-            return key.accept(new FileTypes.FileNodeCreationVisitor());
-        }
-    }
-
     // root node filters
     @Messages({"FileTypeExtensionFilters.tskDatabaseFilter.text=Databases"})
     public static enum RootFilter implements AutopsyVisitableItem, SearchFilterInterface {
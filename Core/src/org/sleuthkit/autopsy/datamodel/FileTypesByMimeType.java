@@ -20,8 +20,6 @@
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
@@ -31,8 +29,6 @@
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Set;
-import java.util.logging.Level;
-import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 import org.openide.nodes.ChildFactory;
 import org.openide.nodes.Children;
@@ -41,22 +37,18 @@
 import org.openide.util.NbBundle;
 import org.openide.util.lookup.Lookups;
 import org.sleuthkit.autopsy.casemodule.Case;
-import org.sleuthkit.autopsy.casemodule.NoCurrentCaseException;
 import static org.sleuthkit.autopsy.core.UserPreferences.hideKnownFilesInViewsTree;
 import static org.sleuthkit.autopsy.core.UserPreferences.hideSlackFilesInViewsTree;
 import org.sleuthkit.autopsy.coreutils.Logger;
-import org.sleuthkit.autopsy.datamodel.FileTypes.FileTypesKey;
-import org.sleuthkit.autopsy.ingest.IngestManager;
 import org.sleuthkit.datamodel.SleuthkitCase;
-import org.sleuthkit.datamodel.TskCoreException;
 import org.sleuthkit.datamodel.TskData;
 
 /**
  * Class which contains the Nodes for the 'By Mime Type' view located in the
  * File Types view, shows all files with a mime type. Will initially be empty
- * until file type identification has been performed. Contains a Property Change
- * Listener which is checking for changes in IngestJobEvent Completed or
- * Canceled and IngestModuleEvent Content Changed.
+ * until file type identification has been performed. The MIME types and their
+ * counts are read from the ViewsCountCache, which notifies this class when they
+ * change.
  */
 public final class FileTypesByMimeType extends Observable implements AutopsyVisitableItem {
 
@@ -69,19 +61,15 @@ public final class FileTypesByMimeType extends Observable implements AutopsyVisi
      * type as the key and a Map, from media subtype to count, as the value.
      */
     private final HashMap<String, Map<String, Long>> existingMimeTypeCounts = new HashMap<>();
-    /**
-     * Root of the File Types tree. Used to provide single answer to question:
-     * Should the child counts be shown next to the nodes?
-     */
-    private final FileTypes typesRoot;
 
     /**
      * The pcl is in the class because it has the easiest mechanisms to add and
      * remove itself during its life cycles.
      */
     private final PropertyChangeListener pcl;
+    private final Observer countsObserver;
 
-    private static final Set<Case.Events> CASE_EVENTS_OF_INTEREST = EnumSet.of(Case.Events.DATA_SOURCE_ADDED, Case.Events.CURRENT_CASE);
+    private static final Set<Case.Events> CASE_EVENTS_OF_INTEREST = EnumSet.of(Case.Events.CURRENT_CASE);
 
     /**
      * Create the base expression used as the where clause in the queries for
@@ -91,7 +79,7 @@ public final class FileTypesByMimeType extends Observable implements AutopsyVisi
      * @return The base expression to be used in the where clause of queries for
      *         files by mime type.
      */
-    static private String createBaseWhereExpr() {
+    static String createBaseWhereExpr() {
         return "(dir_type = " + TskData.TSK_FS_NAME_TYPE_ENUM.REG.getValue() + ")"
                 + " AND (type IN ("
                 + TskData.TSK_DB_FILES_TYPE_ENUM.FS.ordinal() + ","
@@ -105,42 +93,32 @@ static private String createBaseWhereExpr() {
 
     private void removeListeners() {
         deleteObservers();
-        IngestManager.getInstance().removeIngestJobEventListener(pcl);
+        ViewsCountCache.getInstance(skCase).deleteObserver(countsObserver);
         Case.removeEventTypeSubscriber(CASE_EVENTS_OF_INTEREST, pcl);
     }
 
     /**
-     * Performs the query on the database to get all distinct MIME types of
-     * files in it, and populate the hashmap with those results.
+     * Gets all distinct MIME types of files in the database and their counts
+     * from the ViewsCountCache, and populate the hashmap with those results.
      */
     private void populateHashMap() {
-        String query = "SELECT mime_type, count(*) AS count FROM tsk_files "
-                + " WHERE mime_type IS NOT null "
-                + " AND " + createBaseWhereExpr()
-                + " GROUP BY mime_type";
         synchronized (existingMimeTypeCounts) {
             existingMimeTypeCounts.clear();
 
             if (skCase == null) {
                 return;
             }
-            try (SleuthkitCase.CaseDbQuery dbQuery = skCase.executeQuery(query)) {
-                ResultSet resultSet = dbQuery.getResultSet();
-                while (resultSet.next()) {
-                    final String mime_type = resultSet.getString("mime_type"); //NON-NLS
-                    if (!mime_type.isEmpty()) {
-                        //if the mime_type contained multiple slashes then everything after the first slash will become the subtype
-                        final String mediaType = StringUtils.substringBefore(mime_type, "/");
-                        final String subType = StringUtils.removeStart(mime_type, mediaType + "/");
-                        if (!mediaType.isEmpty() && !subType.isEmpty()) {
-                            final long count = resultSet.getLong("count");
-                            existingMimeTypeCounts.computeIfAbsent(mediaType, t -> new HashMap<>())
-                                    .put(subType, count);
-                        }
+            for (Map.Entry<String, Long> entry : ViewsCountCache.getInstance(skCase).getMimeTypeCounts().entrySet()) {
+                final String mime_type = entry.getKey();
+                if (!mime_type.isEmpty()) {
+                    //if the mime_type contained multiple slashes then everything after the first slash will become the subtype
+                    final String mediaType = StringUtils.substringBefore(mime_type, "/");
+                    final String subType = StringUtils.removeStart(mime_type, mediaType + "/");
+                    if (!mediaType.isEmpty() && !subType.isEmpty()) {
+                        existingMimeTypeCounts.computeIfAbsent(mediaType, t -> new HashMap<>())
+                                .put(subType, entry.getValue());
                     }
                 }
-            } catch (TskCoreException | SQLException ex) {
-                logger.log(Level.SEVERE, "Unable to populate File Types by MIME Type tree view from DB: ", ex); //NON-NLS
             }
         }
 
@@ -150,35 +128,18 @@ private void populateHashMap() {
 
     FileTypesByMimeType(FileTypes typesRoot) {
         this.skCase = typesRoot.getSleuthkitCase();
-        this.typesRoot = typesRoot;
         this.pcl = (PropertyChangeEvent evt) -> {
             String eventType = evt.getPropertyName();
-            if (eventType.equals(IngestManager.IngestModuleEvent.CONTENT_CHANGED.toString())
-                    || eventType.equals(IngestManager.IngestJobEvent.COMPLETED.toString())
-                    || eventType.equals(IngestManager.IngestJobEvent.CANCELLED.toString())
-                    || eventType.equals(Case.Events.DATA_SOURCE_ADDED.toString())) {
-                /**
-                 * Checking for a current case is a stop gap measure until a
-                 * different way of handling the closing of cases is worked out.
-                 * Currently, remote events may be received for a case that is
-                 * already closed.
-                 */
-                try {
-                    Case.getCurrentCaseThrows();
-                    typesRoot.updateShowCounts();
-                    populateHashMap();
-                } catch (NoCurrentCaseException notUsed) {
-                    /**
-                     * Case is closed, do nothing.
-                     */
-                }
-            } else if (eventType.equals(Case.Events.CURRENT_CASE.toString())) {
+            if (eventType.equals(Case.Events.CURRENT_CASE.toString())) {
                 if (evt.getNewValue() == null) {
                     removeListeners();
                 }
             }
         };
-        IngestManager.getInstance().addIngestJobEventListener(pcl);
+        // The counts cache listens for the ingest and case events that change
+        // the counts, and notifies its observers at most once per update interval.
+        this.countsObserver = (Observable o, Object arg) -> populateHashMap();
+        ViewsCountCache.getInstance(skCase).addObserver(countsObserver);
         Case.addEventTypeSubscriber(CASE_EVENTS_OF_INTEREST, pcl);
         populateHashMap();
     }
@@ -373,7 +334,11 @@ class MediaSubTypeNode extends FileTypes.BGCountUpdatingNode {
         private final String subType;
 
         private MediaSubTypeNode(String mimeType) {
-            super(typesRoot, Children.create(new MediaSubTypeNodeChildren(mimeType), true), Lookups.singleton(mimeType));
+            this(mimeType, new PagedFileChildren(skCase, createBaseWhereExpr() + " AND mime_type = '" + mimeType + "'", FileTypesByMimeType.this)); //NON-NLS
+        }
+
+        private MediaSubTypeNode(String mimeType, PagedFileChildren children) {
+            super(children, Lookups.fixed(mimeType, children));
             this.mimeType = mimeType;
             this.subType = StringUtils.substringAfter(mimeType, "/");
             super.setName(mimeType);
@@ -428,44 +393,10 @@ String getDisplayNameBase() {
 
         @Override
         long calculateChildCount() {
-            return existingMimeTypeCounts.get(StringUtils.substringBefore(mimeType, "/")).get(subType);
-        }
-    }
-
-    /**
-     * Factory for populating the contents of the Media Sub Type Node with the
-     * files that match MimeType which is represented by this position in the
-     * tree.
-     */
-    private class MediaSubTypeNodeChildren extends ChildFactory.Detachable<FileTypesKey> implements Observer {
-
-        private final String mimeType;
-
-        private MediaSubTypeNodeChildren(String mimeType) {
-            super();
-            addObserver(this);
-            this.mimeType = mimeType;
-        }
-
-        @Override
-        protected boolean createKeys(List<FileTypesKey> list) {
-            try {
-                list.addAll(skCase.findAllFilesWhere(createBaseWhereExpr() + " AND mime_type = '" + mimeType + "'")
-                        .stream().map(f -> new FileTypesKey(f)).collect(Collectors.toList())); //NON-NLS
-            } catch (TskCoreException ex) {
-                logger.log(Level.SEVERE, "Couldn't get search results", ex); //NON-NLS
+            synchronized (existingMimeTypeCounts) {
+                Long count = existingMimeTypeCounts.getOrDefault(StringUtils.substringBefore(mimeType, "/"), Collections.emptyMap()).get(subType);
+                return (count != null) ? count : 0;
             }
-            return true;
-        }
-
-        @Override
-        public void update(Observable o, Object arg) {
-            refresh(true);
-        }
-
-        @Override
-        protected Node createNodeForKey(FileTypesKey key) {
-            return key.accept(new FileTypes.FileNodeCreationVisitor());
         }
     }
 }
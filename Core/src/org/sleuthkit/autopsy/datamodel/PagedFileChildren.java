@@ -0,0 +1,363 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.datamodel;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import javax.annotation.concurrent.GuardedBy;
+import org.openide.nodes.AbstractNode;
+import org.openide.nodes.Children;
+import org.openide.nodes.Node;
+import org.openide.util.NbBundle;
+import org.sleuthkit.autopsy.coreutils.Logger;
+import org.sleuthkit.autopsy.datamodel.AbstractAbstractFileNode.AbstractFilePropertyType;
+import org.sleuthkit.datamodel.AbstractFile;
+import org.sleuthkit.datamodel.SleuthkitCase;
+import org.sleuthkit.datamodel.TskCoreException;
+
+/**
+ * Lazily loaded children for the files that match a where clause, for nodes
+ * whose children can number in the millions, such as the MIME type and file
+ * extension nodes of the Views tree.
+ *
+ * Only the object ids of the files are loaded up front, in the order given by
+ * the current sort. The files themselves are loaded a page at a time when the
+ * nodes for them are created, and only the most recently used pages are kept,
+ * so the files in memory are the ones around the rows being displayed plus the
+ * next page, which is loaded in the background as the display nears the end of
+ * a page. Sorting is done by the query for the object ids.
+ */
+final class PagedFileChildren extends Children.Keys<PagedFileChildren.FileKey> implements QuerySortableChildren, Observer {
+
+    private static final Logger logger = Logger.getLogger(PagedFileChildren.class.getName());
+    private static final int PAGE_SIZE = 500;
+    private static final int MAX_CACHED_PAGES = 4;
+    private static final int PREFETCH_MARGIN = 100;
+    private static final FileKey LOADING_KEY = new FileKey(-1, -1);
+    private static final String DEFAULT_ORDER_BY = "name ASC, obj_id"; //NON-NLS
+    private static final Map<String, String> SORT_COLUMNS = new HashMap<>();
+    private static final ExecutorService loader = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("Paged-File-Children-Loader-%d").setDaemon(true).build());
+
+    static {
+        SORT_COLUMNS.put(AbstractFilePropertyType.NAME.toString(), "name"); //NON-NLS
+        SORT_COLUMNS.put(AbstractFilePropertyType.MOD_TIME.toString(), "mtime"); //NON-NLS
+        SORT_COLUMNS.put(AbstractFilePropertyType.CHANGED_TIME.toString(), "ctime"); //NON-NLS
+        SORT_COLUMNS.put(AbstractFilePropertyType.ACCESS_TIME.toString(), "atime"); //NON-NLS
+        SORT_COLUMNS.put(AbstractFilePropertyType.CREATED_TIME.toString(), "crtime"); //NON-NLS
+        SORT_COLUMNS.put(AbstractFilePropertyType.SIZE.toString(), "size"); //NON-NLS
+        SORT_COLUMNS.put(AbstractFilePropertyType.USER_ID.toString(), "uid"); //NON-NLS
+        SORT_COLUMNS.put(AbstractFilePropertyType.GROUP_ID.toString(), "gid"); //NON-NLS
+        SORT_COLUMNS.put(AbstractFilePropertyType.META_ADDR.toString(), "meta_addr"); //NON-NLS
+        SORT_COLUMNS.put(AbstractFilePropertyType.MD5HASH.toString(), "md5"); //NON-NLS
+        SORT_COLUMNS.put(AbstractFilePropertyType.ObjectID.toString(), "obj_id"); //NON-NLS
+        SORT_COLUMNS.put(AbstractFilePropertyType.MIMETYPE.toString(), "mime_type"); //NON-NLS
+        SORT_COLUMNS.put(AbstractFilePropertyType.EXTENSION.toString(), "extension"); //NON-NLS
+    }
+
+    private final SleuthkitCase skCase;
+    private final String whereClause;
+    private final Observable notifier;
+
+    @GuardedBy("this")
+    private String orderBy = DEFAULT_ORDER_BY;
+    @GuardedBy("this")
+    private long[] fileIds = new long[0];
+    @GuardedBy("this")
+    private int generation;
+    @GuardedBy("this")
+    private final Map<Integer, Map<Long, AbstractFile>> pages = new LinkedHashMap<Integer, Map<Long, AbstractFile>>(MAX_CACHED_PAGES + 1, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Map<Long, AbstractFile>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+
+    /**
+     * Constructs lazily loaded children for the files that match a where
+     * clause.
+     *
+     * @param skCase      The case database.
+     * @param whereClause The where clause for the tsk_files table.
+     * @param notifier    Observable that notifies when the files may have
+     *                    changed, may be null.
+     */
+    PagedFileChildren(SleuthkitCase skCase, String whereClause, Observable notifier) {
+        super(true); //support lazy loading
+        this.skCase = skCase;
+        this.whereClause = whereClause;
+        this.notifier = notifier;
+    }
+
+    @Override
+    protected void addNotify() {
+        if (notifier != null) {
+            notifier.addObserver(this);
+        }
+        setKeys(Collections.singletonList(LOADING_KEY));
+        loadKeys();
+    }
+
+    @Override
+    protected void removeNotify() {
+        if (notifier != null) {
+            notifier.deleteObserver(this);
+        }
+        synchronized (this) {
+            generation++;
+            fileIds = new long[0];
+            pages.clear();
+        }
+        setKeys(Collections.<FileKey>emptyList());
+    }
+
+    @Override
+    public void update(Observable o, Object arg) {
+        loadKeys();
+    }
+
+    @Override
+    public boolean canSortBy(String propertyName) {
+        return SORT_COLUMNS.containsKey(propertyName);
+    }
+
+    @Override
+    public void sortBy(String propertyName, boolean ascending) {
+        String column = SORT_COLUMNS.get(propertyName);
+        if (column == null) {
+            return;
+        }
+        String newOrderBy = column + (ascending ? " ASC" : " DESC") + ", obj_id"; //NON-NLS
+        synchronized (this) {
+            if (newOrderBy.equals(orderBy)) {
+                return;
+            }
+            orderBy = newOrderBy;
+        }
+        loadKeys();
+    }
+
+    @Override
+    public synchronized int indexOf(long objectId) {
+        for (int i = 0; i < fileIds.length; i++) {
+            if (fileIds[i] == objectId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    protected Node[] createNodes(FileKey key) {
+        if (key == LOADING_KEY) {
+            return new Node[]{createLoadingNode()};
+        }
+        AbstractFile file = getFile(key);
+        if (file == null) {
+            return new Node[0];
+        }
+        return new Node[]{file.accept(new FileTypes.FileNodeCreationVisitor())};
+    }
+
+    @NbBundle.Messages("PagedFileChildren.loadingNode.displayName=Please Wait...")
+    private static Node createLoadingNode() {
+        AbstractNode node = new AbstractNode(Children.LEAF);
+        node.setName("loading"); //NON-NLS
+        node.setDisplayName(Bundle.PagedFileChildren_loadingNode_displayName());
+        return node;
+    }
+
+    /**
+     * Loads the object ids of the files in the current order in the
+     * background, then replaces the keys.
+     */
+    private void loadKeys() {
+        final int loadGeneration;
+        final String query;
+        synchronized (this) {
+            loadGeneration = ++generation;
+            query = "SELECT obj_id FROM tsk_files WHERE " + whereClause + " ORDER BY " + orderBy; //NON-NLS
+        }
+        loader.submit(() -> {
+            long[] ids = new long[1024];
+            int count = 0;
+            try (SleuthkitCase.CaseDbQuery dbQuery = skCase.executeQuery(query)) {
+                ResultSet resultSet = dbQuery.getResultSet();
+                while (resultSet.next()) {
+                    if (count == ids.length) {
+                        ids = Arrays.copyOf(ids, count * 2);
+                    }
+                    ids[count++] = resultSet.getLong("obj_id"); //NON-NLS
+                }
+            } catch (TskCoreException | SQLException ex) {
+                logger.log(Level.SEVERE, "Couldn't get search results", ex); //NON-NLS
+            }
+            List<FileKey> keys = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                keys.add(new FileKey(ids[i], i));
+            }
+            synchronized (PagedFileChildren.this) {
+                if (loadGeneration != generation) {
+                    return;
+                }
+                fileIds = Arrays.copyOf(ids, count);
+                pages.clear();
+            }
+            setKeys(keys);
+        });
+    }
+
+    /**
+     * Gets the file for a key, loading the page that contains it if it is not
+     * cached, and prefetching the next page when the key is near the end of
+     * its page.
+     *
+     * @param key The key.
+     *
+     * @return The file, or null if it could not be loaded.
+     */
+    private AbstractFile getFile(FileKey key) {
+        synchronized (this) {
+            if (key.index >= fileIds.length || fileIds[key.index] != key.id) {
+                /*
+                 * The key was created for an earlier order of the files, so
+                 * its position does not tell which page the file is in.
+                 */
+                return loadFile(key.id);
+            }
+        }
+        int page = key.index / PAGE_SIZE;
+        Map<Long, AbstractFile> files;
+        synchronized (this) {
+            files = pages.get(page);
+        }
+        if (files == null) {
+            files = loadPage(page);
+        }
+        if (key.index % PAGE_SIZE >= PAGE_SIZE - PREFETCH_MARGIN) {
+            prefetchPage(page + 1);
+        }
+        return files.get(key.id);
+    }
+
+    private AbstractFile loadFile(long id) {
+        try {
+            return skCase.getAbstractFileById(id);
+        } catch (TskCoreException ex) {
+            logger.log(Level.SEVERE, "Couldn't get file with object id " + id, ex); //NON-NLS
+            return null;
+        }
+    }
+
+    private void prefetchPage(int page) {
+        synchronized (this) {
+            if (pages.containsKey(page) || (long) page * PAGE_SIZE >= fileIds.length) {
+                return;
+            }
+        }
+        loader.submit(() -> loadPage(page));
+    }
+
+    /**
+     * Loads the files for a page of keys with a single query and caches them
+     * if the keys have not been reloaded in the meantime.
+     *
+     * @param page The page index.
+     *
+     * @return The files of the page, by object id.
+     */
+    private Map<Long, AbstractFile> loadPage(int page) {
+        final long[] ids;
+        final int loadGeneration;
+        synchronized (this) {
+            ids = fileIds;
+            loadGeneration = generation;
+        }
+        int start = page * PAGE_SIZE;
+        int end = Math.min(ids.length, start + PAGE_SIZE);
+        if (start >= end) {
+            return Collections.emptyMap();
+        }
+        String idList = LongStream.of(ids).skip(start).limit(end - start)
+                .mapToObj(Long::toString).collect(Collectors.joining(","));
+        Map<Long, AbstractFile> files = new HashMap<>();
+        try {
+            for (AbstractFile file : skCase.findAllFilesWhere("obj_id IN (" + idList + ")")) { //NON-NLS
+                files.put(file.getId(), file);
+            }
+        } catch (TskCoreException ex) {
+            logger.log(Level.SEVERE, "Couldn't get files for page " + page, ex); //NON-NLS
+            return files;
+        }
+        synchronized (this) {
+            if (loadGeneration == generation) {
+                pages.put(page, files);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * The key for a file: its object id and its position in the order the key
+     * was created for. The position is part of the identity of the key, so
+     * that reloading the keys in a new order replaces the keys and the nodes
+     * created for them find their files in the pages of the new order.
+     */
+    static final class FileKey {
+
+        private final long id;
+        private final int index;
+
+        private FileKey(long id, int index) {
+            this.id = id;
+            this.index = index;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof FileKey)) {
+                return false;
+            }
+            FileKey other = (FileKey) obj;
+            return other.id == id && other.index == index;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(id) + index;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.datamodel;
+
+/**
+ * Children of a node that can be sorted by the database query that loads
+ * them, rather than by sorting the child nodes in memory. Nodes whose children
+ * can be sorted this way put the children in their lookup so that result
+ * viewers can find them.
+ */
+public interface QuerySortableChildren {
+
+    /**
+     * Determines whether or not the children can be sorted by a property.
+     *
+     * @param propertyName The name of the property of the child nodes.
+     *
+     * @return True if the children can be sorted by the property.
+     */
+    boolean canSortBy(String propertyName);
+
+    /**
+     * Sorts the children by a property. The children are reloaded in the
+     * background in the new order.
+     *
+     * @param propertyName The name of the property of the child nodes.
+     * @param ascending    True to sort in ascending order, false to sort in
+     *                     descending order.
+     */
+    void sortBy(String propertyName, boolean ascending);
+
+    /**
+     * Gets the position of the child for an object in the current order,
+     * without creating the child nodes.
+     *
+     * @param objectId The object id of the content of the child.
+     *
+     * @return The position of the child, or -1 if there is no child for the
+     *         object or the children have not been loaded yet.
+     */
+    int indexOf(long objectId);
+}
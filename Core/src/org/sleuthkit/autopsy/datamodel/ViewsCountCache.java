@@ -0,0 +1,548 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.datamodel;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Observable;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import org.sleuthkit.autopsy.casemodule.Case;
+import org.sleuthkit.autopsy.core.UserPreferences;
+import org.sleuthkit.autopsy.coreutils.Logger;
+import org.sleuthkit.autopsy.events.AutopsyEvent;
+import org.sleuthkit.autopsy.ingest.IngestManager;
+import org.sleuthkit.datamodel.AbstractFile;
+import org.sleuthkit.datamodel.SleuthkitCase;
+import org.sleuthkit.datamodel.TskCoreException;
+import org.sleuthkit.datamodel.TskData;
+
+/**
+ * Keeps the counts of files shown in the Views tree, so that the tree nodes
+ * can get their counts without querying the case database each time an
+ * ingest or case event is received.
+ *
+ * The counts are computed once, with a single pass over the typed files for
+ * the MIME type counts and a count query for each of the where clauses used
+ * by the other nodes, and then updated incrementally: the MIME type counts
+ * from the files analyzed by ingest on this node and on other nodes, and the
+ * other counts by counting the files added to the case since the last update.
+ *
+ * The where clause counts do not pick up changes to existing files, such as
+ * their known status being set by ingest, which matters when known files are
+ * hidden. For cases with up to a million files, all of the counts are computed
+ * again from scratch when an ingest job ends. For larger cases, where that
+ * would be a walk of a very large files table for every job, the where clause
+ * counts are not shown while known files are hidden, as was done before the
+ * counts were cached, rather than showing counts that may be stale.
+ *
+ * Observers are notified of changes to the counts at most once per update
+ * interval.
+ */
+@ThreadSafe
+final class ViewsCountCache extends Observable {
+
+    private static final Logger logger = Logger.getLogger(ViewsCountCache.class.getName());
+    private static final long UPDATE_INTERVAL_MS = 2000;
+    private static final long NOT_COUNTED = -1;
+    static final long COUNT_NOT_SHOWN = -2;
+    private static final long LARGE_CASE_FILE_THRESHOLD = 1_000_000;
+    private static final int REMOTE_FILES_QUERY_BATCH_SIZE = 500;
+    private static final String UPDATE_THREAD_NAME = "Views-Count-Cache-Updater-%d";
+    private static final Set<Case.Events> CASE_EVENTS_OF_INTEREST = EnumSet.of(Case.Events.DATA_SOURCE_ADDED, Case.Events.CURRENT_CASE);
+    @GuardedBy("ViewsCountCache.class")
+    private static ViewsCountCache instance;
+
+    private final SleuthkitCase skCase;
+    private final ScheduledThreadPoolExecutor updateExecutor;
+    private final AtomicBoolean updateScheduled = new AtomicBoolean(false);
+    private final PropertyChangeListener pcl;
+
+    @GuardedBy("this")
+    private final Map<String, Long> mimeTypeCounts = new HashMap<>();
+    @GuardedBy("this")
+    private FileIdSet typedFileIds = new FileIdSet();
+    @GuardedBy("this")
+    private final List<AbstractFile> filesAnalyzedDuringRecount = new ArrayList<>();
+    @GuardedBy("this")
+    private List<Long> remoteAnalyzedFileIds = new ArrayList<>();
+    @GuardedBy("this")
+    private final Map<String, Long> whereClauseCounts = new HashMap<>();
+    @GuardedBy("this")
+    private long maxFileId = NOT_COUNTED;
+    @GuardedBy("this")
+    private long fileCount;
+    @GuardedBy("this")
+    private boolean hideKnownFiles;
+    @GuardedBy("this")
+    private boolean hideSlackFiles;
+    @GuardedBy("this")
+    private boolean recountNeeded = true;
+    @GuardedBy("this")
+    private boolean recounting;
+    @GuardedBy("this")
+    private boolean countsChanged;
+
+    /**
+     * Gets the counts cache for a case database, creating it if needed. The
+     * cache for a case that has been closed is kept until another case is
+     * opened, so that nodes of the closed case that are still being updated
+     * get its last counts rather than a new cache that queries the closed
+     * case database.
+     *
+     * @param skCase The case database.
+     *
+     * @return The cache.
+     */
+    static synchronized ViewsCountCache getInstance(SleuthkitCase skCase) {
+        if (instance == null || instance.skCase != skCase) {
+            if (instance != null) {
+                instance.shutDown();
+            }
+            instance = new ViewsCountCache(skCase);
+        }
+        return instance;
+    }
+
+    private ViewsCountCache(SleuthkitCase skCase) {
+        this.skCase = skCase;
+        updateExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder().setNameFormat(UPDATE_THREAD_NAME).build());
+        pcl = (PropertyChangeEvent evt) -> {
+            String eventType = evt.getPropertyName();
+            if (eventType.equals(IngestManager.IngestModuleEvent.FILE_DONE.toString())) {
+                /*
+                 * Files analyzed on other nodes are looked up in batches by
+                 * object id, rather than loading each of them from the case
+                 * database.
+                 */
+                if (evt instanceof AutopsyEvent && ((AutopsyEvent) evt).getSourceType() == AutopsyEvent.SourceType.LOCAL) {
+                    fileAnalyzed((AbstractFile) evt.getNewValue());
+                } else if (evt.getOldValue() instanceof Long) {
+                    remoteFileAnalyzed((Long) evt.getOldValue());
+                }
+            } else if (eventType.equals(IngestManager.IngestModuleEvent.CONTENT_CHANGED.toString())
+                    || eventType.equals(Case.Events.DATA_SOURCE_ADDED.toString())) {
+                /*
+                 * The files of a new data source have higher object ids than
+                 * the files counted so far and no MIME types yet, so they are
+                 * picked up by the next update without a recount.
+                 */
+                scheduleUpdate();
+            } else if (eventType.equals(IngestManager.IngestJobEvent.COMPLETED.toString())
+                    || eventType.equals(IngestManager.IngestJobEvent.CANCELLED.toString())) {
+                synchronized (this) {
+                    if (fileCount <= LARGE_CASE_FILE_THRESHOLD) {
+                        recountNeeded = true;
+                    }
+                }
+                scheduleUpdate();
+            } else if (eventType.equals(Case.Events.CURRENT_CASE.toString())) {
+                // case was closed. Stop updating so that we don't use a stale case handle
+                if (evt.getNewValue() == null) {
+                    shutDown();
+                }
+            }
+        };
+        IngestManager.getInstance().addIngestJobEventListener(pcl);
+        IngestManager.getInstance().addIngestModuleEventListener(pcl);
+        Case.addEventTypeSubscriber(CASE_EVENTS_OF_INTEREST, pcl);
+
+        updateScheduled.set(true);
+        updateExecutor.submit(this::update);
+    }
+
+    /**
+     * Gets the number of files of each MIME type that are shown in the By MIME
+     * Type tree. The counts are empty until they have been computed, and
+     * observers are notified once they have been.
+     *
+     * @return The counts, by MIME type.
+     */
+    synchronized Map<String, Long> getMimeTypeCounts() {
+        checkPreferences();
+        return new HashMap<>(mimeTypeCounts);
+    }
+
+    /**
+     * Gets the number of files that match a where clause. The first time a
+     * where clause is used, its count is computed in the background, and
+     * observers are notified once it has been.
+     *
+     * @param whereClause A where clause for the tsk_files table, without a
+     *                    LIMIT.
+     *
+     * @return The count, NOT_COUNTED if it has not been computed yet, or
+     *         COUNT_NOT_SHOWN if the case is too large to keep the count up to
+     *         date.
+     */
+    synchronized long getCount(String whereClause) {
+        if (!whereClauseCountsShown(hideKnownFiles, fileCount)) {
+            return COUNT_NOT_SHOWN;
+        }
+        Long count = whereClauseCounts.get(whereClause);
+        if (count == null) {
+            whereClauseCounts.put(whereClause, NOT_COUNTED);
+            scheduleUpdate();
+            return NOT_COUNTED;
+        }
+        return count;
+    }
+
+    /**
+     * Counts a file analyzed by ingest by its MIME type, unless it has been
+     * counted already.
+     *
+     * @param file The file.
+     */
+    private void fileAnalyzed(AbstractFile file) {
+        if (file == null || file.getMIMEType() == null) {
+            return;
+        }
+        synchronized (this) {
+            if (recounting) {
+                filesAnalyzedDuringRecount.add(file);
+            } else if (maxFileId != NOT_COUNTED) {
+                countTypedFile(file);
+            }
+        }
+        scheduleUpdate();
+    }
+
+    /**
+     * Queues a file analyzed by ingest on another node to be counted by its
+     * MIME type.
+     *
+     * @param fileId The object id of the file.
+     */
+    private void remoteFileAnalyzed(long fileId) {
+        synchronized (this) {
+            remoteAnalyzedFileIds.add(fileId);
+        }
+        scheduleUpdate();
+    }
+
+    @GuardedBy("this")
+    private void countTypedFile(AbstractFile file) {
+        if (!isInMimeTypeTree(file, hideKnownFiles, hideSlackFiles)) {
+            return;
+        }
+        countTypedFile(file.getId(), file.getMIMEType());
+    }
+
+    @GuardedBy("this")
+    private void countTypedFile(long fileId, String mimeType) {
+        if (!typedFileIds.add(fileId)) {
+            return;
+        }
+        mimeTypeCounts.merge(mimeType, 1L, Long::sum);
+        countsChanged = true;
+    }
+
+    /**
+     * Determines whether the where clause counts are shown. They are not
+     * shown for large cases while known files are hidden, since they are not
+     * recounted to pick up files whose known status has changed.
+     */
+    private static boolean whereClauseCountsShown(boolean hideKnownFiles, long fileCount) {
+        return !(hideKnownFiles && fileCount > LARGE_CASE_FILE_THRESHOLD);
+    }
+
+    /**
+     * Determines whether a file is shown in the By MIME Type tree. This must
+     * be kept in step with FileTypesByMimeType.createBaseWhereExpr().
+     */
+    private static boolean isInMimeTypeTree(AbstractFile file, boolean hideKnownFiles, boolean hideSlackFiles) {
+        if (file.getDirType() != TskData.TSK_FS_NAME_TYPE_ENUM.REG) {
+            return false;
+        }
+        switch (file.getType()) {
+            case FS:
+            case CARVED:
+            case DERIVED:
+            case LOCAL:
+                break;
+            case SLACK:
+                if (hideSlackFiles) {
+                    return false;
+                }
+                break;
+            default:
+                return false;
+        }
+        return !(hideKnownFiles && file.getKnown() == TskData.FileKnown.KNOWN);
+    }
+
+    /**
+     * Schedules a recount if the Views tree preferences have changed since
+     * the counts were computed.
+     */
+    @GuardedBy("this")
+    private void checkPreferences() {
+        if (maxFileId != NOT_COUNTED
+                && (hideKnownFiles != UserPreferences.hideKnownFilesInViewsTree() || hideSlackFiles != UserPreferences.hideSlackFilesInViewsTree())) {
+            recountNeeded = true;
+            scheduleUpdate();
+        }
+    }
+
+    private void scheduleUpdate() {
+        if (updateScheduled.compareAndSet(false, true)) {
+            try {
+                updateExecutor.schedule(this::update, UPDATE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ex) {
+                // the cache has been shut down
+            }
+        }
+    }
+
+    /**
+     * Brings the counts up to date and notifies the observers if they have
+     * changed.
+     */
+    private void update() {
+        updateScheduled.set(false);
+        boolean recount;
+        synchronized (this) {
+            recount = recountNeeded;
+            recountNeeded = false;
+            recounting = recount;
+        }
+        try {
+            if (recount) {
+                recountFiles();
+            }
+            countNewFiles();
+            countRemoteAnalyzedFiles();
+        } catch (TskCoreException | SQLException ex) {
+            logger.log(Level.SEVERE, "Error counting files for the Views tree", ex); //NON-NLS
+            synchronized (this) {
+                recountNeeded = recount || recountNeeded;
+            }
+        } finally {
+            synchronized (this) {
+                if (recounting) {
+                    recounting = false;
+                    filesAnalyzedDuringRecount.clear();
+                }
+            }
+        }
+
+        boolean changed;
+        synchronized (this) {
+            changed = countsChanged;
+            countsChanged = false;
+        }
+        if (changed) {
+            setChanged();
+            notifyObservers();
+        }
+    }
+
+    /**
+     * Computes all of the counts from scratch.
+     */
+    private void recountFiles() throws TskCoreException, SQLException {
+        boolean hideKnown = UserPreferences.hideKnownFilesInViewsTree();
+        boolean hideSlack = UserPreferences.hideSlackFilesInViewsTree();
+        long newMaxFileId = queryMaxFileId();
+        long newFileCount = skCase.countFilesWhere("obj_id <= " + newMaxFileId); //NON-NLS
+
+        Map<String, Long> newMimeTypeCounts = new HashMap<>();
+        FileIdSet newTypedFileIds = new FileIdSet();
+        String query = "SELECT obj_id, mime_type FROM tsk_files WHERE mime_type IS NOT NULL AND " + FileTypesByMimeType.createBaseWhereExpr(); //NON-NLS
+        try (SleuthkitCase.CaseDbQuery dbQuery = skCase.executeQuery(query)) {
+            ResultSet resultSet = dbQuery.getResultSet();
+            while (resultSet.next()) {
+                newTypedFileIds.add(resultSet.getLong("obj_id")); //NON-NLS
+                newMimeTypeCounts.merge(resultSet.getString("mime_type"), 1L, Long::sum); //NON-NLS
+            }
+        }
+
+        List<String> whereClauses;
+        synchronized (this) {
+            whereClauses = new ArrayList<>(whereClauseCounts.keySet());
+        }
+        Map<String, Long> newWhereClauseCounts = new HashMap<>();
+        if (!whereClauseCountsShown(hideKnown, newFileCount)) {
+            whereClauses.clear();
+        }
+        for (String whereClause : whereClauses) {
+            newWhereClauseCounts.put(whereClause, skCase.countFilesWhere("obj_id <= " + newMaxFileId + " AND (" + whereClause + ")")); //NON-NLS
+        }
+
+        synchronized (this) {
+            hideKnownFiles = hideKnown;
+            hideSlackFiles = hideSlack;
+            maxFileId = newMaxFileId;
+            fileCount = newFileCount;
+            mimeTypeCounts.clear();
+            mimeTypeCounts.putAll(newMimeTypeCounts);
+            typedFileIds = newTypedFileIds;
+            filesAnalyzedDuringRecount.forEach(this::countTypedFile);
+            filesAnalyzedDuringRecount.clear();
+            recounting = false;
+            whereClauseCounts.putAll(newWhereClauseCounts);
+            countsChanged = true;
+        }
+    }
+
+    /**
+     * Adds the files added to the case since the counts were last updated to
+     * the counts for the where clauses, and computes the counts for where
+     * clauses that have not been counted yet.
+     */
+    private void countNewFiles() throws TskCoreException, SQLException {
+        long lastMaxFileId;
+        Map<String, Long> counts;
+        synchronized (this) {
+            if (maxFileId == NOT_COUNTED) {
+                return;
+            }
+            lastMaxFileId = maxFileId;
+            counts = whereClauseCountsShown(hideKnownFiles, fileCount) ? new HashMap<>(whereClauseCounts) : new HashMap<>();
+        }
+        long newMaxFileId = queryMaxFileId();
+        long addedFileCount = 0;
+        if (newMaxFileId > lastMaxFileId) {
+            addedFileCount = skCase.countFilesWhere("obj_id > " + lastMaxFileId + " AND obj_id <= " + newMaxFileId); //NON-NLS
+        }
+
+        Map<String, Long> newCounts = new HashMap<>();
+        Map<String, Long> addedCounts = new HashMap<>();
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            if (entry.getValue() == NOT_COUNTED) {
+                newCounts.put(entry.getKey(), skCase.countFilesWhere("obj_id <= " + newMaxFileId + " AND (" + entry.getKey() + ")")); //NON-NLS
+            } else if (newMaxFileId > lastMaxFileId) {
+                long added = skCase.countFilesWhere("obj_id > " + lastMaxFileId + " AND obj_id <= " + newMaxFileId + " AND (" + entry.getKey() + ")"); //NON-NLS
+                if (added > 0) {
+                    addedCounts.put(entry.getKey(), added);
+                }
+            }
+        }
+
+        synchronized (this) {
+            maxFileId = newMaxFileId;
+            fileCount += addedFileCount;
+            whereClauseCounts.putAll(newCounts);
+            addedCounts.forEach((whereClause, added) -> whereClauseCounts.merge(whereClause, added, Long::sum));
+            if (!newCounts.isEmpty() || !addedCounts.isEmpty()) {
+                countsChanged = true;
+            }
+        }
+    }
+
+    /**
+     * Counts the files analyzed by ingest on other nodes since the last update
+     * by their MIME types, unless they have been counted already.
+     */
+    private void countRemoteAnalyzedFiles() throws TskCoreException, SQLException {
+        List<Long> fileIds;
+        synchronized (this) {
+            if (maxFileId == NOT_COUNTED || remoteAnalyzedFileIds.isEmpty()) {
+                return;
+            }
+            fileIds = remoteAnalyzedFileIds;
+            remoteAnalyzedFileIds = new ArrayList<>();
+        }
+        for (int start = 0; start < fileIds.size(); start += REMOTE_FILES_QUERY_BATCH_SIZE) {
+            StringBuilder idList = new StringBuilder();
+            for (Long fileId : fileIds.subList(start, Math.min(start + REMOTE_FILES_QUERY_BATCH_SIZE, fileIds.size()))) {
+                if (idList.length() > 0) {
+                    idList.append(',');
+                }
+                idList.append(fileId);
+            }
+            String query = "SELECT obj_id, mime_type FROM tsk_files WHERE obj_id IN (" + idList + ") AND mime_type IS NOT NULL AND " + FileTypesByMimeType.createBaseWhereExpr(); //NON-NLS
+            Map<Long, String> mimeTypes = new HashMap<>();
+            try (SleuthkitCase.CaseDbQuery dbQuery = skCase.executeQuery(query)) {
+                ResultSet resultSet = dbQuery.getResultSet();
+                while (resultSet.next()) {
+                    mimeTypes.put(resultSet.getLong("obj_id"), resultSet.getString("mime_type")); //NON-NLS
+                }
+            }
+            synchronized (this) {
+                mimeTypes.forEach(this::countTypedFile);
+            }
+        }
+    }
+
+    private long queryMaxFileId() throws TskCoreException, SQLException {
+        try (SleuthkitCase.CaseDbQuery dbQuery = skCase.executeQuery("SELECT MAX(obj_id) AS max_id FROM tsk_files")) { //NON-NLS
+            ResultSet resultSet = dbQuery.getResultSet();
+            return resultSet.next() ? resultSet.getLong("max_id") : 0; //NON-NLS
+        }
+    }
+
+    private void shutDown() {
+        IngestManager.getInstance().removeIngestJobEventListener(pcl);
+        IngestManager.getInstance().removeIngestModuleEventListener(pcl);
+        Case.removeEventTypeSubscriber(CASE_EVENTS_OF_INTEREST, pcl);
+        updateExecutor.shutdownNow();
+        deleteObservers();
+        synchronized (this) {
+            typedFileIds = new FileIdSet();
+            filesAnalyzedDuringRecount.clear();
+            remoteAnalyzedFileIds.clear();
+        }
+    }
+
+    /**
+     * A set of file object ids, kept as bit sets for blocks of consecutive
+     * ids so that the full range of object ids can be held without allocating
+     * bits for the ids below the lowest id in use.
+     */
+    private static final class FileIdSet {
+
+        private static final int BLOCK_BITS = 16;
+        private static final long BLOCK_MASK = (1L << BLOCK_BITS) - 1;
+        private final Map<Long, BitSet> blocks = new HashMap<>();
+
+        /**
+         * Adds an id to the set.
+         *
+         * @param id The object id.
+         *
+         * @return True if the id was not already in the set.
+         */
+        boolean add(long id) {
+            BitSet block = blocks.computeIfAbsent(id >>> BLOCK_BITS, key -> new BitSet(1 << BLOCK_BITS));
+            int bit = (int) (id & BLOCK_MASK);
+            if (block.get(bit)) {
+                return false;
+            }
+            block.set(bit);
+            return true;
+        }
+    }
+}
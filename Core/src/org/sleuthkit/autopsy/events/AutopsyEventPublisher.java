@@ -71,7 +71,8 @@ public synchronized void openRemoteEventChannel(String channelName) throws Autop
             closeRemoteEventChannel();
         }
         try {
-            remotePublisher = new RemoteEventPublisher(channelName, localPublisher, UserPreferences.getMessageServiceConnectionInfo());
+            remotePublisher = new RemoteEventPublisher(channelName, localPublisher, UserPreferences.getMessageServiceConnectionInfo(),
+                    UserPreferences.sendBatchedRemoteEvents());
         } catch (URISyntaxException | JMSException ex) {
             String message = "Failed to open remote event channel"; //NON-NLS
             logger.log(Level.SEVERE, message, ex);
@@ -0,0 +1,132 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.events;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Helpers for remote event codecs that write integers and lists of object ids
+ * in a compact form.
+ */
+public final class EventCodecUtils {
+
+    /**
+     * Writes a non-negative integer using as few bytes as possible, seven bits
+     * to a byte.
+     *
+     * @param out   The output.
+     * @param value The value.
+     *
+     * @throws IOException If there is an error writing the value.
+     */
+    public static void writeUnsignedVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Reads an integer written by writeUnsignedVarLong.
+     *
+     * @param in The input.
+     *
+     * @return The value.
+     *
+     * @throws IOException If there is an error reading the value.
+     */
+    public static long readUnsignedVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer"); //NON-NLS
+    }
+
+    /**
+     * Writes a list of object ids as the differences between consecutive ids,
+     * which are small for ids that are created close together.
+     *
+     * @param out The output.
+     * @param ids The ids.
+     *
+     * @throws IOException If there is an error writing the ids.
+     */
+    public static void writeIds(DataOutput out, Collection<Long> ids) throws IOException {
+        writeUnsignedVarLong(out, ids.size());
+        long previous = 0;
+        for (long id : ids) {
+            long delta = id - previous;
+            writeUnsignedVarLong(out, (delta << 1) ^ (delta >> 63));
+            previous = id;
+        }
+    }
+
+    /**
+     * Reads a list of object ids written by writeIds.
+     *
+     * @param in The input.
+     *
+     * @return The ids.
+     *
+     * @throws IOException If there is an error reading the ids.
+     */
+    public static List<Long> readIds(DataInput in) throws IOException {
+        int count = readCount(in);
+        List<Long> ids = new ArrayList<>(count);
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            long zigZag = readUnsignedVarLong(in);
+            previous += (zigZag >>> 1) ^ -(zigZag & 1);
+            ids.add(previous);
+        }
+        return ids;
+    }
+
+    /**
+     * Reads a count written by writeUnsignedVarLong.
+     *
+     * @param in The input.
+     *
+     * @return The count.
+     *
+     * @throws IOException If there is an error reading the count or it is
+     *                     too large.
+     */
+    public static int readCount(DataInput in) throws IOException {
+        long count = readUnsignedVarLong(in);
+        if (count > Integer.MAX_VALUE) {
+            throw new IOException("Count out of range: " + count); //NON-NLS
+        }
+        return (int) count;
+    }
+
+    private EventCodecUtils() {
+    }
+}
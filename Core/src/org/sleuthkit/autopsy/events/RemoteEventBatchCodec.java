@@ -0,0 +1,251 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.events;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import javax.annotation.concurrent.Immutable;
+import org.openide.util.Lookup;
+import org.sleuthkit.autopsy.coreutils.Logger;
+
+/**
+ * Encodes batches of events to be published to other Autopsy nodes as a
+ * single message, using the registered remote event codecs for the events
+ * they can encode and Java serialization for the rest.
+ *
+ * A batch starts with a format version and the names of the codecs used in
+ * it, followed by the events. Each event is written as the index of its codec
+ * in the batch (zero for Java serialization) and its length-prefixed
+ * encoding, so that events encoded by a codec that is not installed on the
+ * receiving node can be skipped.
+ */
+@Immutable
+final class RemoteEventBatchCodec {
+
+    private static final Logger logger = Logger.getLogger(RemoteEventBatchCodec.class.getName());
+    static final int FORMAT_VERSION = 1;
+    private static final int JAVA_SERIALIZATION = 0;
+    private final Map<String, RemoteEventCodec> codecs = new LinkedHashMap<>();
+
+    /**
+     * Constructs an object that encodes batches of events using the remote
+     * event codecs in the default lookup.
+     */
+    RemoteEventBatchCodec() {
+        for (RemoteEventCodec codec : Lookup.getDefault().lookupAll(RemoteEventCodec.class)) {
+            codecs.putIfAbsent(codec.getName(), codec);
+        }
+    }
+
+    /**
+     * Gets the key that events that can be coalesced with an event share.
+     *
+     * @param event The event.
+     *
+     * @return The key, or null if the event cannot be coalesced.
+     */
+    Object getCoalescingKey(AutopsyEvent event) {
+        RemoteEventCodec codec = getCodec(event);
+        if (null == codec) {
+            return null;
+        }
+        Object key = codec.getCoalescingKey(event);
+        return (null != key) ? Arrays.asList(codec.getName(), key) : null;
+    }
+
+    /**
+     * Coalesces two events that have the same coalescing key.
+     *
+     * @param first  The event that was published first.
+     * @param second The event that was published second.
+     *
+     * @return The coalesced event.
+     */
+    AutopsyEvent coalesce(AutopsyEvent first, AutopsyEvent second) {
+        return getCodec(first).coalesce(first, second);
+    }
+
+    /**
+     * Encodes a batch of events. Events that cannot be encoded, such as events
+     * without a codec that are not serializable, are logged and left out of
+     * the batch.
+     *
+     * @param events The events, in publication order.
+     *
+     * @return The encoded batch, or null if none of the events could be
+     *         encoded.
+     */
+    byte[] encode(List<AutopsyEvent> events) {
+        Map<String, Integer> codecIndexes = new LinkedHashMap<>();
+        List<Integer> eventCodecIndexes = new ArrayList<>(events.size());
+        List<byte[]> encodedEvents = new ArrayList<>(events.size());
+        for (AutopsyEvent event : events) {
+            RemoteEventCodec codec = getCodec(event);
+            ByteArrayOutputStream eventBytes = new ByteArrayOutputStream();
+            try {
+                if (null != codec) {
+                    DataOutputStream eventOut = new DataOutputStream(eventBytes);
+                    codec.encode(event, eventOut);
+                    eventOut.flush();
+                } else {
+                    try (ObjectOutputStream objectOut = new ObjectOutputStream(eventBytes)) {
+                        objectOut.writeObject(event);
+                    }
+                }
+            } catch (IOException | RuntimeException ex) {
+                logger.log(Level.SEVERE, String.format("Failed to encode %s event, it will not be published remotely", event.getPropertyName()), ex); //NON-NLS
+                continue;
+            }
+            if (null != codec) {
+                codecIndexes.putIfAbsent(codec.getName(), codecIndexes.size() + 1);
+                eventCodecIndexes.add(codecIndexes.get(codec.getName()));
+            } else {
+                eventCodecIndexes.add(JAVA_SERIALIZATION);
+            }
+            encodedEvents.add(eventBytes.toByteArray());
+        }
+        if (encodedEvents.isEmpty()) {
+            return null;
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(FORMAT_VERSION);
+            EventCodecUtils.writeUnsignedVarLong(out, codecIndexes.size());
+            for (String codecName : codecIndexes.keySet()) {
+                out.writeUTF(codecName);
+            }
+            EventCodecUtils.writeUnsignedVarLong(out, encodedEvents.size());
+            for (int i = 0; i < encodedEvents.size(); i++) {
+                EventCodecUtils.writeUnsignedVarLong(out, eventCodecIndexes.get(i));
+                EventCodecUtils.writeUnsignedVarLong(out, encodedEvents.get(i).length);
+                out.write(encodedEvents.get(i));
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            // Writing to a byte array does not fail
+            throw new IllegalStateException("Failed to write event batch", ex); //NON-NLS
+        }
+    }
+
+    /**
+     * Decodes a batch of events. Events that cannot be decoded are logged and
+     * skipped.
+     *
+     * @param batch The encoded batch.
+     *
+     * @return The events, in publication order.
+     *
+     * @throws IOException If the batch is malformed.
+     */
+    List<AutopsyEvent> decode(byte[] batch) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(batch));
+        int version = in.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported event batch format version " + version); //NON-NLS
+        }
+        int codecCount = EventCodecUtils.readCount(in);
+        Map<Integer, String> codecNames = new HashMap<>();
+        for (int i = 1; i <= codecCount; i++) {
+            codecNames.put(i, in.readUTF());
+        }
+        int eventCount = EventCodecUtils.readCount(in);
+        List<AutopsyEvent> events = new ArrayList<>(eventCount);
+        for (int i = 0; i < eventCount; i++) {
+            int codecIndex = EventCodecUtils.readCount(in);
+            byte[] eventBytes = new byte[EventCodecUtils.readCount(in)];
+            in.readFully(eventBytes);
+            try {
+                AutopsyEvent event;
+                if (codecIndex == JAVA_SERIALIZATION) {
+                    event = deserialize(eventBytes);
+                } else {
+                    RemoteEventCodec codec = codecs.get(codecNames.get(codecIndex));
+                    if (null == codec) {
+                        logger.log(Level.WARNING, String.format("No codec for event encoded by %s", codecNames.get(codecIndex))); //NON-NLS
+                        continue;
+                    }
+                    event = codec.decode(new DataInputStream(new ByteArrayInputStream(eventBytes)));
+                }
+                if (null != event) {
+                    events.add(event);
+                }
+            } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+                logger.log(Level.SEVERE, "Error decoding event", ex); //NON-NLS
+            }
+        }
+        return events;
+    }
+
+    private RemoteEventCodec getCodec(AutopsyEvent event) {
+        for (RemoteEventCodec codec : codecs.values()) {
+            if (codec.canEncode(event)) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    private static AutopsyEvent deserialize(byte[] eventBytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream objectIn = new ModuleObjectInputStream(new ByteArrayInputStream(eventBytes))) {
+            return (AutopsyEvent) objectIn.readObject();
+        }
+    }
+
+    /**
+     * An object input stream that resolves classes using the class loader
+     * that can load the classes of all of the enabled modules, since events
+     * may be defined by any module.
+     */
+    private static final class ModuleObjectInputStream extends ObjectInputStream {
+
+        ModuleObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            ClassLoader classLoader = Lookup.getDefault().lookup(ClassLoader.class);
+            if (null != classLoader) {
+                try {
+                    return Class.forName(desc.getName(), false, classLoader);
+                } catch (ClassNotFoundException ex) {
+                    // Fall through for primitive types and arrays of them.
+                }
+            }
+            return super.resolveClass(desc);
+        }
+    }
+}
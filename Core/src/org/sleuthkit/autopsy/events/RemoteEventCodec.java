@@ -0,0 +1,102 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.events;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A compact binary encoding for the events of one or more types that are
+ * published to other Autopsy nodes, used in place of Java serialization.
+ * Codecs are found using the default lookup, so they are registered with a
+ * ServiceProvider annotation; events that no codec can encode are sent using
+ * Java serialization.
+ *
+ * Codecs may also coalesce events: if two events that are published shortly
+ * after each other have the same coalescing key, they are sent as the single
+ * event produced by coalesce().
+ */
+public interface RemoteEventCodec {
+
+    /**
+     * Gets the name of this codec, which identifies the codec to the other
+     * Autopsy nodes. It must not change between versions of the codec that
+     * are not compatible.
+     *
+     * @return The name.
+     */
+    String getName();
+
+    /**
+     * Determines whether or not this codec can encode an event.
+     *
+     * @param event The event.
+     *
+     * @return True or false.
+     */
+    boolean canEncode(AutopsyEvent event);
+
+    /**
+     * Encodes an event that this codec can encode.
+     *
+     * @param event The event.
+     * @param out   The output to write the event to.
+     *
+     * @throws IOException If there is an error writing the event.
+     */
+    void encode(AutopsyEvent event, DataOutput out) throws IOException;
+
+    /**
+     * Decodes an event encoded by this codec.
+     *
+     * @param in The input to read the event from.
+     *
+     * @return The event.
+     *
+     * @throws IOException If there is an error reading the event.
+     */
+    AutopsyEvent decode(DataInput in) throws IOException;
+
+    /**
+     * Gets the key that events that can be coalesced with an event share.
+     *
+     * @param event An event that this codec can encode.
+     *
+     * @return The key, or null if the event cannot be coalesced with other
+     *         events.
+     */
+    default Object getCoalescingKey(AutopsyEvent event) {
+        return null;
+    }
+
+    /**
+     * Coalesces two events that have the same coalescing key. By default the
+     * second event replaces the first, which suits codecs whose coalescing
+     * keys are only shared by duplicate events.
+     *
+     * @param first  The event that was published first.
+     * @param second The event that was published second.
+     *
+     * @return An event that conveys both events to subscribers.
+     */
+    default AutopsyEvent coalesce(AutopsyEvent first, AutopsyEvent second) {
+        return second;
+    }
+}
@@ -18,15 +18,25 @@
  */
 package org.sleuthkit.autopsy.events;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
+import javax.jms.BytesMessage;
 import javax.jms.Connection;
 import javax.jms.DeliveryMode;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageConsumer;
+import javax.jms.MessageFormatException;
 import javax.jms.MessageListener;
 import javax.jms.MessageProducer;
 import javax.jms.ObjectMessage;
@@ -41,12 +51,28 @@
  * Subscribers on this node are constrained to be PropertyChangeListeners to
  * integrate with the legacy use of JavaBeans PropertyChangeEvents and
  * PropertyChangeListeners as an application event system.
+ *
+ * Events that can be coalesced with other events wait up to
+ * BATCH_WINDOW_MILLIS to be sent, so that bursts of them, such as the events
+ * published by ingest, are sent together; any other event is sent at once,
+ * along with the events waiting to be sent before it.
+ *
+ * Events are sent as one serialized ObjectMessage per event, which every
+ * Autopsy version can read, unless sending batches is enabled. Then each set
+ * of events is sent as a single BytesMessage encoded by a
+ * RemoteEventBatchCodec, which older versions ignore. Every message sent
+ * carries the batch format version this node can read, so a node that
+ * receives an event from a node without it goes back to sending
+ * ObjectMessages.
  */
 @ThreadSafe
 final class RemoteEventPublisher {
 
     private static final Logger logger = Logger.getLogger(RemoteEventPublisher.class.getName());
     private static final String ALL_MESSAGE_SELECTOR = "All"; //NON-NLS
+    private static final String BATCH_FORMAT_PROPERTY = "eventBatchFormat"; //NON-NLS
+    private static final long BATCH_WINDOW_MILLIS = 250;
+    private static final int MAX_BATCH_SIZE = 1000;
     private final LocalEventPublisher localPublisher; // LocalEventPublisher is thread-safe
     @GuardedBy("this")
     private final Connection connection;
@@ -57,6 +83,19 @@ final class RemoteEventPublisher {
     @GuardedBy("this")
     private final MessageConsumer consumer;
     private final MessageReceiver receiver;
+    private final RemoteEventBatchCodec batchCodec = new RemoteEventBatchCodec(); // RemoteEventBatchCodec is thread-safe
+    private final boolean sendBatches;
+    private volatile boolean olderNodeSeen;
+    private final ScheduledThreadPoolExecutor batchSender = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactoryBuilder().setNameFormat("Remote-Event-Batch-Sender-%d").setDaemon(true).build());
+    @GuardedBy("this")
+    private final List<AutopsyEvent> pendingEvents = new ArrayList<>();
+    @GuardedBy("this")
+    private final Map<Object, Integer> pendingEventIndexes = new HashMap<>();
+    @GuardedBy("this")
+    private boolean sendScheduled;
+    @GuardedBy("this")
+    private JMSException sendFailure;
 
     /**
      * Constructs an object for publishing events to registered subscribers on
@@ -67,15 +106,18 @@ final class RemoteEventPublisher {
      * @param localPublisher   An event publisher that will be used to publish
      *                         events from other Autopsy nodes on this node.
      * @param info             Connection info for the message service.
+     * @param sendBatches      Whether events should be sent as batches, which
+     *                         only nodes of this version or later can read.
      *
      * @throws URISyntaxException If the URI in the connection info is
      *                            malformed.
      * @throws JMSException       If the connection to the message service
      *                            cannot be made.
      */
-    RemoteEventPublisher(String eventChannelName, LocalEventPublisher localPublisher, MessageServiceConnectionInfo info) throws URISyntaxException, JMSException {
+    RemoteEventPublisher(String eventChannelName, LocalEventPublisher localPublisher, MessageServiceConnectionInfo info, boolean sendBatches) throws URISyntaxException, JMSException {
         try {
             this.localPublisher = localPublisher;
+            this.sendBatches = sendBatches;
             ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory(info.getUserName(), info.getPassword(), info.getURI());
             connection = connectionFactory.createConnection();
             connection.start();
@@ -107,6 +149,14 @@ final class RemoteEventPublisher {
      *                      connection.
      */
     synchronized void stop() throws JMSException {
+        batchSender.shutdownNow();
+        if (null != producer && null != session) {
+            try {
+                sendPendingEvents();
+            } catch (JMSException ex) {
+                logger.log(Level.WARNING, "Failed to send pending events", ex); //NON-NLS
+            }
+        }
         if (null != producer) {
             producer.close();
         }
@@ -122,15 +172,94 @@ synchronized void stop() throws JMSException {
     }
 
     /**
-     * Sends an event message to the message service.
+     * Sends an event to the message service, either at once or as part of a
+     * batch of events sent shortly.
      *
      * @param event The event to publish.
+     *
+     * @throws JMSException If this or a previous batch of events could not be
+     *                      sent.
      */
     synchronized void publish(AutopsyEvent event) throws JMSException {
-        ObjectMessage message = session.createObjectMessage();
-        message.setStringProperty("events", ALL_MESSAGE_SELECTOR); //NON-NLS
-        message.setObject(event);
-        producer.send(message);
+        if (null != sendFailure) {
+            JMSException ex = sendFailure;
+            sendFailure = null;
+            throw ex;
+        }
+        Object coalescingKey = batchCodec.getCoalescingKey(event);
+        if (null == coalescingKey) {
+            pendingEvents.add(event);
+            sendPendingEvents();
+            return;
+        }
+        Integer index = pendingEventIndexes.get(coalescingKey);
+        if (null != index) {
+            pendingEvents.set(index, batchCodec.coalesce(pendingEvents.get(index), event));
+        } else {
+            pendingEventIndexes.put(coalescingKey, pendingEvents.size());
+            pendingEvents.add(event);
+        }
+        if (pendingEvents.size() >= MAX_BATCH_SIZE) {
+            sendPendingEvents();
+        } else if (!sendScheduled) {
+            sendScheduled = true;
+            batchSender.schedule(this::sendScheduledEvents, BATCH_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sends the pending events when the batch window closes. A failure is
+     * reported by the next call to publish, so that the caller can reconnect.
+     */
+    private synchronized void sendScheduledEvents() {
+        sendScheduled = false;
+        try {
+            sendPendingEvents();
+        } catch (JMSException ex) {
+            logger.log(Level.SEVERE, "Failed to send batch of events", ex); //NON-NLS
+            sendFailure = ex;
+        }
+    }
+
+    /**
+     * Sends the pending events to the message service, as a single message if
+     * sending batches is enabled and no older node has been seen. Events that
+     * cannot be encoded are logged and skipped.
+     *
+     * @throws JMSException If a message could not be sent.
+     */
+    @GuardedBy("this")
+    private void sendPendingEvents() throws JMSException {
+        if (pendingEvents.isEmpty()) {
+            return;
+        }
+        List<AutopsyEvent> events = new ArrayList<>(pendingEvents);
+        pendingEvents.clear();
+        pendingEventIndexes.clear();
+        if (sendBatches && !olderNodeSeen) {
+            byte[] batch = batchCodec.encode(events);
+            if (null == batch) {
+                return;
+            }
+            BytesMessage message = session.createBytesMessage();
+            message.setStringProperty("events", ALL_MESSAGE_SELECTOR); //NON-NLS
+            message.setIntProperty(BATCH_FORMAT_PROPERTY, RemoteEventBatchCodec.FORMAT_VERSION);
+            message.writeBytes(batch);
+            producer.send(message);
+        } else {
+            for (AutopsyEvent event : events) {
+                ObjectMessage message = session.createObjectMessage();
+                try {
+                    message.setObject(event);
+                } catch (MessageFormatException | RuntimeException ex) {
+                    logger.log(Level.SEVERE, String.format("Failed to serialize %s event, it will not be published remotely", event.getPropertyName()), ex); //NON-NLS
+                    continue;
+                }
+                message.setStringProperty("events", ALL_MESSAGE_SELECTOR); //NON-NLS
+                message.setIntProperty(BATCH_FORMAT_PROPERTY, RemoteEventBatchCodec.FORMAT_VERSION);
+                producer.send(message);
+            }
+        }
     }
 
     /**
@@ -148,7 +277,19 @@ private final class MessageReceiver implements MessageListener {
         @Override
         public void onMessage(Message message) {
             try {
-                if (message instanceof ObjectMessage) {
+                if (message instanceof BytesMessage) {
+                    BytesMessage bytesMessage = (BytesMessage) message;
+                    byte[] batch = new byte[(int) bytesMessage.getBodyLength()];
+                    bytesMessage.readBytes(batch);
+                    for (AutopsyEvent event : batchCodec.decode(batch)) {
+                        event.setSourceType(AutopsyEvent.SourceType.REMOTE);
+                        localPublisher.publish(event);
+                    }
+                } else if (message instanceof ObjectMessage) {
+                    if (!message.propertyExists(BATCH_FORMAT_PROPERTY) && sendBatches && !olderNodeSeen) {
+                        logger.log(Level.INFO, "Received an event from a node that cannot read event batches, sending events individually"); //NON-NLS
+                        olderNodeSeen = true;
+                    }
                     ObjectMessage objectMessage = (ObjectMessage) message;
                     Object object = objectMessage.getObject();
                     if (object instanceof AutopsyEvent) {
@@ -157,7 +298,7 @@ public void onMessage(Message message) {
                         localPublisher.publish(event);
                     }
                 }
-            } catch (JMSException ex) {
+            } catch (JMSException | IOException ex) {
                 logger.log(Level.SEVERE, "Error receiving message", ex); //NON-NLS
             } catch (Throwable ex) {
                 // Exception firewall.
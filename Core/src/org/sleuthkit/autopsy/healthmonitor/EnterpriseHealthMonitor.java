@@ -62,6 +62,10 @@
  * For timing data:
  * Modules will call getTimingMetric() before the code to be timed to get a TimingMetric object
  * Modules will call submitTimingMetric() with the obtained TimingMetric object to log it
+ * 
+ * For other data:
+ * Modules will call submitValueMetric() to log a sampled value, or
+ * incrementCounter() to count an event
  */
 public final class EnterpriseHealthMonitor implements PropertyChangeListener {
     
@@ -72,13 +76,13 @@ public final class EnterpriseHealthMonitor implements PropertyChangeListener {
             = new CaseDbSchemaVersionNumber(1, 0);
     
     private static final AtomicBoolean isEnabled = new AtomicBoolean(false);
-    private static EnterpriseHealthMonitor instance;
+    private static volatile EnterpriseHealthMonitor instance;
     
     private final ExecutorService healthMonitorExecutor;
     private static final String HEALTH_MONITOR_EVENT_THREAD_NAME = "Health-Monitor-Event-Listener-%d";
     
     private ScheduledThreadPoolExecutor healthMonitorOutputTimer;
-    private final Map<String, TimingInfo> timingInfoMap;
+    private final MetricRegistry metricRegistry;
     private static final int CONN_POOL_SIZE = 10;
     private BasicDataSource connectionPool = null;
     private CaseDbConnectionInfo connectionSettingsInUse = null;
@@ -86,9 +90,9 @@ public final class EnterpriseHealthMonitor implements PropertyChangeListener {
     
     private EnterpriseHealthMonitor() throws HealthMonitorException {
         
-        // Create the map to collect timing metrics. The map will exist regardless
+        // Create the registry to collect metrics. The registry will exist regardless
         // of whether the monitor is enabled.
-        timingInfoMap = new HashMap<>();
+        metricRegistry = new MetricRegistry();
         
         // Set up the executor to handle case events
         healthMonitorExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat(HEALTH_MONITOR_EVENT_THREAD_NAME).build());
@@ -114,12 +118,21 @@ private EnterpriseHealthMonitor() throws HealthMonitorException {
      * @return the instance
      * @throws HealthMonitorException 
      */
-    synchronized static EnterpriseHealthMonitor getInstance() throws HealthMonitorException {
-        if (instance == null) {
-            instance = new EnterpriseHealthMonitor();
-            Case.addPropertyChangeListener(instance);
+    static EnterpriseHealthMonitor getInstance() throws HealthMonitorException {
+        // This is called for every metric submitted, so only lock while the
+        // instance is being created.
+        EnterpriseHealthMonitor monitor = instance;
+        if (monitor == null) {
+            synchronized (EnterpriseHealthMonitor.class) {
+                monitor = instance;
+                if (monitor == null) {
+                    monitor = new EnterpriseHealthMonitor();
+                    Case.addPropertyChangeListener(monitor);
+                    instance = monitor;
+                }
+            }
         }
-        return instance;
+        return monitor;
     }
     
     /**
@@ -161,7 +174,7 @@ private synchronized void activateMonitorLocally() throws HealthMonitorException
         }
         
         // Clear out any old data
-        timingInfoMap.clear();
+        metricRegistry.clear();
     }
     
     /**
@@ -176,7 +189,7 @@ private synchronized void deactivateMonitorLocally() throws HealthMonitorExcepti
         logger.log(Level.INFO, "Deactivating Servies Health Monitor");
       
         // Clear out the collected data
-        timingInfoMap.clear();
+        metricRegistry.clear();
         
         // Shut down the connection pool
         shutdownConnections();
@@ -296,26 +309,60 @@ public static void submitNormalizedTimingMetric(TimingMetric metric, long normal
     }
     
     /**
-     * Add the timing metric data to the map.
+     * Submit a measured value, such as the heap usage of an external process.
+     * The value is stored and summarized (count, average, min, max) in the
+     * same way as the durations of timing metrics, so the name should include
+     * the unit of the value.
+     * This method is safe to call regardless of whether the Enterprise Health
+     * Monitor is enabled.
+     * @param name A short but descriptive name describing the value.
+     *             This name will appear in the UI.
+     * @param value The measured value
+     */
+    public static void submitValueMetric(String name, double value) {
+        if(isEnabled.get()) {
+            try {
+                getInstance().metricRegistry.record(name, MetricRegistry.MetricType.GAUGE, value);
+            } catch (HealthMonitorException ex) {
+                // We don't want calling methods to have to check for exceptions, so just log it
+                logger.log(Level.SEVERE, "Error adding value metric", ex);
+            }
+        }
+    }
+    
+    /**
+     * Count an event, such as a retry or a cache miss. The total of the
+     * increments in each write interval is stored in place of the count,
+     * average, min and max.
+     * This method is safe to call regardless of whether the Enterprise Health
+     * Monitor is enabled.
+     * @param name A short but descriptive name describing the event.
+     *             This name will appear in the UI.
+     * @param delta The number of events to add
+     */
+    public static void incrementCounter(String name, long delta) {
+        if(isEnabled.get()) {
+            try {
+                getInstance().metricRegistry.record(name, MetricRegistry.MetricType.COUNTER, delta);
+            } catch (HealthMonitorException ex) {
+                // We don't want calling methods to have to check for exceptions, so just log it
+                logger.log(Level.SEVERE, "Error adding counter metric", ex);
+            }
+        }
+    }
+    
+    /**
+     * Add the timing metric data to the registry.
      * @param metric The metric to add. stopTiming() should already have been called.
      */
     private void addTimingMetric(TimingMetric metric) throws HealthMonitorException {
         
-        // Do as little as possible within the synchronized block to minimize
-        // blocking with multiple threads.
-        synchronized(this) {
-            // There's a small check-then-act situation here where isEnabled
-            // may have changed before reaching this code. This is fine - 
-            // the map still exists and any extra data added after the monitor
-            // is disabled will be deleted if the monitor is re-enabled. This
-            // seems preferable to doing another check on isEnabled within
-            // the synchronized block.
-            if(timingInfoMap.containsKey(metric.getName())) {
-                timingInfoMap.get(metric.getName()).addMetric(metric);
-            } else {
-                timingInfoMap.put(metric.getName(), new TimingInfo(metric));
-            }
-        }
+        // This is called from every ingest thread, so it does not lock. There's
+        // a small check-then-act situation here where isEnabled may have changed
+        // before reaching this code. This is fine - the registry still exists
+        // and any extra data added after the monitor is disabled will be deleted
+        // if the monitor is re-enabled.
+        metricRegistry.record(metric.getName(), MetricRegistry.MetricType.TIMER, metric.getDuration());
     }
     
     /**
@@ -374,27 +421,28 @@ private void gatherTimerBasedMetrics(boolean caseIsClosing) throws HealthMonitor
      */
     private void writeCurrentStateToDatabase() throws HealthMonitorException {
         
-        Map<String, TimingInfo> timingMapCopy;
-        
-        // Do as little as possible within the synchronized block since it will
-        // block threads attempting to record metrics.
-        synchronized(this) {
-            if(! isEnabled.get()) {
-                return;
-            }
-            
-            // Make a shallow copy of the timing map. The map should be small - one entry
-            // per metric name.
-            timingMapCopy = new HashMap<>(timingInfoMap);
-            timingInfoMap.clear();
+        if(! isEnabled.get()) {
+            return;
         }
         
-        // Check if there's anything to report (right now we only have the timing map)
+        // Merge the values recorded by each thread since the last write. This
+        // does not block threads attempting to record metrics.
+        Map<String, MetricRegistry.MetricSnapshot> timingMapCopy = metricRegistry.snapshotAndReset();
+        
+        // Check if there's anything to report
         if(timingMapCopy.keySet().isEmpty()) {
             return;
         }
         
         logger.log(Level.INFO, "Writing health monitor metrics to database");
+        if (logger.isLoggable(Level.FINE)) {
+            for (Map.Entry<String, MetricRegistry.MetricSnapshot> entry : timingMapCopy.entrySet()) {
+                if (entry.getValue().getType() != MetricRegistry.MetricType.COUNTER) {
+                    logger.log(Level.FINE, String.format("%s: 50th percentile <= %f, 99th percentile <= %f", entry.getKey(),
+                            entry.getValue().getPercentile(50), entry.getValue().getPercentile(99)));
+                }
+            }
+        }
         
         // Write to the database        
         try (CoordinationService.Lock lock = getSharedDbLock()) {
@@ -412,7 +460,7 @@ private void writeCurrentStateToDatabase() throws HealthMonitorException {
             try (PreparedStatement statement = conn.prepareStatement(addTimingInfoSql)) {
 
                 for(String name:timingMapCopy.keySet()) {
-                    TimingInfo info = timingMapCopy.get(name);
+                    MetricRegistry.MetricSnapshot info = timingMapCopy.get(name);
 
                     statement.setString(1, name);
                     statement.setString(2, hostName);
@@ -1096,84 +1144,6 @@ private CoordinationService.Lock getSharedDbLock() throws HealthMonitorException
         }
     } 
     
-    /**
-     * Internal class for collecting timing metrics.
-     * Instead of storing each TimingMetric, we only store the min and max
-     * seen and the number of metrics and total duration to compute the average
-     * later.
-     * One TimingInfo instance should be created per metric name, and
-     * additional timing metrics will be added to it. 
-     */
-    private class TimingInfo {
-        private long count; // Number of metrics collected
-        private double sum;   // Sum of the durations collected (nanoseconds)
-        private double max;   // Maximum value found (nanoseconds)
-        private double min;   // Minimum value found (nanoseconds)
-        
-        TimingInfo(TimingMetric metric) throws HealthMonitorException {
-            count = 1;
-            sum = metric.getDuration();
-            max = metric.getDuration();
-            min = metric.getDuration();
-        }
-        
-        /**
-         * Add a new TimingMetric to an existing TimingInfo object.
-         * This is called in a synchronized block for almost all new 
-         * TimingMetric objects, so do as little processing here as possible.
-         * @param metric The new metric
-         * @throws HealthMonitorException Will be thrown if the metric hasn't been stopped
-         */
-        void addMetric(TimingMetric metric) throws HealthMonitorException {
-            
-            // Keep track of needed info to calculate the average
-            count++;
-            sum += metric.getDuration();
-            
-            // Check if this is the longest duration seen
-            if(max < metric.getDuration()) {
-                max = metric.getDuration();
-            }
-            
-            // Check if this is the lowest duration seen
-            if(min > metric.getDuration()) {
-                min = metric.getDuration();
-            }
-        }
-        
-        /**
-         * Get the average duration
-         * @return average duration (milliseconds)
-         */
-        double getAverage() {
-            return sum / count;
-        }
-        
-        /**
-         * Get the maximum duration
-         * @return maximum duration (milliseconds)
-         */
-        double getMax() {
-            return max;
-        }
-        
-        /**
-         * Get the minimum duration
-         * @return minimum duration (milliseconds)
-         */
-        double getMin() {
-            return min;
-        }
-        
-        /**
-         * Get the total number of metrics collected
-         * @return number of metrics collected
-         */
-        long getCount() {
-            return count;
-        }
-    }
-    
     /**
      * Class for retrieving timing metrics from the database to display to the user.
      * All times will be in milliseconds.
@@ -0,0 +1,286 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.healthmonitor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Collects the metrics submitted to the health monitor between writes to the
+ * database without locking.
+ *
+ * Each metric is summarized (count, sum, min, max and a histogram) in a fixed
+ * set of cells, and each thread records into the cell picked by its thread id,
+ * so threads recording the same metric rarely touch the same cell and
+ * recording a value does not allocate once the metric exists. The cells are
+ * only added together when the metrics are written to the database.
+ */
+@ThreadSafe
+final class MetricRegistry {
+
+    /**
+     * The kinds of metrics.
+     */
+    enum MetricType {
+        /**
+         * Durations, in milliseconds.
+         */
+        TIMER,
+        /**
+         * Sampled values, such as memory usage.
+         */
+        GAUGE,
+        /**
+         * Counts of events, reported as the total for each write interval.
+         */
+        COUNTER
+    }
+
+    /*
+     * The histogram buckets are powers of two, from 2^MIN_BUCKET_EXPONENT up
+     * to 2^(MIN_BUCKET_EXPONENT + HISTOGRAM_BUCKETS - 1). Values outside of
+     * that range are counted in the first or last bucket.
+     */
+    private static final int HISTOGRAM_BUCKETS = 32;
+    private static final int MIN_BUCKET_EXPONENT = -8;
+    private static final int MAX_STRIPES = 64;
+    private static final int STRIPES = Math.min(MAX_STRIPES, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1) << 1);
+    private final Map<String, Metric> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * Records a value for a metric.
+     *
+     * @param name  The name of the metric.
+     * @param type  The type of the metric. If values have already been
+     *              recorded for the name with a different type, the type they
+     *              were recorded with is kept.
+     * @param value The value.
+     */
+    void record(String name, MetricType type, double value) {
+        Metric metric = metrics.get(name);
+        if (metric == null) {
+            metric = metrics.computeIfAbsent(name, n -> new Metric(type));
+        }
+        metric.record(value);
+    }
+
+    /**
+     * Gets the summaries of the values recorded since the last call and
+     * resets the metrics. Values recorded while this is running may be
+     * counted in this interval or the next one.
+     *
+     * @return The summaries of the metrics that have had values recorded, by
+     *         name.
+     */
+    Map<String, MetricSnapshot> snapshotAndReset() {
+        Map<String, MetricSnapshot> snapshots = new HashMap<>();
+        for (Map.Entry<String, Metric> entry : metrics.entrySet()) {
+            MetricSnapshot snapshot = entry.getValue().snapshotAndReset();
+            if (snapshot.getSampleCount() > 0) {
+                snapshots.put(entry.getKey(), snapshot);
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * Discards all of the recorded values.
+     */
+    void clear() {
+        metrics.clear();
+    }
+
+    private static int bucketFor(double value) {
+        if (!(value > 0)) {
+            return 0;
+        }
+        int bucket = Math.getExponent(value) - MIN_BUCKET_EXPONENT;
+        return Math.max(0, Math.min(HISTOGRAM_BUCKETS - 1, bucket));
+    }
+
+    /**
+     * The cells of a single metric.
+     */
+    @ThreadSafe
+    private static final class Metric {
+
+        private final MetricType type;
+        private final Cell[] cells = new Cell[STRIPES];
+
+        Metric(MetricType type) {
+            this.type = type;
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = new Cell();
+            }
+        }
+
+        void record(double value) {
+            long threadId = Thread.currentThread().getId();
+            int stripe = (int) (threadId ^ (threadId >>> 32)) * 0x9E3779B9;
+            cells[(stripe ^ (stripe >>> 16)) & (STRIPES - 1)].record(value);
+        }
+
+        MetricSnapshot snapshotAndReset() {
+            long count = 0;
+            double sum = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            long[] histogram = new long[HISTOGRAM_BUCKETS];
+            for (Cell cell : cells) {
+                count += cell.count.getAndSet(0);
+                sum += Double.longBitsToDouble(cell.sum.getAndSet(Double.doubleToRawLongBits(0)));
+                min = Math.min(min, Double.longBitsToDouble(cell.min.getAndSet(Double.doubleToRawLongBits(Double.POSITIVE_INFINITY))));
+                max = Math.max(max, Double.longBitsToDouble(cell.max.getAndSet(Double.doubleToRawLongBits(Double.NEGATIVE_INFINITY))));
+                for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                    histogram[i] += cell.histogram.getAndSet(i, 0);
+                }
+            }
+            return new MetricSnapshot(type, count, sum, min, max, histogram);
+        }
+    }
+
+    /**
+     * The summary of the values recorded for a metric by the threads that map
+     * to one stripe. The fields are updated independently, so a snapshot
+     * taken during an update may see part of it.
+     */
+    @ThreadSafe
+    private static final class Cell {
+
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong(Double.doubleToRawLongBits(0));
+        private final AtomicLong min = new AtomicLong(Double.doubleToRawLongBits(Double.POSITIVE_INFINITY));
+        private final AtomicLong max = new AtomicLong(Double.doubleToRawLongBits(Double.NEGATIVE_INFINITY));
+        private final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+        void record(double value) {
+            count.incrementAndGet();
+            histogram.incrementAndGet(bucketFor(value));
+            long current;
+            do {
+                current = sum.get();
+            } while (!sum.compareAndSet(current, Double.doubleToRawLongBits(Double.longBitsToDouble(current) + value)));
+            do {
+                current = min.get();
+            } while (value < Double.longBitsToDouble(current) && !min.compareAndSet(current, Double.doubleToRawLongBits(value)));
+            do {
+                current = max.get();
+            } while (value > Double.longBitsToDouble(current) && !max.compareAndSet(current, Double.doubleToRawLongBits(value)));
+        }
+    }
+
+    /**
+     * The summary of the values recorded for a metric during one write
+     * interval.
+     */
+    @Immutable
+    static final class MetricSnapshot {
+
+        private final MetricType type;
+        private final long sampleCount;
+        private final double sum;
+        private final double min;
+        private final double max;
+        private final long[] histogram;
+
+        private MetricSnapshot(MetricType type, long sampleCount, double sum, double min, double max, long[] histogram) {
+            this.type = type;
+            this.sampleCount = sampleCount;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+            this.histogram = histogram;
+        }
+
+        /**
+         * Get the type of the metric
+         * @return the type
+         */
+        MetricType getType() {
+            return type;
+        }
+
+        /**
+         * Get the number of values recorded
+         * @return number of values recorded
+         */
+        long getSampleCount() {
+            return sampleCount;
+        }
+
+        /**
+         * Get the count to store in the database. This is the number of
+         * values recorded, or the total of the increments for a counter.
+         * @return the count
+         */
+        long getCount() {
+            return (type == MetricType.COUNTER) ? Math.round(sum) : sampleCount;
+        }
+
+        /**
+         * Get the average value. For a counter, this is the total of the
+         * increments, so that the total is what is graphed.
+         * @return the average value
+         */
+        double getAverage() {
+            return (type == MetricType.COUNTER) ? sum : sum / sampleCount;
+        }
+
+        /**
+         * Get the maximum value. For a counter, this is the total of the
+         * increments.
+         * @return the maximum value
+         */
+        double getMax() {
+            return (type == MetricType.COUNTER) ? sum : max;
+        }
+
+        /**
+         * Get the minimum value. For a counter, this is the total of the
+         * increments.
+         * @return the minimum value
+         */
+        double getMin() {
+            return (type == MetricType.COUNTER) ? sum : min;
+        }
+
+        /**
+         * Get an estimate of a percentile of the values from the histogram,
+         * as the upper bound of the bucket that contains it.
+         * @param percentile The percentile, from 0 to 100
+         * @return the estimated value
+         */
+        double getPercentile(double percentile) {
+            long rank = (long) Math.ceil(sampleCount * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                seen += histogram[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(max, Math.scalb(1.0, MIN_BUCKET_EXPONENT + i + 1));
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.ingest;
+
+import java.util.List;
+import org.sleuthkit.datamodel.AbstractFile;
+
+/**
+ * Interface that may be implemented by file ingest modules that can do
+ * set-based analysis of several files at once, e.g., a single database query
+ * for the hashes of a batch of files. See description of IngestModule for more
+ * details on interface behavior.
+ *
+ * When the file ingest batch size is greater than one, the file ingest
+ * pipeline passes the files it has been given to batch modules with a single
+ * call to process(List), and to all other file ingest modules one file at a
+ * time. When the batch size is one, batch modules are called through
+ * FileIngestModule.process(AbstractFile), so they must support both methods.
+ */
+public interface BatchFileIngestModule extends FileIngestModule {
+
+    /**
+     * Processes a batch of files. Called between calls to startUp() and
+     * shutDown(). The files are guaranteed to be from the same data source and
+     * to have already been processed by all of the modules that precede this
+     * module in the pipeline.
+     *
+     * @param files The files to analyze.
+     *
+     * @return A result code indicating success or failure of the processing.
+     */
+    ProcessResult process(List<AbstractFile> files);
+
+}
@@ -37,4 +37,12 @@ interface BlockingIngestTaskQueue {
      */
     IngestTask getNextTask() throws InterruptedException;
 
+    /**
+     * Gets the next ingest task in the queue, if there is one, without
+     * blocking.
+     *
+     * @return The next ingest task in the queue, or null if the queue is empty.
+     */
+    IngestTask pollNextTask();
+
 }
@@ -18,7 +18,9 @@
  */
 package org.sleuthkit.autopsy.ingest;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -121,6 +123,7 @@ private static enum Stages {
      */
     private final LinkedBlockingQueue<FileIngestPipeline> fileIngestPipelinesQueue = new LinkedBlockingQueue<>();
     private final List<FileIngestPipeline> fileIngestPipelines = new ArrayList<>();
+    private FileIngestPipeline sharedFileIngestPipeline;
 
     /**
      * A data source ingest job supports cancellation of either the currently
@@ -176,6 +179,12 @@ private static enum Stages {
      */
     private final long createTime;
 
+    /**
+     * A data source ingest job collects per module latency and per MIME type
+     * throughput metrics from its ingest pipelines.
+     */
+    private final IngestMetrics metrics = new IngestMetrics();
+
     /**
      * Constructs an object that encapsulates a data source and the ingest
      * module pipelines used to analyze it.
@@ -263,14 +272,35 @@ private void createIngestPipelines() {
         this.secondStageDataSourceIngestPipeline = new DataSourceIngestPipeline(this, secondStageDataSourceModuleTemplates);
 
         /**
-         * Construct the file ingest pipelines, one per file ingest thread.
+         * Create a single instance of each file ingest module that declares
+         * itself to be thread-safe, to be shared by all of the file ingest
+         * pipelines.
+         */
+        Map<IngestModuleTemplate, SharedFileIngestModule> sharedFileModules = new HashMap<>();
+        for (IngestModuleTemplate template : fileIngestModuleTemplates) {
+            if (template.isFileIngestModuleThreadSafe()) {
+                sharedFileModules.put(template, new SharedFileIngestModule(template.createFileIngestModule()));
+            }
+        }
+
+        /**
+         * Construct the file ingest pipelines, one per file ingest thread. If
+         * all of the file ingest modules are shared, a single pipeline is
+         * used by all of the file ingest threads at once, without being
+         * checked out of the pipelines queue.
          */
         try {
-            int numberOfFileIngestThreads = IngestManager.getInstance().getNumberOfFileIngestThreads();
-            for (int i = 0; i < numberOfFileIngestThreads; ++i) {
-                FileIngestPipeline pipeline = new FileIngestPipeline(this, fileIngestModuleTemplates);
-                this.fileIngestPipelinesQueue.put(pipeline);
-                this.fileIngestPipelines.add(pipeline);
+            if (!fileIngestModuleTemplates.isEmpty() && sharedFileModules.size() == fileIngestModuleTemplates.size()) {
+                this.sharedFileIngestPipeline = new FileIngestPipeline(this, fileIngestModuleTemplates, sharedFileModules);
+                this.fileIngestPipelinesQueue.put(this.sharedFileIngestPipeline);
+                this.fileIngestPipelines.add(this.sharedFileIngestPipeline);
+            } else {
+                int numberOfFileIngestThreads = IngestManager.getInstance().getNumberOfFileIngestThreads();
+                for (int i = 0; i < numberOfFileIngestThreads; ++i) {
+                    FileIngestPipeline pipeline = new FileIngestPipeline(this, fileIngestModuleTemplates, sharedFileModules);
+                    this.fileIngestPipelinesQueue.put(pipeline);
+                    this.fileIngestPipelines.add(pipeline);
+                }
             }
         } catch (InterruptedException ex) {
             /**
@@ -623,7 +653,7 @@ public boolean cancel() {
      * Checks to see if the ingest tasks for the current stage of this job are
      * completed and does a stage transition if they are.
      */
-    private void checkForStageCompleted() {
+    void checkForStageCompleted() {
         synchronized (this.stageCompletionCheckLock) {
             if (DataSourceIngestJob.taskScheduler.tasksForJobAreCompleted(this)) {
                 switch (this.stage) {
@@ -726,9 +756,24 @@ private void finish() {
                 logger.log(Level.SEVERE, "Failed to set end date for ingest job in database.", ex);
             }
         }
+        exportMetrics();
+        DataSourceIngestJob.taskScheduler.notifyJobFinished(this);
         this.parentJob.dataSourceJobFinished(this);
     }
 
+    /**
+     * Writes the performance metrics for this job to CSV and JSON files in the
+     * log directory of the current case.
+     */
+    private void exportMetrics() {
+        try {
+            String baseName = String.format("ingest_metrics_job%d", this.id); //NON-NLS
+            this.metrics.getSnapshot().export(Paths.get(Case.getCurrentCaseThrows().getLogDirectoryPath()), baseName);
+        } catch (NoCurrentCaseException | IOException ex) {
+            logger.log(Level.WARNING, String.format("Failed to export ingest metrics for %s (jobId=%d)", dataSource.getName(), this.id), ex); //NON-NLS
+        }
+    }
+
     /**
      * Passes the data source for this job through the currently active data
      * source level ingest pipeline.
@@ -778,32 +823,51 @@ void process(DataSourceIngestTask task) {
      *                              collection.
      */
     void process(FileIngestTask task) throws InterruptedException {
+        process(Collections.singletonList(task));
+    }
+
+    /**
+     * Passes a batch of files from the data source for this job through the
+     * file level ingest pipeline.
+     *
+     * @param tasks The file ingest tasks, all for this job.
+     *
+     * @throws InterruptedException if the thread executing this code is
+     *                              interrupted while blocked on taking from or
+     *                              putting to the file ingest pipelines
+     *                              collection.
+     */
+    void process(List<FileIngestTask> tasks) throws InterruptedException {
         try {
             if (!this.isCancelled()) {
-                FileIngestPipeline pipeline = this.fileIngestPipelinesQueue.take();
+                FileIngestPipeline pipeline = this.sharedFileIngestPipeline;
+                if (pipeline == null) {
+                    pipeline = this.fileIngestPipelinesQueue.take();
+                }
                 if (!pipeline.isEmpty()) {
-                    AbstractFile file = task.getFile();
-
                     synchronized (this.fileIngestProgressLock) {
-                        ++this.processedFiles;
-                        if (this.doUI) {
-                            /**
-                             * Update the file ingest progress bar.
-                             */
-                            if (this.processedFiles <= this.estimatedFilesToProcess) {
-                                this.fileIngestProgress.progress(file.getName(), (int) this.processedFiles);
-                            } else {
-                                this.fileIngestProgress.progress(file.getName(), (int) this.estimatedFilesToProcess);
+                        for (FileIngestTask task : tasks) {
+                            AbstractFile file = task.getFile();
+                            ++this.processedFiles;
+                            if (this.doUI) {
+                                /**
+                                 * Update the file ingest progress bar.
+                                 */
+                                if (this.processedFiles <= this.estimatedFilesToProcess) {
+                                    this.fileIngestProgress.progress(file.getName(), (int) this.processedFiles);
+                                } else {
+                                    this.fileIngestProgress.progress(file.getName(), (int) this.estimatedFilesToProcess);
+                                }
+                                this.filesInProgress.add(file.getName());
                             }
-                            this.filesInProgress.add(file.getName());
                         }
                     }
 
                     /**
-                     * Run the file through the pipeline.
+                     * Run the files through the pipeline.
                      */
                     List<IngestModuleError> errors = new ArrayList<>();
-                    errors.addAll(pipeline.process(task));
+                    errors.addAll(pipeline.process(tasks));
                     if (!errors.isEmpty()) {
                         logIngestModuleErrors(errors);
                     }
@@ -814,7 +878,9 @@ void process(FileIngestTask task) throws InterruptedException {
                              * Update the file ingest progress bar again, in
                              * case the file was being displayed.
                              */
-                            this.filesInProgress.remove(file.getName());
+                            for (FileIngestTask task : tasks) {
+                                this.filesInProgress.remove(task.getFile().getName());
+                            }
                             if (this.filesInProgress.size() > 0) {
                                 this.fileIngestProgress.progress(this.filesInProgress.get(0));
                             } else {
@@ -823,10 +889,14 @@ void process(FileIngestTask task) throws InterruptedException {
                         }
                     }
                 }
-                this.fileIngestPipelinesQueue.put(pipeline);
+                if (pipeline != this.sharedFileIngestPipeline) {
+                    this.fileIngestPipelinesQueue.put(pipeline);
+                }
             }
         } finally {
-            DataSourceIngestJob.taskScheduler.notifyTaskCompleted(task);
+            for (FileIngestTask task : tasks) {
+                DataSourceIngestJob.taskScheduler.notifyTaskCompleted(task);
+            }
             this.checkForStageCompleted();
         }
     }
@@ -986,6 +1056,15 @@ void currentDataSourceIngestModuleCancellationCompleted(String moduleDisplayName
         }
     }
 
+    /**
+     * Gets the performance metrics collector for this job.
+     *
+     * @return The metrics collector.
+     */
+    IngestMetrics getMetrics() {
+        return this.metrics;
+    }
+
     /**
      * Gets the currently running data source level ingest module for this job.
      *
@@ -1119,7 +1198,7 @@ Snapshot getSnapshot(boolean getIngestTasksSnapshot) {
         return new Snapshot(this.dataSource.getName(), id, createTime,
                 getCurrentDataSourceIngestModule(), fileIngestRunning, fileIngestStartTime,
                 cancelled, cancellationReason, cancelledDataSourceIngestModules,
-                processedFilesCount, estimatedFilesToProcessCount, snapShotTime, tasksSnapshot);
+                processedFilesCount, estimatedFilesToProcessCount, snapShotTime, tasksSnapshot, metrics.getSnapshot());
     }
 
     /**
@@ -1139,6 +1218,7 @@ public static final class Snapshot implements Serializable {
         private final long processedFiles;
         private final long estimatedFilesToProcess;
         private final IngestJobTasksSnapshot tasksSnapshot;
+        private final IngestMetrics.Snapshot metricsSnapshot;
         transient private final boolean jobCancelled;
         transient private final CancellationReason jobCancellationReason;
         transient private final List<String> cancelledDataSourceModules;
@@ -1151,7 +1231,7 @@ public static final class Snapshot implements Serializable {
                 boolean fileIngestRunning, Date fileIngestStartTime,
                 boolean jobCancelled, CancellationReason cancellationReason, List<String> cancelledModules,
                 long processedFiles, long estimatedFilesToProcess,
-                long snapshotTime, IngestJobTasksSnapshot tasksSnapshot) {
+                long snapshotTime, IngestJobTasksSnapshot tasksSnapshot, IngestMetrics.Snapshot metricsSnapshot) {
             this.dataSource = dataSourceName;
             this.jobId = jobId;
             this.jobStartTime = jobStartTime;
@@ -1167,6 +1247,7 @@ public static final class Snapshot implements Serializable {
             this.estimatedFilesToProcess = estimatedFilesToProcess;
             this.snapShotTime = snapshotTime;
             this.tasksSnapshot = tasksSnapshot;
+            this.metricsSnapshot = metricsSnapshot;
         }
 
         /**
@@ -1289,6 +1370,17 @@ boolean isCancelled() {
             return this.jobCancelled;
         }
 
+        /**
+         * Gets the per module latency and per MIME type throughput metrics of
+         * the job.
+         *
+         * @return The metrics, may be null for snapshots serialized by older
+         *         versions of the application.
+         */
+        IngestMetrics.Snapshot getMetrics() {
+            return this.metricsSnapshot;
+        }
+
         /**
          * Gets the reason this job was cancelled.
          *
@@ -110,7 +110,9 @@ synchronized List<IngestModuleError> process(DataSourceIngestTask task) {
                     this.job.switchDataSourceIngestProgressBarToIndeterminate();
                     DataSourceIngestPipeline.ingestManager.setIngestTaskProgress(task, module.getDisplayName());
                     logger.log(Level.INFO, "{0} analysis of {1} (jobId={2}) starting", new Object[]{module.getDisplayName(), this.job.getDataSource().getName(), this.job.getDataSource().getId()}); //NON-NLS
+                    long startTime = System.nanoTime();
                     module.process(dataSource, new DataSourceIngestModuleProgress(this.job));
+                    this.job.getMetrics().recordModuleLatency(module.getDisplayName(), System.nanoTime() - startTime);
                     logger.log(Level.INFO, "{0} analysis of {1} (jobId={2}) finished", new Object[]{module.getDisplayName(), this.job.getDataSource().getName(), this.job.getDataSource().getId()}); //NON-NLS
                 } catch (Throwable ex) { // Catch-all exception firewall
                     errors.add(new IngestModuleError(module.getDisplayName(), ex));
@@ -19,8 +19,10 @@
 package org.sleuthkit.autopsy.ingest;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 
 import org.openide.util.NbBundle;
@@ -35,7 +37,8 @@
  * ingest job. It starts the modules, runs files through them, and shuts them
  * down when file level ingest is complete.
  * <p>
- * This class is thread-safe.
+ * This class is thread-safe. Files may be run through a pipeline by several
+ * threads at once only if all of its modules are shared, thread-safe modules.
  */
 final class FileIngestPipeline {
 
@@ -53,12 +56,20 @@ final class FileIngestPipeline {
      * @param job             The data source ingest job that owns the pipeline.
      * @param moduleTemplates The ingest module templates that define the
      *                        pipeline.
+     * @param sharedModules   The thread-safe module instances shared by all
+     *                        of the file ingest pipelines of the job, keyed by
+     *                        template. A new module instance is created for
+     *                        each template that is not in the map.
      */
-    FileIngestPipeline(DataSourceIngestJob job, List<IngestModuleTemplate> moduleTemplates) {
+    FileIngestPipeline(DataSourceIngestJob job, List<IngestModuleTemplate> moduleTemplates, Map<IngestModuleTemplate, SharedFileIngestModule> sharedModules) {
         this.job = job;
         for (IngestModuleTemplate template : moduleTemplates) {
             if (template.isFileIngestModuleTemplate()) {
-                PipelineModule module = new PipelineModule(template.createFileIngestModule(), template.getModuleName());
+                FileIngestModule fileModule = sharedModules.get(template);
+                if (fileModule == null) {
+                    fileModule = template.createFileIngestModule();
+                }
+                PipelineModule module = new PipelineModule(fileModule, template.getModuleName());
                 modules.add(module);
             }
         }
@@ -118,44 +129,109 @@ synchronized List<IngestModuleError> startUp() {
      *
      * @return A list of processing errors, possible empty.
      */
-    synchronized List<IngestModuleError> process(FileIngestTask task) {
+    List<IngestModuleError> process(FileIngestTask task) {
+        return process(Collections.singletonList(task));
+    }
+
+    /**
+     * Runs a batch of files through the ingest modules in sequential order.
+     * Each module processes every file in the batch before the next module is
+     * run, so the results of the earlier modules are available to the later
+     * ones, just as they are when files are processed one at a time. Modules
+     * that implement BatchFileIngestModule are given the whole batch at once.
+     *
+     * This method does not lock the pipeline. A pipeline with any unshared
+     * modules is checked out by one file ingest thread at a time by its job,
+     * while a pipeline of shared, thread-safe modules is used by all of the
+     * file ingest threads of its job at once.
+     *
+     * @param tasks The file level ingest tasks containing the files to be
+     *              processed, all for the ingest job that owns this pipeline.
+     *
+     * @return A list of processing errors, possible empty.
+     */
+    List<IngestModuleError> process(List<FileIngestTask> tasks) {
         List<IngestModuleError> errors = new ArrayList<>();
         if (!this.job.isCancelled()) {
-            AbstractFile file = task.getFile();
+            List<AbstractFile> files = new ArrayList<>(tasks.size());
+            for (FileIngestTask task : tasks) {
+                files.add(task.getFile());
+            }
             for (PipelineModule module : this.modules) {
-                try {
-                    FileIngestPipeline.ingestManager.setIngestTaskProgress(task, module.getDisplayName());
-                    this.job.setCurrentFileIngestModule(module.getDisplayName(), task.getFile().getName());
-                    module.process(file);
-                } catch (Throwable ex) { // Catch-all exception firewall
-                    errors.add(new IngestModuleError(module.getDisplayName(), ex));
-                    String msg = ex.getMessage();
-                    // Jython run-time errors don't seem to have a message, but have details in toString.
-                    if (msg == null) {
-                        msg = ex.toString();
+                if (files.size() > 1 && module.isBatchModule()) {
+                    FileIngestTask firstTask = tasks.get(0);
+                    try {
+                        FileIngestPipeline.ingestManager.setIngestTaskProgress(firstTask, module.getDisplayName());
+                        this.job.setCurrentFileIngestModule(module.getDisplayName(), firstTask.getFile().getName());
+                        long startTime = System.nanoTime();
+                        module.process(files);
+                        long elapsedTimePerFile = (System.nanoTime() - startTime) / files.size();
+                        for (int i = 0; i < files.size(); ++i) {
+                            this.job.getMetrics().recordModuleLatency(module.getDisplayName(), elapsedTimePerFile);
+                        }
+                    } catch (Throwable ex) { // Catch-all exception firewall
+                        errors.add(createModuleError(module, ex));
+                    }
+                } else {
+                    for (FileIngestTask task : tasks) {
+                        try {
+                            FileIngestPipeline.ingestManager.setIngestTaskProgress(task, module.getDisplayName());
+                            this.job.setCurrentFileIngestModule(module.getDisplayName(), task.getFile().getName());
+                            long startTime = System.nanoTime();
+                            module.process(task.getFile());
+                            this.job.getMetrics().recordModuleLatency(module.getDisplayName(), System.nanoTime() - startTime);
+                        } catch (Throwable ex) { // Catch-all exception firewall
+                            errors.add(createModuleError(module, ex));
+                        }
+                        if (this.job.isCancelled()) {
+                            break;
+                        }
                     }
-                    MessageNotifyUtil.Notify.error(NbBundle.getMessage(this.getClass(), "FileIngestPipeline.moduleError.title.text", module.getDisplayName()), msg);
                 }
                 if (this.job.isCancelled()) {
                     break;
                 }
             }
-            
+
             if (!this.job.isCancelled()) {
                 // Save any properties that have not already been saved to the database
-                try{
-                    file.save();
-                } catch (TskCoreException ex){
-                    Logger.getLogger(FileIngestPipeline.class.getName()).log(Level.SEVERE, "Failed to save data for file " + file.getId(), ex); //NON-NLS
+                for (AbstractFile file : files) {
+                    this.job.getMetrics().recordFileProcessed(file);
+                    try {
+                        file.save();
+                    } catch (TskCoreException ex) {
+                        Logger.getLogger(FileIngestPipeline.class.getName()).log(Level.SEVERE, "Failed to save data for file " + file.getId(), ex); //NON-NLS
+                    }
                 }
-                IngestManager.getInstance().fireFileIngestDone(file);
+                IngestManager.getInstance().fireFileIngestDone(files);
+            }
+            for (AbstractFile file : files) {
+                file.close();
             }
-            file.close();
         }
-        FileIngestPipeline.ingestManager.setIngestTaskProgressCompleted(task);
+        FileIngestPipeline.ingestManager.setIngestTaskProgressCompleted(tasks.get(tasks.size() - 1));
         return errors;
     }
 
+    /**
+     * Creates an ingest module error for an exception thrown by a module while
+     * processing a file and notifies the user of the error.
+     *
+     * @param module The module.
+     * @param ex     The exception.
+     *
+     * @return The error.
+     */
+    private IngestModuleError createModuleError(PipelineModule module, Throwable ex) {
+        String msg = ex.getMessage();
+        // Jython run-time errors don't seem to have a message, but have details in toString.
+        if (msg == null) {
+            msg = ex.toString();
+        }
+        MessageNotifyUtil.Notify.error(NbBundle.getMessage(this.getClass(), "FileIngestPipeline.moduleError.title.text", module.getDisplayName()), msg);
+        return new IngestModuleError(module.getDisplayName(), ex);
+    }
+
     /**
      * Shuts down all of the modules in the pipeline.
      *
@@ -208,6 +284,9 @@ private static final class PipelineModule implements FileIngestModule {
          * @return The class name.
          */
         String getClassName() {
+            if (module instanceof SharedFileIngestModule) {
+                return ((SharedFileIngestModule) module).getModule().getClass().getCanonicalName();
+            }
             return module.getClass().getCanonicalName();
         }
 
@@ -220,6 +299,32 @@ String getDisplayName() {
             return displayName;
         }
 
+        /**
+         * Queries whether or not the decorated ingest module can process
+         * batches of files.
+         *
+         * @return True or false.
+         */
+        boolean isBatchModule() {
+            if (module instanceof SharedFileIngestModule) {
+                return ((SharedFileIngestModule) module).isBatchModule();
+            }
+            return module instanceof BatchFileIngestModule;
+        }
+
+        /**
+         * Passes a batch of files to the decorated ingest module, which must be
+         * a batch file ingest module.
+         *
+         * @param files The files.
+         *
+         * @return A result code indicating success or failure of the
+         *         processing.
+         */
+        IngestModule.ProcessResult process(List<AbstractFile> files) {
+            return ((BatchFileIngestModule) module).process(files);
+        }
+
         @Override
         public void startUp(IngestJobContext context) throws IngestModuleException {
             module.startUp(context);
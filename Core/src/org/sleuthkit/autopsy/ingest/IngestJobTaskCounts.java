@@ -0,0 +1,156 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.ingest;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Keeps per data source ingest job counts of queued and running ingest tasks,
+ * so that questions such as whether or not a job has any tasks left can be
+ * answered in constant time without scanning the queues or taking a lock.
+ */
+@ThreadSafe
+final class IngestJobTaskCounts {
+
+    private final ConcurrentHashMap<Long, Counts> countsByJob = new ConcurrentHashMap<>();
+
+    /**
+     * Records that a task for a job has been queued.
+     *
+     * @param jobId The id of the data source ingest job.
+     */
+    void taskQueued(long jobId) {
+        getCounts(jobId).queued.incrementAndGet();
+    }
+
+    /**
+     * Records that a queued task for a job was removed from its queue without
+     * being run, e.g., because it was filtered out or its job was cancelled.
+     *
+     * @param jobId The id of the data source ingest job.
+     */
+    void taskDequeued(long jobId) {
+        getCounts(jobId).queued.decrementAndGet();
+    }
+
+    /**
+     * Records that a queued task for a job has been handed to an ingest thread.
+     * The running count is incremented before the queued count is decremented
+     * so that the task is never invisible to a concurrent completion check.
+     *
+     * @param jobId The id of the data source ingest job.
+     */
+    void taskStarted(long jobId) {
+        Counts counts = getCounts(jobId);
+        counts.running.incrementAndGet();
+        counts.queued.decrementAndGet();
+    }
+
+    /**
+     * Records that a running task for a job has been completed.
+     *
+     * @param jobId The id of the data source ingest job.
+     */
+    void taskCompleted(long jobId) {
+        getCounts(jobId).running.decrementAndGet();
+    }
+
+    /**
+     * Discards the counts for a job that has finished. The job must not have
+     * any tasks queued or running, and no more tasks may be queued for it.
+     *
+     * @param jobId The id of the data source ingest job.
+     */
+    void jobFinished(long jobId) {
+        countsByJob.remove(jobId);
+    }
+
+    /**
+     * Checks whether there are any tasks queued or running for a job.
+     *
+     * @param jobId The id of the data source ingest job.
+     *
+     * @return True or false.
+     */
+    boolean hasTasksForJob(long jobId) {
+        Counts counts = countsByJob.get(jobId);
+        if (counts == null) {
+            return false;
+        }
+        /*
+         * Read the queued count first. Tasks move from queued to running, and
+         * the running count is incremented before the queued count is
+         * decremented, so a task in transit is always seen by one of the reads.
+         */
+        return counts.queued.get() > 0 || counts.running.get() > 0;
+    }
+
+    /**
+     * Gets the number of queued tasks for a job.
+     *
+     * @param jobId The id of the data source ingest job.
+     *
+     * @return The count.
+     */
+    long countQueuedTasksForJob(long jobId) {
+        Counts counts = countsByJob.get(jobId);
+        return counts != null ? counts.queued.get() : 0;
+    }
+
+    /**
+     * Gets the number of running tasks for a job.
+     *
+     * @param jobId The id of the data source ingest job.
+     *
+     * @return The count.
+     */
+    long countRunningTasksForJob(long jobId) {
+        Counts counts = countsByJob.get(jobId);
+        return counts != null ? counts.running.get() : 0;
+    }
+
+    /**
+     * Gets the total number of queued tasks for all jobs.
+     *
+     * @return The count.
+     */
+    long countQueuedTasks() {
+        long count = 0;
+        for (Counts counts : countsByJob.values()) {
+            count += counts.queued.get();
+        }
+        return count;
+    }
+
+    private Counts getCounts(long jobId) {
+        return countsByJob.computeIfAbsent(jobId, id -> new Counts());
+    }
+
+    /**
+     * The queued and running task counts for a single job.
+     */
+    private static final class Counts {
+
+        private final AtomicLong queued = new AtomicLong();
+        private final AtomicLong running = new AtomicLong();
+    }
+
+}
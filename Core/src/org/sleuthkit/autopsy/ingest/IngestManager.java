@@ -163,7 +163,7 @@ private IngestManager() {
          * tasks executor.
          */
         long threadId = nextIngestManagerTaskId.incrementAndGet();
-        dataSourceLevelIngestJobTasksExecutor.submit(new ExecuteIngestJobTasksTask(threadId, IngestTasksScheduler.getInstance().getDataSourceIngestTaskQueue()));
+        dataSourceLevelIngestJobTasksExecutor.submit(new ExecuteIngestJobTasksTask(threadId, IngestTasksScheduler.getInstance().getDataSourceIngestTaskQueue(), 1));
         ingestThreadActivitySnapshots.put(threadId, new IngestThreadActivitySnapshot(threadId));
 
         /*
@@ -172,10 +172,11 @@ private IngestManager() {
          * tasks executor.
          */
         numberOfFileIngestThreads = UserPreferences.numberOfFileIngestThreads();
+        int fileIngestBatchSize = UserPreferences.fileIngestBatchSize();
         fileLevelIngestJobTasksExecutor = Executors.newFixedThreadPool(numberOfFileIngestThreads, new ThreadFactoryBuilder().setNameFormat("IM-file-ingest-%d").build()); //NON-NLS
         for (int i = 0; i < numberOfFileIngestThreads; ++i) {
             threadId = nextIngestManagerTaskId.incrementAndGet();
-            fileLevelIngestJobTasksExecutor.submit(new ExecuteIngestJobTasksTask(threadId, IngestTasksScheduler.getInstance().getFileIngestTaskQueue()));
+            fileLevelIngestJobTasksExecutor.submit(new ExecuteIngestJobTasksTask(threadId, IngestTasksScheduler.getInstance().getFileIngestTaskQueue(), fileIngestBatchSize));
             ingestThreadActivitySnapshots.put(threadId, new IngestThreadActivitySnapshot(threadId));
         }
     }
@@ -599,6 +600,23 @@ void fireFileIngestDone(AbstractFile file) {
         eventPublishingExecutor.submit(new PublishEventTask(event, moduleEventPublisher));
     }
 
+    /**
+     * Publishes ingest module events signifying the ingest of a batch of files
+     * was completed. One FILE_DONE event is still published for each file, so
+     * local and remote subscribers receive the same number of events as when
+     * the files are ingested one at a time. Only the submission of the events
+     * to the event publishing executor is shared by the batch.
+     *
+     * @param files The files.
+     */
+    void fireFileIngestDone(List<AbstractFile> files) {
+        List<AutopsyEvent> events = new ArrayList<>(files.size());
+        for (AbstractFile file : files) {
+            events.add(new FileAnalyzedEvent(file));
+        }
+        eventPublishingExecutor.submit(new PublishEventTask(events, moduleEventPublisher));
+    }
+
     /**
      * Publishes an ingest module event signifying a blackboard post by an
      * ingest module.
@@ -861,23 +879,57 @@ public boolean cancel() {
 
     /**
      * Executes ingest jobs by acting as a consumer for an ingest tasks queue.
+     *
+     * If the batch size is greater than one, file ingest tasks are executed in
+     * batches: after blocking for a task, the consumer takes up to batch size
+     * minus one additional tasks for the same ingest job that are immediately
+     * available and passes all of the files through the file ingest pipeline
+     * together. The consumer never waits to fill a batch.
      */
     private final class ExecuteIngestJobTasksTask implements Runnable {
 
         private final long threadId;
         private final BlockingIngestTaskQueue tasks;
+        private final int batchSize;
 
-        ExecuteIngestJobTasksTask(long threadId, BlockingIngestTaskQueue tasks) {
+        ExecuteIngestJobTasksTask(long threadId, BlockingIngestTaskQueue tasks, int batchSize) {
             this.threadId = threadId;
             this.tasks = tasks;
+            this.batchSize = batchSize;
         }
 
         @Override
         public void run() {
+            IngestTask nextTask = null;
             while (true) {
                 try {
-                    IngestTask task = tasks.getNextTask(); // Blocks.
-                    task.execute(threadId);
+                    IngestTask task = (nextTask != null) ? nextTask : tasks.getNextTask(); // Blocks.
+                    nextTask = null;
+                    if (batchSize > 1 && task instanceof FileIngestTask) {
+                        List<FileIngestTask> batch = new ArrayList<>(batchSize);
+                        batch.add((FileIngestTask) task);
+                        while (batch.size() < batchSize) {
+                            IngestTask polledTask = tasks.pollNextTask();
+                            if (polledTask == null) {
+                                break;
+                            }
+                            if (!(polledTask instanceof FileIngestTask) || polledTask.getIngestJob() != task.getIngestJob()) {
+                                /*
+                                 * Save the task for a different job for the
+                                 * next iteration.
+                                 */
+                                nextTask = polledTask;
+                                break;
+                            }
+                            batch.add((FileIngestTask) polledTask);
+                        }
+                        for (FileIngestTask fileTask : batch) {
+                            fileTask.setThreadId(threadId);
+                        }
+                        task.getIngestJob().process(batch);
+                    } else {
+                        task.execute(threadId);
+                    }
                 } catch (InterruptedException ex) {
                     break;
                 }
@@ -893,7 +945,7 @@ public void run() {
      */
     private static final class PublishEventTask implements Runnable {
 
-        private final AutopsyEvent event;
+        private final List<AutopsyEvent> events;
         private final AutopsyEventPublisher publisher;
 
         /**
@@ -904,13 +956,26 @@ private static final class PublishEventTask implements Runnable {
          * @param publisher The event publisher.
          */
         PublishEventTask(AutopsyEvent event, AutopsyEventPublisher publisher) {
-            this.event = event;
+            this(Collections.singletonList(event), publisher);
+        }
+
+        /**
+         * Constructs an object that publishes a sequence of ingest events to
+         * both local and remote subscribers.
+         *
+         * @param events    The events to publish, in order.
+         * @param publisher The event publisher.
+         */
+        PublishEventTask(List<AutopsyEvent> events, AutopsyEventPublisher publisher) {
+            this.events = events;
             this.publisher = publisher;
         }
 
         @Override
         public void run() {
-            publisher.publish(event);
+            for (AutopsyEvent event : events) {
+                publisher.publish(event);
+            }
         }
 
     }
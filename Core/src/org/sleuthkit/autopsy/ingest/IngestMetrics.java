@@ -0,0 +1,262 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.ingest;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.sleuthkit.datamodel.AbstractFile;
+
+/**
+ * Collects performance metrics for a data source ingest job: a latency
+ * histogram for each ingest module, and the number of files and bytes processed
+ * for each MIME type. The metrics are recorded by the ingest pipelines of the
+ * job without locking, so that they can be left on for every job.
+ */
+@ThreadSafe
+public final class IngestMetrics {
+
+    private static final String UNKNOWN_MIME_TYPE = "unknown"; //NON-NLS
+    private static final double[] REPORTED_PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+    private final ConcurrentHashMap<String, LatencyHistogram> moduleLatencies = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicLong[]> mimeTypeCounts = new ConcurrentHashMap<>();
+
+    /**
+     * Records the time an ingest module took to process a file or a data
+     * source.
+     *
+     * @param moduleDisplayName The display name of the module.
+     * @param elapsedNanos      The processing time in nanoseconds.
+     */
+    void recordModuleLatency(String moduleDisplayName, long elapsedNanos) {
+        moduleLatencies.computeIfAbsent(moduleDisplayName, name -> new LatencyHistogram()).record(elapsedNanos);
+    }
+
+    /**
+     * Records that a file has been run through the file ingest pipeline. This
+     * should be called after the modules have run, so that the MIME type of
+     * the file is known.
+     *
+     * @param file The file.
+     */
+    void recordFileProcessed(AbstractFile file) {
+        String mimeType = file.getMIMEType();
+        if (mimeType == null || mimeType.isEmpty()) {
+            mimeType = UNKNOWN_MIME_TYPE;
+        }
+        AtomicLong[] counts = mimeTypeCounts.computeIfAbsent(mimeType, type -> new AtomicLong[]{new AtomicLong(), new AtomicLong()});
+        counts[0].incrementAndGet();
+        counts[1].addAndGet(Math.max(0, file.getSize()));
+    }
+
+    /**
+     * Gets an immutable copy of the current metrics.
+     *
+     * @return The snapshot.
+     */
+    Snapshot getSnapshot() {
+        Map<String, LatencyHistogram.Snapshot> latencies = new TreeMap<>();
+        moduleLatencies.forEach((name, histogram) -> latencies.put(name, histogram.getSnapshot()));
+        Map<String, long[]> mimeTypes = new TreeMap<>();
+        mimeTypeCounts.forEach((type, counts) -> mimeTypes.put(type, new long[]{counts[0].get(), counts[1].get()}));
+        return new Snapshot(latencies, mimeTypes);
+    }
+
+    /**
+     * An immutable copy of the performance metrics of a data source ingest
+     * job.
+     */
+    @Immutable
+    public static final class Snapshot implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+        private final Map<String, LatencyHistogram.Snapshot> moduleLatencies;
+        private final Map<String, long[]> mimeTypeCounts;
+
+        private Snapshot(Map<String, LatencyHistogram.Snapshot> moduleLatencies, Map<String, long[]> mimeTypeCounts) {
+            this.moduleLatencies = moduleLatencies;
+            this.mimeTypeCounts = mimeTypeCounts;
+        }
+
+        /**
+         * Gets the display names of the modules for which latencies have been
+         * recorded.
+         *
+         * @return The module display names, in sorted order.
+         */
+        public List<String> getModuleDisplayNames() {
+            return Collections.unmodifiableList(new ArrayList<>(moduleLatencies.keySet()));
+        }
+
+        /**
+         * Gets the latency histogram for a module.
+         *
+         * @param moduleDisplayName The display name of the module.
+         *
+         * @return The histogram, null if no latencies have been recorded for
+         *         the module.
+         */
+        public LatencyHistogram.Snapshot getModuleLatencies(String moduleDisplayName) {
+            return moduleLatencies.get(moduleDisplayName);
+        }
+
+        /**
+         * Gets the MIME types of the files that have been processed.
+         *
+         * @return The MIME types, in sorted order.
+         */
+        public List<String> getMimeTypes() {
+            return Collections.unmodifiableList(new ArrayList<>(mimeTypeCounts.keySet()));
+        }
+
+        /**
+         * Gets the number of processed files of a MIME type.
+         *
+         * @param mimeType The MIME type.
+         *
+         * @return The file count.
+         */
+        public long getFileCount(String mimeType) {
+            long[] counts = mimeTypeCounts.get(mimeType);
+            return counts != null ? counts[0] : 0;
+        }
+
+        /**
+         * Gets the number of processed bytes of a MIME type.
+         *
+         * @param mimeType The MIME type.
+         *
+         * @return The byte count.
+         */
+        public long getByteCount(String mimeType) {
+            long[] counts = mimeTypeCounts.get(mimeType);
+            return counts != null ? counts[1] : 0;
+        }
+
+        /**
+         * Formats the metrics as CSV text, with one section for the module
+         * latencies and one for the MIME types.
+         *
+         * @return The CSV text.
+         */
+        public String toCsv() {
+            StringBuilder csv = new StringBuilder();
+            try (CSVPrinter printer = new CSVPrinter(csv, CSVFormat.DEFAULT.withRecordSeparator('\n'))) {
+                List<String> header = new ArrayList<>();
+                header.addAll(Arrays.asList("Module", "Count", "Total (us)", "Mean (us)", "Min (us)")); //NON-NLS
+                for (double percentile : REPORTED_PERCENTILES) {
+                    header.add("P" + formatPercentile(percentile) + " (us)"); //NON-NLS
+                }
+                header.add("Max (us)"); //NON-NLS
+                printer.printRecord(header);
+                for (Map.Entry<String, LatencyHistogram.Snapshot> entry : moduleLatencies.entrySet()) {
+                    LatencyHistogram.Snapshot histogram = entry.getValue();
+                    List<Object> record = new ArrayList<>();
+                    record.addAll(Arrays.asList(entry.getKey(), histogram.getCount(), histogram.getTotalMicros(),
+                            String.format(Locale.US, "%.1f", histogram.getMeanMicros()), histogram.getMinMicros())); //NON-NLS
+                    for (double percentile : REPORTED_PERCENTILES) {
+                        record.add(histogram.getValueAtPercentile(percentile));
+                    }
+                    record.add(histogram.getMaxMicros());
+                    printer.printRecord(record);
+                }
+                printer.println();
+                printer.printRecord("MIME Type", "Files", "Bytes"); //NON-NLS
+                for (Map.Entry<String, long[]> entry : mimeTypeCounts.entrySet()) {
+                    printer.printRecord(entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+                }
+            } catch (IOException ex) {
+                // Appending to a StringBuilder does not throw
+                throw new UncheckedIOException(ex);
+            }
+            return csv.toString();
+        }
+
+        /**
+         * Formats the metrics as JSON text.
+         *
+         * @return The JSON text.
+         */
+        public String toJson() {
+            JsonObject latencies = new JsonObject();
+            for (Map.Entry<String, LatencyHistogram.Snapshot> entry : moduleLatencies.entrySet()) {
+                LatencyHistogram.Snapshot histogram = entry.getValue();
+                JsonObject module = new JsonObject();
+                module.addProperty("count", histogram.getCount()); //NON-NLS
+                module.addProperty("totalMicros", histogram.getTotalMicros()); //NON-NLS
+                module.addProperty("meanMicros", Math.round(histogram.getMeanMicros() * 10) / 10.0); //NON-NLS
+                module.addProperty("minMicros", histogram.getMinMicros()); //NON-NLS
+                for (double percentile : REPORTED_PERCENTILES) {
+                    module.addProperty("p" + formatPercentile(percentile) + "Micros", histogram.getValueAtPercentile(percentile)); //NON-NLS
+                }
+                module.addProperty("maxMicros", histogram.getMaxMicros()); //NON-NLS
+                latencies.add(entry.getKey(), module);
+            }
+            JsonObject mimeTypes = new JsonObject();
+            for (Map.Entry<String, long[]> entry : mimeTypeCounts.entrySet()) {
+                JsonObject mimeType = new JsonObject();
+                mimeType.addProperty("files", entry.getValue()[0]); //NON-NLS
+                mimeType.addProperty("bytes", entry.getValue()[1]); //NON-NLS
+                mimeTypes.add(entry.getKey(), mimeType);
+            }
+            JsonObject json = new JsonObject();
+            json.add("moduleLatencies", latencies); //NON-NLS
+            json.add("mimeTypes", mimeTypes); //NON-NLS
+            return new GsonBuilder().setPrettyPrinting().create().toJson(json);
+        }
+
+        /**
+         * Writes the metrics to a CSV file and a JSON file in a given
+         * directory.
+         *
+         * @param directory The directory.
+         * @param baseName  The base name of the files, to which .csv and
+         *                  .json extensions are added.
+         *
+         * @throws IOException If there is a problem writing the files.
+         */
+        void export(Path directory, String baseName) throws IOException {
+            Files.write(directory.resolve(baseName + ".csv"), toCsv().getBytes(StandardCharsets.UTF_8)); //NON-NLS
+            Files.write(directory.resolve(baseName + ".json"), toJson().getBytes(StandardCharsets.UTF_8)); //NON-NLS
+        }
+
+        private static String formatPercentile(double percentile) {
+            return (percentile == Math.rint(percentile)) ? Long.toString((long) percentile) : Double.toString(percentile).replace('.', '_');
+        }
+    }
+
+}
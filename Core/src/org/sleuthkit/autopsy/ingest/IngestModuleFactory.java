@@ -240,4 +240,27 @@ public interface IngestModuleFactory {
      * @return A file ingest module instance.
      */
     FileIngestModule createFileIngestModule(IngestModuleIngestJobSettings settings);
+
+    /**
+     * Queries the factory to determine if the file ingest modules it creates
+     * are thread-safe, i.e., whether a single module instance can process
+     * files concurrently on all of the file ingest threads of an ingest job.
+     * <p>
+     * If this method returns true, the ingest framework will create a single
+     * file ingest module instance per ingest job, instead of one instance per
+     * file ingest thread, and will call process() on that instance from
+     * multiple threads at the same time. The instance's startUp() and
+     * shutDown() methods are still called only once each. If every file ingest
+     * module of an ingest job is thread-safe, the file ingest threads also
+     * share a single file ingest pipeline.
+     * <p>
+     * The default implementation returns false, which preserves the guarantee
+     * that a module instance is always called from a single thread.
+     *
+     * @return True if the file ingest modules created by the factory are
+     *         thread-safe.
+     */
+    default boolean isFileIngestModuleThreadSafe() {
+        return false;
+    }
 }
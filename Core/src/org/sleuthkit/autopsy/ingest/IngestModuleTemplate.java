@@ -85,6 +85,10 @@ public FileIngestModule createFileIngestModule() {
         return moduleFactory.createFileIngestModule(settings);
     }
 
+    public boolean isFileIngestModuleThreadSafe() {
+        return moduleFactory.isFileIngestModuleThreadSafe();
+    }
+
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
     }
@@ -18,6 +18,7 @@
  */
 package org.sleuthkit.autopsy.ingest;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -46,4 +47,20 @@ public interface IngestProgressSnapshotProvider {
      * @return Map of module name to run time (in milliseconds)
      */
     Map<String, Long> getModuleRunTimes();
+
+    /**
+     * Gets the per module latency histograms and the per MIME type file and
+     * byte counts of the ingest jobs.
+     *
+     * @return Map of data source ingest job id to metrics snapshot.
+     */
+    default Map<Long, IngestMetrics.Snapshot> getIngestMetricsSnapshots() {
+        Map<Long, IngestMetrics.Snapshot> metrics = new HashMap<>();
+        for (DataSourceIngestJob.Snapshot snapshot : getIngestJobSnapshots()) {
+            if (snapshot.getMetrics() != null) {
+                metrics.put(snapshot.getJobId(), snapshot.getMetrics());
+            }
+        }
+        return metrics;
+    }
 }
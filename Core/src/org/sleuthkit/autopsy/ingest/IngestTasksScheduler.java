@@ -35,6 +35,7 @@
 import java.util.regex.Pattern;
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
+import org.sleuthkit.autopsy.core.UserPreferences;
 import org.sleuthkit.autopsy.coreutils.Logger;
 import org.sleuthkit.datamodel.AbstractFile;
 import org.sleuthkit.datamodel.Content;
@@ -58,7 +59,10 @@ final class IngestTasksScheduler {
     private final TreeSet<FileIngestTask> rootFileTaskQueue;
     @GuardedBy("this")
     private final Deque<FileIngestTask> pendingFileTaskQueue;
+    private final IngestJobTaskCounts rootFileTaskCounts;
+    private final IngestJobTaskCounts pendingFileTaskCounts;
     private final IngestTaskTrackingQueue fileIngestThreadsQueue;
+    private final WorkStealingFileIngestTaskQueue workStealingFileTaskQueue;
 
     /**
      * Gets the ingest tasks scheduler singleton that creates ingest tasks for
@@ -81,7 +85,14 @@ private IngestTasksScheduler() {
         this.dataSourceIngestThreadQueue = new IngestTaskTrackingQueue();
         this.rootFileTaskQueue = new TreeSet<>(new RootDirectoryTaskComparator());
         this.pendingFileTaskQueue = new LinkedList<>();
+        this.rootFileTaskCounts = new IngestJobTaskCounts();
+        this.pendingFileTaskCounts = new IngestJobTaskCounts();
         this.fileIngestThreadsQueue = new IngestTaskTrackingQueue();
+        if (UserPreferences.useWorkStealingFileIngestScheduler()) {
+            this.workStealingFileTaskQueue = new WorkStealingFileIngestTaskQueue();
+        } else {
+            this.workStealingFileTaskQueue = null;
+        }
     }
 
     /**
@@ -101,6 +112,9 @@ BlockingIngestTaskQueue getDataSourceIngestTaskQueue() {
      * @return The queue.
      */
     BlockingIngestTaskQueue getFileIngestTaskQueue() {
+        if (this.workStealingFileTaskQueue != null) {
+            return this.workStealingFileTaskQueue;
+        }
         return this.fileIngestThreadsQueue;
     }
 
@@ -158,10 +172,21 @@ synchronized void scheduleFileIngestTasks(DataSourceIngestJob job, Collection<Ab
             } else {
                 candidateFiles = files;
             }
+            if (this.workStealingFileTaskQueue != null) {
+                TreeSet<FileIngestTask> rootTasks = new TreeSet<>(new RootDirectoryTaskComparator());
+                for (AbstractFile file : candidateFiles) {
+                    FileIngestTask task = new FileIngestTask(job, file);
+                    if (IngestTasksScheduler.shouldEnqueueFileTask(task)) {
+                        rootTasks.add(task);
+                    }
+                }
+                this.workStealingFileTaskQueue.addRootTasks(rootTasks);
+                return;
+            }
             for (AbstractFile file : candidateFiles) {
                 FileIngestTask task = new FileIngestTask(job, file);
-                if (IngestTasksScheduler.shouldEnqueueFileTask(task)) {
-                    this.rootFileTaskQueue.add(task);
+                if (IngestTasksScheduler.shouldEnqueueFileTask(task) && this.rootFileTaskQueue.add(task)) {
+                    this.rootFileTaskCounts.taskQueued(job.getId());
                 }
             }
             shuffleFileTaskQueues();
@@ -186,6 +211,14 @@ synchronized void fastTrackFileIngestTasks(DataSourceIngestJob job, Collection<A
              * carved or derived files from a higher priority task that is
              * already in progress.
              */
+            if (this.workStealingFileTaskQueue != null) {
+                List<FileIngestTask> fileTasks = new ArrayList<>();
+                for (AbstractFile file : files) {
+                    fileTasks.add(new FileIngestTask(job, file));
+                }
+                this.workStealingFileTaskQueue.addFastTrackTasks(fileTasks);
+                return;
+            }
             for (AbstractFile file : files) {
                 FileIngestTask fileTask = new FileIngestTask(job, file);
                 if (shouldEnqueueFileTask(fileTask)) {
@@ -217,9 +250,40 @@ synchronized void notifyTaskCompleted(DataSourceIngestTask task) {
      *
      * @param task The completed task.
      */
-    synchronized void notifyTaskCompleted(FileIngestTask task) {
-        this.fileIngestThreadsQueue.taskCompleted(task);
-        shuffleFileTaskQueues();
+    void notifyTaskCompleted(FileIngestTask task) {
+        if (this.workStealingFileTaskQueue != null) {
+            /*
+             * There is no shuffling to do, so there is no need to acquire the
+             * scheduler's monitor.
+             */
+            this.workStealingFileTaskQueue.taskCompleted(task);
+            return;
+        }
+        synchronized (this) {
+            this.fileIngestThreadsQueue.taskCompleted(task);
+            shuffleFileTaskQueues();
+        }
+    }
+
+    /**
+     * Allows a data source ingest job to notify this ingest task scheduler
+     * that it has finished, so that the task counts kept for the job can be
+     * discarded. The job must not have any tasks queued or running.
+     *
+     * @param job The data source ingest job.
+     */
+    void notifyJobFinished(DataSourceIngestJob job) {
+        long jobId = job.getId();
+        this.dataSourceIngestThreadQueue.jobFinished(jobId);
+        if (this.workStealingFileTaskQueue != null) {
+            this.workStealingFileTaskQueue.jobFinished(jobId);
+            return;
+        }
+        synchronized (this) {
+            this.rootFileTaskCounts.jobFinished(jobId);
+            this.pendingFileTaskCounts.jobFinished(jobId);
+            this.fileIngestThreadsQueue.jobFinished(jobId);
+        }
     }
 
     /**
@@ -230,25 +294,39 @@ synchronized void notifyTaskCompleted(FileIngestTask task) {
      *
      * @return True or false.
      */
-    synchronized boolean tasksForJobAreCompleted(DataSourceIngestJob job) {
+    boolean tasksForJobAreCompleted(DataSourceIngestJob job) {
         long jobId = job.getId();
-        return !(this.dataSourceIngestThreadQueue.hasTasksForJob(jobId)
-                || hasTasksForJob(this.rootFileTaskQueue, jobId)
-                || hasTasksForJob(this.pendingFileTaskQueue, jobId)
-                || this.fileIngestThreadsQueue.hasTasksForJob(jobId));
+        if (this.workStealingFileTaskQueue != null) {
+            /*
+             * No lock is needed here. The data source task for a job cannot be
+             * reported as completed until scheduleIngestTasks() has released
+             * the scheduler's monitor, so the initial file tasks are always
+             * counted before the data source task stops being counted.
+             */
+            return !(this.dataSourceIngestThreadQueue.hasTasksForJob(jobId)
+                    || this.workStealingFileTaskQueue.hasTasksForJob(jobId));
+        }
+        synchronized (this) {
+            return !(this.dataSourceIngestThreadQueue.hasTasksForJob(jobId)
+                    || this.rootFileTaskCounts.hasTasksForJob(jobId)
+                    || this.pendingFileTaskCounts.hasTasksForJob(jobId)
+                    || this.fileIngestThreadsQueue.hasTasksForJob(jobId));
+        }
     }
 
     /**
      * Clears the "upstream" task scheduling queues for a data source ingest
      * job, but does nothing about tasks that have already been moved into the
-     * queue that is consumed by the file ingest threads.
+     * queue that is consumed by the file ingest threads. When the work stealing
+     * file task queue is in use, the tasks for a cancelled job are discarded as
+     * they are taken from the queue instead.
      *
      * @param job The data source ingest job.
      */
     synchronized void cancelPendingTasksForIngestJob(DataSourceIngestJob job) {
         long jobId = job.getId();
-        IngestTasksScheduler.removeTasksForJob(this.rootFileTaskQueue, jobId);
-        IngestTasksScheduler.removeTasksForJob(this.pendingFileTaskQueue, jobId);
+        IngestTasksScheduler.removeTasksForJob(this.rootFileTaskQueue, this.rootFileTaskCounts, jobId);
+        IngestTasksScheduler.removeTasksForJob(this.pendingFileTaskQueue, this.pendingFileTaskCounts, jobId);
     }
 
     /**
@@ -331,6 +409,9 @@ synchronized private void shuffleFileTaskQueues() {
             if (this.pendingFileTaskQueue.isEmpty()) {
                 final FileIngestTask rootTask = this.rootFileTaskQueue.pollFirst();
                 if (rootTask != null) {
+                    long rootJobId = rootTask.getIngestJob().getId();
+                    this.pendingFileTaskCounts.taskQueued(rootJobId);
+                    this.rootFileTaskCounts.taskDequeued(rootJobId);
                     this.pendingFileTaskQueue.addLast(rootTask);
                 }
             }
@@ -352,6 +433,7 @@ synchronized private void shuffleFileTaskQueues() {
                      */
                     this.fileIngestThreadsQueue.putLast(pendingTask);
                 } catch (InterruptedException ex) {
+                    this.pendingFileTaskCounts.taskDequeued(pendingTask.getIngestJob().getId());
                     IngestTasksScheduler.logger.log(Level.INFO, "Ingest tasks scheduler interrupted while blocked adding a task to the file level ingest task queue", ex);
                     Thread.currentThread().interrupt();
                     return;
@@ -372,11 +454,13 @@ synchronized private void shuffleFileTaskQueues() {
                         AbstractFile childFile = (AbstractFile) child;
                         FileIngestTask childTask = new FileIngestTask(pendingTask.getIngestJob(), childFile);
                         if (childFile.hasChildren()) {
+                            this.pendingFileTaskCounts.taskQueued(pendingTask.getIngestJob().getId());
                             this.pendingFileTaskQueue.add(childTask);
                         } else if (shouldEnqueueFileTask(childTask)) {
                             try {
                                 this.fileIngestThreadsQueue.putLast(childTask);
                             } catch (InterruptedException ex) {
+                                this.pendingFileTaskCounts.taskDequeued(pendingTask.getIngestJob().getId());
                                 IngestTasksScheduler.logger.log(Level.INFO, "Ingest tasks scheduler interrupted while blocked adding a task to the file level ingest task queue", ex);
                                 Thread.currentThread().interrupt();
                                 return;
@@ -387,6 +471,12 @@ synchronized private void shuffleFileTaskQueues() {
             } catch (TskCoreException ex) {
                 logger.log(Level.SEVERE, String.format("Error getting the children of %s (objId=%d)", file.getName(), file.getId()), ex);  //NON-NLS
             }
+
+            /*
+             * The pending task is only uncounted after its child tasks have
+             * been counted, so that its job never appears to be out of tasks.
+             */
+            this.pendingFileTaskCounts.taskDequeued(pendingTask.getIngestJob().getId());
         }
     }
 
@@ -399,7 +489,7 @@ synchronized private void shuffleFileTaskQueues() {
      *
      * @return True or false.
      */
-    private static boolean shouldEnqueueFileTask(final FileIngestTask task) {
+    static boolean shouldEnqueueFileTask(final FileIngestTask task) {
         final AbstractFile file = task.getFile();
 
         // Skip the task if the file is actually the pseudo-file for the parent
@@ -494,59 +584,25 @@ private static boolean fileAcceptedByFilter(final FileIngestTask task) {
         return !(task.getIngestJob().getFileIngestFilter().fileIsMemberOf(task.getFile()) == null);
     }
 
-    /**
-     * Checks whether or not a collection of ingest tasks includes a task for a
-     * given data source ingest job.
-     *
-     * @param tasks The tasks.
-     * @param jobId The data source ingest job id.
-     *
-     * @return True if there are no tasks for the job, false otherwise.
-     */
-    synchronized private static boolean hasTasksForJob(Collection<? extends IngestTask> tasks, long jobId) {
-        for (IngestTask task : tasks) {
-            if (task.getIngestJob().getId() == jobId) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     /**
      * Removes all of the ingest tasks associated with a data source ingest job
      * from a tasks collection.
      *
-     * @param tasks The collection from which to remove the tasks.
-     * @param jobId The data source ingest job id.
+     * @param tasks  The collection from which to remove the tasks.
+     * @param counts The task counts for the collection.
+     * @param jobId  The data source ingest job id.
      */
-    private static void removeTasksForJob(Collection<? extends IngestTask> tasks, long jobId) {
+    private static void removeTasksForJob(Collection<? extends IngestTask> tasks, IngestJobTaskCounts counts, long jobId) {
         Iterator<? extends IngestTask> iterator = tasks.iterator();
         while (iterator.hasNext()) {
             IngestTask task = iterator.next();
             if (task.getIngestJob().getId() == jobId) {
                 iterator.remove();
+                counts.taskDequeued(jobId);
             }
         }
     }
 
-    /**
-     * Counts the number of ingest tasks in a tasks collection for a given job.
-     *
-     * @param queue The queue for which to count tasks.
-     * @param jobId The id of the job for which the tasks are to be counted.
-     *
-     * @return The count.
-     */
-    private static int countTasksForJob(Collection<? extends IngestTask> queue, long jobId) {
-        int count = 0;
-        for (IngestTask task : queue) {
-            if (task.getIngestJob().getId() == jobId) {
-                count++;
-            }
-        }
-        return count;
-    }
-
     /**
      * Returns a snapshot of the states of the tasks in progress for an ingest
      * job.
@@ -556,9 +612,15 @@ private static int countTasksForJob(Collection<? extends IngestTask> queue, long
      * @return
      */
     synchronized IngestJobTasksSnapshot getTasksSnapshotForJob(long jobId) {
+        if (this.workStealingFileTaskQueue != null) {
+            return new IngestJobTasksSnapshot(jobId, this.dataSourceIngestThreadQueue.countQueuedTasksForJob(jobId),
+                    0, 0,
+                    this.workStealingFileTaskQueue.countQueuedTasksForJob(jobId),
+                    this.dataSourceIngestThreadQueue.countRunningTasksForJob(jobId) + this.workStealingFileTaskQueue.countRunningTasksForJob(jobId));
+        }
         return new IngestJobTasksSnapshot(jobId, this.dataSourceIngestThreadQueue.countQueuedTasksForJob(jobId),
-                countTasksForJob(this.rootFileTaskQueue, jobId),
-                countTasksForJob(this.pendingFileTaskQueue, jobId),
+                this.rootFileTaskCounts.countQueuedTasksForJob(jobId),
+                this.pendingFileTaskCounts.countQueuedTasksForJob(jobId),
                 this.fileIngestThreadsQueue.countQueuedTasksForJob(jobId),
                 this.dataSourceIngestThreadQueue.countRunningTasksForJob(jobId) + this.fileIngestThreadsQueue.countRunningTasksForJob(jobId));
     }
@@ -681,16 +743,15 @@ static AbstractFilePriority.Priority getPriority(final AbstractFile abstractFile
 
     /**
      * A blocking ingest task queue for the ingest manager's ingest threads that
-     * keeps tracks of the tasks that are queued and in progress.
+     * keeps tracks of the tasks that are queued and in progress. Rather than
+     * mirroring the tasks in lists, the queue keeps per job counts of queued
+     * and running tasks, so that the per job queries are constant time.
      */
     @ThreadSafe
     private class IngestTaskTrackingQueue implements BlockingIngestTaskQueue {
 
         private final BlockingDeque<IngestTask> taskQueue = new LinkedBlockingDeque<>();
-        @GuardedBy("this")
-        private final List<IngestTask> queuedTasks = new LinkedList<>();
-        @GuardedBy("this")
-        private final List<IngestTask> tasksInProgress = new LinkedList<>();
+        private final IngestJobTaskCounts taskCounts = new IngestJobTaskCounts();
 
         /**
          * Adds an ingest task to the front of the queue, blocking if the queue
@@ -703,15 +764,12 @@ private class IngestTaskTrackingQueue implements BlockingIngestTaskQueue {
          *                              full condition.
          */
         void putFirst(IngestTask task) throws InterruptedException {
-            synchronized (this) {
-                this.queuedTasks.add(task);
-            }
+            long jobId = task.getIngestJob().getId();
+            this.taskCounts.taskQueued(jobId);
             try {
                 this.taskQueue.putFirst(task);
             } catch (InterruptedException ex) {
-                synchronized (this) {
-                    this.queuedTasks.remove(task);
-                }
+                this.taskCounts.taskDequeued(jobId);
                 throw ex;
             }
         }
@@ -727,15 +785,12 @@ void putFirst(IngestTask task) throws InterruptedException {
          *                              full condition.
          */
         void putLast(IngestTask task) throws InterruptedException {
-            synchronized (this) {
-                this.queuedTasks.add(task);
-            }
+            long jobId = task.getIngestJob().getId();
+            this.taskCounts.taskQueued(jobId);
             try {
                 this.taskQueue.putLast(task);
             } catch (InterruptedException ex) {
-                synchronized (this) {
-                    this.queuedTasks.remove(task);
-                }
+                this.taskCounts.taskDequeued(jobId);
                 throw ex;
             }
         }
@@ -753,9 +808,22 @@ void putLast(IngestTask task) throws InterruptedException {
         @Override
         public IngestTask getNextTask() throws InterruptedException {
             IngestTask task = taskQueue.takeFirst();
-            synchronized (this) {
-                this.queuedTasks.remove(task);
-                this.tasksInProgress.add(task);
+            this.taskCounts.taskStarted(task.getIngestJob().getId());
+            return task;
+        }
+
+        /**
+         * Gets the next ingest task in the queue, if there is one, without
+         * blocking.
+         *
+         * @return The next ingest task in the queue, or null if the queue is
+         *         empty.
+         */
+        @Override
+        public IngestTask pollNextTask() {
+            IngestTask task = taskQueue.pollFirst();
+            if (task != null) {
+                this.taskCounts.taskStarted(task.getIngestJob().getId());
             }
             return task;
         }
@@ -766,21 +834,27 @@ public IngestTask getNextTask() throws InterruptedException {
          * @return True or false.
          */
         boolean isEmpty() {
-            synchronized (this) {
-                return this.queuedTasks.isEmpty();
-            }
+            return this.taskQueue.isEmpty();
         }
 
         /**
-         * Handles the completion of an ingest task by removing it from the
-         * running tasks list.
+         * Handles the completion of an ingest task by decrementing the running
+         * tasks count for its job.
          *
          * @param task The completed task.
          */
         void taskCompleted(IngestTask task) {
-            synchronized (this) {
-                this.tasksInProgress.remove(task);
-            }
+            this.taskCounts.taskCompleted(task.getIngestJob().getId());
+        }
+
+        /**
+         * Discards the task counts for a data source ingest job that has
+         * finished.
+         *
+         * @param jobId The id of the data source ingest job.
+         */
+        void jobFinished(long jobId) {
+            this.taskCounts.jobFinished(jobId);
         }
 
         /**
@@ -789,40 +863,34 @@ void taskCompleted(IngestTask task) {
          *
          * @param jobId The id of the data source ingest job.
          *
-         * @return
+         * @return True or false.
          */
         boolean hasTasksForJob(long jobId) {
-            synchronized (this) {
-                return IngestTasksScheduler.hasTasksForJob(this.queuedTasks, jobId) || IngestTasksScheduler.hasTasksForJob(this.tasksInProgress, jobId);
-            }
+            return this.taskCounts.hasTasksForJob(jobId);
         }
 
         /**
          * Gets a count of the queued ingest tasks for a given data source
          * ingest job.
          *
-         * @param jobId
+         * @param jobId The id of the data source ingest job.
          *
-         * @return
+         * @return The count.
          */
-        int countQueuedTasksForJob(long jobId) {
-            synchronized (this) {
-                return IngestTasksScheduler.countTasksForJob(this.queuedTasks, jobId);
-            }
+        long countQueuedTasksForJob(long jobId) {
+            return this.taskCounts.countQueuedTasksForJob(jobId);
         }
 
         /**
          * Gets a count of the running ingest tasks for a given data source
          * ingest job.
          *
-         * @param jobId
+         * @param jobId The id of the data source ingest job.
          *
-         * @return
+         * @return The count.
          */
-        int countRunningTasksForJob(long jobId) {
-            synchronized (this) {
-                return IngestTasksScheduler.countTasksForJob(this.tasksInProgress, jobId);
-            }
+        long countRunningTasksForJob(long jobId) {
+            return this.taskCounts.countRunningTasksForJob(jobId);
         }
 
     }
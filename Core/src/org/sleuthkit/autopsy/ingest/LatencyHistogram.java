@@ -0,0 +1,229 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.ingest;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A lock-free, log-linear histogram of latencies in microseconds, in the style
+ * of an HDR histogram. Each power of two range of values is divided into a
+ * fixed number of equal width buckets, so the recorded values are kept with a
+ * bounded relative error (about 3%) over the full range of the histogram,
+ * using a fixed amount of memory.
+ */
+@ThreadSafe
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Constructs a lock-free, log-linear histogram of latencies in
+     * microseconds.
+     */
+    LatencyHistogram() {
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param elapsedNanos The latency in nanoseconds.
+     */
+    void record(long elapsedNanos) {
+        long micros = Math.max(0, elapsedNanos / 1000);
+        buckets.incrementAndGet(bucketIndex(micros));
+        count.incrementAndGet();
+        total.addAndGet(micros);
+        long currentMin = min.get();
+        while (micros < currentMin && !min.compareAndSet(currentMin, micros)) {
+            currentMin = min.get();
+        }
+        long currentMax = max.get();
+        while (micros > currentMax && !max.compareAndSet(currentMax, micros)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Gets an immutable copy of the current state of this histogram. Only the
+     * non-empty buckets are copied, since snapshots are serialized as part of
+     * ingest job snapshots.
+     *
+     * @return The snapshot.
+     */
+    Snapshot getSnapshot() {
+        int nonEmptyBuckets = 0;
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            counts[i] = buckets.get(i);
+            if (counts[i] != 0) {
+                ++nonEmptyBuckets;
+            }
+        }
+        int[] bucketIndexes = new int[nonEmptyBuckets];
+        long[] bucketCounts = new long[nonEmptyBuckets];
+        for (int i = 0, j = 0; i < BUCKET_COUNT; ++i) {
+            if (counts[i] != 0) {
+                bucketIndexes[j] = i;
+                bucketCounts[j] = counts[i];
+                ++j;
+            }
+        }
+        long snapshotCount = count.get();
+        return new Snapshot(bucketIndexes, bucketCounts, snapshotCount, total.get(), snapshotCount > 0 ? min.get() : 0, max.get());
+    }
+
+    /**
+     * Gets the index of the bucket for a value.
+     *
+     * @param value The value, must be non-negative.
+     *
+     * @return The bucket index.
+     */
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) ((value >>> shift) - SUB_BUCKET_COUNT);
+    }
+
+    /**
+     * Gets the highest value that is recorded in a bucket.
+     *
+     * @param index The bucket index.
+     *
+     * @return The value.
+     */
+    private static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long subBucket = (index % SUB_BUCKET_COUNT) + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * An immutable copy of the state of a latency histogram.
+     */
+    @Immutable
+    public static final class Snapshot implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+        private final int[] bucketIndexes;
+        private final long[] bucketCounts;
+        private final long count;
+        private final long total;
+        private final long min;
+        private final long max;
+
+        private Snapshot(int[] bucketIndexes, long[] bucketCounts, long count, long total, long min, long max) {
+            this.bucketIndexes = bucketIndexes;
+            this.bucketCounts = bucketCounts;
+            this.count = count;
+            this.total = total;
+            this.min = min;
+            this.max = max;
+        }
+
+        /**
+         * Gets the number of recorded latencies.
+         *
+         * @return The count.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Gets the sum of the recorded latencies.
+         *
+         * @return The total in microseconds.
+         */
+        public long getTotalMicros() {
+            return total;
+        }
+
+        /**
+         * Gets the smallest recorded latency.
+         *
+         * @return The latency in microseconds, zero if nothing was recorded.
+         */
+        public long getMinMicros() {
+            return min;
+        }
+
+        /**
+         * Gets the largest recorded latency.
+         *
+         * @return The latency in microseconds, zero if nothing was recorded.
+         */
+        public long getMaxMicros() {
+            return max;
+        }
+
+        /**
+         * Gets the mean of the recorded latencies.
+         *
+         * @return The mean in microseconds, zero if nothing was recorded.
+         */
+        public double getMeanMicros() {
+            return count > 0 ? (double) total / count : 0;
+        }
+
+        /**
+         * Gets the latency at or below which a given percentage of the
+         * recorded latencies fall.
+         *
+         * @param percentile The percentile, from 0 to 100.
+         *
+         * @return The latency in microseconds, zero if nothing was recorded.
+         */
+        public long getValueAtPercentile(double percentile) {
+            long bucketTotal = 0;
+            for (long bucketCount : bucketCounts) {
+                bucketTotal += bucketCount;
+            }
+            if (bucketTotal == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(bucketTotal * Math.min(percentile, 100.0) / 100.0));
+            long seen = 0;
+            for (int i = 0; i < bucketCounts.length; ++i) {
+                seen += bucketCounts[i];
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(bucketIndexes[i]), max);
+                }
+            }
+            return max;
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.ingest;
+
+import java.util.List;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import org.sleuthkit.datamodel.AbstractFile;
+
+/**
+ * Decorates a thread-safe file ingest module so that a single instance can be
+ * put in all of the file ingest pipelines of an ingest job. The decorated
+ * module is started up by the first pipeline that starts up and shut down by
+ * the last pipeline that shuts down; calls to process() are passed through
+ * without any locking.
+ */
+@ThreadSafe
+final class SharedFileIngestModule implements BatchFileIngestModule {
+
+    private final FileIngestModule module;
+    @GuardedBy("this")
+    private int refCount;
+    @GuardedBy("this")
+    private IngestModuleException startUpException;
+
+    /**
+     * Constructs an object that decorates a thread-safe file ingest module so
+     * that it can be shared by the file ingest pipelines of an ingest job.
+     *
+     * @param module The file ingest module.
+     */
+    SharedFileIngestModule(FileIngestModule module) {
+        this.module = module;
+    }
+
+    /**
+     * Gets the decorated module.
+     *
+     * @return The module.
+     */
+    FileIngestModule getModule() {
+        return module;
+    }
+
+    /**
+     * Queries whether or not the decorated ingest module can process batches
+     * of files.
+     *
+     * @return True or false.
+     */
+    boolean isBatchModule() {
+        return module instanceof BatchFileIngestModule;
+    }
+
+    /**
+     * Starts up the decorated module when the first pipeline starts up. A
+     * pipeline is only counted once the module has started up, so a module
+     * that failed to start up is never shut down.
+     *
+     * @param context The context for the ingest job.
+     *
+     * @throws IngestModuleException If the module failed to start up.
+     */
+    @Override
+    public synchronized void startUp(IngestJobContext context) throws IngestModuleException {
+        if (startUpException != null) {
+            throw startUpException;
+        }
+        if (refCount == 0) {
+            try {
+                module.startUp(context);
+            } catch (IngestModuleException ex) {
+                startUpException = ex;
+                throw ex;
+            }
+        }
+        ++refCount;
+    }
+
+    @Override
+    public ProcessResult process(AbstractFile file) {
+        return module.process(file);
+    }
+
+    @Override
+    public ProcessResult process(List<AbstractFile> files) {
+        if (module instanceof BatchFileIngestModule) {
+            return ((BatchFileIngestModule) module).process(files);
+        }
+        ProcessResult result = ProcessResult.OK;
+        for (AbstractFile file : files) {
+            if (module.process(file) == ProcessResult.ERROR) {
+                result = ProcessResult.ERROR;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void shutDown() {
+        if (refCount > 0) {
+            --refCount;
+            if (refCount == 0) {
+                module.shutDown();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,341 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.ingest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import javax.annotation.concurrent.ThreadSafe;
+import org.sleuthkit.autopsy.coreutils.Logger;
+import org.sleuthkit.datamodel.AbstractFile;
+import org.sleuthkit.datamodel.Content;
+import org.sleuthkit.datamodel.TskCoreException;
+
+/**
+ * A file ingest task queue for the ingest manager's file ingest threads that
+ * gives each thread its own deque of tasks and lets idle threads steal work
+ * from the deques of busy threads. Unlike the root/pending queue shuffle done
+ * by the ingest tasks scheduler, directory expansion is done by the file ingest
+ * thread that takes the directory task, without holding any shared lock.
+ *
+ * Tasks are taken from the following sources, in order:
+ *
+ * 1. The fast track deque, which contains tasks for files added to a job by an
+ * ingest module, e.g., carved or derived files.
+ *
+ * 2. The deque owned by the calling thread, which is used LIFO so that each
+ * thread does a depth-first descent of the content trees it has expanded.
+ *
+ * 3. The root tasks deque, which contains tasks for the top level files of the
+ * data sources, in priority order.
+ *
+ * 4. The deques owned by the other threads, which are stolen from FIFO, so that
+ * the thief takes the shallowest (and usually largest) pieces of work.
+ */
+@ThreadSafe
+final class WorkStealingFileIngestTaskQueue implements BlockingIngestTaskQueue {
+
+    private static final Logger logger = Logger.getLogger(WorkStealingFileIngestTaskQueue.class.getName());
+    private static final long MISSED_TASK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private final ConcurrentLinkedDeque<QueuedTask> fastTrackTasks = new ConcurrentLinkedDeque<>();
+    private final ConcurrentLinkedDeque<QueuedTask> rootTasks = new ConcurrentLinkedDeque<>();
+    private final List<ConcurrentLinkedDeque<QueuedTask>> threadDeques = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<ConcurrentLinkedDeque<QueuedTask>> threadDeque = ThreadLocal.withInitial(() -> {
+        ConcurrentLinkedDeque<QueuedTask> deque = new ConcurrentLinkedDeque<>();
+        threadDeques.add(deque);
+        return deque;
+    });
+    private final Semaphore availableTasks = new Semaphore(0);
+    private final IngestJobTaskCounts taskCounts = new IngestJobTaskCounts();
+
+    /**
+     * Queues tasks for the top level files of a data source, e.g., the
+     * contents of the file system root directories. The children of these
+     * files are expanded when the tasks are taken by a file ingest thread.
+     * The tasks must already have passed the file filter for their job.
+     *
+     * @param tasks The tasks, in priority order.
+     */
+    void addRootTasks(Collection<FileIngestTask> tasks) {
+        for (FileIngestTask task : tasks) {
+            taskCounts.taskQueued(task.getIngestJob().getId());
+            rootTasks.addLast(new QueuedTask(task, true, true));
+        }
+        availableTasks.release(tasks.size());
+    }
+
+    /**
+     * Queues tasks ahead of all other tasks. The children of these files are
+     * not expanded, since the use case is scheduling new carved or derived
+     * files from a task that is already in progress.
+     *
+     * @param tasks The tasks.
+     */
+    void addFastTrackTasks(Collection<FileIngestTask> tasks) {
+        for (FileIngestTask task : tasks) {
+            taskCounts.taskQueued(task.getIngestJob().getId());
+            fastTrackTasks.addFirst(new QueuedTask(task, false, false));
+        }
+        availableTasks.release(tasks.size());
+    }
+
+    /**
+     * Gets the next file ingest task for the calling thread, expanding
+     * directories and discarding filtered out tasks along the way, blocking if
+     * there are no tasks.
+     *
+     * @return The next ingest task.
+     *
+     * @throws InterruptedException If the thread getting the task is
+     *                              interrupted while blocked on a queue empty
+     *                              condition.
+     */
+    @Override
+    public IngestTask getNextTask() throws InterruptedException {
+        ConcurrentLinkedDeque<QueuedTask> ownDeque = threadDeque.get();
+        while (true) {
+            availableTasks.acquire();
+            FileIngestTask task = prepareTask(pollTask(ownDeque), ownDeque);
+            if (task != null) {
+                return task;
+            }
+        }
+    }
+
+    /**
+     * Gets the next file ingest task for the calling thread, if there is one,
+     * without blocking.
+     *
+     * @return The next ingest task, or null if there are no tasks.
+     */
+    @Override
+    public IngestTask pollNextTask() {
+        ConcurrentLinkedDeque<QueuedTask> ownDeque = threadDeque.get();
+        while (availableTasks.tryAcquire()) {
+            FileIngestTask task = prepareTask(pollTask(ownDeque), ownDeque);
+            if (task != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Readies a task that has been taken from the queue to be run by expanding
+     * the children of its file, if required, and checking it against the file
+     * filter for its job, if that was not done when the task was queued.
+     *
+     * @param queuedTask The task.
+     * @param ownDeque   The deque of the calling thread.
+     *
+     * @return The task, or null if the task was discarded.
+     */
+    private FileIngestTask prepareTask(QueuedTask queuedTask, ConcurrentLinkedDeque<QueuedTask> ownDeque) {
+        FileIngestTask task = queuedTask.task;
+        DataSourceIngestJob job = task.getIngestJob();
+        if (job.isCancelled()) {
+            discardTask(task);
+            return null;
+        }
+        if (queuedTask.expand) {
+            expandTask(task, ownDeque);
+        }
+        if (queuedTask.accepted || IngestTasksScheduler.shouldEnqueueFileTask(task)) {
+            taskCounts.taskStarted(job.getId());
+            return task;
+        }
+        discardTask(task);
+        return null;
+    }
+
+    /**
+     * Handles the completion of a file ingest task.
+     *
+     * @param task The completed task.
+     */
+    void taskCompleted(FileIngestTask task) {
+        taskCounts.taskCompleted(task.getIngestJob().getId());
+    }
+
+    /**
+     * Discards the task counts for a data source ingest job that has finished.
+     *
+     * @param jobId The id of the data source ingest job.
+     */
+    void jobFinished(long jobId) {
+        taskCounts.jobFinished(jobId);
+    }
+
+    /**
+     * Checks whether there are any file ingest tasks queued and/or running for
+     * a given data source ingest job.
+     *
+     * @param jobId The id of the data source ingest job.
+     *
+     * @return True or false.
+     */
+    boolean hasTasksForJob(long jobId) {
+        return taskCounts.hasTasksForJob(jobId);
+    }
+
+    /**
+     * Gets a count of the queued file ingest tasks for a given data source
+     * ingest job.
+     *
+     * @param jobId The id of the data source ingest job.
+     *
+     * @return The count.
+     */
+    long countQueuedTasksForJob(long jobId) {
+        return taskCounts.countQueuedTasksForJob(jobId);
+    }
+
+    /**
+     * Gets a count of the running file ingest tasks for a given data source
+     * ingest job.
+     *
+     * @param jobId The id of the data source ingest job.
+     *
+     * @return The count.
+     */
+    long countRunningTasksForJob(long jobId) {
+        return taskCounts.countRunningTasksForJob(jobId);
+    }
+
+    /**
+     * Takes a task from the first non-empty source. The caller must hold a
+     * permit from the available tasks semaphore, which guarantees that there
+     * is a task in one of the deques. A pass can still miss the task if it is
+     * added to a deque that has already been checked while another thread
+     * takes the task that was there to be found, in which case the calling
+     * thread parks briefly before making another pass, rather than spinning.
+     *
+     * @param ownDeque The deque of the calling thread.
+     *
+     * @return The task.
+     */
+    private QueuedTask pollTask(ConcurrentLinkedDeque<QueuedTask> ownDeque) {
+        while (true) {
+            QueuedTask task = fastTrackTasks.pollFirst();
+            if (task != null) {
+                return task;
+            }
+            task = ownDeque.pollFirst();
+            if (task != null) {
+                return task;
+            }
+            task = rootTasks.pollFirst();
+            if (task != null) {
+                return task;
+            }
+            for (ConcurrentLinkedDeque<QueuedTask> deque : threadDeques) {
+                if (deque != ownDeque) {
+                    task = deque.pollLast();
+                    if (task != null) {
+                        return task;
+                    }
+                }
+            }
+            LockSupport.parkNanos(this, MISSED_TASK_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Queues tasks for the children of the file associated with a task in the
+     * deque of the calling thread. Children that have children of their own
+     * are queued for expansion, while leaf children are only queued if they
+     * pass the filter for the job, and are not checked against it again when
+     * they are taken.
+     *
+     * @param task     The task.
+     * @param ownDeque The deque of the calling thread.
+     */
+    private void expandTask(FileIngestTask task, ConcurrentLinkedDeque<QueuedTask> ownDeque) {
+        final AbstractFile file = task.getFile();
+        final DataSourceIngestJob job = task.getIngestJob();
+        List<QueuedTask> childTasks = new ArrayList<>();
+        try {
+            for (Content child : file.getChildren()) {
+                if (child instanceof AbstractFile) {
+                    AbstractFile childFile = (AbstractFile) child;
+                    FileIngestTask childTask = new FileIngestTask(job, childFile);
+                    if (childFile.hasChildren()) {
+                        childTasks.add(new QueuedTask(childTask, true, false));
+                    } else if (IngestTasksScheduler.shouldEnqueueFileTask(childTask)) {
+                        childTasks.add(new QueuedTask(childTask, false, true));
+                    }
+                }
+            }
+        } catch (TskCoreException ex) {
+            logger.log(Level.SEVERE, String.format("Error getting the children of %s (objId=%d)", file.getName(), file.getId()), ex);  //NON-NLS
+        }
+
+        /*
+         * The child tasks are counted before the parent task is started or
+         * discarded, so that the job never appears to be out of tasks while
+         * the descent is in progress. The tasks are pushed in reverse order so
+         * that the owner pops them in the order in which they were found.
+         */
+        for (int i = childTasks.size() - 1; i >= 0; --i) {
+            taskCounts.taskQueued(job.getId());
+            ownDeque.addFirst(childTasks.get(i));
+        }
+        availableTasks.release(childTasks.size());
+    }
+
+    /**
+     * Discards a task that will not be run. If this was the last task for the
+     * job, the job is told to check whether its current stage is completed,
+     * since there will be no task completion to trigger the check.
+     *
+     * @param task The task.
+     */
+    private void discardTask(FileIngestTask task) {
+        DataSourceIngestJob job = task.getIngestJob();
+        taskCounts.taskDequeued(job.getId());
+        if (!taskCounts.hasTasksForJob(job.getId())) {
+            job.checkForStageCompleted();
+        }
+    }
+
+    /**
+     * A queued file ingest task, along with whether or not the children of its
+     * file need to be expanded when the task is taken, and whether or not the
+     * task has already passed the file filter for its job.
+     */
+    private static final class QueuedTask {
+
+        private final FileIngestTask task;
+        private final boolean expand;
+        private final boolean accepted;
+
+        QueuedTask(FileIngestTask task, boolean expand, boolean accepted) {
+            this.task = task;
+            this.expand = expand;
+            this.accepted = accepted;
+        }
+    }
+
+}
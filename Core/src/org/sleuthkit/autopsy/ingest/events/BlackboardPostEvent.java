@@ -71,6 +71,45 @@ public BlackboardPostEvent(ModuleDataEvent eventData) {
         this.eventData = eventData;
     }
 
+    /**
+     * Constructs an event received from another Autopsy node, for which the
+     * ModuleDataEvent is loaded when it is requested.
+     *
+     * @param moduleName   The name of the module that posted the artifacts.
+     * @param artifactType The type of the artifacts.
+     * @param artifactIds  The ids of the artifacts.
+     */
+    BlackboardPostEvent(String moduleName, BlackboardArtifact.Type artifactType, Collection<Long> artifactIds) {
+        super(IngestManager.IngestModuleEvent.DATA_ADDED.toString(), new SerializableEventData(moduleName, artifactType, artifactIds), null);
+    }
+
+    /**
+     * Gets the name of the module that posted the artifacts.
+     *
+     * @return The module name.
+     */
+    String getModuleName() {
+        return ((SerializableEventData) super.getOldValue()).moduleName;
+    }
+
+    /**
+     * Gets the type of the artifacts.
+     *
+     * @return The artifact type.
+     */
+    BlackboardArtifact.Type getArtifactType() {
+        return ((SerializableEventData) super.getOldValue()).artifactTypeId;
+    }
+
+    /**
+     * Gets the ids of the artifacts.
+     *
+     * @return The artifact ids.
+     */
+    Collection<Long> getArtifactIds() {
+        return Collections.unmodifiableCollection(((SerializableEventData) super.getOldValue()).artifactIds);
+    }
+
     /**
      * Gets the legacy ModuleDataEvent object associated with this event.
      *
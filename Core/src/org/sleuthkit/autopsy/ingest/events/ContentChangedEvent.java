@@ -63,6 +63,36 @@ public ContentChangedEvent(ModuleContentEvent eventData) {
         );
     }
 
+    /**
+     * Constructs an event received from another Autopsy node, for which the
+     * ModuleContentEvent is loaded when it is requested.
+     *
+     * @param moduleName The name of the module that added or changed the
+     *                   content.
+     * @param contentId  The object id of the content.
+     */
+    ContentChangedEvent(String moduleName, long contentId) {
+        super(IngestManager.IngestModuleEvent.CONTENT_CHANGED.toString(), new SerializableEventData(moduleName, contentId), null);
+    }
+
+    /**
+     * Gets the name of the module that added or changed the content.
+     *
+     * @return The module name.
+     */
+    String getModuleName() {
+        return ((SerializableEventData) super.getOldValue()).moduleName;
+    }
+
+    /**
+     * Gets the object id of the content that was added or changed.
+     *
+     * @return The object id.
+     */
+    long getContentId() {
+        return ((SerializableEventData) super.getOldValue()).contentId;
+    }
+
     /**
      * Gets the legacy ModuleContentEvent object associated with this event.
      * Note that the content object that was added or changed can be accessed
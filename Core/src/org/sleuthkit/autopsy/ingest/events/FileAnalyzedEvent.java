@@ -56,6 +56,25 @@ public FileAnalyzedEvent(AbstractFile file) {
         this.file = file;
     }
 
+    /**
+     * Constructs an event received from another Autopsy node, for which the
+     * file is loaded when it is requested.
+     *
+     * @param fileId The object id of the file.
+     */
+    FileAnalyzedEvent(long fileId) {
+        super(IngestManager.IngestModuleEvent.FILE_DONE.toString(), fileId, null);
+    }
+
+    /**
+     * Gets the object id of the file for which analysis is completed.
+     *
+     * @return The object id.
+     */
+    long getFileId() {
+        return (Long) super.getOldValue();
+    }
+
     /**
      * Gets the file for which analysis is completed.
      *
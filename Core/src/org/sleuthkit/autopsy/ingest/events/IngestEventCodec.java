@@ -0,0 +1,146 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.ingest.events;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.concurrent.Immutable;
+import org.openide.util.lookup.ServiceProvider;
+import org.sleuthkit.autopsy.events.AutopsyEvent;
+import org.sleuthkit.autopsy.events.EventCodecUtils;
+import org.sleuthkit.autopsy.events.RemoteEventCodec;
+import org.sleuthkit.datamodel.BlackboardArtifact;
+
+/**
+ * Encodes the events published by ingest modules, which are the most
+ * frequent events published to other Autopsy nodes, as their module names and
+ * object ids.
+ *
+ * Posts of artifacts of the same type by the same module are coalesced into a
+ * single post of all of the artifacts, and repeated file analyzed and content
+ * changed events for the same object are coalesced into the first one.
+ */
+@Immutable
+@ServiceProvider(service = RemoteEventCodec.class)
+public final class IngestEventCodec implements RemoteEventCodec {
+
+    private static final String NAME = "IngestModuleEvents"; //NON-NLS
+    private static final int FILE_ANALYZED = 0;
+    private static final int CONTENT_CHANGED = 1;
+    private static final int BLACKBOARD_POST = 2;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean canEncode(AutopsyEvent event) {
+        return event instanceof FileAnalyzedEvent
+                || event instanceof ContentChangedEvent
+                || event instanceof BlackboardPostEvent;
+    }
+
+    @Override
+    public void encode(AutopsyEvent event, DataOutput out) throws IOException {
+        if (event instanceof FileAnalyzedEvent) {
+            out.writeByte(FILE_ANALYZED);
+            EventCodecUtils.writeUnsignedVarLong(out, ((FileAnalyzedEvent) event).getFileId());
+        } else if (event instanceof ContentChangedEvent) {
+            ContentChangedEvent contentChangedEvent = (ContentChangedEvent) event;
+            out.writeByte(CONTENT_CHANGED);
+            writeString(out, contentChangedEvent.getModuleName());
+            EventCodecUtils.writeUnsignedVarLong(out, contentChangedEvent.getContentId());
+        } else if (event instanceof BlackboardPostEvent) {
+            BlackboardPostEvent blackboardPostEvent = (BlackboardPostEvent) event;
+            BlackboardArtifact.Type artifactType = blackboardPostEvent.getArtifactType();
+            out.writeByte(BLACKBOARD_POST);
+            writeString(out, blackboardPostEvent.getModuleName());
+            EventCodecUtils.writeUnsignedVarLong(out, artifactType.getTypeID());
+            writeString(out, artifactType.getTypeName());
+            writeString(out, artifactType.getDisplayName());
+            EventCodecUtils.writeIds(out, blackboardPostEvent.getArtifactIds());
+        } else {
+            throw new IOException("Unsupported event type " + event.getClass().getName()); //NON-NLS
+        }
+    }
+
+    @Override
+    public AutopsyEvent decode(DataInput in) throws IOException {
+        int eventType = in.readUnsignedByte();
+        switch (eventType) {
+            case FILE_ANALYZED:
+                return new FileAnalyzedEvent(EventCodecUtils.readUnsignedVarLong(in));
+            case CONTENT_CHANGED: {
+                String moduleName = readString(in);
+                return new ContentChangedEvent(moduleName, EventCodecUtils.readUnsignedVarLong(in));
+            }
+            case BLACKBOARD_POST: {
+                String moduleName = readString(in);
+                int typeId = (int) EventCodecUtils.readUnsignedVarLong(in);
+                String typeName = readString(in);
+                String displayName = readString(in);
+                List<Long> artifactIds = EventCodecUtils.readIds(in);
+                return new BlackboardPostEvent(moduleName, new BlackboardArtifact.Type(typeId, typeName, displayName), artifactIds);
+            }
+            default:
+                throw new IOException("Unknown ingest event type " + eventType); //NON-NLS
+        }
+    }
+
+    @Override
+    public Object getCoalescingKey(AutopsyEvent event) {
+        if (event instanceof FileAnalyzedEvent) {
+            return Arrays.asList(FILE_ANALYZED, ((FileAnalyzedEvent) event).getFileId());
+        } else if (event instanceof ContentChangedEvent) {
+            ContentChangedEvent contentChangedEvent = (ContentChangedEvent) event;
+            return Arrays.asList(CONTENT_CHANGED, contentChangedEvent.getModuleName(), contentChangedEvent.getContentId());
+        } else if (event instanceof BlackboardPostEvent) {
+            BlackboardPostEvent blackboardPostEvent = (BlackboardPostEvent) event;
+            return Arrays.asList(BLACKBOARD_POST, blackboardPostEvent.getModuleName(), blackboardPostEvent.getArtifactType().getTypeID());
+        }
+        return null;
+    }
+
+    @Override
+    public AutopsyEvent coalesce(AutopsyEvent first, AutopsyEvent second) {
+        if (first instanceof BlackboardPostEvent) {
+            BlackboardPostEvent firstPost = (BlackboardPostEvent) first;
+            List<Long> artifactIds = new ArrayList<>(firstPost.getArtifactIds());
+            artifactIds.addAll(((BlackboardPostEvent) second).getArtifactIds());
+            return new BlackboardPostEvent(firstPost.getModuleName(), firstPost.getArtifactType(), artifactIds);
+        }
+        return first;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(null != value);
+        if (null != value) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
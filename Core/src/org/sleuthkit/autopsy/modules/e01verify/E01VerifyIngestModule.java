@@ -18,12 +18,10 @@
  */
 package org.sleuthkit.autopsy.modules.e01verify;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.EnumSet;
 import java.util.logging.Level;
-import javax.xml.bind.DatatypeConverter;
 import org.openide.util.NbBundle;
-import org.python.bouncycastle.util.Arrays;
+import org.sleuthkit.autopsy.coreutils.ContentDigests;
 import org.sleuthkit.autopsy.coreutils.Logger;
 import org.sleuthkit.autopsy.ingest.DataSourceIngestModule;
 import org.sleuthkit.autopsy.ingest.DataSourceIngestModuleProgress;
@@ -42,20 +40,17 @@
  * Format (EWF) E01 image file by generating a hash of the file and comparing it
  * to the value stored in the image.
  */
-@NbBundle.Messages({
-    "UnableToCalculateHashes=Unable to calculate MD5 hashes."
-})
 public class E01VerifyIngestModule implements DataSourceIngestModule {
 
     private static final Logger logger = Logger.getLogger(E01VerifyIngestModule.class.getName());
     private static final long DEFAULT_CHUNK_SIZE = 32 * 1024;
     private static final IngestServices services = IngestServices.getInstance();
 
-    private MessageDigest messageDigest;
     private boolean verified = false;
     private String calculatedHash = "";
     private String storedHash = "";
     private IngestJobContext context;
+    private long bytesHashed;
 
     E01VerifyIngestModule() {
     }
@@ -66,12 +61,7 @@ public void startUp(IngestJobContext context) throws IngestModuleException {
         verified = false;
         storedHash = "";
         calculatedHash = "";
-
-        try {
-            messageDigest = MessageDigest.getInstance("MD5"); //NON-NLS
-        } catch (NoSuchAlgorithmException ex) {
-            throw new IngestModuleException(Bundle.UnableToCalculateHashes(), ex);
-        }
+        bytesHashed = 0;
     }
 
     @Override
@@ -134,38 +124,30 @@ public ProcessResult process(Content dataSource, DataSourceIngestModuleProgress
         // Casting to double to capture decimals
         int totalChunks = (int) Math.ceil((double) size / (double) chunkSize);
         logger.log(Level.INFO, "Total chunks = {0}", totalChunks); //NON-NLS
-        int read;
-
-        byte[] data = new byte[(int) chunkSize];
         statusHelper.switchToDeterminate(totalChunks);
 
-        // Read in byte size chunks and update the hash value with the data.
-        for (int i = 0; i < totalChunks; i++) {
-            if (context.dataSourceIngestIsCancelled()) {
-                return ProcessResult.OK;
-            }
-            try {
-                read = img.read(data, i * chunkSize, chunkSize);
-            } catch (TskCoreException ex) {
-                String msg = NbBundle.getMessage(this.getClass(),
-                        "EwfVerifyIngestModule.process.errReadImgAtChunk", imgName, i);
-                services.postMessage(IngestMessage.createMessage(MessageType.ERROR, E01VerifierModuleFactory.getModuleName(), msg));
-                logger.log(Level.SEVERE, msg, ex);
-                return ProcessResult.ERROR;
-            }
-
-            // Only update with the read bytes.
-            if (read == chunkSize) {
-                messageDigest.update(data);
-            } else {
-                byte[] subData = Arrays.copyOfRange(data, 0, read);
-                messageDigest.update(subData);
-            }
-            statusHelper.progress(i);
+        // Always read the image again to verify it, rather than using a hash
+        // that was calculated for it earlier.
+        final long progressChunkSize = chunkSize;
+        ContentDigests digests;
+        try {
+            digests = ContentDigests.recalculate(img, EnumSet.of(ContentDigests.Algorithm.MD5), (long bytesRead) -> {
+                bytesHashed = bytesRead;
+                statusHelper.progress((int) (bytesRead / progressChunkSize));
+                return !context.dataSourceIngestIsCancelled();
+            });
+        } catch (TskCoreException ex) {
+            String msg = NbBundle.getMessage(this.getClass(),
+                    "EwfVerifyIngestModule.process.errReadImgAtChunk", imgName, bytesHashed / chunkSize);
+            services.postMessage(IngestMessage.createMessage(MessageType.ERROR, E01VerifierModuleFactory.getModuleName(), msg));
+            logger.log(Level.SEVERE, msg, ex);
+            return ProcessResult.ERROR;
+        }
+        if (digests == null) {
+            return ProcessResult.OK;
         }
 
-        // Finish generating the hash and get it as a string value
-        calculatedHash = DatatypeConverter.printHexBinary(messageDigest.digest()).toLowerCase();
+        calculatedHash = digests.getMd5();
         verified = calculatedHash.equals(storedHash);
         logger.log(Level.INFO, "Hash calculated from {0}: {1}", new Object[]{imgName, calculatedHash}); //NON-NLS
 
@@ -178,7 +178,7 @@ private boolean isVolumeEncrypted(Volume volume) throws ReadContentInputStream.R
          * http://www.forensicswiki.org/wiki/TrueCrypt#Detection
          */
         if (volume.getFileSystems().isEmpty()) {
-            calculatedEntropy = EncryptionDetectionTools.calculateEntropy(volume);
+            calculatedEntropy = EncryptionDetectionTools.calculateEntropy(volume, minimumEntropy);
             if (calculatedEntropy >= minimumEntropy) {
                 return true;
             }
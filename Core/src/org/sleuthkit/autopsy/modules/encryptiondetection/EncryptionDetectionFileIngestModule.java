@@ -381,7 +381,7 @@ private boolean isFileEncryptionSuspected(AbstractFile file) throws ReadContentI
             /*
              * Qualify the entropy.
              */
-            calculatedEntropy = EncryptionDetectionTools.calculateEntropy(file);
+            calculatedEntropy = EncryptionDetectionTools.calculateEntropy(file, minimumEntropy);
             if (calculatedEntropy >= minimumEntropy) {
                 possiblyEncrypted = true;
             }
@@ -18,9 +18,9 @@
  */
 package org.sleuthkit.autopsy.modules.encryptiondetection;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import org.openide.util.NbBundle;
 import org.sleuthkit.autopsy.ingest.IngestModule;
 import org.sleuthkit.datamodel.ReadContentInputStream;
@@ -33,6 +33,11 @@ final class EncryptionDetectionTools {
 
     private static final double ONE_OVER_LOG2 = 1.4426950408889634073599246810019; // (1 / log(2))
     private static final int BYTE_OCCURENCES_BUFFER_SIZE = 256;
+    private static final int OCCURENCE_STRIPE_COUNT = 4;
+    private static final int BLOCK_SIZE = 1024 * 1024;
+    private static final int BLOCKS_PER_ENTROPY_BOUND_CHECK = 8;
+    private static final long SAMPLING_THRESHOLD = 1024L * 1024 * 1024;
+    private static final int SAMPLE_COUNT = 128;
     static final double MINIMUM_ENTROPY_INPUT_RANGE_MIN = 6.0;
     static final double MINIMUM_ENTROPY_INPUT_RANGE_MAX = 8.0;
     static final int MINIMUM_FILE_SIZE_INPUT_RANGE_MIN = 1;
@@ -68,61 +73,185 @@ static void validateMinFileSizeValue(int minimumFileSize) throws IngestModule.In
      * Calculate the entropy of the content. The result is used to qualify the
      * content as possibly encrypted.
      *
-     * @param content The content to be calculated against.
+     * The content is read in large blocks rather than a byte at a time. Content
+     * larger than SAMPLING_THRESHOLD is not read in full; instead the entropy
+     * is calculated from SAMPLE_COUNT blocks spread evenly across it. The
+     * calculation stops early, returning an upper bound on the entropy, once
+     * the bytes counted so far show that the entropy cannot reach the minimum
+     * entropy however the rest of the bytes are distributed.
      *
-     * @return The entropy of the content.
+     * @param content        The content to be calculated against.
+     * @param minimumEntropy The minimum entropy for the content to be
+     *                       considered to be possibly encrypted.
+     *
+     * @return The entropy of the content, or an upper bound on the entropy
+     *         that is less than the minimum entropy.
      *
      * @throws ReadContentInputStreamException If there is a failure reading
      *                                         from the InputStream.
      * @throws IOException                     If there is a failure closing or
      *                                         reading from the InputStream.
      */
-    static double calculateEntropy(Content content) throws ReadContentInputStream.ReadContentInputStreamException, IOException {
+    static double calculateEntropy(Content content, double minimumEntropy) throws ReadContentInputStream.ReadContentInputStreamException, IOException {
         /*
          * Logic in this method is based on
          * https://github.com/willjasen/entropy/blob/master/entropy.java
          */
+        long contentSize = content.getSize();
+        boolean sampled = contentSize > SAMPLING_THRESHOLD;
+        long bytesToRead = sampled ? (long) SAMPLE_COUNT * BLOCK_SIZE : contentSize;
+        long sampleSpacing = contentSize / SAMPLE_COUNT;
 
-        InputStream in = null;
-        BufferedInputStream bin = null;
-
-        try {
-            in = new ReadContentInputStream(content);
-            bin = new BufferedInputStream(in);
-
-            /*
-             * Determine the number of times each byte value appears.
-             */
-            int[] byteOccurences = new int[BYTE_OCCURENCES_BUFFER_SIZE];
-            int readByte;
-            while ((readByte = bin.read()) != -1) {
-                byteOccurences[readByte]++;
-            }
+        /*
+         * Determine the number of times each byte value appears.
+         */
+        long[] byteOccurences = new long[BYTE_OCCURENCES_BUFFER_SIZE];
+        int[][] stripedOccurences = new int[OCCURENCE_STRIPE_COUNT][BYTE_OCCURENCES_BUFFER_SIZE];
+        byte[] block = new byte[BLOCK_SIZE];
+        long bytesRead = 0;
+        try (ReadContentInputStream in = new ReadContentInputStream(content)) {
+            for (int blockIndex = 0; !sampled || blockIndex < SAMPLE_COUNT; blockIndex++) {
+                if (sampled) {
+                    in.seek(blockIndex * sampleSpacing);
+                }
+                int blockLength = readBlock(in, block);
+                if (blockLength == 0) {
+                    break;
+                }
+                countByteOccurences(block, blockLength, stripedOccurences, byteOccurences);
+                bytesRead += blockLength;
 
-            /*
-             * Calculate the entropy based on the byte occurence counts.
-             */
-            long dataLength = content.getSize() - 1;
-            double entropyAccumulator = 0;
-            for (int i = 0; i < BYTE_OCCURENCES_BUFFER_SIZE; i++) {
-                if (byteOccurences[i] > 0) {
-                    double byteProbability = (double) byteOccurences[i] / (double) dataLength;
-                    entropyAccumulator += (byteProbability * Math.log(byteProbability) * ONE_OVER_LOG2);
+                if ((blockIndex + 1) % BLOCKS_PER_ENTROPY_BOUND_CHECK == 0 && bytesRead < bytesToRead) {
+                    double maximumEntropy = calculateMaximumEntropy(byteOccurences, bytesRead, bytesToRead - bytesRead);
+                    if (maximumEntropy < minimumEntropy) {
+                        return maximumEntropy;
+                    }
                 }
             }
+        }
 
-            return -entropyAccumulator;
+        /*
+         * Calculate the entropy based on the byte occurence counts.
+         */
+        double entropyAccumulator = 0;
+        for (int i = 0; i < BYTE_OCCURENCES_BUFFER_SIZE; i++) {
+            entropyAccumulator += entropyTerm(byteOccurences[i], bytesRead);
+        }
+        return -entropyAccumulator;
+    }
 
-        } finally {
-            if (in != null) {
-                in.close();
+    /**
+     * Reads from a stream until a buffer is full or the end of the stream is
+     * reached.
+     *
+     * @param in     The stream.
+     * @param buffer The buffer.
+     *
+     * @return The number of bytes read, zero at the end of the stream.
+     *
+     * @throws IOException If there is a failure reading from the stream.
+     */
+    private static int readBlock(InputStream in, byte[] buffer) throws IOException {
+        int length = 0;
+        while (length < buffer.length) {
+            int read = in.read(buffer, length, buffer.length - length);
+            if (read == -1) {
+                break;
             }
-            if (bin != null) {
-                bin.close();
+            length += read;
+        }
+        return length;
+    }
+
+    /**
+     * Adds the number of times each byte value appears in a block to the
+     * occurence counts. The bytes are counted into several histograms in turn,
+     * so that consecutive bytes with the same value do not stall on updating
+     * the same counter, and the histograms are then merged.
+     *
+     * @param block             The block.
+     * @param length            The number of bytes in the block.
+     * @param stripedOccurences The histograms to count into, all zero.
+     * @param byteOccurences    The occurence counts to add to.
+     */
+    private static void countByteOccurences(byte[] block, int length, int[][] stripedOccurences, long[] byteOccurences) {
+        int[] occurences0 = stripedOccurences[0];
+        int[] occurences1 = stripedOccurences[1];
+        int[] occurences2 = stripedOccurences[2];
+        int[] occurences3 = stripedOccurences[3];
+        int i = 0;
+        for (int unrolledEnd = length & ~(OCCURENCE_STRIPE_COUNT - 1); i < unrolledEnd; i += OCCURENCE_STRIPE_COUNT) {
+            occurences0[block[i] & 0xFF]++;
+            occurences1[block[i + 1] & 0xFF]++;
+            occurences2[block[i + 2] & 0xFF]++;
+            occurences3[block[i + 3] & 0xFF]++;
+        }
+        for (; i < length; i++) {
+            occurences0[block[i] & 0xFF]++;
+        }
+        for (int value = 0; value < BYTE_OCCURENCES_BUFFER_SIZE; value++) {
+            byteOccurences[value] += (long) occurences0[value] + occurences1[value] + occurences2[value] + occurences3[value];
+        }
+        for (int[] occurences : stripedOccurences) {
+            Arrays.fill(occurences, 0);
+        }
+    }
+
+    /**
+     * Calculates the highest entropy that content can have given the byte
+     * occurence counts of part of it. The entropy is highest when the rest of
+     * the bytes raise the lowest counts to a common level.
+     *
+     * @param byteOccurences The byte occurence counts of the part read.
+     * @param bytesRead      The number of bytes read.
+     * @param bytesRemaining The number of bytes not yet read.
+     *
+     * @return The maximum entropy.
+     */
+    static double calculateMaximumEntropy(long[] byteOccurences, long bytesRead, long bytesRemaining) {
+        long[] sortedOccurences = byteOccurences.clone();
+        Arrays.sort(sortedOccurences);
+        long totalBytes = bytesRead + bytesRemaining;
+
+        /*
+         * Find the number of lowest counts that the remaining bytes can raise
+         * to a common level that is no higher than the next count.
+         */
+        long lowestOccurencesSum = 0;
+        double level = 0;
+        int raisedCount = 0;
+        while (raisedCount < BYTE_OCCURENCES_BUFFER_SIZE) {
+            lowestOccurencesSum += sortedOccurences[raisedCount];
+            raisedCount++;
+            level = (double) (lowestOccurencesSum + bytesRemaining) / raisedCount;
+            if (raisedCount == BYTE_OCCURENCES_BUFFER_SIZE || level <= sortedOccurences[raisedCount]) {
+                break;
             }
         }
+
+        double entropyAccumulator = raisedCount * entropyTerm(level, totalBytes);
+        for (int i = raisedCount; i < BYTE_OCCURENCES_BUFFER_SIZE; i++) {
+            entropyAccumulator += entropyTerm(sortedOccurences[i], totalBytes);
+        }
+        return -entropyAccumulator;
     }
-    
+
+    /**
+     * Calculates the contribution of one byte value to the (negated) entropy.
+     *
+     * @param occurences The number of times the byte value appears.
+     * @param totalBytes The total number of bytes.
+     *
+     * @return The contribution.
+     */
+    private static double entropyTerm(double occurences, long totalBytes) {
+        if (occurences <= 0) {
+            return 0;
+        }
+        double byteProbability = occurences / totalBytes;
+        return byteProbability * Math.log(byteProbability) * ONE_OVER_LOG2;
+    }
+
     /**
      * Private constructor for Encryption Detection Tools class.
      */
@@ -142,6 +142,23 @@ boolean matches(final AbstractFile file) {
         return true;
     }
 
+    /**
+     * Determines whether or not a file is an instance of this file type, using
+     * the bytes of the file read for matching signatures.
+     *
+     * @param signatureBytes The bytes of the file to test.
+     *
+     * @return True or false.
+     */
+    boolean matches(final SignatureIndex.SignatureBytes signatureBytes) {
+        for (Signature sig : this.signatures) {
+            if (!signatureBytes.contains(sig)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public String toString() {
         return this.mimeType;
@@ -29,7 +29,6 @@
 import org.apache.tika.mime.MimeTypes;
 import org.sleuthkit.autopsy.coreutils.Logger;
 import org.sleuthkit.datamodel.AbstractFile;
-import org.sleuthkit.datamodel.ReadContentInputStream;
 import org.sleuthkit.datamodel.TskCoreException;
 import org.sleuthkit.datamodel.TskData;
 
@@ -47,6 +46,7 @@ public class FileTypeDetector {
     private static final int SLACK_FILE_THRESHOLD = 4096;
     private final List<FileType> userDefinedFileTypes;
     private final List<FileType> autopsyDefinedFileTypes;
+    private final SignatureIndex signatureIndex;
     private static SortedSet<String> tikaDetectedTypes;
 
     /**
@@ -119,6 +119,9 @@ public FileTypeDetector() throws FileTypeDetectorInitException {
         } catch (CustomFileTypesManager.CustomFileTypesException ex) {
             throw new FileTypeDetectorInitException("Error loading custom file types", ex); //NON-NLS
         }
+        List<FileType> customFileTypes = new ArrayList<>(userDefinedFileTypes);
+        customFileTypes.addAll(autopsyDefinedFileTypes);
+        signatureIndex = new SignatureIndex(customFileTypes);
     }
 
     /**
@@ -176,6 +179,23 @@ private boolean isDetectableByTika(String mimeType) {
  
      */
     public String getMIMEType(AbstractFile file) {
+        return getMIMEType(file, null);
+    }
+
+    /**
+     * Detects the MIME type of a file, using the head and tail of the file
+     * that have already been read if they are needed, then writes it the
+     * AbstractFile object representing the file and returns the detected type.
+     *
+     * @param file           The file to test.
+     * @param signatureBytes The head and tail of the file, read with
+     *                       readSignatureBytes, or null to read them if they
+     *                       are needed.
+     *
+     * @return A MIME type name. If file type could not be detected, or results
+     *         were uncertain, octet-stream is returned.
+     */
+    String getMIMEType(AbstractFile file, SignatureIndex.SignatureBytes signatureBytes) {
         /*
          * Check to see if the file has already been typed.
          */
@@ -200,12 +220,20 @@ public String getMIMEType(AbstractFile file) {
             mimeType = MimeTypes.OCTET_STREAM;
         }
 
+        /*
+         * Read the head and tail of the file once, for matching the signatures
+         * of all of the custom file types and for Tika.
+         */
+        if (null == mimeType && null == signatureBytes) {
+            signatureBytes = signatureIndex.readSignatureBytes(file);
+        }
+
         /*
          * If the file is a regular file, give precedence to user-defined custom
          * file types.
          */
         if (null == mimeType) {
-            mimeType = detectUserDefinedType(file);
+            mimeType = detectUserDefinedType(signatureBytes);
         }
 
         /*
@@ -213,7 +241,7 @@ public String getMIMEType(AbstractFile file) {
          * custom file types defined by Autopsy.
          */
         if (null == mimeType) {
-            mimeType = detectAutopsyDefinedType(file);
+            mimeType = detectAutopsyDefinedType(signatureBytes);
         }
 
         /*
@@ -221,9 +249,7 @@ public String getMIMEType(AbstractFile file) {
          * bytes to Tika.
          */
         if (null == mimeType) {
-            ReadContentInputStream stream = new ReadContentInputStream(file);
-
-            try (TikaInputStream tikaInputStream = TikaInputStream.get(stream)) {
+            try (TikaInputStream tikaInputStream = TikaInputStream.get(signatureBytes.openStream())) {
                 String tikaType = tika.detect(tikaInputStream, file.getName());
 
                 /*
@@ -274,32 +300,70 @@ private String removeOptionalParameter(String mimeType) {
     /**
      * Determines whether or not a file matches a user-defined custom file type.
      *
-     * @param file The file to test.
+     * @param signatureBytes The bytes of the file to test.
      *
      * @return The MIME type as a string if a match is found; otherwise null.
      */
-    private String detectUserDefinedType(AbstractFile file) {
-        String retValue = null;
-        
+    private String detectUserDefinedType(SignatureIndex.SignatureBytes signatureBytes) {
+        FileType fileType = getUserDefinedFileType(signatureBytes);
+        return (fileType != null) ? fileType.getMimeType() : null;
+    }
+
+    /**
+     * Reads the head and tail of a file that are needed to match the
+     * signatures of the custom file types and to detect the file type with
+     * Tika.
+     *
+     * @param file The file.
+     *
+     * @return The bytes read.
+     */
+    SignatureIndex.SignatureBytes readSignatureBytes(AbstractFile file) {
+        return signatureIndex.readSignatureBytes(file);
+    }
+
+    /**
+     * Gets the first user-defined custom file type that a file matches,
+     * regardless of the MIME type detected for the file.
+     *
+     * @param signatureBytes The bytes of the file to test.
+     *
+     * @return The file type if a match is found; otherwise null.
+     */
+    FileType getUserDefinedFileType(SignatureIndex.SignatureBytes signatureBytes) {
+        for (FileType fileType : userDefinedFileTypes) {
+            if (fileType.matches(signatureBytes)) {
+                return fileType;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Determines whether or not any user-defined custom file type creates an
+     * interesting file hit when a file matches it.
+     *
+     * @return True or false.
+     */
+    boolean hasInterestingUserDefinedFileTypes() {
         for (FileType fileType : userDefinedFileTypes) {
-            if (fileType.matches(file)) {
-                retValue = fileType.getMimeType();
-                break;
+            if (fileType.createInterestingFileHit()) {
+                return true;
             }
         }
-        return retValue;
+        return false;
     }
 
     /**
      * Determines whether or not a file matches a custom file type defined by Autopsy.
      *
-     * @param file The file to test.
+     * @param signatureBytes The bytes of the file to test.
      *
      * @return The MIME type as a string if a match is found; otherwise null.
      */
-    private String detectAutopsyDefinedType(AbstractFile file) {
+    private String detectAutopsyDefinedType(SignatureIndex.SignatureBytes signatureBytes) {
         for (FileType fileType : autopsyDefinedFileTypes) {
-            if (fileType.matches(file)) {
+            if (fileType.matches(signatureBytes)) {
                 return fileType.getMimeType();
             }
         }
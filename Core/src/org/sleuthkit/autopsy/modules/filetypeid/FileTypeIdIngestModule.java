@@ -21,7 +21,6 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.List;
 import java.util.logging.Level;
 import org.openide.util.NbBundle;
 import org.sleuthkit.autopsy.casemodule.Case;
@@ -100,11 +99,22 @@ public ProcessResult process(AbstractFile file) {
          */
         try {
             long startTime = System.currentTimeMillis();
-            String mimeType = fileTypeDetector.getMIMEType(file);
+            /*
+             * Read the head and tail of the file once, for both the MIME type
+             * detection and the user-defined file types that create
+             * interesting file hits, which are matched against every file.
+             */
+            SignatureIndex.SignatureBytes signatureBytes = null;
+            if (fileTypeDetector.hasInterestingUserDefinedFileTypes()) {
+                signatureBytes = fileTypeDetector.readSignatureBytes(file);
+            }
+            String mimeType = fileTypeDetector.getMIMEType(file, signatureBytes);
             file.setMIMEType(mimeType);
-            FileType fileType = detectUserDefinedFileType(file);
-            if (fileType != null && fileType.createInterestingFileHit()) {
-                createInterestingFileHit(file, fileType);
+            if (signatureBytes != null) {
+                FileType fileType = fileTypeDetector.getUserDefinedFileType(signatureBytes);
+                if (fileType != null && fileType.createInterestingFileHit()) {
+                    createInterestingFileHit(file, fileType);
+                }
             }
             addToTotals(jobId, (System.currentTimeMillis() - startTime));
             return ProcessResult.OK;
@@ -114,31 +124,6 @@ public ProcessResult process(AbstractFile file) {
         }
     }
 
-    /**
-     * Determines whether or not a file matches a user-defined custom file type.
-     *
-     * @param file The file to test.
-     *
-     * @return The file type if a match is found; otherwise null.
-     *
-     * @throws CustomFileTypesException If there is an issue getting an instance
-     *                                  of CustomFileTypesManager.
-     */
-    private FileType detectUserDefinedFileType(AbstractFile file) throws CustomFileTypesManager.CustomFileTypesException {
-        FileType retValue = null;
-
-        CustomFileTypesManager customFileTypesManager = CustomFileTypesManager.getInstance();
-        List<FileType> fileTypesList = customFileTypesManager.getUserDefinedFileTypes();
-        for (FileType fileType : fileTypesList) {
-            if (fileType.matches(file)) {
-                retValue = fileType;
-                break;
-            }
-        }
-
-        return retValue;
-    }
-
     /**
      * Create an Interesting File hit using the specified file type rule.
      *
@@ -86,4 +86,17 @@ public FileIngestModule createFileIngestModule(IngestModuleIngestJobSettings set
         return new FileTypeIdIngestModule();
     }
 
+    /**
+     * File type detection keeps no per-file state in the module or in its
+     * FileTypeDetector, whose signature bytes are read into a new buffer for
+     * each file and whose Tika facade is thread-safe, so one module instance
+     * can process files on all of the file ingest threads of a job.
+     *
+     * @return True.
+     */
+    @Override
+    public boolean isFileIngestModuleThreadSafe() {
+        return true;
+    }
+
 }
@@ -0,0 +1,207 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.modules.filetypeid;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.List;
+import java.util.logging.Level;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.apache.tika.mime.MimeTypes;
+import org.sleuthkit.autopsy.coreutils.Logger;
+import org.sleuthkit.datamodel.AbstractFile;
+import org.sleuthkit.datamodel.ReadContentInputStream;
+import org.sleuthkit.datamodel.TskCoreException;
+
+/**
+ * The extents of a file that must be read to match a set of file type
+ * signatures and to detect the file type with Tika, so that a file can be
+ * typed with at most two reads: one of its head, for the signatures relative
+ * to the start of the file and for Tika, and one of its tail, for the
+ * signatures relative to the end of the file. Signatures that lie too far into
+ * a file to be buffered are matched by reading the file.
+ */
+@Immutable
+final class SignatureIndex {
+
+    private static final Logger logger = Logger.getLogger(SignatureIndex.class.getName());
+    private static final int MAX_BUFFER_LENGTH = 1024 * 1024;
+    private final int headLength;
+    private final int tailLength;
+
+    /**
+     * Constructs the extents of a file that must be read to match the
+     * signatures of a set of file types and to detect the file type with Tika.
+     *
+     * @param fileTypes The file types.
+     */
+    SignatureIndex(List<FileType> fileTypes) {
+        long maxHeadLength = MimeTypes.getDefaultMimeTypes().getMinLength();
+        long maxTailLength = 0;
+        for (FileType fileType : fileTypes) {
+            for (FileType.Signature signature : fileType.getSignatures()) {
+                long signatureLength = signature.getSignatureBytes().length;
+                long length = signature.isRelativeToStart() ? signature.getOffset() + signatureLength : signature.getOffset() + 1;
+                if (length > MAX_BUFFER_LENGTH) {
+                    continue;
+                }
+                if (signature.isRelativeToStart()) {
+                    maxHeadLength = Math.max(maxHeadLength, length);
+                } else {
+                    maxTailLength = Math.max(maxTailLength, length);
+                }
+            }
+        }
+        headLength = (int) Math.min(maxHeadLength, MAX_BUFFER_LENGTH);
+        tailLength = (int) maxTailLength;
+    }
+
+    /**
+     * Reads the head and, if there are signatures relative to the end of a
+     * file, the tail of a file.
+     *
+     * @param file The file.
+     *
+     * @return The bytes read.
+     */
+    SignatureBytes readSignatureBytes(AbstractFile file) {
+        return new SignatureBytes(file, headLength, tailLength);
+    }
+
+    /**
+     * The head and tail of a file, for matching file type signatures and
+     * detecting the file type with Tika.
+     */
+    @NotThreadSafe
+    static final class SignatureBytes {
+
+        private final AbstractFile file;
+        private final long fileSize;
+        private final byte[] head;
+        private final int headBytesRead;
+        private final byte[] tail;
+        private final long tailOffset;
+        private final int tailBytesRead;
+        private final boolean readError;
+
+        private SignatureBytes(AbstractFile file, int headLength, int tailLength) {
+            this.file = file;
+            fileSize = file.getSize();
+            head = new byte[(int) Math.min(headLength, fileSize)];
+            if (fileSize > head.length && tailLength > 0) {
+                tail = new byte[(int) Math.min(tailLength, fileSize)];
+            } else {
+                tail = new byte[0];
+            }
+            tailOffset = fileSize - tail.length;
+
+            int headRead = 0;
+            int tailRead = 0;
+            boolean error = false;
+            try {
+                if (head.length > 0) {
+                    headRead = Math.max(0, file.read(head, 0, head.length));
+                }
+                if (tail.length > 0) {
+                    tailRead = Math.max(0, file.read(tail, tailOffset, tail.length));
+                }
+            } catch (TskCoreException ex) {
+                /**
+                 * This exception is swallowed rather than propagated because
+                 * files in images are not always consistent with their file
+                 * system meta data making for read errors.
+                 */
+                logger.log(Level.WARNING, "Error reading from file with objId = " + file.getId(), ex); //NON-NLS
+                error = true;
+            }
+            headBytesRead = headRead;
+            tailBytesRead = tailRead;
+            readError = error;
+        }
+
+        /**
+         * Gets the file.
+         *
+         * @return The file.
+         */
+        AbstractFile getFile() {
+            return file;
+        }
+
+        /**
+         * Determines whether or not a signature is contained within the file.
+         *
+         * @param signature The signature.
+         *
+         * @return True or false.
+         */
+        boolean contains(FileType.Signature signature) {
+            if (signature.getOffset() >= fileSize) {
+                return false; // File is too small, offset lies outside file.
+            }
+            byte[] signatureBytes = signature.getSignatureBytes();
+            long start = signature.isRelativeToStart() ? signature.getOffset() : fileSize - 1 - signature.getOffset();
+            long end = start + signatureBytes.length;
+            if (fileSize < end) {
+                return false; // too small, can't contain this signature
+            }
+            if (readError) {
+                return false;
+            }
+            if (end <= head.length) {
+                return end <= headBytesRead && regionMatches(head, (int) start, signatureBytes);
+            }
+            if (start >= tailOffset && tail.length > 0) {
+                return end <= tailOffset + tailBytesRead && regionMatches(tail, (int) (start - tailOffset), signatureBytes);
+            }
+            return signature.containedIn(file);
+        }
+
+        /**
+         * Opens a stream over the file that reads the buffered head of the
+         * file from memory.
+         *
+         * @return The stream.
+         */
+        InputStream openStream() {
+            if (readError || headBytesRead < head.length) {
+                return new ReadContentInputStream(file);
+            }
+            InputStream headStream = new ByteArrayInputStream(head, 0, headBytesRead);
+            if (headBytesRead == fileSize) {
+                return headStream;
+            }
+            ReadContentInputStream restStream = new ReadContentInputStream(file);
+            restStream.seek(headBytesRead);
+            return new SequenceInputStream(headStream, restStream);
+        }
+
+        private static boolean regionMatches(byte[] buffer, int offset, byte[] signatureBytes) {
+            for (int i = 0; i < signatureBytes.length; i++) {
+                if (buffer[offset + i] != signatureBytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
@@ -526,9 +526,12 @@ private void okButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRS
             }
         } else {
             
-            // Check if a hash set with the same name/version already exists
+            // Check if a hash set with the same name/version already exists,
+            // unless it is left from an interrupted import of this file that
+            // can be resumed
             try{
-                if(EamDb.getInstance().referenceSetExists(hashSetNameTextField.getText(), versionTextField.getText())){
+                if(EamDb.getInstance().referenceSetExists(hashSetNameTextField.getText(), versionTextField.getText())
+                        && HashSetImportCheckpoint.find(hashSetNameTextField.getText(), versionTextField.getText(), selectedFilePath) == null){
                     JOptionPane.showMessageDialog(this,
                         NbBundle.getMessage(this.getClass(),
                                 "HashDbImportDatabaseDialog.duplicateName"),
@@ -18,7 +18,6 @@
  */
 package org.sleuthkit.autopsy.modules.hashdatabase;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -31,6 +30,7 @@
 import org.sleuthkit.autopsy.casemodule.Case;
 import org.sleuthkit.autopsy.casemodule.NoCurrentCaseException;
 import org.sleuthkit.autopsy.casemodule.services.Blackboard;
+import org.sleuthkit.autopsy.coreutils.ContentDigests;
 import org.sleuthkit.autopsy.coreutils.Logger;
 import org.sleuthkit.autopsy.coreutils.MessageNotifyUtil;
 import org.sleuthkit.autopsy.healthmonitor.EnterpriseHealthMonitor;
@@ -47,7 +47,6 @@
 import org.sleuthkit.datamodel.BlackboardAttribute;
 import org.sleuthkit.datamodel.BlackboardAttribute.ATTRIBUTE_TYPE;
 import org.sleuthkit.datamodel.HashHitInfo;
-import org.sleuthkit.datamodel.HashUtility;
 import org.sleuthkit.datamodel.SleuthkitCase;
 import org.sleuthkit.datamodel.TskCoreException;
 import org.sleuthkit.datamodel.TskData;
@@ -186,7 +185,9 @@ public ProcessResult process(AbstractFile file) {
             try {
                 TimingMetric metric = EnterpriseHealthMonitor.getTimingMetric("Disk Reads: Hash calculation");
                 long calcstart = System.currentTimeMillis();
-                md5Hash = HashUtility.calculateMd5Hash(file);
+                // Calculate all of the digests other modules may need in the
+                // same pass, so they do not have to read the file again
+                md5Hash = ContentDigests.calculate(file).getMd5();
                 if (file.getSize() > 0) {
                     // Surprisingly, the hash calculation does not seem to be correlated that
                     // strongly with file size until the files get large.
@@ -202,7 +203,7 @@ public ProcessResult process(AbstractFile file) {
                 long delta = (System.currentTimeMillis() - calcstart);
                 totals.totalCalctime.addAndGet(delta);
 
-            } catch (IOException ex) {
+            } catch (TskCoreException ex) {
                 logger.log(Level.WARNING, "Error calculating hash of file " + name, ex); //NON-NLS
                 services.postMessage(IngestMessage.createErrorMessage(
                         HashLookupModuleFactory.getModuleName(),
@@ -18,6 +18,7 @@
  */
 package org.sleuthkit.autopsy.modules.hashdatabase;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
@@ -29,6 +30,9 @@
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
@@ -45,6 +49,7 @@
 import org.sleuthkit.autopsy.centralrepository.datamodel.EamGlobalFileInstance;
 import org.sleuthkit.autopsy.centralrepository.datamodel.EamGlobalSet;
 import org.sleuthkit.autopsy.core.RuntimeProperties;
+import org.sleuthkit.autopsy.core.UserPreferences;
 import org.sleuthkit.autopsy.coreutils.Logger;
 import org.sleuthkit.autopsy.coreutils.MessageNotifyUtil;
 import org.sleuthkit.autopsy.ingest.IngestManager;
@@ -70,6 +75,8 @@ public class HashDbManager implements PropertyChangeListener {
     private Set<String> hashSetPaths = new HashSet<>();
     PropertyChangeSupport changeSupport = new PropertyChangeSupport(HashDbManager.class);
     private static final Logger logger = Logger.getLogger(HashDbManager.class.getName());
+    private static final ExecutorService mappedIndexLoader = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("Hash-Set-Lookup-Index-Loader-%d").setDaemon(true).build()); //NON-NLS
     private boolean allDatabasesLoadedCorrectly = false;
 
     /**
@@ -800,6 +807,9 @@ class SleuthkitHashSet extends HashDb{
         private final HashDb.KnownFilesType knownFilesType;  
         private boolean indexing;
         private final PropertyChangeSupport propertyChangeSupport = new PropertyChangeSupport(this);
+        private final boolean useMappedIndex;
+        private final AtomicBoolean mappedIndexRequested = new AtomicBoolean(false);
+        private volatile MappedHashSetIndex mappedIndex;
 
         private SleuthkitHashSet(int handle, String hashSetName, boolean useForIngest, boolean sendHitMessages, KnownFilesType knownFilesType) {
             this.handle = handle;
@@ -808,6 +818,7 @@ private SleuthkitHashSet(int handle, String hashSetName, boolean useForIngest, b
             this.sendIngestMessages = sendHitMessages;
             this.knownFilesType = knownFilesType;
             this.indexing = false;
+            this.useMappedIndex = UserPreferences.useMappedHashSetLookup();
         }
 
         /**
@@ -959,12 +970,38 @@ public boolean lookupMD5Quick(Content content) throws TskCoreException {
             if (content instanceof AbstractFile) {
                 AbstractFile file = (AbstractFile) content;
                 if (null != file.getMd5Hash()) {
-                    result = SleuthkitJNI.lookupInHashDatabase(file.getMd5Hash(), handle);
+                    MappedHashSetIndex index = getMappedIndex();
+                    if (index != null) {
+                        result = index.contains(file.getMd5Hash());
+                    } else {
+                        result = SleuthkitJNI.lookupInHashDatabase(file.getMd5Hash(), handle);
+                    }
                 }
             }
             return result;
         }
 
+        /**
+         * Perform a basic boolean lookup of a batch of hashes.
+         *
+         * @param md5Hashes The MD5 hashes
+         *
+         * @return For each hash, true if it is in the hash database
+         *
+         * @throws TskCoreException
+         */
+        boolean[] lookupMD5Quick(List<String> md5Hashes) throws TskCoreException {
+            MappedHashSetIndex index = getMappedIndex();
+            if (index != null) {
+                return index.containsAll(md5Hashes);
+            }
+            boolean[] results = new boolean[md5Hashes.size()];
+            for (int i = 0; i < results.length; i++) {
+                results[i] = SleuthkitJNI.lookupInHashDatabase(md5Hashes.get(i), handle);
+            }
+            return results;
+        }
+
         /**
          * Lookup hash value in DB and provide details on file.
          *
@@ -982,11 +1019,49 @@ public HashHitInfo lookupMD5(Content content) throws TskCoreException {
             if (content instanceof AbstractFile) {
                 AbstractFile file = (AbstractFile) content;
                 if (null != file.getMd5Hash()) {
-                    result = SleuthkitJNI.lookupInHashDatabaseVerbose(file.getMd5Hash(), handle);
+                    // Most files are not in the set, and only hits need the
+                    // details, so misses are answered by the mapped index.
+                    MappedHashSetIndex index = getMappedIndex();
+                    if (index == null || index.contains(file.getMd5Hash())) {
+                        result = SleuthkitJNI.lookupInHashDatabaseVerbose(file.getMd5Hash(), handle);
+                    }
                 }
             }
             return result;
         }
+
+        /**
+         * Gets the memory-mapped lookup index of this hash set, if the mapped
+         * lookup indexes are enabled and the hash set does not accept updates.
+         * The first call starts loading the index in the background, and
+         * lookups go through The Sleuth Kit until it is ready.
+         *
+         * @return The index, or null if it is not (yet) available.
+         */
+        private MappedHashSetIndex getMappedIndex() {
+            if (!useMappedIndex) {
+                return null;
+            }
+            MappedHashSetIndex index = mappedIndex;
+            if (index == null && mappedIndexRequested.compareAndSet(false, true)) {
+                mappedIndexLoader.submit(this::loadMappedIndex);
+            }
+            return index;
+        }
+
+        private void loadMappedIndex() {
+            try {
+                // Hashes added to an updateable set would be missing from the
+                // compiled index.
+                if (isUpdateable() || !hasIndex()) {
+                    return;
+                }
+                mappedIndex = MappedHashSetIndex.load(hashSetName, getDatabasePath(), getIndexPath());
+                logger.log(Level.INFO, "Using the mapped lookup index of hash set {0} with {1} hashes", new Object[]{hashSetName, mappedIndex.size()}); //NON-NLS
+            } catch (IOException | TskCoreException ex) {
+                logger.log(Level.WARNING, "Failed to load the mapped lookup index of hash set " + hashSetName, ex); //NON-NLS
+            }
+        }
         
         /**
          * Returns whether this database can be enabled.
@@ -1022,6 +1097,7 @@ public void firePropertyChange(String propertyName, Object oldValue, Object newV
         }
 
         private void close() throws TskCoreException {
+            mappedIndex = null;
             SleuthkitJNI.closeHashDatabase(handle);
         }
         
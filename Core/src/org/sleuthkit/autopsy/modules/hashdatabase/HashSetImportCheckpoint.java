@@ -0,0 +1,234 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.modules.hashdatabase;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.logging.Level;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.sleuthkit.autopsy.centralrepository.datamodel.EamDb;
+import org.sleuthkit.autopsy.centralrepository.datamodel.EamDbException;
+import org.sleuthkit.autopsy.coreutils.Logger;
+import org.sleuthkit.autopsy.coreutils.PlatformUtil;
+
+/**
+ * Records how far the import of a hash set file into the central repository
+ * has gotten, so that an import that was interrupted by a crash can be resumed
+ * instead of started over.
+ *
+ * The checkpoint is saved in the user config directory under a name derived
+ * from the name and version of the reference set and the path of the imported
+ * file. It holds the ID of the reference set being filled and the number of
+ * hashes from the start of the file that are known to be in the central
+ * repository. It is only valid while the file has the same size and
+ * modification time and the reference set still exists.
+ */
+@NotThreadSafe
+final class HashSetImportCheckpoint {
+
+    private static final Logger logger = Logger.getLogger(HashSetImportCheckpoint.class.getName());
+    private static final String CHECKPOINT_DIRECTORY = "central_repository_imports"; //NON-NLS
+    private static final String CHECKPOINT_FILE_EXTENSION = ".properties"; //NON-NLS
+    private static final String REFERENCE_SET_ID_KEY = "referenceSetId"; //NON-NLS
+    private static final String HASH_SET_NAME_KEY = "hashSetName"; //NON-NLS
+    private static final String VERSION_KEY = "version"; //NON-NLS
+    private static final String IMPORT_FILE_PATH_KEY = "importFilePath"; //NON-NLS
+    private static final String FILE_SIZE_KEY = "fileSize"; //NON-NLS
+    private static final String LAST_MODIFIED_KEY = "lastModified"; //NON-NLS
+    private static final String HASHES_COMMITTED_KEY = "hashesCommitted"; //NON-NLS
+
+    private final Path checkpointFile;
+    private final int referenceSetId;
+    private final String hashSetName;
+    private final String version;
+    private final String importFilePath;
+    private final long fileSize;
+    private final long lastModified;
+    private long hashesCommitted;
+
+    private HashSetImportCheckpoint(Path checkpointFile, int referenceSetId, String hashSetName, String version,
+            String importFilePath, long fileSize, long lastModified, long hashesCommitted) {
+        this.checkpointFile = checkpointFile;
+        this.referenceSetId = referenceSetId;
+        this.hashSetName = hashSetName;
+        this.version = version;
+        this.importFilePath = importFilePath;
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.hashesCommitted = hashesCommitted;
+    }
+
+    /**
+     * Creates a checkpoint for a new import. The checkpoint is not saved until
+     * save() is called.
+     *
+     * @param referenceSetId The ID of the reference set being filled.
+     * @param hashSetName    The name of the reference set.
+     * @param version        The version of the reference set.
+     * @param importFilePath The path of the file being imported.
+     *
+     * @return The checkpoint.
+     *
+     * @throws IOException If the file being imported cannot be read.
+     */
+    static HashSetImportCheckpoint create(int referenceSetId, String hashSetName, String version, String importFilePath) throws IOException {
+        Path importFile = Paths.get(importFilePath);
+        return new HashSetImportCheckpoint(getCheckpointFile(hashSetName, version, importFilePath), referenceSetId,
+                hashSetName, version, importFilePath, Files.size(importFile), Files.getLastModifiedTime(importFile).toMillis(), 0);
+    }
+
+    /**
+     * Finds the checkpoint of an interrupted import of a file into a reference
+     * set. Checkpoints that no longer match the file or the central
+     * repository are deleted.
+     *
+     * @param hashSetName    The name of the reference set.
+     * @param version        The version of the reference set.
+     * @param importFilePath The path of the file being imported.
+     *
+     * @return The checkpoint, or null if the import cannot be resumed.
+     */
+    static HashSetImportCheckpoint find(String hashSetName, String version, String importFilePath) {
+        Path checkpointFile;
+        try {
+            checkpointFile = getCheckpointFile(hashSetName, version, importFilePath);
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Unable to get the import checkpoint directory", ex); //NON-NLS
+            return null;
+        }
+        if (!Files.isRegularFile(checkpointFile)) {
+            return null;
+        }
+
+        HashSetImportCheckpoint checkpoint = null;
+        try (InputStream in = Files.newInputStream(checkpointFile)) {
+            Properties props = new Properties();
+            props.load(in);
+            HashSetImportCheckpoint saved = new HashSetImportCheckpoint(checkpointFile,
+                    Integer.parseInt(props.getProperty(REFERENCE_SET_ID_KEY)),
+                    props.getProperty(HASH_SET_NAME_KEY),
+                    props.getProperty(VERSION_KEY),
+                    props.getProperty(IMPORT_FILE_PATH_KEY),
+                    Long.parseLong(props.getProperty(FILE_SIZE_KEY)),
+                    Long.parseLong(props.getProperty(LAST_MODIFIED_KEY)),
+                    Long.parseLong(props.getProperty(HASHES_COMMITTED_KEY)));
+            Path importFile = Paths.get(importFilePath);
+            if (hashSetName.equals(saved.hashSetName)
+                    && version.equals(saved.version)
+                    && importFilePath.equals(saved.importFilePath)
+                    && Files.isRegularFile(importFile)
+                    && Files.size(importFile) == saved.fileSize
+                    && Files.getLastModifiedTime(importFile).toMillis() == saved.lastModified
+                    && EamDb.isEnabled()
+                    && EamDb.getInstance().referenceSetIsValid(saved.referenceSetId, hashSetName, version)) {
+                checkpoint = saved;
+            }
+        } catch (IOException | NumberFormatException | EamDbException ex) {
+            logger.log(Level.WARNING, "Unable to read import checkpoint " + checkpointFile, ex); //NON-NLS
+        }
+
+        if (checkpoint == null) {
+            deleteFile(checkpointFile);
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Gets the ID of the reference set being filled.
+     *
+     * @return The reference set ID.
+     */
+    int getReferenceSetId() {
+        return referenceSetId;
+    }
+
+    /**
+     * Gets the number of hashes from the start of the file that have been
+     * written to the central repository.
+     *
+     * @return The number of hashes.
+     */
+    long getHashesCommitted() {
+        return hashesCommitted;
+    }
+
+    /**
+     * Sets the number of hashes from the start of the file that have been
+     * written to the central repository. The checkpoint is not saved until
+     * save() is called.
+     *
+     * @param hashesCommitted The number of hashes.
+     */
+    void setHashesCommitted(long hashesCommitted) {
+        this.hashesCommitted = hashesCommitted;
+    }
+
+    /**
+     * Saves the checkpoint. The file is replaced atomically so that a crash
+     * while saving leaves the previous checkpoint.
+     *
+     * @throws IOException If the checkpoint cannot be written.
+     */
+    void save() throws IOException {
+        Properties props = new Properties();
+        props.setProperty(REFERENCE_SET_ID_KEY, Integer.toString(referenceSetId));
+        props.setProperty(HASH_SET_NAME_KEY, hashSetName);
+        props.setProperty(VERSION_KEY, version);
+        props.setProperty(IMPORT_FILE_PATH_KEY, importFilePath);
+        props.setProperty(FILE_SIZE_KEY, Long.toString(fileSize));
+        props.setProperty(LAST_MODIFIED_KEY, Long.toString(lastModified));
+        props.setProperty(HASHES_COMMITTED_KEY, Long.toString(hashesCommitted));
+
+        Path tempFile = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp"); //NON-NLS
+        try (OutputStream out = Files.newOutputStream(tempFile)) {
+            props.store(out, null);
+        }
+        Files.move(tempFile, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Deletes the checkpoint, once the import has finished or been abandoned.
+     */
+    void delete() {
+        deleteFile(checkpointFile);
+    }
+
+    private static void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Unable to delete import checkpoint " + file, ex); //NON-NLS
+        }
+    }
+
+    private static Path getCheckpointFile(String hashSetName, String version, String importFilePath) throws IOException {
+        Path checkpointDirectory = Paths.get(PlatformUtil.getUserConfigDirectory(), CHECKPOINT_DIRECTORY);
+        Files.createDirectories(checkpointDirectory);
+        String importId = hashSetName + "|" + version + "|" + Paths.get(importFilePath).toAbsolutePath();
+        return checkpointDirectory.resolve(UUID.nameUUIDFromBytes(importId.getBytes(StandardCharsets.UTF_8)) + CHECKPOINT_FILE_EXTENSION);
+    }
+}
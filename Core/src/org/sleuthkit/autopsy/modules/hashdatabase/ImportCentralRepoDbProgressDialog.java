@@ -1,7 +1,7 @@
 /*
  * Autopsy Forensic Browser
  *
- * Copyright 2011-2016 Basis Technology Corp.
+ * Copyright 2011-2018 Basis Technology Corp.
  * Contact: carrier <at> sleuthkit <dot> org
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
@@ -18,10 +18,16 @@
  */
 package org.sleuthkit.autopsy.modules.hashdatabase;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.awt.Color;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeEvent;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import javax.swing.JFrame;
@@ -30,12 +36,18 @@
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import org.openide.util.NbBundle;
 import org.openide.windows.WindowManager;
 import org.sleuthkit.autopsy.centralrepository.datamodel.CorrelationAttribute;
 import org.sleuthkit.autopsy.centralrepository.datamodel.EamDb;
 import org.sleuthkit.autopsy.centralrepository.datamodel.EamDbException;
+import org.sleuthkit.autopsy.centralrepository.datamodel.EamDbPlatformEnum;
 import org.sleuthkit.autopsy.centralrepository.datamodel.EamGlobalFileInstance;
 import org.sleuthkit.autopsy.centralrepository.datamodel.EamGlobalSet;
 import org.sleuthkit.autopsy.coreutils.Logger;
@@ -47,6 +59,8 @@
  */
 class ImportCentralRepoDbProgressDialog extends javax.swing.JDialog implements PropertyChangeListener {
 
+    private static final Logger logger = Logger.getLogger(ImportCentralRepoDbProgressDialog.class.getName());
+
     private CentralRepoImportWorker worker;   // Swing worker that will import the file and send updates to the dialog
 
     @NbBundle.Messages({"ImportCentralRepoDbProgressDialog.title.text=Central Repository Import Progress",})
@@ -141,14 +155,37 @@ public void propertyChange(PropertyChangeEvent evt) {
         }
     }
 
-    @NbBundle.Messages({"ImportCentralRepoDbProgressDialog.linesProcessed.message= hashes processed"})
+    @NbBundle.Messages({"ImportCentralRepoDbProgressDialog.linesProcessed.message= hashes processed",
+        "# {0} - hashes per second",
+        "ImportCentralRepoDbProgressDialog.throughput.message= ({0} hashes/second)"})
     private String getProgressString() {
-        return worker.getNumHashesProcessed() + Bundle.ImportCentralRepoDbProgressDialog_linesProcessed_message();
+        String progress = worker.getNumHashesProcessed() + Bundle.ImportCentralRepoDbProgressDialog_linesProcessed_message();
+        long hashesPerSecond = worker.getHashesPerSecond();
+        if (hashesPerSecond > 0) {
+            progress += Bundle.ImportCentralRepoDbProgressDialog_throughput_message(hashesPerSecond);
+        }
+        return progress;
     }
 
+    /**
+     * Imports the hash set, overlapping the parsing of the file with writing
+     * the hashes to the central repository.
+     *
+     * The worker thread parses the file into batches of hashes, which are
+     * de-duplicated and written by a pool of writer threads (a single one for
+     * SQLite, which only allows one writer at a time). The number of batches
+     * waiting to be written is bounded so that parsing cannot get far ahead of
+     * the database. As the batches are written, a checkpoint recording how many
+     * hashes from the start of the file are in the central repository is
+     * saved, so that if Autopsy crashes the import can be resumed by importing
+     * the same file into the same reference set again.
+     */
     private class CentralRepoImportWorker extends SwingWorker<Void, Void> {
 
         private final int HASH_IMPORT_THRESHOLD = 10000;
+        private final long BULK_IMPORT_THRESHOLD = 1000000;
+        private final int WRITER_THREADS = 3;
+        private final int BATCHES_PER_WRITER = 2;
         private final String hashSetName;
         private final String version;
         private final int orgId;
@@ -161,6 +198,9 @@ private class CentralRepoImportWorker extends SwingWorker<Void, Void> {
         private final AtomicInteger referenceSetID = new AtomicInteger();
         private final AtomicLong hashCount = new AtomicLong();
         private final AtomicBoolean importSuccess = new AtomicBoolean();
+        private final AtomicLong hashesPerSecond = new AtomicLong();
+        private final CountDownLatch importFinished = new CountDownLatch(1);
+        private volatile HashSetImportCheckpoint checkpoint = null;
 
         CentralRepoImportWorker(String hashSetName, String version, int orgId,
                 boolean searchDuringIngest, boolean sendIngestMessages, HashDbManager.HashDb.KnownFilesType knownFilesType,
@@ -190,7 +230,7 @@ synchronized HashDbManager.CentralRepoHashSet getDatabase() {
         }
 
         /**
-         * Get the number of hashes that have been read in so far
+         * Get the number of hashes that have been written so far
          *
          * @return current hash count
          */
@@ -198,6 +238,16 @@ long getNumHashesProcessed() {
             return hashCount.get();
         }
 
+        /**
+         * Get the number of hashes written to the central repository per
+         * second since the import started
+         *
+         * @return the throughput, or 0 if nothing has been written yet
+         */
+        long getHashesPerSecond() {
+            return hashesPerSecond.get();
+        }
+
         /**
          * Check if the import was successful or if there was an error.
          *
@@ -210,6 +260,15 @@ boolean getImportSuccess() {
 
         @Override
         protected Void doInBackground() throws Exception {
+            try {
+                importHashSet();
+                return null;
+            } finally {
+                importFinished.countDown();
+            }
+        }
+
+        private void importHashSet() throws Exception {
 
             // Create the hash set parser
             HashSetParser hashSetParser;
@@ -226,6 +285,10 @@ protected Void doInBackground() throws Exception {
                 throw new TskCoreException("Hash set to import is an unknown format : " + importFileName);
             }
 
+            EamDb dbManager = EamDb.getInstance();
+            CorrelationAttribute.Type contentType = null;
+            boolean bulkImport = false;
+            ExecutorService writers = null;
             try {
                 // Conver to the FileKnown enum used by EamGlobalSet
                 TskData.FileKnown knownStatus;
@@ -235,59 +298,230 @@ protected Void doInBackground() throws Exception {
                     knownStatus = TskData.FileKnown.BAD;
                 }
 
-                // Create an empty hashset in the central repository
-                EamDb dbManager = EamDb.getInstance();
-                referenceSetID.set(dbManager.newReferenceSet(new EamGlobalSet(orgId, hashSetName, version, knownStatus, 
-                        readOnly, EamDb.getInstance().getCorrelationTypeById(CorrelationAttribute.FILES_TYPE_ID))));
+                // Resume an interrupted import of this file, or create an empty
+                // hashset in the central repository
+                long hashesToSkip = 0;
+                HashSetImportCheckpoint resumedCheckpoint = HashSetImportCheckpoint.find(hashSetName, version, importFileName);
+                if (resumedCheckpoint != null) {
+                    referenceSetID.set(resumedCheckpoint.getReferenceSetId());
+                    hashesToSkip = resumedCheckpoint.getHashesCommitted();
+                    checkpoint = resumedCheckpoint;
+                    logger.log(Level.INFO, "Resuming import of {0} into reference set {1} after {2} hashes", //NON-NLS
+                            new Object[]{importFileName, referenceSetID.get(), hashesToSkip});
+                } else {
+                    referenceSetID.set(dbManager.newReferenceSet(new EamGlobalSet(orgId, hashSetName, version, knownStatus,
+                            readOnly, EamDb.getInstance().getCorrelationTypeById(CorrelationAttribute.FILES_TYPE_ID))));
+                    HashSetImportCheckpoint newCheckpoint = HashSetImportCheckpoint.create(referenceSetID.get(), hashSetName, version, importFileName);
+                    newCheckpoint.save();
+                    checkpoint = newCheckpoint;
+                }
+                hashCount.set(hashesToSkip);
 
                 // Get the "FILES" content type. This is a database lookup so we
                 // only want to do it once.
-                CorrelationAttribute.Type contentType = dbManager.getCorrelationTypeById(CorrelationAttribute.FILES_TYPE_ID);
+                contentType = dbManager.getCorrelationTypeById(CorrelationAttribute.FILES_TYPE_ID);
+                if (hashSetParser.getExpectedHashCount() >= BULK_IMPORT_THRESHOLD) {
+                    dbManager.startBulkReferenceImport(contentType);
+                    bulkImport = true;
+                }
 
-                // Holds the current batch of hashes that need to be written to the central repo
-                Set<EamGlobalFileInstance> globalInstances = new HashSet<>();
+                int writerCount = EamDbPlatformEnum.getSelectedPlatform() == EamDbPlatformEnum.SQLITE ? 1 : WRITER_THREADS;
+                writers = Executors.newFixedThreadPool(writerCount,
+                        new ThreadFactoryBuilder().setNameFormat("central-repo-hash-import-%d").setDaemon(true).build()); //NON-NLS
+                BatchWriter batchWriter = new BatchWriter(dbManager, knownStatus, contentType, hashesToSkip, hashSetParser.getExpectedHashCount(), writerCount * BATCHES_PER_WRITER);
 
+                // Parse the file on this thread, handing each batch of hashes
+                // to the writers
+                long hashesRead = 0;
+                List<String> batch = new ArrayList<>(HASH_IMPORT_THRESHOLD);
                 while (!hashSetParser.doneReading()) {
                     if (isCancelled()) {
-                        return null;
+                        return;
                     }
+                    batchWriter.checkForError();
 
                     String newHash = hashSetParser.getNextHash();
 
                     if (newHash != null) {
-                        EamGlobalFileInstance eamGlobalFileInstance = new EamGlobalFileInstance(
-                                referenceSetID.get(),
-                                newHash,
-                                knownStatus,
-                                "");
-
-                        globalInstances.add(eamGlobalFileInstance);
+                        hashesRead++;
+                        if (hashesRead <= hashesToSkip) {
+                            // Already written before the import was interrupted
+                            continue;
+                        }
+                        batch.add(newHash);
 
                         // If we've hit the threshold for writing the hashes, write them
                         // all to the central repo
-                        if (hashCount.incrementAndGet() % HASH_IMPORT_THRESHOLD == 0) {
-                            dbManager.bulkInsertReferenceTypeEntries(globalInstances, contentType);
-                            globalInstances.clear();
-
-                            int progress = (int) (hashCount.get() * 100 / hashSetParser.getExpectedHashCount());
-                            if (progress < 100) {
-                                this.setProgress(progress);
-                            } else {
-                                this.setProgress(99);
-                            }
+                        if (batch.size() == HASH_IMPORT_THRESHOLD) {
+                            batchWriter.submit(writers, batch);
+                            batch = new ArrayList<>(HASH_IMPORT_THRESHOLD);
                         }
                     }
                 }
 
                 // Add any remaining hashes to the central repo
-                dbManager.bulkInsertReferenceTypeEntries(globalInstances, contentType);
+                if (!batch.isEmpty()) {
+                    batchWriter.submit(writers, batch);
+                }
+                writers.shutdown();
+                awaitWriters(writers);
+                batchWriter.checkForError();
+                if (isCancelled()) {
+                    return;
+                }
+                logger.log(Level.INFO, "Imported {0} hashes from {1} into reference set {2} at {3} hashes/second", //NON-NLS
+                        new Object[]{hashCount.get() - hashesToSkip, importFileName, referenceSetID.get(), hashesPerSecond.get()});
                 this.setProgress(100);
-                return null;
             } finally {
+                if (writers != null) {
+                    writers.shutdown();
+                    awaitWriters(writers);
+                }
+                if (bulkImport) {
+                    try {
+                        dbManager.finishBulkReferenceImport(contentType);
+                    } catch (EamDbException ex) {
+                        logger.log(Level.SEVERE, "Error finishing bulk import into central repository", ex); //NON-NLS
+                    }
+                }
                 hashSetParser.close();
             }
         }
 
+        /**
+         * Waits for the batches already handed to the writers to be written,
+         * even if this thread is interrupted by canceling the import, so that
+         * nothing is written to the reference set after the import ends.
+         *
+         * @param writers The writer thread pool, which must have been shut
+         *                down.
+         */
+        private void awaitWriters(ExecutorService writers) {
+            boolean interrupted = false;
+            while (!writers.isTerminated()) {
+                try {
+                    writers.awaitTermination(1, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Writes batches of hashes to the central repository on the writer
+         * threads and tracks how many hashes from the start of the file have
+         * been written, for the progress bar and the checkpoint.
+         */
+        private final class BatchWriter {
+
+            private final EamDb dbManager;
+            private final TskData.FileKnown knownStatus;
+            private final CorrelationAttribute.Type contentType;
+            private final long expectedHashCount;
+            private final Semaphore batchesInFlight;
+            private final long startTime = System.nanoTime();
+            private final long firstHash;
+            private long nextBatchStart;
+            private final AtomicReference<Exception> error = new AtomicReference<>();
+            private final Map<Long, Integer> pendingBatches = new HashMap<>(); // start -> size of batches written out of order
+            private long hashesCommitted;
+
+            BatchWriter(EamDb dbManager, TskData.FileKnown knownStatus, CorrelationAttribute.Type contentType,
+                    long firstHash, long expectedHashCount, int maxBatchesInFlight) {
+                this.dbManager = dbManager;
+                this.knownStatus = knownStatus;
+                this.contentType = contentType;
+                this.firstHash = firstHash;
+                this.nextBatchStart = firstHash;
+                this.hashesCommitted = firstHash;
+                this.expectedHashCount = Math.max(1, expectedHashCount);
+                this.batchesInFlight = new Semaphore(maxBatchesInFlight);
+            }
+
+            /**
+             * Hands a batch to the writers, waiting if too many batches are
+             * already waiting to be written. Called from the worker thread.
+             *
+             * @param writers The writer thread pool.
+             * @param hashes  The hashes, in the order they were read.
+             *
+             * @throws InterruptedException If the import is canceled while
+             *                              waiting.
+             */
+            void submit(ExecutorService writers, List<String> hashes) throws InterruptedException {
+                batchesInFlight.acquire();
+                final long batchStart = nextBatchStart;
+                nextBatchStart += hashes.size();
+                writers.execute(() -> {
+                    try {
+                        if (isCancelled() || error.get() != null) {
+                            return;
+                        }
+                        Set<EamGlobalFileInstance> globalInstances = new HashSet<>();
+                        for (String hash : hashes) {
+                            globalInstances.add(new EamGlobalFileInstance(referenceSetID.get(), hash, knownStatus, ""));
+                        }
+                        dbManager.bulkInsertReferenceTypeEntries(globalInstances, contentType);
+                        batchWritten(batchStart, hashes.size());
+                    } catch (EamDbException | RuntimeException ex) {
+                        error.compareAndSet(null, ex);
+                    } finally {
+                        batchesInFlight.release();
+                    }
+                });
+            }
+
+            /**
+             * Throws the first error from the writers, if there has been one.
+             *
+             * @throws Exception The error.
+             */
+            void checkForError() throws Exception {
+                Exception ex = error.get();
+                if (ex != null) {
+                    throw ex;
+                }
+            }
+
+            private synchronized void batchWritten(long batchStart, int batchSize) {
+                pendingBatches.put(batchStart, batchSize);
+                Integer size;
+                long committed = hashesCommitted;
+                while ((size = pendingBatches.remove(committed)) != null) {
+                    committed += size;
+                }
+                if (committed == hashesCommitted) {
+                    return;
+                }
+                hashesCommitted = committed;
+                hashCount.set(committed);
+
+                double seconds = (System.nanoTime() - startTime) / 1.0e9;
+                if (seconds > 0) {
+                    hashesPerSecond.set((long) ((committed - firstHash) / seconds));
+                }
+                if (!isCancelled()) {
+                    HashSetImportCheckpoint currentCheckpoint = checkpoint;
+                    currentCheckpoint.setHashesCommitted(committed);
+                    try {
+                        currentCheckpoint.save();
+                    } catch (IOException ex) {
+                        logger.log(Level.WARNING, "Unable to save hash set import checkpoint", ex); //NON-NLS
+                    }
+                }
+
+                int progress = (int) (committed * 100 / expectedHashCount);
+                if (progress < 100) {
+                    setProgress(progress);
+                } else {
+                    setProgress(99);
+                }
+            }
+        }
+
         private void deleteIncompleteSet() {
             if (referenceSetID.get() >= 0) {
 
@@ -296,9 +530,17 @@ private void deleteIncompleteSet() {
                     @Override
                     public void run() {
                         try {
+                            // Wait for the import to stop writing to the set
+                            importFinished.await();
+                            HashSetImportCheckpoint currentCheckpoint = checkpoint;
+                            if (currentCheckpoint != null) {
+                                currentCheckpoint.delete();
+                            }
                             EamDb.getInstance().deleteReferenceSet(referenceSetID.get());
                         } catch (EamDbException ex2) {
-                            Logger.getLogger(ImportCentralRepoDbProgressDialog.class.getName()).log(Level.SEVERE, "Error deleting incomplete hash set from central repository", ex2);
+                            logger.log(Level.SEVERE, "Error deleting incomplete hash set from central repository", ex2);
+                        } catch (InterruptedException ex2) {
+                            Thread.currentThread().interrupt();
                         }
                     }
                 });
@@ -316,18 +558,22 @@ synchronized protected void done() {
 
             try {
                 get();
+                HashSetImportCheckpoint currentCheckpoint = checkpoint;
+                if (currentCheckpoint != null) {
+                    currentCheckpoint.delete();
+                }
                 try {
                     newHashDb = HashDbManager.getInstance().addExistingCentralRepoHashSet(hashSetName, version,
                             referenceSetID.get(),
                             searchDuringIngest, sendIngestMessages, knownFilesType, readOnly);
                     importSuccess.set(true);
                 } catch (TskCoreException ex) {
-                    Logger.getLogger(ImportCentralRepoDbProgressDialog.class.getName()).log(Level.SEVERE, "Error adding imported hash set", ex);
+                    logger.log(Level.SEVERE, "Error adding imported hash set", ex);
                 }
             } catch (Exception ex) {
                 // Delete this incomplete hash set from the central repo
                 deleteIncompleteSet();
-                Logger.getLogger(ImportCentralRepoDbProgressDialog.class.getName()).log(Level.SEVERE, "Error importing hash set", ex);
+                logger.log(Level.SEVERE, "Error importing hash set", ex);
             }
         }
 
@@ -0,0 +1,502 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.modules.hashdatabase;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.commons.io.FileUtils;
+import org.sleuthkit.autopsy.coreutils.Logger;
+import org.sleuthkit.autopsy.coreutils.PlatformUtil;
+import org.sleuthkit.datamodel.TskCoreException;
+
+/**
+ * A lookup index of the MD5 hashes in a hash set that is read through a memory
+ * map instead of through The Sleuth Kit, so that looking up a hash does not
+ * need a native call or any locking.
+ *
+ * The index is compiled from the hash set (its .kdb database, or the .idx index
+ * The Sleuth Kit made for it, or an EnCase hash set) into a file of the sorted,
+ * distinct hashes as 16 byte big-endian records after a fixed size header. The
+ * file is saved in the user config directory under a name derived from the
+ * path, size and modification time of its source, so a hash set that changes
+ * is compiled again. Since MD5 hashes are uniformly distributed, lookups use
+ * interpolation search on the first eight bytes of the hashes, which touches
+ * only a few pages of the file for sets of any size.
+ */
+@ThreadSafe
+final class MappedHashSetIndex {
+
+    private static final Logger logger = Logger.getLogger(MappedHashSetIndex.class.getName());
+    private static final String INDEX_DIRECTORY = "hash_set_lookup_indexes"; //NON-NLS
+    private static final String INDEX_FILE_EXTENSION = ".md5s"; //NON-NLS
+    private static final String INDEX_FILE_UUID_REGEX = "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}"; //NON-NLS
+    private static final long MAGIC = 0x4155544f4d443553L; // "AUTOMD5S"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_LENGTH = 32;
+    private static final int RECORD_LENGTH = 16;
+    /*
+     * The records are mapped in segments of 2^SEGMENT_SHIFT records (1 GiB),
+     * since a single mapping cannot be larger than 2 GiB.
+     */
+    private static final int SEGMENT_SHIFT = 26;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    /*
+     * When compiling, the hashes are first distributed over bucket files by
+     * their first byte, so that each bucket can be sorted in memory and the
+     * sorted buckets concatenated.
+     */
+    private static final int BUCKETS = 256;
+    private static final int BUCKET_BUFFER_LENGTH = 64 * 1024;
+    private static final int MAX_INTERPOLATION_PROBES = 4;
+    private static final int BINARY_SEARCH_THRESHOLD = 64;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private final long count;
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Opens the lookup index of a hash set, compiling it first if it has not
+     * been compiled for the current contents of the hash set.
+     *
+     * @param hashSetName  The name of the hash set, for naming the index file.
+     * @param databasePath The path of the hash set database.
+     * @param indexPath    The path of the index The Sleuth Kit made for the
+     *                     hash set.
+     *
+     * @return The lookup index.
+     *
+     * @throws IOException      If the index cannot be compiled or opened.
+     * @throws TskCoreException If the hash set cannot be read.
+     */
+    static MappedHashSetIndex load(String hashSetName, String databasePath, String indexPath) throws IOException, TskCoreException {
+        Path sourcePath;
+        if (databasePath != null && databasePath.toLowerCase().endsWith(".kdb")) {
+            sourcePath = Paths.get(databasePath);
+        } else if (indexPath != null && indexPath.toLowerCase().endsWith(".idx") && Files.isRegularFile(Paths.get(indexPath))) {
+            sourcePath = Paths.get(indexPath);
+        } else if (databasePath != null && databasePath.toLowerCase().endsWith(".hash")) {
+            sourcePath = Paths.get(databasePath);
+        } else {
+            throw new TskCoreException("Hash set " + hashSetName + " has no source a lookup index can be compiled from"); //NON-NLS
+        }
+
+        Path indexDirectory = Paths.get(PlatformUtil.getUserConfigDirectory(), INDEX_DIRECTORY);
+        Files.createDirectories(indexDirectory);
+        String sourceId = sourcePath.toAbsolutePath() + "|" + Files.size(sourcePath) + "|" + Files.getLastModifiedTime(sourcePath).toMillis();
+        String baseName = hashSetName.replaceAll("[^A-Za-z0-9._-]", "_"); //NON-NLS
+        Path indexFile = indexDirectory.resolve(baseName + "_" + UUID.nameUUIDFromBytes(sourceId.getBytes(StandardCharsets.UTF_8)) + INDEX_FILE_EXTENSION);
+
+        if (Files.isRegularFile(indexFile)) {
+            try {
+                return new MappedHashSetIndex(indexFile);
+            } catch (IOException ex) {
+                logger.log(Level.WARNING, "Lookup index " + indexFile + " is not valid, compiling it again", ex); //NON-NLS
+            }
+        }
+
+        HashSetParser parser;
+        String sourceName = sourcePath.toString();
+        if (sourceName.toLowerCase().endsWith(".kdb")) {
+            parser = new KdbHashSetParser(sourceName);
+        } else if (sourceName.toLowerCase().endsWith(".idx")) {
+            parser = new IdxHashSetParser(sourceName);
+        } else {
+            parser = new EncaseHashSetParser(sourceName);
+        }
+        try {
+            compile(parser, indexFile);
+        } finally {
+            parser.close();
+        }
+        deleteOtherIndexes(indexDirectory, baseName, indexFile);
+        return new MappedHashSetIndex(indexFile);
+    }
+
+    /**
+     * Maps a compiled lookup index.
+     *
+     * @param indexFile The index file.
+     *
+     * @throws IOException If the file cannot be mapped or is not a valid
+     *                     index.
+     */
+    private MappedHashSetIndex(Path indexFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_LENGTH) {
+                throw new IOException("Not a hash set lookup index: " + indexFile); //NON-NLS
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_LENGTH);
+            if (header.getLong() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                throw new IOException("Not a hash set lookup index: " + indexFile); //NON-NLS
+            }
+            header.getInt();
+            count = header.getLong();
+            if (count < 0 || channel.size() != HEADER_LENGTH + count * RECORD_LENGTH) {
+                throw new IOException("Truncated hash set lookup index: " + indexFile); //NON-NLS
+            }
+            int segmentCount = (int) ((count + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+            segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long firstRecord = (long) i << SEGMENT_SHIFT;
+                long records = Math.min(count - firstRecord, 1L << SEGMENT_SHIFT);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH + firstRecord * RECORD_LENGTH, records * RECORD_LENGTH);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of distinct hashes in the index.
+     *
+     * @return The number of hashes.
+     */
+    long size() {
+        return count;
+    }
+
+    /**
+     * Determines whether a hash is in the index.
+     *
+     * @param md5Hash The MD5 hash, as 32 hex digits.
+     *
+     * @return True if the hash is in the index, false if it is not or is not
+     *         a valid MD5 hash.
+     */
+    boolean contains(String md5Hash) {
+        if (!isValidHash(md5Hash)) {
+            return false;
+        }
+        return search(parseHex(md5Hash, 0), parseHex(md5Hash, 16), 0, count - 1) >= 0;
+    }
+
+    /**
+     * Determines which of a batch of hashes are in the index. The hashes are
+     * looked up in sorted order, so that each search starts where the
+     * previous one ended and the index is read front to back.
+     *
+     * @param md5Hashes The MD5 hashes, as 32 hex digits.
+     *
+     * @return For each hash, true if it is in the index, false if it is not
+     *         or is not a valid MD5 hash.
+     */
+    boolean[] containsAll(List<String> md5Hashes) {
+        int batchSize = md5Hashes.size();
+        boolean[] found = new boolean[batchSize];
+        long[] highs = new long[batchSize];
+        long[] lows = new long[batchSize];
+        Integer[] order = new Integer[batchSize];
+        int validCount = 0;
+        for (int i = 0; i < batchSize; i++) {
+            String md5Hash = md5Hashes.get(i);
+            if (isValidHash(md5Hash)) {
+                highs[i] = parseHex(md5Hash, 0);
+                lows[i] = parseHex(md5Hash, 16);
+                order[validCount++] = i;
+            }
+        }
+        Arrays.sort(order, 0, validCount, (a, b) -> compare(highs[a], lows[a], highs[b], lows[b]));
+        long start = 0;
+        for (int i = 0; i < validCount && start < count; i++) {
+            int hash = order[i];
+            long result = search(highs[hash], lows[hash], start, count - 1);
+            if (result >= 0) {
+                found[hash] = true;
+                start = result;
+            } else {
+                start = -(result + 1);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Searches a range of the records for a hash.
+     *
+     * @return The index of the record if the hash is found, otherwise
+     *         -(insertion point + 1).
+     */
+    private long search(long high, long low, long first, long last) {
+        int probes = 0;
+        while (first <= last) {
+            long firstHigh = highAt(first);
+            long lastHigh = highAt(last);
+            if (Long.compareUnsigned(high, firstHigh) < 0) {
+                return -(first + 1);
+            }
+            if (Long.compareUnsigned(high, lastHigh) > 0) {
+                return -(last + 2);
+            }
+            long middle;
+            if (probes < MAX_INTERPOLATION_PROBES && last - first > BINARY_SEARCH_THRESHOLD && firstHigh != lastHigh) {
+                double fraction = (toUnsignedDouble(high) - toUnsignedDouble(firstHigh)) / (toUnsignedDouble(lastHigh) - toUnsignedDouble(firstHigh));
+                middle = first + (long) (fraction * (last - first));
+                middle = Math.max(first, Math.min(last, middle));
+                probes++;
+            } else {
+                middle = (first + last) >>> 1;
+            }
+            int comparison = compare(highAt(middle), lowAt(middle), high, low);
+            if (comparison < 0) {
+                first = middle + 1;
+            } else if (comparison > 0) {
+                last = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(first + 1);
+    }
+
+    private long highAt(long record) {
+        return segments[(int) (record >>> SEGMENT_SHIFT)].getLong((int) ((record & SEGMENT_MASK) * RECORD_LENGTH));
+    }
+
+    private long lowAt(long record) {
+        return segments[(int) (record >>> SEGMENT_SHIFT)].getLong((int) ((record & SEGMENT_MASK) * RECORD_LENGTH) + 8);
+    }
+
+    /**
+     * Compiles the hashes read by a parser into an index file.
+     *
+     * @param parser    The parser.
+     * @param indexFile The index file.
+     */
+    private static void compile(HashSetParser parser, Path indexFile) throws IOException, TskCoreException {
+        Path workDirectory = Files.createTempDirectory(indexFile.getParent(), "compile"); //NON-NLS
+        try {
+            long[] bucketCounts = new long[BUCKETS];
+            DataOutputStream[] buckets = new DataOutputStream[BUCKETS];
+            try {
+                while (!parser.doneReading()) {
+                    String md5Hash = parser.getNextHash();
+                    if (md5Hash == null || !isValidHash(md5Hash)) {
+                        continue;
+                    }
+                    long high = parseHex(md5Hash, 0);
+                    int bucket = (int) (high >>> 56);
+                    if (buckets[bucket] == null) {
+                        buckets[bucket] = new DataOutputStream(new BufferedOutputStream(
+                                Files.newOutputStream(workDirectory.resolve(Integer.toString(bucket))), BUCKET_BUFFER_LENGTH));
+                    }
+                    buckets[bucket].writeLong(high);
+                    buckets[bucket].writeLong(parseHex(md5Hash, 16));
+                    bucketCounts[bucket]++;
+                }
+            } finally {
+                for (DataOutputStream bucket : buckets) {
+                    if (bucket != null) {
+                        bucket.close();
+                    }
+                }
+            }
+
+            Path compiledFile = workDirectory.resolve("index"); //NON-NLS
+            long total = 0;
+            try (FileChannel channel = FileChannel.open(compiledFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                channel.position(HEADER_LENGTH);
+                for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                    if (bucketCounts[bucket] == 0) {
+                        continue;
+                    }
+                    if (bucketCounts[bucket] > Integer.MAX_VALUE / 2) {
+                        throw new IOException("Too many hashes in hash set to compile a lookup index"); //NON-NLS
+                    }
+                    int length = (int) bucketCounts[bucket];
+                    long[] highs = new long[length];
+                    long[] lows = new long[length];
+                    Path bucketFile = workDirectory.resolve(Integer.toString(bucket));
+                    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(bucketFile), BUCKET_BUFFER_LENGTH))) {
+                        for (int i = 0; i < length; i++) {
+                            highs[i] = in.readLong();
+                            lows[i] = in.readLong();
+                        }
+                    }
+                    Files.delete(bucketFile);
+                    sort(highs, lows, 0, length);
+                    ByteBuffer out = ByteBuffer.allocate(BUCKET_BUFFER_LENGTH);
+                    for (int i = 0; i < length; i++) {
+                        if (i > 0 && highs[i] == highs[i - 1] && lows[i] == lows[i - 1]) {
+                            continue;
+                        }
+                        if (!out.hasRemaining()) {
+                            writeFully(channel, out);
+                        }
+                        out.putLong(highs[i]);
+                        out.putLong(lows[i]);
+                        total++;
+                    }
+                    writeFully(channel, out);
+                }
+                ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+                header.putLong(MAGIC);
+                header.putInt(FORMAT_VERSION);
+                header.putInt(0);
+                header.putLong(total);
+                header.position(HEADER_LENGTH);
+                channel.position(0);
+                writeFully(channel, header);
+                channel.force(true);
+            }
+            Files.move(compiledFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            logger.log(Level.INFO, "Compiled hash set lookup index {0} with {1} hashes", new Object[]{indexFile, total}); //NON-NLS
+        } finally {
+            FileUtils.deleteQuietly(workDirectory.toFile());
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Deletes the indexes compiled from earlier versions of a hash set. Only
+     * files named with the base name of the hash set followed by a source id
+     * UUID are deleted, so that the indexes of other hash sets whose names
+     * start with the same base name are left alone. An index that is still
+     * mapped may not be deletable until it is unmapped; it will be deleted the
+     * next time.
+     */
+    private static void deleteOtherIndexes(Path indexDirectory, String baseName, Path keep) {
+        Pattern indexFileName = Pattern.compile(Pattern.quote(baseName + "_") + INDEX_FILE_UUID_REGEX + Pattern.quote(INDEX_FILE_EXTENSION));
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(indexDirectory, file -> indexFileName.matcher(file.getFileName().toString()).matches())) {
+            for (Path file : stream) {
+                if (!file.equals(keep)) {
+                    try {
+                        Files.delete(file);
+                    } catch (IOException ex) {
+                        logger.log(Level.INFO, "Could not delete old hash set lookup index " + file, ex); //NON-NLS
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Could not list hash set lookup indexes in " + indexDirectory, ex); //NON-NLS
+        }
+    }
+
+    /**
+     * Sorts records by unsigned comparison with a three-way partitioning
+     * quicksort, which also handles many duplicate hashes well.
+     */
+    private static void sort(long[] highs, long[] lows, int from, int to) {
+        while (to - from > INSERTION_SORT_THRESHOLD) {
+            int middle = (from + to) >>> 1;
+            int pivot = medianOfThree(highs, lows, from, middle, to - 1);
+            long pivotHigh = highs[pivot];
+            long pivotLow = lows[pivot];
+            int less = from;
+            int i = from;
+            int greater = to - 1;
+            while (i <= greater) {
+                int comparison = compare(highs[i], lows[i], pivotHigh, pivotLow);
+                if (comparison < 0) {
+                    swap(highs, lows, less++, i++);
+                } else if (comparison > 0) {
+                    swap(highs, lows, i, greater--);
+                } else {
+                    i++;
+                }
+            }
+            if (less - from < to - greater - 1) {
+                sort(highs, lows, from, less);
+                from = greater + 1;
+            } else {
+                sort(highs, lows, greater + 1, to);
+                to = less;
+            }
+        }
+        for (int i = from + 1; i < to; i++) {
+            for (int j = i; j > from && compare(highs[j - 1], lows[j - 1], highs[j], lows[j]) > 0; j--) {
+                swap(highs, lows, j - 1, j);
+            }
+        }
+    }
+
+    private static int medianOfThree(long[] highs, long[] lows, int a, int b, int c) {
+        if (compare(highs[a], lows[a], highs[b], lows[b]) < 0) {
+            if (compare(highs[b], lows[b], highs[c], lows[c]) < 0) {
+                return b;
+            }
+            return compare(highs[a], lows[a], highs[c], lows[c]) < 0 ? c : a;
+        }
+        if (compare(highs[a], lows[a], highs[c], lows[c]) < 0) {
+            return a;
+        }
+        return compare(highs[b], lows[b], highs[c], lows[c]) < 0 ? c : b;
+    }
+
+    private static void swap(long[] highs, long[] lows, int i, int j) {
+        long high = highs[i];
+        highs[i] = highs[j];
+        highs[j] = high;
+        long low = lows[i];
+        lows[i] = lows[j];
+        lows[j] = low;
+    }
+
+    private static int compare(long high1, long low1, long high2, long low2) {
+        int comparison = Long.compareUnsigned(high1, high2);
+        return (comparison != 0) ? comparison : Long.compareUnsigned(low1, low2);
+    }
+
+    private static double toUnsignedDouble(long value) {
+        return (double) (value >>> 1) * 2.0;
+    }
+
+    private static boolean isValidHash(String md5Hash) {
+        if (md5Hash == null || md5Hash.length() != 32) {
+            return false;
+        }
+        for (int i = 0; i < 32; i++) {
+            if (Character.digit(md5Hash.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseHex(String md5Hash, int start) {
+        long value = 0;
+        for (int i = start; i < start + 16; i++) {
+            value = (value << 4) | Character.digit(md5Hash.charAt(i), 16);
+        }
+        return value;
+    }
+}
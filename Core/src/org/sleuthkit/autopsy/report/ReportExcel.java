@@ -23,8 +23,10 @@
 import java.text.SimpleDateFormat;
 import java.util.List;
 import java.util.logging.Level;
+import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.openide.util.NbBundle;
 import org.sleuthkit.autopsy.casemodule.Case;
 import org.sleuthkit.autopsy.casemodule.NoCurrentCaseException;
@@ -36,9 +38,16 @@ class ReportExcel implements TableReportModule {
     private static final Logger logger = Logger.getLogger(ReportExcel.class.getName());
     private static ReportExcel instance;
     private static final int EXCEL_CELL_MAXIMUM_SIZE = 36767; //Specified at:https://poi.apache.org/apidocs/org/apache/poi/ss/SpreadsheetVersion.html
+    private static final int EXCEL_MAXIMUM_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+    private static final int EXCEL_SHEET_NAME_MAXIMUM_LENGTH = 31;
+    // The number of rows kept in memory; older rows are flushed to a temp file.
+    private static final int ROW_ACCESS_WINDOW_SIZE = 100;
 
-    private Workbook wb;
+    private SXSSFWorkbook wb;
     private Sheet sheet;
+    private String sheetName;
+    private int sheetCount;
+    private List<String> tableTitles;
     private CellStyle titleStyle;
     private CellStyle setStyle;
     private CellStyle elementStyle;
@@ -69,8 +78,10 @@ public void startReport(String baseReportDir) {
         // Set the path and save it for when the report is written to disk.
         this.reportPath = baseReportDir + getRelativeFilePath();
  
-        // Make a workbook.
-        wb = new XSSFWorkbook();
+        // Make a workbook that streams rows to temp files as they are
+        // added, so that the size of the report is not limited by the heap.
+        wb = new SXSSFWorkbook(ROW_ACCESS_WINDOW_SIZE);
+        wb.setCompressTempFiles(true);
 
         // Create some cell styles.
         // TODO: The commented out cell style settings below do not work as desired when
@@ -129,6 +140,8 @@ public void endReport() {
                 } catch (IOException ex) {
                 }
             }
+            // Delete the temp files the rows were streamed to.
+            wb.dispose();
         }
     }
 
@@ -143,9 +156,10 @@ public void endReport() {
     public void startDataType(String name, String description) {
         // Create a worksheet for the data type (assumed to be an artifact type).
         name = escapeForExcel(name);
-        sheet = wb.createSheet(name);
-        sheet.setAutobreaks(true);
-        rowIndex = 0;
+        sheetName = name;
+        sheetCount = 1;
+        tableTitles = null;
+        createSheet(name);
 
         // There will be at least two columns, one each for the artifacts count and its label.
         sheetColCount = 2;
@@ -157,9 +171,7 @@ public void startDataType(String name, String description) {
     @Override
     public void endDataType() {
         // Now that the sheet is complete, size the columns to the content.
-        for (int i = 0; i < sheetColCount; ++i) {
-            sheet.autoSizeColumn(i);
-        }
+        autoSizeColumns();
     }
 
     /**
@@ -170,7 +182,7 @@ public void endDataType() {
     @Override
     public void startSet(String setName) {
         setName = escapeForExcel(setName);
-        Row row = sheet.createRow(rowIndex);
+        Row row = createRow();
         row.setRowStyle(setStyle);
         row.createCell(0).setCellValue(setName);
         ++rowIndex;
@@ -182,7 +194,7 @@ public void startSet(String setName) {
     @Override
     public void endSet() {
         // Add an empty row as a separator.
-        sheet.createRow(rowIndex);
+        createRow();
         ++rowIndex;
     }
 
@@ -199,7 +211,7 @@ public void addSetIndex(List<String> sets) {
     @Override
     public void addSetElement(String elementName) {
         elementName = escapeForExcel(elementName);
-        Row row = sheet.createRow(rowIndex);
+        Row row = createRow();
         row.setRowStyle(elementStyle);
         row.createCell(0).setCellValue(elementName);
         ++rowIndex;
@@ -213,7 +225,8 @@ public void addSetElement(String elementName) {
     @Override
     public void startTable(List<String> titles) {
         int tableColCount = 0;
-        Row row = sheet.createRow(rowIndex);
+        Row row = createRow();
+        tableTitles = titles;
         row.setRowStyle(titleStyle);
         for (int i = 0; i < titles.size(); i++) {
             row.createCell(i).setCellValue(titles.get(i));
@@ -229,8 +242,9 @@ public void startTable(List<String> titles) {
 
     @Override
     public void endTable() {
+        tableTitles = null;
         // Add an empty row as a separator.
-        sheet.createRow(rowIndex);
+        createRow();
         ++rowIndex;
     }
 
@@ -246,7 +260,7 @@ public void endTable() {
     })
 
     public void addRow(List<String> rowData) {
-        Row row = sheet.createRow(rowIndex);
+        Row row = createRow();
         for (int i = 0; i < rowData.size(); ++i) {
             Cell excelCell = row.createCell(i);
             try {
@@ -302,6 +316,57 @@ private static String escapeForExcel(String text) {
         return text.replaceAll("[\\/\\:\\?\\*\\\\]", "_");
     }
 
+    /**
+     * Create a new worksheet and make it the current sheet.
+     *
+     * @param name The name of the sheet.
+     */
+    private void createSheet(String name) {
+        sheet = wb.createSheet(name);
+        sheet.setAutobreaks(true);
+        // Column widths have to be tracked as rows are added, since the rows
+        // are flushed from memory before the columns are sized.
+        ((SXSSFSheet) sheet).trackAllColumnsForAutoSizing();
+        rowIndex = 0;
+    }
+
+    /**
+     * Create a row at the current row index. If the current sheet is full, the
+     * data type is continued on a new sheet, starting with the titles of the
+     * current table, if any.
+     *
+     * @return The row.
+     */
+    private Row createRow() {
+        if (rowIndex >= EXCEL_MAXIMUM_ROWS) {
+            autoSizeColumns();
+            ++sheetCount;
+            String suffix = " (" + sheetCount + ")";
+            String baseName = sheetName.length() + suffix.length() > EXCEL_SHEET_NAME_MAXIMUM_LENGTH
+                    ? sheetName.substring(0, EXCEL_SHEET_NAME_MAXIMUM_LENGTH - suffix.length())
+                    : sheetName;
+            createSheet(baseName + suffix);
+            if (tableTitles != null) {
+                Row titleRow = sheet.createRow(rowIndex);
+                titleRow.setRowStyle(titleStyle);
+                for (int i = 0; i < tableTitles.size(); i++) {
+                    titleRow.createCell(i).setCellValue(tableTitles.get(i));
+                }
+                ++rowIndex;
+            }
+        }
+        return sheet.createRow(rowIndex);
+    }
+
+    /**
+     * Size the columns of the current sheet to their content.
+     */
+    private void autoSizeColumns() {
+        for (int i = 0; i < sheetColCount; ++i) {
+            sheet.autoSizeColumn(i);
+        }
+    }
+
     private void writeSummaryWorksheet() {
         Case currentCase;
         try {
@@ -310,8 +375,7 @@ private void writeSummaryWorksheet() {
             logger.log(Level.SEVERE, "Exception while getting open case.", ex); //NON-NLS
             return;
         }
-        sheet = wb.createSheet(NbBundle.getMessage(this.getClass(), "ReportExcel.sheetName.text"));
-        rowIndex = 0;
+        createSheet(NbBundle.getMessage(this.getClass(), "ReportExcel.sheetName.text"));
 
         Row row = sheet.createRow(rowIndex);
         row.setRowStyle(setStyle);
@@ -18,9 +18,7 @@
  */
 package org.sleuthkit.autopsy.report;
 
-import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Multimaps;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -36,7 +34,9 @@
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.Consumer;
 import java.util.logging.Level;
+import java.util.stream.Collectors;
 import org.openide.util.NbBundle;
 import org.sleuthkit.autopsy.casemodule.Case;
 import org.sleuthkit.autopsy.casemodule.NoCurrentCaseException;
@@ -53,6 +53,7 @@
 import org.sleuthkit.datamodel.Content;
 import org.sleuthkit.datamodel.ContentTag;
 import org.sleuthkit.datamodel.SleuthkitCase;
+import org.sleuthkit.datamodel.TagName;
 import org.sleuthkit.datamodel.TskCoreException;
 import org.sleuthkit.datamodel.TskData;
 
@@ -66,6 +67,9 @@ class TableReportGenerator {
     private final TableReportModule tableReport;
     private final Map<Integer, List<Column>> columnHeaderMap;
     private static final Logger logger = Logger.getLogger(TableReportGenerator.class.getName());
+    private static final int ARTIFACT_PAGE_SIZE = 1000;
+    private static final String UNKNOWN_ACCOUNT_TYPE = "unknown"; //NON-NLS
+    private Map<Long, TagName> tagNamesById;
 
     private final List<String> errorList;
 
@@ -150,12 +154,6 @@ private void makeBlackboardArtifactTables() {
                 continue;
             }
 
-            List<ArtifactData> artifactList = getFilteredArtifacts(type, tagNamesFilter);
-
-            if (artifactList.isEmpty()) {
-                continue;
-            }
-
             /*
              * TSK_ACCOUNT artifacts get grouped by their TSK_ACCOUNT_TYPE
              * attribute, and then handed off to the standard method for writing
@@ -163,16 +161,7 @@ private void makeBlackboardArtifactTables() {
              */
             if (type.getTypeID() == BlackboardArtifact.ARTIFACT_TYPE.TSK_ACCOUNT.getTypeID()) {
                 //Group account artifacts by their account type
-                ListMultimap<String, ArtifactData> groupedArtifacts = Multimaps.index(artifactList,
-                        artifactData -> {
-                            try {
-                                return artifactData.getArtifact().getAttribute(new BlackboardAttribute.Type(BlackboardAttribute.ATTRIBUTE_TYPE.TSK_ACCOUNT_TYPE)).getValueString();
-                            } catch (TskCoreException ex) {
-                                logger.log(Level.SEVERE, "Unable to get value of TSK_ACCOUNT_TYPE attribute. Defaulting to \"unknown\"", ex);
-                                return "unknown";
-                            }
-                        });
-                for (String accountTypeStr : groupedArtifacts.keySet()) {
+                for (String accountTypeStr : getAccountTypes(type)) {
                     /*
                      * If the report is a ReportHTML, the data type name
                      * eventualy makes it to useDataTypeIcon which expects but
@@ -192,36 +181,50 @@ private void makeBlackboardArtifactTables() {
                     }
 
                     final String compundDataTypeName = BlackboardArtifact.ARTIFACT_TYPE.TSK_ACCOUNT.getDisplayName() + ": " + accountDisplayname;
-                    writeTableForDataType(new ArrayList<>(groupedArtifacts.get(accountTypeStr)), type, compundDataTypeName, comment);
+                    writeTableForDataType(getArtifactsWhereClause(type, accountTypeStr), type, compundDataTypeName, comment);
                 }
+                // Account artifacts without an account type are grouped as unknown
+                writeTableForDataType(getUnknownAccountTypeWhereClause(type), type,
+                        BlackboardArtifact.ARTIFACT_TYPE.TSK_ACCOUNT.getDisplayName() + ": " + UNKNOWN_ACCOUNT_TYPE, comment);
             } else {
                 //all other artifact types are sent to writeTableForDataType directly
-                writeTableForDataType(artifactList, type, type.getDisplayName(), comment);
+                writeTableForDataType(getArtifactsWhereClause(type, null), type, type.getDisplayName(), comment);
             }
         }
     }
 
     /**
      *
-     * Write the given list of artifacts to the table for the given type.
+     * Write the artifacts selected by a where clause to the table for the
+     * given type. The artifacts are read from the case database and written to
+     * the table a page at a time, in order of artifact id, so that the memory
+     * used does not depend on the number of artifacts.
      *
-     * @param artifactList The List of artifacts to include in the table.
-     * @param type         The Type of artifacts included in the table. All the
-     *                     artifacts in artifactList should be of this type.
-     * @param tableName    The name of the table.
-     * @param comment      A comment to put in the header.
+     * @param artifactsWhereClause The conditions on the blackboard_artifacts
+     *                             table that select the artifacts to include
+     *                             in the table.
+     * @param type                 The Type of artifacts included in the table.
+     *                             All the selected artifacts should be of this
+     *                             type.
+     * @param tableName            The name of the table.
+     * @param comment              A comment to put in the header.
      */
-    private void writeTableForDataType(List<ArtifactData> artifactList, BlackboardArtifact.Type type, String tableName, String comment) {
+    private void writeTableForDataType(String artifactsWhereClause, BlackboardArtifact.Type type, String tableName, String comment) {
+        if (artifactsWhereClause == null) {
+            return;
+        }
+
         /*
          * Make a sorted set of all of the attribute types that are on any of
-         * the given artifacts.
+         * the selected artifacts.
          */
         Set<BlackboardAttribute.Type> attrTypeSet = new TreeSet<>(Comparator.comparing(BlackboardAttribute.Type::getDisplayName));
-        for (ArtifactData data : artifactList) {
-            List<BlackboardAttribute> attributes = data.getAttributes();
-            for (BlackboardAttribute attribute : attributes) {
-                attrTypeSet.add(attribute.getAttributeType());
-            }
+        try {
+            attrTypeSet.addAll(getAttributeTypes(artifactsWhereClause));
+        } catch (TskCoreException | NoCurrentCaseException ex) {
+            errorList.add(NbBundle.getMessage(this.getClass(), "ReportGenerator.errList.failedGetBBAttribs"));
+            logger.log(Level.SEVERE, "Failed to get Blackboard Attributes when generating report.", ex); //NON-NLS
+            return;
         }
         /*
          * Get the columns appropriate for the artifact type. This is used to
@@ -235,15 +238,10 @@ private void writeTableForDataType(List<ArtifactData> artifactList, BlackboardAr
         columnHeaderMap.put(type.getTypeID(), columns);
 
         /*
-         * The artifact list is sorted now, as getting the row data is dependent
-         * on having the columns, which is necessary for sorting.
+         * The table is only started once there is an artifact to put in it.
          */
-        Collections.sort(artifactList);
-
-        tableReport.startDataType(tableName, comment);
-        tableReport.startTable(Lists.transform(columns, Column::getColumnHeader));
-
-        for (ArtifactData artifactData : artifactList) {
+        boolean[] tableStarted = {false};
+        forEachArtifact(artifactsWhereClause, type, artifactData -> {
             // Get the row data for this artifact, and has the
             // module add it.
             List<String> rowData = artifactData.getRow();
@@ -251,12 +249,19 @@ private void writeTableForDataType(List<ArtifactData> artifactList, BlackboardAr
                 return;
             }
 
+            if (!tableStarted[0]) {
+                tableReport.startDataType(tableName, comment);
+                tableReport.startTable(Lists.transform(columns, Column::getColumnHeader));
+                tableStarted[0] = true;
+            }
             tableReport.addRow(rowData);
+        });
+        if (tableStarted[0]) {
+            // Finish up this data type
+            progressPanel.increment();
+            tableReport.endTable();
+            tableReport.endDataType();
         }
-        // Finish up this data type
-        progressPanel.increment();
-        tableReport.endTable();
-        tableReport.endDataType();
     }
 
     /**
@@ -839,23 +844,21 @@ List<String> getErrorList() {
      * Container class that holds data about an Artifact to eliminate duplicate
      * calls to the Sleuthkit database.
      */
-    private class ArtifactData implements Comparable<ArtifactData> {
+    private class ArtifactData {
 
         private BlackboardArtifact artifact;
         private List<BlackboardAttribute> attributes;
         private HashSet<String> tags;
+        private HashSet<String> contentTags;
         private List<String> rowData = null;
         private Content content;
 
-        ArtifactData(BlackboardArtifact artifact, List<BlackboardAttribute> attrs, HashSet<String> tags) {
+        ArtifactData(BlackboardArtifact artifact, List<BlackboardAttribute> attrs, HashSet<String> tags, HashSet<String> contentTags, Content content) {
             this.artifact = artifact;
             this.attributes = attrs;
             this.tags = tags;
-            try {
-                this.content = Case.getCurrentCaseThrows().getSleuthkitCase().getContentById(artifact.getObjectID());
-            } catch (TskCoreException | NoCurrentCaseException ex) {
-                logger.log(Level.SEVERE, "Could not get content from database", ex);
-            }
+            this.contentTags = contentTags;
+            this.content = content;
         }
 
         public BlackboardArtifact getArtifact() {
@@ -885,28 +888,6 @@ public Content getContent() {
             return content;
         }
 
-        /**
-         * Compares ArtifactData objects by the first attribute they have in
-         * common in their List<BlackboardAttribute>. Should only be used on two
-         * artifacts of the same type
-         *
-         * If all attributes are the same, they are assumed duplicates and are
-         * compared by their artifact id. Should only be used with attributes of
-         * the same type.
-         */
-        @Override
-        public int compareTo(ArtifactData otherArtifactData) {
-            List<String> thisRow = getRow();
-            List<String> otherRow = otherArtifactData.getRow();
-            for (int i = 0; i < thisRow.size(); i++) {
-                int compare = thisRow.get(i).compareTo(otherRow.get(i));
-                if (compare != 0) {
-                    return compare;
-                }
-            }
-            return ((Long) this.getArtifactID()).compareTo(otherArtifactData.getArtifactID());
-        }
-
         /**
          * Get the values for each row in the table report.
          *
@@ -988,17 +969,8 @@ private List<String> getOrderedRowDataAsStrings() throws TskCoreException {
                 attributeDataArray[2] = content.getUniquePath();
                 orderedRowData.addAll(Arrays.asList(attributeDataArray));
 
-                HashSet<String> allTags = getTags();
-                try {
-                    List<ContentTag> contentTags = Case.getCurrentCaseThrows().getServices().getTagsManager().getContentTagsByContent(content);
-                    for (ContentTag ct : contentTags) {
-                        String notableString = ct.getName().getKnownStatus() == TskData.FileKnown.BAD ? TagsManager.getNotableTagLabel() : "";
-                        allTags.add(ct.getName().getDisplayName() + notableString);
-                    }
-                } catch (TskCoreException | NoCurrentCaseException ex) {
-                    errorList.add(NbBundle.getMessage(this.getClass(), "ReportGenerator.errList.failedGetContentTags"));
-                    logger.log(Level.SEVERE, "Failed to get content tags", ex); //NON-NLS
-                }
+                HashSet<String> allTags = new HashSet<>(getTags());
+                allTags.addAll(contentTags);
                 orderedRowData.add(makeCommaSeparatedList(allTags));
 
             } else if (columnHeaderMap.containsKey(this.artifact.getArtifactTypeID())) {
@@ -1015,39 +987,286 @@ private List<String> getOrderedRowDataAsStrings() throws TskCoreException {
     }
 
     /**
-     * Get a List of the artifacts and data of the given type that pass the
-     * given Tag Filter.
+     * Makes the conditions on the blackboard_artifacts table that select the
+     * artifacts of the given type that pass the tag names filter.
      *
-     * @param type           The artifact type to get
-     * @param tagNamesFilter The tag names that should be included.
+     * @param type        The artifact type.
+     * @param accountType The account type of the artifacts to select, if the
+     *                    artifacts are TSK_ACCOUNT artifacts to be grouped by
+     *                    account type; otherwise null.
      *
-     * @return a list of the filtered tags.
+     * @return The conditions, or null if no artifacts can pass the filter.
      */
-    private List<ArtifactData> getFilteredArtifacts(BlackboardArtifact.Type type, HashSet<String> tagNamesFilter) {
-        List<ArtifactData> artifacts = new ArrayList<>();
+    private String getArtifactsWhereClause(BlackboardArtifact.Type type, String accountType) {
+        StringBuilder whereClause = new StringBuilder();
+        whereClause.append("blackboard_artifacts.artifact_type_id = ").append(type.getTypeID()); //NON-NLS
+        if (!tagNamesFilter.isEmpty()) {
+            List<String> tagNameIds = new ArrayList<>();
+            for (TagName tagName : getTagNames().values()) {
+                if (tagNamesFilter.contains(getTagDisplayName(tagName))) {
+                    tagNameIds.add(Long.toString(tagName.getId()));
+                }
+            }
+            if (tagNameIds.isEmpty()) {
+                return null;
+            }
+            whereClause.append(" AND blackboard_artifacts.artifact_id IN (SELECT artifact_id FROM blackboard_artifact_tags WHERE tag_name_id IN (") //NON-NLS
+                    .append(String.join(", ", tagNameIds)).append("))"); //NON-NLS
+        }
+        if (accountType != null) {
+            whereClause.append(" AND blackboard_artifacts.artifact_id IN (SELECT artifact_id FROM blackboard_attributes WHERE attribute_type_id = ") //NON-NLS
+                    .append(BlackboardAttribute.ATTRIBUTE_TYPE.TSK_ACCOUNT_TYPE.getTypeID())
+                    .append(" AND value_text = '").append(accountType.replace("'", "''")).append("')"); //NON-NLS
+        }
+        return whereClause.toString();
+    }
+
+    /**
+     * Makes the conditions on the blackboard_artifacts table that select the
+     * TSK_ACCOUNT artifacts that have no TSK_ACCOUNT_TYPE attribute and pass
+     * the tag names filter.
+     *
+     * @param type The TSK_ACCOUNT artifact type.
+     *
+     * @return The conditions, or null if no artifacts can pass the filter.
+     */
+    private String getUnknownAccountTypeWhereClause(BlackboardArtifact.Type type) {
+        String whereClause = getArtifactsWhereClause(type, null);
+        if (whereClause == null) {
+            return null;
+        }
+        return whereClause + " AND blackboard_artifacts.artifact_id NOT IN (SELECT artifact_id FROM blackboard_attributes WHERE attribute_type_id = " //NON-NLS
+                + BlackboardAttribute.ATTRIBUTE_TYPE.TSK_ACCOUNT_TYPE.getTypeID() + ")";
+    }
+
+    /**
+     * Gets the account types of the TSK_ACCOUNT artifacts that pass the tag
+     * names filter.
+     *
+     * @param type The TSK_ACCOUNT artifact type.
+     *
+     * @return The account types, sorted.
+     */
+    private List<String> getAccountTypes(BlackboardArtifact.Type type) {
+        List<String> accountTypes = new ArrayList<>();
+        String artifactsWhereClause = getArtifactsWhereClause(type, null);
+        if (artifactsWhereClause == null) {
+            return accountTypes;
+        }
+        String query = "SELECT DISTINCT value_text FROM blackboard_attributes WHERE attribute_type_id = " //NON-NLS
+                + BlackboardAttribute.ATTRIBUTE_TYPE.TSK_ACCOUNT_TYPE.getTypeID()
+                + " AND artifact_id IN (SELECT blackboard_artifacts.artifact_id FROM blackboard_artifacts WHERE " + artifactsWhereClause + ")"; //NON-NLS
+        try (SleuthkitCase.CaseDbQuery dbQuery = Case.getCurrentCaseThrows().getSleuthkitCase().executeQuery(query)) {
+            ResultSet resultSet = dbQuery.getResultSet();
+            while (resultSet.next()) {
+                String accountType = resultSet.getString("value_text"); //NON-NLS
+                if (accountType != null) {
+                    accountTypes.add(accountType);
+                }
+            }
+        } catch (TskCoreException | SQLException | NoCurrentCaseException ex) {
+            errorList.add(NbBundle.getMessage(this.getClass(), "ReportGenerator.errList.failedGetBBArtifacts"));
+            logger.log(Level.SEVERE, "Failed to get Blackboard Artifacts when generating report.", ex); //NON-NLS
+        }
+        Collections.sort(accountTypes);
+        return accountTypes;
+    }
+
+    /**
+     * Gets the types of the attributes of the artifacts selected by a where
+     * clause.
+     *
+     * @param artifactsWhereClause The conditions on the blackboard_artifacts
+     *                             table that select the artifacts.
+     *
+     * @return The attribute types.
+     *
+     * @throws TskCoreException       If there is a problem querying the case
+     *                                database.
+     * @throws NoCurrentCaseException If there is no open case.
+     */
+    private Set<BlackboardAttribute.Type> getAttributeTypes(String artifactsWhereClause) throws TskCoreException, NoCurrentCaseException {
+        SleuthkitCase caseDb = Case.getCurrentCaseThrows().getSleuthkitCase();
+        Map<Integer, BlackboardAttribute.Type> attributeTypesById = new HashMap<>();
+        for (BlackboardAttribute.Type attributeType : caseDb.getAttributeTypes()) {
+            attributeTypesById.put(attributeType.getTypeID(), attributeType);
+        }
+
+        Set<BlackboardAttribute.Type> attributeTypes = new HashSet<>();
+        String query = "SELECT DISTINCT attribute_type_id FROM blackboard_attributes WHERE artifact_id IN " //NON-NLS
+                + "(SELECT blackboard_artifacts.artifact_id FROM blackboard_artifacts WHERE " + artifactsWhereClause + ")"; //NON-NLS
+        try (SleuthkitCase.CaseDbQuery dbQuery = caseDb.executeQuery(query)) {
+            ResultSet resultSet = dbQuery.getResultSet();
+            while (resultSet.next()) {
+                BlackboardAttribute.Type attributeType = attributeTypesById.get(resultSet.getInt("attribute_type_id")); //NON-NLS
+                if (attributeType != null) {
+                    attributeTypes.add(attributeType);
+                }
+            }
+        } catch (SQLException ex) {
+            throw new TskCoreException("Error getting attribute types of artifacts", ex); //NON-NLS
+        }
+        return attributeTypes;
+    }
+
+    /**
+     * Pages through the artifacts selected by a where clause in order of
+     * artifact id, getting the attributes, tags and source content of each
+     * page of artifacts with one query each, and hands the data for each
+     * artifact to a handler.
+     *
+     * @param artifactsWhereClause The conditions on the blackboard_artifacts
+     *                             table that select the artifacts.
+     * @param type                 The artifact type.
+     * @param handler              The handler for the artifact data.
+     */
+    private void forEachArtifact(String artifactsWhereClause, BlackboardArtifact.Type type, Consumer<ArtifactData> handler) {
+        boolean getContentTags = type.getTypeID() == BlackboardArtifact.ARTIFACT_TYPE.TSK_INTERESTING_FILE_HIT.getTypeID();
         try {
-            for (BlackboardArtifact artifact : Case.getCurrentCaseThrows().getSleuthkitCase().getBlackboardArtifacts(type.getTypeID())) {
-                List<BlackboardArtifactTag> tags = Case.getCurrentCaseThrows().getServices().getTagsManager().getBlackboardArtifactTagsByArtifact(artifact);
-                HashSet<String> uniqueTagNames = new HashSet<>();
-                for (BlackboardArtifactTag tag : tags) {
-                    String notableString = tag.getName().getKnownStatus() == TskData.FileKnown.BAD ? TagsManager.getNotableTagLabel() : "";
-                    uniqueTagNames.add(tag.getName().getDisplayName() + notableString);
+            SleuthkitCase caseDb = Case.getCurrentCaseThrows().getSleuthkitCase();
+            Long lastArtifactId = null;
+            while (progressPanel.getStatus() != ReportProgressPanel.ReportStatus.CANCELED) {
+                String pageWhereClause = "WHERE " + artifactsWhereClause //NON-NLS
+                        + ((lastArtifactId != null) ? " AND blackboard_artifacts.artifact_id > " + lastArtifactId : "") //NON-NLS
+                        + " ORDER BY blackboard_artifacts.artifact_id LIMIT " + ARTIFACT_PAGE_SIZE; //NON-NLS
+                List<BlackboardArtifact> artifacts = caseDb.getMatchingArtifacts(pageWhereClause);
+                if (artifacts.isEmpty()) {
+                    return;
                 }
-                if (failsTagFilter(uniqueTagNames, tagNamesFilter)) {
-                    continue;
+                lastArtifactId = artifacts.get(artifacts.size() - 1).getArtifactID();
+
+                List<Long> artifactIds = new ArrayList<>();
+                Set<Long> objectIds = new HashSet<>();
+                for (BlackboardArtifact artifact : artifacts) {
+                    artifactIds.add(artifact.getArtifactID());
+                    objectIds.add(artifact.getObjectID());
                 }
+                Map<Long, HashSet<String>> artifactTagNames = getTagNamesById("SELECT artifact_id AS id, tag_name_id FROM blackboard_artifact_tags WHERE artifact_id IN ", artifactIds); //NON-NLS
+                Map<Long, HashSet<String>> contentTagNames = getContentTags
+                        ? getTagNamesById("SELECT obj_id AS id, tag_name_id FROM content_tags WHERE obj_id IN ", objectIds) //NON-NLS
+                        : Collections.emptyMap();
+
+                Map<Long, List<BlackboardAttribute>> attributesByArtifactId = new HashMap<>();
                 try {
-                    artifacts.add(new ArtifactData(artifact, Case.getCurrentCaseThrows().getSleuthkitCase().getBlackboardAttributes(artifact), uniqueTagNames));
+                    for (BlackboardAttribute attribute : caseDb.getMatchingAttributes("WHERE blackboard_attributes.artifact_id IN (" + joinIds(artifactIds) + ")")) { //NON-NLS
+                        attributesByArtifactId.computeIfAbsent(attribute.getArtifactID(), id -> new ArrayList<>()).add(attribute);
+                    }
                 } catch (TskCoreException ex) {
                     errorList.add(NbBundle.getMessage(this.getClass(), "ReportGenerator.errList.failedGetBBAttribs"));
                     logger.log(Level.SEVERE, "Failed to get Blackboard Attributes when generating report.", ex); //NON-NLS
+                    continue;
+                }
+                Map<Long, Content> contentById = getContentById(caseDb, objectIds);
+
+                for (BlackboardArtifact artifact : artifacts) {
+                    HashSet<String> uniqueTagNames = artifactTagNames.getOrDefault(artifact.getArtifactID(), new HashSet<>());
+                    HashSet<String> uniqueContentTagNames = contentTagNames.getOrDefault(artifact.getObjectID(), new HashSet<>());
+                    List<BlackboardAttribute> attributes = attributesByArtifactId.getOrDefault(artifact.getArtifactID(), new ArrayList<>());
+                    handler.accept(new ArtifactData(artifact, attributes, uniqueTagNames, uniqueContentTagNames, contentById.get(artifact.getObjectID())));
                 }
             }
         } catch (TskCoreException | NoCurrentCaseException ex) {
             errorList.add(NbBundle.getMessage(this.getClass(), "ReportGenerator.errList.failedGetBBArtifacts"));
             logger.log(Level.SEVERE, "Failed to get Blackboard Artifacts when generating report.", ex); //NON-NLS
         }
-        return artifacts;
+    }
+
+    /**
+     * Gets the display names of the tags of a set of artifacts or content
+     * with one query.
+     *
+     * @param query A query for the id of the tagged object, as "id", and the
+     *              tag name id of each tag, ending in "IN ".
+     * @param ids   The ids of the tagged objects.
+     *
+     * @return The tag display names, by id of the tagged object.
+     *
+     * @throws TskCoreException       If there is a problem querying the case
+     *                                database.
+     * @throws NoCurrentCaseException If there is no open case.
+     */
+    private Map<Long, HashSet<String>> getTagNamesById(String query, Collection<Long> ids) throws TskCoreException, NoCurrentCaseException {
+        Map<Long, HashSet<String>> tagNamesById = new HashMap<>();
+        Map<Long, TagName> tagNames = getTagNames();
+        try (SleuthkitCase.CaseDbQuery dbQuery = Case.getCurrentCaseThrows().getSleuthkitCase().executeQuery(query + "(" + joinIds(ids) + ")")) {
+            ResultSet resultSet = dbQuery.getResultSet();
+            while (resultSet.next()) {
+                TagName tagName = tagNames.get(resultSet.getLong("tag_name_id")); //NON-NLS
+                if (tagName != null) {
+                    tagNamesById.computeIfAbsent(resultSet.getLong("id"), id -> new HashSet<>()).add(getTagDisplayName(tagName)); //NON-NLS
+                }
+            }
+        } catch (SQLException ex) {
+            throw new TskCoreException("Error getting tags", ex); //NON-NLS
+        }
+        return tagNamesById;
+    }
+
+    /**
+     * Gets all of the tag names in the case, loading them the first time.
+     *
+     * @return The tag names, by tag name id.
+     */
+    private Map<Long, TagName> getTagNames() {
+        if (tagNamesById == null) {
+            tagNamesById = new HashMap<>();
+            try {
+                for (TagName tagName : Case.getCurrentCaseThrows().getServices().getTagsManager().getAllTagNames()) {
+                    tagNamesById.put(tagName.getId(), tagName);
+                }
+            } catch (TskCoreException | NoCurrentCaseException ex) {
+                errorList.add(NbBundle.getMessage(this.getClass(), "ReportGenerator.errList.failedGetBBArtifactTags"));
+                logger.log(Level.SEVERE, "Failed to get tag names", ex); //NON-NLS
+            }
+        }
+        return tagNamesById;
+    }
+
+    /**
+     * Gets the name of a tag as it is shown in the report, with the notable
+     * label if the tag is notable.
+     *
+     * @param tagName The tag name.
+     *
+     * @return The display name.
+     */
+    private static String getTagDisplayName(TagName tagName) {
+        String notableString = tagName.getKnownStatus() == TskData.FileKnown.BAD ? TagsManager.getNotableTagLabel() : "";
+        return tagName.getDisplayName() + notableString;
+    }
+
+    /**
+     * Gets the source content of a page of artifacts, with one query for the
+     * files and one query each for any other content, such as data sources.
+     *
+     * @param caseDb    The case database.
+     * @param objectIds The object ids of the content.
+     *
+     * @return The content, by object id.
+     */
+    private Map<Long, Content> getContentById(SleuthkitCase caseDb, Collection<Long> objectIds) {
+        Map<Long, Content> contentById = new HashMap<>();
+        try {
+            for (AbstractFile file : caseDb.findAllFilesWhere("obj_id IN (" + joinIds(objectIds) + ")")) { //NON-NLS
+                contentById.put(file.getId(), file);
+            }
+        } catch (TskCoreException ex) {
+            logger.log(Level.SEVERE, "Could not get files from database", ex); //NON-NLS
+        }
+        for (Long objectId : objectIds) {
+            if (!contentById.containsKey(objectId)) {
+                try {
+                    contentById.put(objectId, caseDb.getContentById(objectId));
+                } catch (TskCoreException ex) {
+                    logger.log(Level.SEVERE, "Could not get content from database", ex); //NON-NLS
+                }
+            }
+        }
+        return contentById;
+    }
+
+    private static String joinIds(Collection<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(", "));
     }
 
     private Boolean failsTagFilter(HashSet<String> tagNames, HashSet<String> tagsNamesFilter) {
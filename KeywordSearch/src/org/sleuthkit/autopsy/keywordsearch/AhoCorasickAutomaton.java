@@ -0,0 +1,227 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.keywordsearch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * An Aho-Corasick automaton that finds every occurrence of each of a set of
+ * literal strings in a text in a single pass over the text, ignoring case. The
+ * cost of a search depends on the length of the text and the number of
+ * matches, not on the number of strings.
+ */
+@Immutable
+final class AhoCorasickAutomaton {
+
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+    private final TransitionTable transitions;
+    private final int[] failureLinks;
+    private final int[] outputLinks;
+    private final int[][] outputs;
+    private final int[] patternLengths;
+
+    /**
+     * Receives the matches found by an automaton.
+     */
+    interface MatchHandler {
+
+        /**
+         * Called for each match, in order of the end of the match.
+         *
+         * @param patternIndex The index of the matched pattern in the list of
+         *                     patterns used to build the automaton.
+         * @param start        The index of the first char of the match.
+         * @param end          The index after the last char of the match.
+         */
+        void match(int patternIndex, int start, int end);
+    }
+
+    /**
+     * Builds an automaton that matches a list of patterns. Empty patterns are
+     * never matched.
+     *
+     * @param patterns The patterns.
+     */
+    AhoCorasickAutomaton(List<String> patterns) {
+        /*
+         * Build the trie of the patterns. States are numbered in order of
+         * creation, and the parent and depth of each state are kept so the
+         * failure links can be computed breadth first.
+         */
+        Map<Long, Integer> trie = new HashMap<>();
+        List<Integer> parents = new ArrayList<>();
+        List<Character> labels = new ArrayList<>();
+        List<Integer> depths = new ArrayList<>();
+        parents.add(NONE);
+        labels.add('\0');
+        depths.add(0);
+        patternLengths = new int[patterns.size()];
+        Map<Integer, List<Integer>> patternsEndingAt = new HashMap<>();
+        for (int i = 0; i < patterns.size(); ++i) {
+            String pattern = patterns.get(i);
+            patternLengths[i] = pattern.length();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            int state = ROOT;
+            for (int j = 0; j < pattern.length(); ++j) {
+                char c = fold(pattern.charAt(j));
+                Integer next = trie.get(key(state, c));
+                if (next == null) {
+                    next = parents.size();
+                    trie.put(key(state, c), next);
+                    parents.add(state);
+                    labels.add(c);
+                    depths.add(depths.get(state) + 1);
+                }
+                state = next;
+            }
+            patternsEndingAt.computeIfAbsent(state, s -> new ArrayList<>()).add(i);
+        }
+
+        int stateCount = parents.size();
+        transitions = new TransitionTable(trie);
+        outputs = new int[stateCount][];
+        patternsEndingAt.forEach((state, indexes) -> outputs[state] = indexes.stream().mapToInt(Integer::intValue).toArray());
+
+        /*
+         * Compute the failure link of each state, the longest proper suffix of
+         * the state that is also a state, and the output link, the nearest
+         * state on the failure chain at which a pattern ends.
+         */
+        List<List<Integer>> statesByDepth = new ArrayList<>();
+        for (int state = 0; state < stateCount; ++state) {
+            int depth = depths.get(state);
+            while (statesByDepth.size() <= depth) {
+                statesByDepth.add(new ArrayList<>());
+            }
+            statesByDepth.get(depth).add(state);
+        }
+        failureLinks = new int[stateCount];
+        outputLinks = new int[stateCount];
+        outputLinks[ROOT] = NONE;
+        for (List<Integer> states : statesByDepth) {
+            for (int state : states) {
+                if (state == ROOT) {
+                    continue;
+                }
+                int parent = parents.get(state);
+                char c = labels.get(state);
+                int failure = ROOT;
+                if (parent != ROOT) {
+                    int candidate = failureLinks[parent];
+                    int next = transitions.get(candidate, c);
+                    while (next == NONE && candidate != ROOT) {
+                        candidate = failureLinks[candidate];
+                        next = transitions.get(candidate, c);
+                    }
+                    if (next != NONE) {
+                        failure = next;
+                    }
+                }
+                failureLinks[state] = failure;
+                outputLinks[state] = (outputs[failure] != null) ? failure : outputLinks[failure];
+            }
+        }
+    }
+
+    /**
+     * Finds all of the occurrences of the patterns in a text, including
+     * overlapping occurrences.
+     *
+     * @param text    The text.
+     * @param handler The handler for the matches.
+     */
+    void match(CharSequence text, MatchHandler handler) {
+        int state = ROOT;
+        for (int i = 0; i < text.length(); ++i) {
+            char c = fold(text.charAt(i));
+            int next = transitions.get(state, c);
+            while (next == NONE && state != ROOT) {
+                state = failureLinks[state];
+                next = transitions.get(state, c);
+            }
+            state = (next == NONE) ? ROOT : next;
+            for (int matched = (outputs[state] != null) ? state : outputLinks[state]; matched != NONE; matched = outputLinks[matched]) {
+                for (int patternIndex : outputs[matched]) {
+                    handler.match(patternIndex, i + 1 - patternLengths[patternIndex], i + 1);
+                }
+            }
+        }
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(c);
+    }
+
+    private static long key(int state, char c) {
+        return ((long) state << Character.SIZE) | c;
+    }
+
+    /**
+     * An open addressing hash table of the transitions of the automaton, keyed
+     * by state and char, to avoid boxing while matching.
+     */
+    @Immutable
+    private static final class TransitionTable {
+
+        private static final long EMPTY = -1L;
+        private final long[] keys;
+        private final int[] states;
+        private final int mask;
+
+        TransitionTable(Map<Long, Integer> transitions) {
+            int capacity = Integer.highestOneBit(Math.max(2, transitions.size() * 2 - 1)) << 1;
+            keys = new long[capacity];
+            states = new int[capacity];
+            mask = capacity - 1;
+            Arrays.fill(keys, EMPTY);
+            transitions.forEach((key, state) -> {
+                int slot = slot(key);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                states[slot] = state;
+            });
+        }
+
+        int get(int state, char c) {
+            long key = key(state, c);
+            for (int slot = slot(key); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return states[slot];
+                }
+            }
+            return NONE;
+        }
+
+        private int slot(long key) {
+            int hash = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+    }
+
+}
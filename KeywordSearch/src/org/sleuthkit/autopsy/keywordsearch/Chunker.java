@@ -1,7 +1,7 @@
 /*
  * Autopsy Forensic Browser
  *
- * Copyright 2011-2017 Basis Technology Corp.
+ * Copyright 2011-2018 Basis Technology Corp.
  * Contact: carrier <at> sleuthkit <dot> org
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
@@ -19,12 +19,11 @@
 package org.sleuthkit.autopsy.keywordsearch;
 
 import java.io.IOException;
-import java.io.PushbackReader;
 import java.io.Reader;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import javax.annotation.concurrent.NotThreadSafe;
 import org.sleuthkit.autopsy.coreutils.TextUtil;
 import org.sleuthkit.autopsy.keywordsearch.Chunker.Chunk;
@@ -35,14 +34,15 @@
  * for loop. The base chunk is the part of the chunk before the overlapping
  * window. The window will be included at the end of the current chunk as well
  * as at the beginning of the next chunk.
+ *
+ * The text is read straight into a pooled char buffer, where it is sanitized in
+ * place and its UTF-8 size is measured one code point at a time, so the only
+ * copy of the text made per chunk is the String handed to Solr. The window and
+ * any text read ahead are moved to the front of the buffer for the next chunk.
  */
 @NotThreadSafe
 class Chunker implements Iterator<Chunk>, Iterable<Chunk> {
 
-    //local references to standard encodings
-    private static final Charset UTF_16 = StandardCharsets.UTF_16;
-    private static final Charset UTF_8 = StandardCharsets.UTF_8;
-
     //Chunking algorithm paramaters-------------------------------------//
     /** the maximum size of a chunk, including the window. */
     private static final int MAX_TOTAL_CHUNK_SIZE = 32760; //bytes
@@ -55,21 +55,37 @@ class Chunker implements Iterator<Chunk>, Iterable<Chunk> {
     /** The amount of text we will read through before we give up on finding
      * whitespace to break the chunk/window at. */
     private static final int WHITE_SPACE_BUFFER_SIZE = 512; //bytes
-    /** The number of characters to read in one go from the Reader. */
-    private static final int READ_CHARS_BUFFER_SIZE = 512; //chars
+    /** The maximum number of characters to read in one go from the Reader. */
+    private static final int READ_CHARS_BUFFER_SIZE = 4096; //chars
+    /** The size of the buffer, which holds a whole chunk (at least one byte
+     * per char) plus the text read ahead of it. */
+    private static final int BUFFER_SIZE_CHARS = MAX_TOTAL_CHUNK_SIZE + 2 * READ_CHARS_BUFFER_SIZE;
+    /** The number of unused buffers kept for reuse by other Chunkers. */
+    private static final int BUFFER_POOL_SIZE = 16;
+    private static final BlockingQueue<char[]> bufferPool = new ArrayBlockingQueue<>(BUFFER_POOL_SIZE);
+    private static final char REPLACEMENT_CHAR = '\uFFFD';
+    private static final char INVALID_SOLR_CHAR_REPLACEMENT = '^';
 
     ////chunker state--------------------------------------------///
-    /** The Reader that this chunk reads from, and divides into chunks. It must
-     * be a buffered reader to ensure that mark/reset are supported. */
-    private final PushbackReader reader;
-    /** The local buffer of characters read from the Reader. */
-    private final char[] tempChunkBuf = new char[READ_CHARS_BUFFER_SIZE];
+    /** The Reader that this chunk reads from, and divides into chunks. */
+    private final Reader reader;
+    /** The buffer of characters read from the Reader, null once the last
+     * chunk has been made. */
+    private char[] buffer;
+    /** The number of characters in the buffer. */
+    private int bufferLength = 0;
+    /** The number of characters at the start of the buffer that have been
+     * sanitized. */
+    private int sanitizedLength = 0;
 
     /** the size in bytes of the chunk (so far). */
     private int chunkSizeBytes = 0;
     /** Has the chunker reached the end of the Reader? If so, there are no more
      * chunks, and the current chunk does not need a window. */
     private boolean endOfReaderReached = false;
+    /** Has the Reader returned all of its characters to the buffer? There may
+     * still be characters in the buffer that have not been chunked. */
+    private boolean readerExhausted = false;
     /** Store any exception encountered reading from the Reader. */
     private Exception ex;
 
@@ -79,8 +95,9 @@ class Chunker implements Iterator<Chunk>, Iterable<Chunk> {
      * @param reader The content to chunk.
      */
     Chunker(Reader reader) {
-        //Using MAX_TOTAL_CHUNK_SIZE is safe but probably overkill.
-        this.reader = new PushbackReader(reader, MAX_TOTAL_CHUNK_SIZE);
+        this.reader = reader;
+        char[] pooledBuffer = bufferPool.poll();
+        this.buffer = (pooledBuffer != null) ? pooledBuffer : new char[BUFFER_SIZE_CHARS];
     }
 
     @Override
@@ -113,205 +130,204 @@ public boolean hasNext() {
                 && (endOfReaderReached == false);
     }
 
-    /**
-     * Sanitize the given StringBuilder by replacing non-UTF-8 characters with
-     * caret '^'
-     *
-     * @param sb the StringBuilder to sanitize
-     *
-     * //JMTODO: use Charsequence.chars() or codePoints() and then a mapping
-     * function?
-     */
-    private static StringBuilder sanitizeToUTF8(StringBuilder sb) {
-        final int length = sb.length();
-        for (int i = 0; i < length; i++) {
-            if (TextUtil.isValidSolrUTF8(sb.charAt(i)) == false) {
-                sb.replace(i, i + 1, "^");
-            }
-        }
-        return sb;
-    }
-
-    /**
-     * Cleanup invalid codepoint sequences by replacing them with the default
-     * replacement character: U+FFFD / �.
-     *
-     * @param s The string to cleanup.
-     *
-     * @return A StringBuilder with the same content as s but where all invalid
-     *         code     *         points have been replaced.
-     */
-    private static StringBuilder replaceInvalidUTF16(String s) {
-        /* encode the string to UTF-16 which does the replcement, see
-         * Charset.encode(), then decode back to a StringBuilder. */
-        return new StringBuilder(UTF_16.decode(UTF_16.encode(s)));
-    }
-
-    private static StringBuilder sanitize(String s) {
-        return sanitizeToUTF8(replaceInvalidUTF16(s));
-    }
-
     @Override
     public Chunk next() {
         if (hasNext() == false) {
             throw new NoSuchElementException("There are no more chunks.");
         }
         //reset state for the next chunk
-
         chunkSizeBytes = 0;
         int baseChunkSizeChars = 0;
-        StringBuilder currentChunk = new StringBuilder();
-        StringBuilder currentWindow = new StringBuilder();
+        int chunkSizeChars = 0;
 
         try {
-            currentChunk.append(readBaseChunk());
-            baseChunkSizeChars = currentChunk.length(); //save the base chunk length
-            currentWindow.append(readWindow());
-                //add the window text to the current chunk.
-        currentChunk.append(currentWindow);
+            //read the base chunk until the minimum base chunk size, then keep
+            //reading until the maximum base chunk size or white space is reached.
+            chunkSizeChars = scan(0, MINIMUM_BASE_CHUNK_SIZE, false);
+            chunkSizeChars = scan(chunkSizeChars, MAXIMUM_BASE_CHUNK_SIZE, true);
+            baseChunkSizeChars = chunkSizeChars;
+
+            //read the window, leaving some room to look for white space to
+            //break at, then keep reading until the max chunk size, or until
+            //whitespace is reached.
+            chunkSizeChars = scan(chunkSizeChars, MAX_TOTAL_CHUNK_SIZE - WHITE_SPACE_BUFFER_SIZE, false);
+            chunkSizeChars = scan(chunkSizeChars, MAX_TOTAL_CHUNK_SIZE, true);
+
             if (endOfReaderReached) {
                 /* if we have reached the end of the content,we won't make
                  * another overlapping chunk, so the length of the base chunk
                  * can be extended to the end. */
-                baseChunkSizeChars = currentChunk.length();
-            } else {
-                /* otherwise we will make another chunk, so unread the window */
-                reader.unread(currentWindow.toString().toCharArray());
+                baseChunkSizeChars = chunkSizeChars;
             }
         } catch (Exception ioEx) {
             /* Save the exception, which will cause hasNext() to return false,
              * and break any chunking loop in client code. */
             ex = ioEx;
         }
-    
-        //sanitize the text and return a Chunk object, that includes the base chunk length.
-        return new Chunk(currentChunk, baseChunkSizeChars, chunkSizeBytes);
+
+        Chunk chunk = new Chunk(new String(buffer, 0, chunkSizeChars), baseChunkSizeChars, chunkSizeBytes);
+        if (hasNext()) {
+            /* the window and anything read ahead of it become the start of
+             * the next chunk. */
+            discard(baseChunkSizeChars);
+        } else {
+            releaseBuffer();
+        }
+        return chunk;
     }
 
     /**
-     * Read the base chunk from the reader, attempting to break at whitespace.
+     * Add code points from the buffer to the chunk, reading more characters
+     * as needed, until the chunk reaches maxBytes, whitespace is added (if
+     * requested), or the end of the reader is reached.
+     *
+     * @param position     The position in the buffer of the end of the chunk
+     *                     so far.
+     * @param maxBytes     The maximum size of the chunk in bytes.
+     * @param toWhiteSpace Whether or not to stop after adding whitespace.
+     *
+     * @return The new position of the end of the chunk.
      *
-     * @throws IOException if there is a problem reading from the reader.
+     * @throws IOException If there is a problem reading from the reader.
      */
-    private StringBuilder readBaseChunk() throws IOException {
-        StringBuilder currentChunk = new StringBuilder();
-        //read the chunk until the minimum base chunk size
-        readHelper(MINIMUM_BASE_CHUNK_SIZE, currentChunk);
+    private int scan(int position, int maxBytes, boolean toWhiteSpace) throws IOException {
+        while (chunkSizeBytes < maxBytes) {
+            if (!ensureSanitized(position)) {
+                //this is the last chunk
+                endOfReaderReached = true;
+                return position;
+            }
+            final char ch = buffer[position];
+            final int codePointChars;
+            final int codePointBytes;
+            if (Character.isHighSurrogate(ch)) {
+                //sanitizing guarantees that a high surrogate is followed by a low surrogate
+                codePointChars = 2;
+                codePointBytes = 4;
+            } else {
+                codePointChars = 1;
+                codePointBytes = utf8Length(ch);
+            }
 
-        //keep reading until the maximum base chunk size or white space is reached.
-        readToWhiteSpaceHelper(MAXIMUM_BASE_CHUNK_SIZE, currentChunk);
-        return currentChunk;
+            //if it will put us past maxBytes, the code point goes in the next chunk
+            if (toWhiteSpace ? (chunkSizeBytes + codePointBytes > maxBytes) : (chunkSizeBytes + codePointBytes >= maxBytes)) {
+                return position;
+            }
+            position += codePointChars;
+            chunkSizeBytes += codePointBytes;
+            if (toWhiteSpace && codePointChars == 1 && Character.isWhitespace(ch)) {
+                return position;
+            }
+        }
+        return position;
     }
 
     /**
-     * Read the window from the reader, attempting to break at whitespace.
+     * Make sure that the character at a position in the buffer, and the
+     * character after it if it is a high surrogate, have been read and
+     * sanitized.
      *
-     * @throws IOException if there is a problem reading from the reader.
+     * @param position The position.
+     *
+     * @return False if the end of the reader was reached before the position.
+     *
+     * @throws IOException If there is a problem reading from the reader.
      */
-    private StringBuilder readWindow() throws IOException {
-        StringBuilder currentWindow = new StringBuilder();
-        //read the window, leaving some room to look for white space to break at.
-        readHelper(MAX_TOTAL_CHUNK_SIZE - WHITE_SPACE_BUFFER_SIZE, currentWindow);
-
-        //keep reading until the max chunk size, or until whitespace is reached.
-        readToWhiteSpaceHelper(MAX_TOTAL_CHUNK_SIZE, currentWindow);
-        return currentWindow;
+    private boolean ensureSanitized(int position) throws IOException {
+        while (sanitizedLength <= position) {
+            //read one extra char, so that a surrogate pair is never split
+            while (bufferLength < sanitizedLength + 2 && !readerExhausted && fill()) {
+            }
+            if (sanitizedLength >= bufferLength) {
+                return false;
+            }
+            sanitizeCodePoint(sanitizedLength);
+        }
+        return true;
     }
 
     /**
-     * Read until the maxBytes reached, or end of reader.
-     *
-     * @param maxBytes
-     * @param currentSegment
+     * Sanitize the code point at a position in the buffer in place, replacing
+     * unpaired surrogates with the replacement character U+FFFD and
+     * characters Solr can't handle with a caret '^'.
      *
-     * @throws IOException
+     * @param position The position.
      */
-    private void readHelper(int maxBytes, StringBuilder currentSegment) throws IOException {
-        int charsRead = 0;
-        //read chars up to maxBytes, or the end of the reader.
-        while ((chunkSizeBytes < maxBytes)
-                && (endOfReaderReached == false)) {
-            charsRead = reader.read(tempChunkBuf, 0, READ_CHARS_BUFFER_SIZE);
-            if (-1 == charsRead) {
-                //this is the last chunk
-                endOfReaderReached = true;
+    private void sanitizeCodePoint(int position) {
+        final char ch = buffer[position];
+        if (Character.isHighSurrogate(ch)) {
+            if (position + 1 < bufferLength && Character.isLowSurrogate(buffer[position + 1])) {
+                sanitizedLength = position + 2;
                 return;
-            } else {
-                //if the last char might be part of a surroate pair, unread it.
-                final char lastChar = tempChunkBuf[charsRead - 1];
-                if (Character.isHighSurrogate(lastChar)) {
-                    charsRead--;
-                    reader.unread(lastChar);
-                }
+            }
+            buffer[position] = REPLACEMENT_CHAR;
+        } else if (Character.isLowSurrogate(ch)) {
+            buffer[position] = REPLACEMENT_CHAR;
+        } else if (TextUtil.isValidSolrUTF8(ch) == false) {
+            buffer[position] = INVALID_SOLR_CHAR_REPLACEMENT;
+        }
+        sanitizedLength = position + 1;
+    }
 
-                //cleanup any invalid utf-16 sequences
-                StringBuilder chunkSegment = sanitize(new String(tempChunkBuf, 0, charsRead));
+    /**
+     * Read more characters from the reader into the buffer.
+     *
+     * @return False if the buffer is full or the end of the reader was
+     *         reached.
+     *
+     * @throws IOException If there is a problem reading from the reader.
+     */
+    private boolean fill() throws IOException {
+        int charsToRead = Math.min(READ_CHARS_BUFFER_SIZE, buffer.length - bufferLength);
+        if (charsToRead <= 0) {
+            return false;
+        }
+        int charsRead = reader.read(buffer, bufferLength, charsToRead);
+        if (charsRead == -1) {
+            readerExhausted = true;
+            return false;
+        }
+        bufferLength += charsRead;
+        return true;
+    }
 
-                //get the length in utf8 bytes of the read chars
-                int segmentSize = chunkSegment.toString().getBytes(UTF_8).length;
+    /**
+     * Discard characters from the start of the buffer, moving the rest to the
+     * front.
+     *
+     * @param chars The number of characters to discard.
+     */
+    private void discard(int chars) {
+        System.arraycopy(buffer, chars, buffer, 0, bufferLength - chars);
+        bufferLength -= chars;
+        sanitizedLength -= chars;
+    }
 
-                //if it will not put us past maxBytes
-                if (chunkSizeBytes + segmentSize < maxBytes) {
-                    //add it to the chunk
-                    currentSegment.append(chunkSegment);
-                    chunkSizeBytes += segmentSize;
-                } else {
-                    //unread it, and break out of read loop.
-                    reader.unread(tempChunkBuf, 0, charsRead);
-                    return;
-                }
-            }
+    /**
+     * Return the buffer to the pool, if there is room for it.
+     */
+    private void releaseBuffer() {
+        if (buffer != null) {
+            bufferPool.offer(buffer);
+            buffer = null;
         }
     }
 
     /**
-     * Read until the maxBytes reached, whitespace, or end of reader.
+     * Get the length in bytes of the UTF-8 encoding of a character that is not
+     * part of a surrogate pair.
      *
-     * @param maxBytes
-     * @param currentChunk
+     * @param ch The character.
      *
-     * @throws IOException
+     * @return The length in bytes.
      */
-    private void readToWhiteSpaceHelper(int maxBytes, StringBuilder currentChunk) throws IOException {
-        int charsRead = 0;
-        boolean whitespaceFound = false;
-        //read 1 char at a time up to maxBytes, whitespaceFound, or we reach the end of the reader.
-        while ((chunkSizeBytes < maxBytes)
-                && (whitespaceFound == false)
-                && (endOfReaderReached == false)) {
-            charsRead = reader.read(tempChunkBuf, 0, 1);
-            if (-1 == charsRead) {
-                //this is the last chunk
-                endOfReaderReached = true;
-                return;
-            } else {
-                //if the last charcter might be part of a surroate pair, read another char
-                final char ch = tempChunkBuf[0];
-                String chunkSegment;
-                if (Character.isHighSurrogate(ch)) {
-                    //read another char into the buffer.
-                    charsRead = reader.read(tempChunkBuf, 1, 1);
-                    if (charsRead == -1) {
-                        //this is the last chunk, so just drop the unpaired surrogate
-                        endOfReaderReached = true;
-                        return;
-                    } else {
-                        //try to use the pair together.
-                        chunkSegment = new String(tempChunkBuf, 0, 2);
-                    }
-                } else {
-                    //one char
-                    chunkSegment = new String(tempChunkBuf, 0, 1);
-                }
-
-                //cleanup any invalid utf-16 sequences
-                StringBuilder sanitizedChunkSegment = sanitize(chunkSegment);
-                //check for whitespace.
-                whitespaceFound = Character.isWhitespace(sanitizedChunkSegment.codePointAt(0));
-                //add read chars to the chunk and update the length.
-                currentChunk.append(sanitizedChunkSegment);
-                chunkSizeBytes += sanitizedChunkSegment.toString().getBytes(UTF_8).length;
-            }
+    private static int utf8Length(char ch) {
+        if (ch < 0x80) {
+            return 1;
+        } else if (ch < 0x800) {
+            return 2;
+        } else {
+            return 3;
         }
     }
 
@@ -321,12 +337,12 @@ private void readToWhiteSpaceHelper(int maxBytes, StringBuilder currentChunk) th
      */
     static class Chunk {
 
-        private final StringBuilder sb;
+        private final String text;
         private final int baseChunkSizeChars;
         private final int chunkSizeBytes;
 
-        Chunk(StringBuilder sb, int baseChunkSizeChars, int chunkSizeBytes) {
-            this.sb = sb;
+        Chunk(String text, int baseChunkSizeChars, int chunkSizeBytes) {
+            this.text = text;
             this.baseChunkSizeChars = baseChunkSizeChars;
             this.chunkSizeBytes = chunkSizeBytes;
         }
@@ -338,7 +354,7 @@ static class Chunk {
          */
         @Override
         public String toString() {
-            return sb.toString();
+            return text;
         }
 
         /**
@@ -67,6 +67,21 @@ final class IngestSearchRunner {
     private final ScheduledThreadPoolExecutor jobProcessingExecutor;
     private static final int NUM_SEARCH_SCHEDULING_THREADS = 1;
     private static final String SEARCH_SCHEDULER_THREAD_NAME = "periodic-search-scheduler-%d";
+    // documents indexed this long before the start of the previous periodic
+    // search are searched again, to allow for documents that were still in
+    // flight when the index was committed and for clock skew between nodes
+    private static final long INCREMENTAL_SEARCH_OVERLAP_MS = 60 * 1000;
+    // the periodic search interval is kept at least this many times as long
+    // as the last periodic search took
+    private static final long SEARCH_TIME_TO_INTERVAL_RATIO = 4;
+    // while fewer documents than this have been indexed since the last
+    // periodic search, the commit and search are put off, for up to this many
+    // intervals, so that a trickle of documents does not cost a commit and a
+    // search of every keyword list each interval
+    private static final long MIN_DOCUMENTS_PER_SEARCH = 500;
+    private static final long MAX_DEFERRED_INTERVALS = 4;
+    private long lastIndexedDocumentCount = 0; // only used by the periodic search task
+    private long lastPeriodicSearchTime = System.currentTimeMillis(); // only used by the periodic search task
 
     // maps a jobID to the search
     private Map<Long, SearchJobInfo> jobs = new ConcurrentHashMap<>();
@@ -195,6 +210,8 @@ public synchronized void addKeywordListsToAllJobs(List<String> keywordListNames)
             logger.log(Level.INFO, "Adding keyword list {0} to all jobs", listName); //NON-NLS
             for (SearchJobInfo j : jobs.values()) {
                 j.addKeywordListName(listName);
+                // the new keywords must be searched for in the whole index
+                j.setLastSearchTime(SearchJobInfo.NOT_SEARCHED);
             }
         }
     }
@@ -263,11 +280,31 @@ public void run() {
                 return;
             }
 
-            commit();
+            // If nothing has been indexed since the last periodic search and
+            // every job has had a search, there is nothing new to commit or
+            // search for, so wait for the next interval. If only a few
+            // documents have been indexed, wait for more, up to a limit.
+            long indexedDocumentCount = ingester.getIndexedDocumentCount();
+            long newDocumentCount = indexedDocumentCount - lastIndexedDocumentCount;
+            long timeSinceLastSearchMs = System.currentTimeMillis() - lastPeriodicSearchTime;
+            if (allJobsSearched() && (newDocumentCount == 0
+                    || (newDocumentCount < MIN_DOCUMENTS_PER_SEARCH && timeSinceLastSearchMs < MAX_DEFERRED_INTERVALS * currentUpdateIntervalMs))) {
+                logger.log(Level.INFO, "{0} documents indexed since last periodic search, skipping commit and search", newDocumentCount); //NON-NLS
+                jobProcessingTaskFuture = jobProcessingExecutor.schedule(new PeriodicSearchTask(), currentUpdateIntervalMs, MILLISECONDS);
+                return;
+            }
+            lastIndexedDocumentCount = indexedDocumentCount;
+            logger.log(Level.INFO, "Indexed {0} documents in {1} sec since last periodic search", new Object[]{newDocumentCount, timeSinceLastSearchMs / 1000}); //NON-NLS
 
-            logger.log(Level.INFO, "Starting periodic searches");
+            // Documents sent to Solr before this time are visible to the
+            // searches after the commit
+            final long searchStartTime = System.currentTimeMillis();
+            lastPeriodicSearchTime = searchStartTime;
             final StopWatch stopWatch = new StopWatch();
             stopWatch.start();
+            commit();
+
+            logger.log(Level.INFO, "Starting periodic searches");
             // NOTE: contents of "jobs" ConcurrentHashMap can be modified in stopJob() and endJob() while we are inside this loop
             for (Iterator<Entry<Long, SearchJobInfo>> iterator = jobs.entrySet().iterator(); iterator.hasNext();) {
                 SearchJobInfo job = iterator.next().getValue();
@@ -290,6 +327,11 @@ public void run() {
                     try {
                         // wait for the searcher to finish
                         searcher.get();
+                        // lists added to the job during the search still need
+                        // to be searched for in the whole index
+                        if (searcher.isCompleted() && searcher.getKeywordListNames().equals(job.getKeywordListNames())) {
+                            job.setLastSearchTime(searchStartTime);
+                        }
                     } catch (InterruptedException | ExecutionException ex) {
                         logger.log(Level.SEVERE, "Error performing keyword search: {0}", ex.getMessage()); //NON-NLS
                         services.postMessage(IngestMessage.createErrorMessage(KeywordSearchModuleFactory.getModuleName(),
@@ -301,10 +343,10 @@ public void run() {
                 }
             }
             stopWatch.stop();
-            logger.log(Level.INFO, "All periodic searches cumulatively took {0} secs", stopWatch.getElapsedTimeSecs()); //NON-NLS
+            logger.log(Level.INFO, "Commit and all periodic searches cumulatively took {0} secs", stopWatch.getElapsedTimeSecs()); //NON-NLS
             
             // calculate "hold off" time
-            recalculateUpdateIntervalTime(stopWatch.getElapsedTimeSecs()); // ELDEBUG
+            recalculateUpdateIntervalTime(stopWatch.getElapsedTime());
             
             // schedule next PeriodicSearchTask
             jobProcessingTaskFuture = jobProcessingExecutor.schedule(new PeriodicSearchTask(), currentUpdateIntervalMs, MILLISECONDS);
@@ -314,15 +356,39 @@ public void run() {
         }
         
         
-        private void recalculateUpdateIntervalTime(long lastSerchTimeSec) {
-            // If periodic search takes more than 1/4 of the current periodic search interval, then double the search interval
-            if (lastSerchTimeSec * 1000 < currentUpdateIntervalMs / 4) {
-                return;
+        /**
+         * Sets the periodic search interval so that periodic commits and
+         * searches take no more than a quarter of the time, but are never run
+         * more often than the user setting. Since the cost of a commit and of
+         * the periodic searches grows with the number of documents indexed
+         * since the previous search, the interval grows with the indexing
+         * rate and shrinks again when the indexing rate drops.
+         *
+         * @param lastSearchTimeMs How long the last commit and periodic
+         *                         search took.
+         */
+        private void recalculateUpdateIntervalTime(long lastSearchTimeMs) {
+            long defaultUpdateIntervalMs = ((long) KeywordSearchSettings.getUpdateFrequency().getTime()) * 60 * 1000;
+            long newUpdateIntervalMs = Math.max(defaultUpdateIntervalMs, lastSearchTimeMs * SEARCH_TIME_TO_INTERVAL_RATIO);
+            if (newUpdateIntervalMs != currentUpdateIntervalMs) {
+                logger.log(Level.INFO, "Last commit and periodic search took {0} sec. Changing search interval to {1} sec", new Object[]{lastSearchTimeMs / 1000, newUpdateIntervalMs / 1000}); //NON-NLS
+                currentUpdateIntervalMs = newUpdateIntervalMs;
             }
-            // double the search interval
-            currentUpdateIntervalMs = currentUpdateIntervalMs * 2;
-            logger.log(Level.WARNING, "Last periodic search took {0} sec. Increasing search interval to {1} sec", new Object[]{lastSerchTimeSec, currentUpdateIntervalMs/1000});
-            return;
+        }
+
+        /**
+         * Checks whether every job has had at least one complete search since
+         * it started or since its keyword lists were last changed.
+         *
+         * @return True or false.
+         */
+        private boolean allJobsSearched() {
+            for (SearchJobInfo job : jobs.values()) {
+                if (job.getLastSearchTime() == SearchJobInfo.NOT_SEARCHED && !job.getKeywordListNames().isEmpty()) {
+                    return false;
+                }
+            }
+            return true;
         }
     }
 
@@ -332,11 +398,14 @@ private void recalculateUpdateIntervalTime(long lastSerchTimeSec) {
      */
     private class SearchJobInfo {
 
+        private static final long NOT_SEARCHED = -1;
         private final IngestJobContext jobContext;
         private final long jobId;
         private final long dataSourceId;
         // mutable state:
         private volatile boolean workerRunning;
+        // start time of the last completed periodic search of the job
+        private volatile long lastSearchTime = NOT_SEARCHED;
         private List<String> keywordListNames; //guarded by SearchJobInfo.this
 
         // Map of keyword to the object ids that contain a hit
@@ -385,6 +454,14 @@ private synchronized void addKeywordResults(Keyword k, Set<Long> resultsIDs) {
             currentResults.put(k, resultsIDs);
         }
 
+        private long getLastSearchTime() {
+            return lastSearchTime;
+        }
+
+        private void setLastSearchTime(long time) {
+            lastSearchTime = time;
+        }
+
         private boolean isWorkerRunning() {
             return workerRunning;
         }
@@ -439,7 +516,9 @@ private void searchNotify() {
     /**
      * Searcher responsible for searching the current index and writing results
      * to blackboard and the inbox. Also, posts results to listeners as Ingest
-     * data events. Searches entire index, and keeps track of only new results
+     * data events. Periodic searches only search the documents indexed since
+     * the previous periodic search of the job, if the index supports it, while
+     * final searches search the entire index. Keeps track of only new results
      * to report and save. Runs as a background thread.
      */
     private final class Searcher extends SwingWorker<Object, Void> {
@@ -455,6 +534,7 @@ private final class Searcher extends SwingWorker<Object, Void> {
         private AggregateProgressHandle progressGroup;
         private final Logger logger = Logger.getLogger(IngestSearchRunner.Searcher.class.getName());
         private boolean finalRun = false;
+        private volatile boolean completed = false;
 
         Searcher(SearchJobInfo job) {
             this.job = job;
@@ -489,6 +569,19 @@ public boolean cancel() {
 
             updateKeywords();
 
+            // Restrict periodic searches to the documents indexed since the
+            // last periodic search, with some overlap
+            long indexedSince = SearchJobInfo.NOT_SEARCHED;
+            if (!finalRun && job.getLastSearchTime() != SearchJobInfo.NOT_SEARCHED) {
+                try {
+                    if (KeywordSearch.getServer().coreHasIndexedTimeField()) {
+                        indexedSince = job.getLastSearchTime() - INCREMENTAL_SEARCH_OVERLAP_MS;
+                    }
+                } catch (NoOpenCoreException ex) {
+                    logger.log(Level.WARNING, "Could not check the index for the indexed time field, searching entire index", ex); //NON-NLS
+                }
+            }
+
             ProgressContributor[] subProgresses = new ProgressContributor[keywords.size()];
             int i = 0;
             for (Keyword keywordQuery : keywords) {
@@ -527,6 +620,9 @@ public boolean cancel() {
                     //set up a filter with 1 or more image ids OR'ed
                     final KeywordQueryFilter dataSourceFilter = new KeywordQueryFilter(KeywordQueryFilter.FilterType.DATA_SOURCE, job.getDataSourceId());
                     keywordSearchQuery.addFilter(dataSourceFilter);
+                    if (indexedSince != SearchJobInfo.NOT_SEARCHED) {
+                        keywordSearchQuery.addFilter(new KeywordQueryFilter(KeywordQueryFilter.FilterType.INDEXED_SINCE, indexedSince));
+                    }
 
                     QueryResults queryResults;
 
@@ -574,6 +670,8 @@ public boolean cancel() {
 
                 } //for each keyword
 
+                completed = true;
+
             } //end try block
             catch (Exception ex) {
                 logger.log(Level.WARNING, "searcher exception occurred", ex); //NON-NLS
@@ -591,6 +689,25 @@ public boolean cancel() {
             return null;
         }
 
+        /**
+         * Queries whether the searcher searched for all of its keywords,
+         * without being cancelled or running into an error.
+         *
+         * @return True or false.
+         */
+        boolean isCompleted() {
+            return completed;
+        }
+
+        /**
+         * Gets the names of the keyword lists the searcher searches for.
+         *
+         * @return The list names.
+         */
+        List<String> getKeywordListNames() {
+            return Collections.unmodifiableList(keywordListNames);
+        }
+
         /**
          * Sync-up the updated keywords from the currently used lists in the XML
          */
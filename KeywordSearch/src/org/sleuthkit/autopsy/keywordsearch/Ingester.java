@@ -21,6 +21,7 @@
 import java.io.BufferedReader;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.common.SolrInputDocument;
@@ -58,6 +59,8 @@ class Ingester {
     private static final SolrFieldsVisitor SOLR_FIELDS_VISITOR = new SolrFieldsVisitor();
     private static Ingester instance;
     private static final int SINGLE_READ_CHARS = 512;
+    private final AtomicLong indexedDocumentCount = new AtomicLong();
+    private final AtomicLong reportedBulkIndexingFailures = new AtomicLong();
 
     private Ingester() {
     }
@@ -142,6 +145,31 @@ private Map<String, String> getContentFields(SleuthkitVisitableItem item) {
      */
     // TODO (JIRA-3118): Cancelled text indexing does not propagate cancellation to clients 
     < T extends SleuthkitVisitableItem> boolean indexText(TextExtractor< T> extractor, T source, IngestJobContext context) throws Ingester.IngesterException {
+        return indexText(extractor, source, context, null);
+    }
+
+    /**
+     * Use the given TextExtractor to extract text from the given source. The
+     * text will be chunked and each chunk passed to Solr to add to the index.
+     * If a keyword scanner is supplied, each chunk is also searched for
+     * keywords as it is indexed, and keyword hit artifacts are posted for the
+     * hits once all of the text has been chunked.
+     *
+     * @param <T>       A subclass of SleuthkitVisibleItem.
+     * @param extractor The TextExtractor that will be used to extract text from
+     *                  the given source.
+     * @param source    The source from which text will be extracted, chunked,
+     *                  and indexed.
+     * @param context   The ingest job context that can be used to cancel this
+     *                  process.
+     * @param scanner   The keyword scanner to search the chunks with, may be
+     *                  null.
+     *
+     * @return True if indexing was completed, false otherwise.
+     *
+     * @throws org.sleuthkit.autopsy.keywordsearch.Ingester.IngesterException
+     */
+    < T extends SleuthkitVisitableItem> boolean indexText(TextExtractor< T> extractor, T source, IngestJobContext context, KeywordScanner scanner) throws Ingester.IngesterException {
         final long sourceID = extractor.getID(source);
         final String sourceName = extractor.getName(source);
 
@@ -156,6 +184,7 @@ < T extends SleuthkitVisitableItem> boolean indexText(TextExtractor< T> extracto
         }
 
         Map<String, String> fields = getContentFields(source);
+        KeywordScanner.Hits keywordHits = new KeywordScanner.Hits();
         //Get a reader for the content of the given source
         try (BufferedReader reader = new BufferedReader(extractor.getReader(source));) {
             Chunker chunker = new Chunker(reader);
@@ -165,11 +194,15 @@ < T extends SleuthkitVisitableItem> boolean indexText(TextExtractor< T> extracto
                     return false;
                 }
                 String chunkId = Server.getChunkIdString(sourceID, numChunks + 1);
+                String chunkText = chunk.toString();
                 fields.put(Server.Schema.ID.toString(), chunkId);
                 fields.put(Server.Schema.CHUNK_SIZE.toString(), String.valueOf(chunk.getBaseChunkLength()));
+                if (scanner != null) {
+                    scanner.scanChunk(chunkId, chunkText, chunk.getBaseChunkLength(), keywordHits);
+                }
                 try {
                     //add the chunk text to Solr index
-                    indexChunk(chunk.toString(), sourceName, fields);
+                    indexChunk(chunkText, sourceName, fields);
                     numChunks++;
                 } catch (Ingester.IngesterException ingEx) {
                     extractor.logWarning("Ingester had a problem with extracted string from file '" //NON-NLS
@@ -196,13 +229,20 @@ < T extends SleuthkitVisitableItem> boolean indexText(TextExtractor< T> extracto
                 //"parent" docs don't have chunk_size
                 fields.remove(Server.Schema.CHUNK_SIZE.toString());
                 indexChunk(null, sourceName, fields);
+                if (scanner != null && !keywordHits.isEmpty()) {
+                    scanner.postHits(keywordHits);
+                }
             }
         }
         return true;
     }
 
     /**
-     * Add one chunk as to the Solr index as a separate Solr document.
+     * Add one chunk as to the Solr index as a separate Solr document. Unless
+     * bulk indexing has been disabled, the document is queued and sent to Solr
+     * along with other documents by a background thread, so errors sending the
+     * document are logged rather than thrown, and the document is not
+     * guaranteed to be in the index until commit() is called.
      *
      * TODO see if can use a byte or string streaming way to add content to
      * /update handler e.g. with XMLUpdateRequestHandler (deprecated in SOlr
@@ -236,11 +276,18 @@ private void indexChunk(String chunk, String sourceName, Map<String, String> fie
         updateDoc.addField(Server.Schema.CONTENT.toString(), chunk);
 
         try {
+            //record when the document was indexed, so that periodic searches
+            //can be restricted to documents indexed since the last search
+            if (solrServer.coreHasIndexedTimeField()) {
+                updateDoc.addField(Server.Schema.INDEXED_TIME.toString(), System.currentTimeMillis());
+            }
+
             //TODO: consider timeout thread, or vary socket timeout based on size of indexed content
             TimingMetric metric = EnterpriseHealthMonitor.getTimingMetric("Solr: Index chunk");
             solrServer.addDocument(updateDoc);
             EnterpriseHealthMonitor.submitTimingMetric(metric);
             uncommitedIngests = true;
+            indexedDocumentCount.incrementAndGet();
 
         } catch (KeywordSearchModuleException | NoOpenCoreException ex) {
             //JMTODO: does this need to be internationalized?
@@ -249,9 +296,21 @@ private void indexChunk(String chunk, String sourceName, Map<String, String> fie
         }
     }
 
+    /**
+     * Gets the number of documents (chunks and file metadata) this ingester has
+     * sent to Solr.
+     *
+     * @return The count.
+     */
+    long getIndexedDocumentCount() {
+        return indexedDocumentCount.get();
+    }
+
     /**
      * Tells Solr to commit (necessary before ingested files will appear in
-     * searches)
+     * searches). Since documents sent to Solr in bulk are sent by background
+     * threads, failures to send them are only known after the documents have
+     * been flushed by the commit, so any new failures are logged here.
      */
     void commit() {
         try {
@@ -261,6 +320,11 @@ void commit() {
             logger.log(Level.WARNING, "Error commiting index", ex); //NON-NLS
 
         }
+        long failures = solrServer.getBulkIndexingFailureCount();
+        long reported = reportedBulkIndexingFailures.getAndSet(failures);
+        if (failures > reported) {
+            logger.log(Level.SEVERE, "{0} bulk indexing requests failed since the last commit, the documents of those requests are not in the index", failures - reported); //NON-NLS
+        }
     }
 
     /**
@@ -65,6 +65,7 @@ public boolean closing() {
         //platform about to close
 
         KeywordSearch.getServer().stop();
+        TikaWorkerPool.getInstance().shutDown();
 
         return true;
     }
@@ -73,6 +74,7 @@ public boolean closing() {
     public void uninstalled() {
         //module is being unloaded
         KeywordSearch.getServer().stop();
+        TikaWorkerPool.getInstance().shutDown();
 
     }
 
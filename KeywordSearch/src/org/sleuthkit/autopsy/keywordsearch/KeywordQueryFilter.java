@@ -31,7 +31,7 @@ class KeywordQueryFilter {
 
     public static enum FilterType {
 
-        FILE, CHUNK, DATA_SOURCE
+        FILE, CHUNK, DATA_SOURCE, INDEXED_SINCE
     };
     private Set<Long> idFilters;
     private FilterType filterType;
@@ -60,6 +60,15 @@ public String toString() {
         StringBuilder sb = new StringBuilder();
         String id = null;
 
+        if (filterType == FilterType.INDEXED_SINCE) {
+            // the id is a time in milliseconds, match documents indexed at or after it
+            sb.append(Server.Schema.INDEXED_TIME.toString());
+            sb.append(":[");
+            sb.append(idFilters.iterator().next());
+            sb.append(" TO *]");
+            return sb.toString();
+        }
+
         Iterator<Long> it = idFilters.iterator();
         for (int i = 0; it.hasNext(); ++i) {
             if (i > 0) {
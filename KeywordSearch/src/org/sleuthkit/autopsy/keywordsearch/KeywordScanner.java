@@ -0,0 +1,251 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.keywordsearch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.sleuthkit.autopsy.coreutils.Logger;
+import org.sleuthkit.datamodel.TskCoreException;
+
+/**
+ * Searches the chunks of text produced for indexing for the keywords of a set
+ * of keyword lists, as an alternative to searching the index with a query for
+ * each keyword after the chunks have been indexed. All of the literal keywords
+ * are compiled into a single automaton, so the text is passed over once for
+ * all of them; the regular expressions are compiled once and matched against
+ * each chunk in memory.
+ *
+ * The hits are posted through the same query result processing as the hits
+ * of the keyword search queries that search the index, so the artifacts have
+ * the same form. The matching is not the same as the matching done by Solr,
+ * though. Whole word literals are matched at letter, digit and underscore
+ * boundaries in the raw text, while the index is searched for the tokens of
+ * the analyzed text field, which are split by the StandardTokenizer and have
+ * stop words removed. Substring hits are widened to the same raw word
+ * boundaries, while a terms component search reports the indexed terms that
+ * contain the keyword. A file can therefore have hits with one and not the
+ * other, which is why the scanner is only used if the user opts in to it with
+ * the ingest-time keyword scanning setting.
+ *
+ * Since the index is not searched for the keywords of a job that uses a
+ * scanner, the scanner of the job is also registered for the data source of
+ * the job, so that text indexed for the data source outside of the keyword
+ * search ingest module, e.g., the text of artifacts posted by other ingest
+ * modules, is scanned as well.
+ */
+@Immutable
+final class KeywordScanner {
+
+    private static final Logger logger = Logger.getLogger(KeywordScanner.class.getName());
+    private static final String SNIPPET_DELIMITER = String.valueOf(Character.toChars(171));
+    private static final int SNIPPET_CONTEXT_LENGTH = 20;
+    private static final Map<Long, KeywordScanner> scannersByDataSource = new ConcurrentHashMap<>();
+    private final List<Keyword> literalKeywords = new ArrayList<>();
+    private final List<KeywordSearchQuery> literalQueries = new ArrayList<>();
+    private final AhoCorasickAutomaton literalAutomaton;
+    private final List<Keyword> regexKeywords = new ArrayList<>();
+    private final List<RegexQuery> regexQueries = new ArrayList<>();
+
+    /**
+     * Constructs an object that searches chunks of text for the keywords of a
+     * set of keyword lists.
+     *
+     * @param keywordLists The keyword lists.
+     */
+    KeywordScanner(List<KeywordList> keywordLists) {
+        List<String> literals = new ArrayList<>();
+        for (KeywordList keywordList : keywordLists) {
+            for (Keyword keyword : keywordList.getKeywords()) {
+                if (keyword.getSearchTerm().isEmpty()) {
+                    continue;
+                }
+                if (keyword.searchTermIsLiteral()) {
+                    literalKeywords.add(keyword);
+                    literalQueries.add(KeywordSearchUtil.getQueryForKeyword(keyword, keywordList));
+                    literals.add(keyword.getSearchTerm());
+                } else {
+                    try {
+                        Pattern.compile(keyword.getSearchTerm());
+                        regexKeywords.add(keyword);
+                        regexQueries.add(new RegexQuery(keywordList, keyword));
+                    } catch (PatternSyntaxException ex) {
+                        logger.log(Level.WARNING, String.format("Skipping invalid regular expression %s in keyword list %s", keyword.getSearchTerm(), keywordList.getName()), ex); //NON-NLS
+                    }
+                }
+            }
+        }
+        literalAutomaton = new AhoCorasickAutomaton(literals);
+    }
+
+    /**
+     * Registers a scanner as the scanner for the text indexed for a data
+     * source, unless a scanner is already registered for it.
+     *
+     * @param dataSourceId The object id of the data source.
+     * @param scanner      The scanner.
+     */
+    static void register(long dataSourceId, KeywordScanner scanner) {
+        scannersByDataSource.putIfAbsent(dataSourceId, scanner);
+    }
+
+    /**
+     * Removes the registration of the scanner for the text indexed for a data
+     * source.
+     *
+     * @param dataSourceId The object id of the data source.
+     */
+    static void unregister(long dataSourceId) {
+        scannersByDataSource.remove(dataSourceId);
+    }
+
+    /**
+     * Gets the scanner registered for the text indexed for a data source.
+     *
+     * @param dataSourceId The object id of the data source.
+     *
+     * @return The scanner, or null if the index is to be searched for the
+     *         keywords of the data source instead.
+     */
+    static KeywordScanner getRegistered(long dataSourceId) {
+        return scannersByDataSource.get(dataSourceId);
+    }
+
+    /**
+     * Searches a chunk of text for the keywords. Hits in the window of text
+     * that overlaps the next chunk are skipped, since they are found again in
+     * the next chunk.
+     *
+     * @param chunkId         The Solr document id of the chunk.
+     * @param text            The text of the chunk.
+     * @param baseChunkLength The length of the text, not including the window
+     *                        that overlaps the next chunk.
+     * @param hits            The hits found so far in the text source object
+     *                        the chunk belongs to, to which the hits for the
+     *                        chunk are added.
+     */
+    void scanChunk(String chunkId, String text, int baseChunkLength, Hits hits) {
+        literalAutomaton.match(text, (patternIndex, start, end) -> {
+            if (start >= baseChunkLength) {
+                return;
+            }
+            Keyword keyword = literalKeywords.get(patternIndex);
+            if (keyword.searchTermIsWholeWord()) {
+                if (isWordChar(text, start - 1) || isWordChar(text, end)) {
+                    return;
+                }
+                Keyword foundKeyword = new Keyword(keyword.getSearchTerm(), true, true, keyword.getListName(), keyword.getOriginalTerm());
+                hits.add(literalQueries.get(patternIndex), foundKeyword, new KeywordHit(chunkId, makeSnippet(text, start, end), keyword.getSearchTerm()));
+            } else {
+                /*
+                 * A substring search finds the indexed terms that contain the
+                 * keyword, so the hit is the whole word containing it.
+                 */
+                int termStart = start;
+                while (isWordChar(text, termStart - 1)) {
+                    --termStart;
+                }
+                int termEnd = end;
+                while (isWordChar(text, termEnd)) {
+                    ++termEnd;
+                }
+                String term = text.substring(termStart, termEnd).toLowerCase();
+                Keyword foundKeyword = new Keyword(term, false, true, keyword.getListName(), keyword.getOriginalTerm());
+                hits.add(literalQueries.get(patternIndex), foundKeyword, new KeywordHit(chunkId, makeSnippet(text, start, end), term));
+            }
+        });
+
+        List<String> content = Collections.singletonList(text);
+        for (int i = 0; i < regexQueries.size(); ++i) {
+            Keyword keyword = regexKeywords.get(i);
+            try {
+                for (KeywordHit hit : regexQueries.get(i).createKeywordHits(chunkId, baseChunkLength, content)) {
+                    hits.add(regexQueries.get(i), new Keyword(hit.getHit(), true, true, keyword.getListName(), keyword.getOriginalTerm()), hit);
+                }
+            } catch (TskCoreException ex) {
+                logger.log(Level.SEVERE, "Error creating keyword hits", ex); //NON-NLS
+            }
+        }
+    }
+
+    /**
+     * Posts keyword hit artifacts to the blackboard for the hits found in a
+     * text source object, one for each keyword found, and sends the ingest
+     * inbox messages and module data events for them.
+     *
+     * @param hits The hits.
+     */
+    void postHits(Hits hits) {
+        for (QueryResults results : hits.results.values()) {
+            results.process(null, null, null, results.getQuery().getKeywordList().getIngestMessages());
+        }
+    }
+
+    private static boolean isWordChar(String text, int index) {
+        if (index < 0 || index >= text.length()) {
+            return false;
+        }
+        char c = text.charAt(index);
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static String makeSnippet(String text, int start, int end) {
+        return text.substring(Math.max(0, start - SNIPPET_CONTEXT_LENGTH), start)
+                + SNIPPET_DELIMITER + text.substring(start, end) + SNIPPET_DELIMITER
+                + text.substring(end, Math.min(text.length(), end + SNIPPET_CONTEXT_LENGTH));
+    }
+
+    /**
+     * The keyword hits found in the chunks of text of a text source object.
+     * Only the first hit for each keyword is kept, since only one artifact is
+     * posted for each keyword found in a text source object.
+     */
+    @NotThreadSafe
+    static final class Hits {
+
+        private final Map<KeywordSearchQuery, QueryResults> results = new LinkedHashMap<>();
+
+        private void add(KeywordSearchQuery query, Keyword foundKeyword, KeywordHit hit) {
+            QueryResults queryResults = results.computeIfAbsent(query, QueryResults::new);
+            if (queryResults.getResults(foundKeyword) == null) {
+                List<KeywordHit> keywordHits = new ArrayList<>();
+                keywordHits.add(hit);
+                queryResults.addResult(foundKeyword, keywordHits);
+            }
+        }
+
+        /**
+         * Queries whether any hits have been found.
+         *
+         * @return True or false.
+         */
+        boolean isEmpty() {
+            return results.isEmpty();
+        }
+    }
+
+}
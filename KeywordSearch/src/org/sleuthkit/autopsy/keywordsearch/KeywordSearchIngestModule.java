@@ -19,9 +19,11 @@
 package org.sleuthkit.autopsy.keywordsearch;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import org.openide.util.NbBundle;
@@ -100,6 +102,7 @@ int getTime() {
     private int instanceNum = 0;
     private static final IngestModuleReferenceCounter refCounter = new IngestModuleReferenceCounter();
     private IngestJobContext context;
+    private KeywordScanner keywordScanner;
 
     private enum IngestStatus {
 
@@ -111,6 +114,7 @@ private enum IngestStatus {
         SKIPPED_ERROR_IO    ///< File was skipped because of IO issues reading it
     };
     private static final Map<Long, Map<Long, IngestStatus>> ingestStatus = new HashMap<>(); //guarded by itself
+    private static final Map<Long, Long> bulkIndexingFailuresAtJobStart = new ConcurrentHashMap<>();
 
     /**
      * Records the ingest status for a given file for a given ingest job. Used
@@ -189,6 +193,9 @@ public void startUp(IngestJobContext context) throws IngestModuleException {
             throw new IngestModuleException(Bundle.KeywordSearchIngestModule_noOpenCase_errMsg(), ex);
         }
         if (refCounter.incrementAndGet(jobId) == 1) {
+            // documents sent to Solr in bulk are not attributed to files when
+            // the requests fail, so count the failures during the job instead
+            bulkIndexingFailuresAtJobStart.put(jobId, server.getBulkIndexingFailureCount());
             if (openCase.getCaseType() == Case.CaseType.MULTI_USER_CASE) {
                 // for multi-user cases need to verify connection to remore SOLR server
                 KeywordSearchService kwsService = new SolrSearchService();
@@ -249,6 +256,23 @@ public void startUp(IngestJobContext context) throws IngestModuleException {
         textExtractors.add(new HtmlTextExtractor());
         textExtractors.add(new TikaTextExtractor());
 
+        // search the text of each file for the keywords as it is indexed,
+        // instead of searching the index periodically, if configured to
+        keywordScanner = null;
+        if (KeywordSearchSettings.getIngestTimeKeywordScanning()) {
+            XmlKeywordSearchList loader = XmlKeywordSearchList.getCurrent();
+            List<KeywordList> keywordLists = new ArrayList<>();
+            for (String keywordListName : settings.getNamesOfEnabledKeyWordLists()) {
+                KeywordList keywordList = loader.getList(keywordListName);
+                if (keywordList != null) {
+                    keywordLists.add(keywordList);
+                }
+            }
+            keywordScanner = new KeywordScanner(keywordLists);
+            KeywordScanner.register(dataSourceId, keywordScanner);
+            logger.log(Level.INFO, "Ingest-time keyword scanning is enabled, literal keyword hits may differ from those of index searches"); //NON-NLS
+        }
+
         indexer = new Indexer();
         initialized = true;
     }
@@ -287,7 +311,9 @@ public ProcessResult process(AbstractFile abstractFile) {
             if (context.fileIngestIsCancelled()) {
                 return ProcessResult.OK;
             }
-            List<String> keywordListNames = settings.getNamesOfEnabledKeyWordLists();
+            // the search runner still commits the index periodically when the
+            // keywords are searched for as the text is indexed
+            List<String> keywordListNames = (keywordScanner == null) ? settings.getNamesOfEnabledKeyWordLists() : Collections.emptyList();
             IngestSearchRunner.getInstance().startJob(context, keywordListNames);
             startedSearching = true;
         }
@@ -310,6 +336,8 @@ public void shutDown() {
         if (context.fileIngestIsCancelled()) {
             logger.log(Level.INFO, "Keyword search ingest module instance {0} stopping search job due to ingest cancellation", instanceNum); //NON-NLS
             IngestSearchRunner.getInstance().stopJob(jobId);
+            KeywordScanner.unregister(dataSourceId);
+            bulkIndexingFailuresAtJobStart.remove(jobId);
             cleanup();
             return;
         }
@@ -319,6 +347,7 @@ public void shutDown() {
 
         // We only need to post the summary msg from the last module per job
         if (refCounter.decrementAndGet(jobId) == 0) {
+            KeywordScanner.unregister(dataSourceId);
             try {
                 final int numIndexedFiles = KeywordSearch.getServer().queryNumIndexedFiles();
                 logger.log(Level.INFO, "Indexed files count: {0}", numIndexedFiles); //NON-NLS
@@ -327,7 +356,9 @@ public void shutDown() {
             } catch (NoOpenCoreException | KeywordSearchModuleException ex) {
                 logger.log(Level.SEVERE, "Error executing Solr queries to check number of indexed files and file chunks", ex); //NON-NLS
             }
-            postIndexSummary();
+            Long failuresAtJobStart = bulkIndexingFailuresAtJobStart.remove(jobId);
+            long bulkIndexingFailures = KeywordSearch.getServer().getBulkIndexingFailureCount() - (failuresAtJobStart != null ? failuresAtJobStart : 0);
+            postIndexSummary(Math.max(0, bulkIndexingFailures));
             synchronized (ingestStatus) {
                 ingestStatus.remove(jobId);
             }
@@ -349,8 +380,16 @@ private void cleanup() {
 
     /**
      * Posts inbox message with summary of text_ingested files
+     *
+     * @param bulkIndexingFailures The number of requests sending documents to
+     *                             Solr in bulk that failed during the job.
+     *                             The documents of these requests are not in
+     *                             the index, even though their files are
+     *                             counted as indexed. If other jobs were
+     *                             indexing at the same time, some of the
+     *                             failures may be theirs.
      */
-    private void postIndexSummary() {
+    private void postIndexSummary(long bulkIndexingFailures) {
         int text_ingested = 0;
         int metadata_ingested = 0;
         int strings_ingested = 0;
@@ -394,6 +433,9 @@ private void postIndexSummary() {
         msg.append("<tr><td>").append(NbBundle.getMessage(this.getClass(), "KeywordSearchIngestModule.postIndexSummary.fileGenStringsHead")).append("</td><td>").append(strings_ingested).append("</td></tr>"); //NON-NLS
         msg.append("<tr><td>").append(NbBundle.getMessage(this.getClass(), "KeywordSearchIngestModule.postIndexSummary.mdOnlyLbl")).append("</td><td>").append(metadata_ingested).append("</td></tr>"); //NON-NLS
         msg.append("<tr><td>").append(NbBundle.getMessage(this.getClass(), "KeywordSearchIngestModule.postIndexSummary.idxErrLbl")).append("</td><td>").append(error_index).append("</td></tr>"); //NON-NLS
+        if (bulkIndexingFailures > 0) {
+            msg.append("<tr><td>").append(NbBundle.getMessage(this.getClass(), "KeywordSearchIngestModule.postIndexSummary.bulkIdxErrLbl")).append("</td><td>").append(bulkIndexingFailures).append("</td></tr>"); //NON-NLS
+        }
         msg.append("<tr><td>").append(NbBundle.getMessage(this.getClass(), "KeywordSearchIngestModule.postIndexSummary.errTxtLbl")).append("</td><td>").append(error_text).append("</td></tr>"); //NON-NLS
         msg.append("<tr><td>").append(NbBundle.getMessage(this.getClass(), "KeywordSearchIngestModule.postIndexSummary.errIoLbl")).append("</td><td>").append(error_io).append("</td></tr>"); //NON-NLS
         msg.append("</table>"); //NON-NLS
@@ -403,6 +445,9 @@ private void postIndexSummary() {
         if (error_index > 0) {
             MessageNotifyUtil.Notify.error(NbBundle.getMessage(this.getClass(), "KeywordSearchIngestModule.postIndexSummary.kwIdxErrsTitle"),
                     NbBundle.getMessage(this.getClass(), "KeywordSearchIngestModule.postIndexSummary.kwIdxErrMsgFiles", error_index));
+        } else if (bulkIndexingFailures > 0) {
+            MessageNotifyUtil.Notify.error(NbBundle.getMessage(this.getClass(), "KeywordSearchIngestModule.postIndexSummary.kwIdxErrsTitle"),
+                    NbBundle.getMessage(this.getClass(), "KeywordSearchIngestModule.postIndexSummary.kwIdxErrMsgBulk", bulkIndexingFailures));
         } else if (error_io + error_text > 0) {
             MessageNotifyUtil.Notify.warn(NbBundle.getMessage(this.getClass(), "KeywordSearchIngestModule.postIndexSummary.kwIdxWarnMsgTitle"),
                     NbBundle.getMessage(this.getClass(), "KeywordSearchIngestModule.postIndexSummary.idxErrReadFilesMsg"));
@@ -448,7 +493,7 @@ private boolean extractTextAndIndex(AbstractFile aFile, String detectedFormat) t
 
             //logger.log(Level.INFO, "Extractor: " + fileExtract + ", file: " + aFile.getName());
             //divide into chunks and index
-            return Ingester.getDefault().indexText(extractor, aFile, context);
+            return Ingester.getDefault().indexText(extractor, aFile, context, keywordScanner);
         }
 
         /**
@@ -464,7 +509,7 @@ private boolean extractStringsAndIndex(AbstractFile aFile) {
                 if (context.fileIngestIsCancelled()) {
                     return true;
                 }
-                if (Ingester.getDefault().indexText(stringExtractor, aFile, KeywordSearchIngestModule.this.context)) {
+                if (Ingester.getDefault().indexText(stringExtractor, aFile, KeywordSearchIngestModule.this.context, keywordScanner)) {
                     putIngestStatus(jobId, aFile.getId(), IngestStatus.STRINGS_INGESTED);
                     return true;
                 } else {
@@ -41,6 +41,21 @@ class KeywordSearchSettings {
     static final boolean DEFAULT_SHOW_SNIPPETS = true;    
     static final String OCR_ENABLED = "ocrEnabled"; //NON-NLS
     static final boolean OCR_ENABLED_DEFAULT = false; // NON-NLS
+    static final String INDEXING_BATCH_SIZE = "IndexingBatchSize"; //NON-NLS
+    static final int DEFAULT_INDEXING_BATCH_SIZE = 64;
+    static final String INDEXING_THREADS = "IndexingThreads"; //NON-NLS
+    static final int DEFAULT_INDEXING_THREADS = 2;
+    static final String SOLR_MAX_HEAP_MB = "SolrMaxHeapMB"; //NON-NLS
+    static final String SOLR_RAM_BUFFER_MB = "SolrRamBufferMB"; //NON-NLS
+    static final String SOLR_MERGE_THREADS = "SolrMergeThreads"; //NON-NLS
+    static final int AUTO_SIZED = 0;
+    static final String INGEST_TIME_KEYWORD_SCANNING = "IngestTimeKeywordScanning"; //NON-NLS
+    static final boolean DEFAULT_INGEST_TIME_KEYWORD_SCANNING = false;
+    static final String TIKA_OUT_OF_PROCESS = "TikaOutOfProcess"; //NON-NLS
+    static final boolean DEFAULT_TIKA_OUT_OF_PROCESS = true;
+    static final String TIKA_WORKER_PROCESSES = "TikaWorkerProcesses"; //NON-NLS
+    static final String TIKA_WORKER_HEAP_MB = "TikaWorkerHeapMB"; //NON-NLS
+    static final int DEFAULT_TIKA_WORKER_HEAP_MB = 1024;
     private static boolean skipKnown = true;
     private static final Logger logger = Logger.getLogger(KeywordSearchSettings.class.getName());
     private static UpdateFrequency UpdateFreq = UpdateFrequency.DEFAULT;
@@ -152,6 +167,215 @@ static boolean getOcrOption() {
         }
     }
     
+    /**
+     * Sets the number of chunk documents that may be buffered for sending to
+     * Solr in bulk. A value of one or less disables bulk indexing, so that
+     * each chunk is sent to Solr in its own request.
+     *
+     * @param batchSize The batch size.
+     */
+    static void setIndexingBatchSize(int batchSize) {
+        ModuleSettings.setConfigSetting(PROPERTIES_OPTIONS, INDEXING_BATCH_SIZE, Integer.toString(batchSize));
+    }
+
+    /**
+     * Gets the number of chunk documents that may be buffered for sending to
+     * Solr in bulk. Indexing threads block when the buffer is full.
+     *
+     * @return The batch size, one or less if bulk indexing is disabled.
+     */
+    static int getIndexingBatchSize() {
+        return getIntegerSetting(INDEXING_BATCH_SIZE, DEFAULT_INDEXING_BATCH_SIZE);
+    }
+
+    /**
+     * Sets the number of background threads that send buffered chunk
+     * documents to Solr.
+     *
+     * @param threads The number of threads.
+     */
+    static void setIndexingThreads(int threads) {
+        ModuleSettings.setConfigSetting(PROPERTIES_OPTIONS, INDEXING_THREADS, Integer.toString(threads));
+    }
+
+    /**
+     * Gets the number of background threads that send buffered chunk
+     * documents to Solr.
+     *
+     * @return The number of threads, at least one.
+     */
+    static int getIndexingThreads() {
+        return Math.max(1, getIntegerSetting(INDEXING_THREADS, DEFAULT_INDEXING_THREADS));
+    }
+
+    /**
+     * Sets the maximum heap size of the local Solr server. Takes effect the
+     * next time the server is started.
+     *
+     * @param heapMB The heap size in MB, zero to size the heap automatically.
+     */
+    static void setSolrMaxHeapMB(int heapMB) {
+        ModuleSettings.setConfigSetting(PROPERTIES_OPTIONS, SOLR_MAX_HEAP_MB, Integer.toString(heapMB));
+    }
+
+    /**
+     * Gets the configured maximum heap size of the local Solr server.
+     *
+     * @return The heap size in MB, zero if the heap is sized automatically.
+     */
+    static int getSolrMaxHeapMB() {
+        return Math.max(AUTO_SIZED, getIntegerSetting(SOLR_MAX_HEAP_MB, AUTO_SIZED));
+    }
+
+    /**
+     * Sets the size of the indexing RAM buffer of the local Solr server. Takes
+     * effect the next time the server is started.
+     *
+     * @param bufferMB The buffer size in MB, zero to size the buffer
+     *                 automatically.
+     */
+    static void setSolrRamBufferMB(int bufferMB) {
+        ModuleSettings.setConfigSetting(PROPERTIES_OPTIONS, SOLR_RAM_BUFFER_MB, Integer.toString(bufferMB));
+    }
+
+    /**
+     * Gets the configured size of the indexing RAM buffer of the local Solr
+     * server.
+     *
+     * @return The buffer size in MB, zero if the buffer is sized
+     *         automatically.
+     */
+    static int getSolrRamBufferMB() {
+        return Math.max(AUTO_SIZED, getIntegerSetting(SOLR_RAM_BUFFER_MB, AUTO_SIZED));
+    }
+
+    /**
+     * Sets the number of segment merge threads of the local Solr server. Takes
+     * effect the next time the server is started.
+     *
+     * @param threads The number of threads, zero to choose the number
+     *                automatically.
+     */
+    static void setSolrMergeThreads(int threads) {
+        ModuleSettings.setConfigSetting(PROPERTIES_OPTIONS, SOLR_MERGE_THREADS, Integer.toString(threads));
+    }
+
+    /**
+     * Gets the configured number of segment merge threads of the local Solr
+     * server.
+     *
+     * @return The number of threads, zero if the number is chosen
+     *         automatically.
+     */
+    static int getSolrMergeThreads() {
+        return Math.max(AUTO_SIZED, getIntegerSetting(SOLR_MERGE_THREADS, AUTO_SIZED));
+    }
+
+    /**
+     * Sets whether the keyword lists of ingest jobs are searched for in the
+     * text of each file as it is indexed, rather than by periodic searches of
+     * the index. This is off unless the user opts in, because the in-memory
+     * matching does not tokenize the text the way the index does, so it can
+     * find different hits for whole word and substring keywords.
+     *
+     * @param enabled True to search the text as it is indexed.
+     */
+    static void setIngestTimeKeywordScanning(boolean enabled) {
+        ModuleSettings.setConfigSetting(PROPERTIES_OPTIONS, INGEST_TIME_KEYWORD_SCANNING, Boolean.toString(enabled));
+    }
+
+    /**
+     * Gets whether the keyword lists of ingest jobs are searched for in the
+     * text of each file as it is indexed, rather than by periodic searches of
+     * the index. This is off unless the user opts in, because the in-memory
+     * matching does not tokenize the text the way the index does, so it can
+     * find different hits for whole word and substring keywords.
+     *
+     * @return True if the text is searched as it is indexed.
+     */
+    static boolean getIngestTimeKeywordScanning() {
+        if (ModuleSettings.settingExists(PROPERTIES_OPTIONS, INGEST_TIME_KEYWORD_SCANNING)) {
+            return Boolean.parseBoolean(ModuleSettings.getConfigSetting(PROPERTIES_OPTIONS, INGEST_TIME_KEYWORD_SCANNING));
+        }
+        return DEFAULT_INGEST_TIME_KEYWORD_SCANNING;
+    }
+
+    /**
+     * Sets whether text is extracted with Tika in separate worker processes,
+     * rather than in the application process. Takes effect the next time the
+     * application is started.
+     *
+     * @param enabled True to extract text in worker processes.
+     */
+    static void setTikaOutOfProcess(boolean enabled) {
+        ModuleSettings.setConfigSetting(PROPERTIES_OPTIONS, TIKA_OUT_OF_PROCESS, Boolean.toString(enabled));
+    }
+
+    /**
+     * Gets whether text is extracted with Tika in separate worker processes,
+     * rather than in the application process.
+     *
+     * @return True if text is extracted in worker processes.
+     */
+    static boolean getTikaOutOfProcess() {
+        if (ModuleSettings.settingExists(PROPERTIES_OPTIONS, TIKA_OUT_OF_PROCESS)) {
+            return Boolean.parseBoolean(ModuleSettings.getConfigSetting(PROPERTIES_OPTIONS, TIKA_OUT_OF_PROCESS));
+        }
+        return DEFAULT_TIKA_OUT_OF_PROCESS;
+    }
+
+    /**
+     * Sets the maximum number of Tika worker processes. Takes effect the next
+     * time the application is started.
+     *
+     * @param processes The number of processes, zero for one process per file
+     *                  ingest thread.
+     */
+    static void setTikaWorkerProcesses(int processes) {
+        ModuleSettings.setConfigSetting(PROPERTIES_OPTIONS, TIKA_WORKER_PROCESSES, Integer.toString(processes));
+    }
+
+    /**
+     * Gets the maximum number of Tika worker processes.
+     *
+     * @return The number of processes, zero for one process per file ingest
+     *         thread.
+     */
+    static int getTikaWorkerProcesses() {
+        return Math.max(AUTO_SIZED, getIntegerSetting(TIKA_WORKER_PROCESSES, AUTO_SIZED));
+    }
+
+    /**
+     * Sets the maximum heap size of each Tika worker process. A worker that
+     * runs out of memory exits and is replaced.
+     *
+     * @param heapMB The heap size in MB.
+     */
+    static void setTikaWorkerHeapMB(int heapMB) {
+        ModuleSettings.setConfigSetting(PROPERTIES_OPTIONS, TIKA_WORKER_HEAP_MB, Integer.toString(heapMB));
+    }
+
+    /**
+     * Gets the maximum heap size of each Tika worker process.
+     *
+     * @return The heap size in MB.
+     */
+    static int getTikaWorkerHeapMB() {
+        int heapMB = getIntegerSetting(TIKA_WORKER_HEAP_MB, DEFAULT_TIKA_WORKER_HEAP_MB);
+        return (heapMB > 0) ? heapMB : DEFAULT_TIKA_WORKER_HEAP_MB;
+    }
+
+    private static int getIntegerSetting(String key, int defaultValue) {
+        if (ModuleSettings.settingExists(PROPERTIES_OPTIONS, key)) {
+            try {
+                return Integer.parseInt(ModuleSettings.getConfigSetting(PROPERTIES_OPTIONS, key));
+            } catch (NumberFormatException ex) {
+                logger.log(Level.WARNING, String.format("Invalid value for %s, using default value", key), ex); //NON-NLS
+            }
+        }
+        return defaultValue;
+    }
+
     static void setShowSnippets(boolean showSnippets) {
         ModuleSettings.setConfigSetting(PROPERTIES_OPTIONS, SHOW_SNIPPETS, (showSnippets ? "true" : "false")); //NON-NLS
     }
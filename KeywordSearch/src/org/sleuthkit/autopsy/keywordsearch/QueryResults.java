@@ -125,9 +125,6 @@ Set<Keyword> getKeywords() {
      * artifact), i.e., if a keyword is found several times in the text
      * extracted from the source object, only one artifact is created.
      *
-     * This method ASSUMES that the processing is being done using a SwingWorker
-     * that should be checked for task cancellation.
-     *
      * All calls to the addResult method MUST be completed before calling this
      * method.
      *
@@ -137,7 +134,8 @@ Set<Keyword> getKeywords() {
      *                    currently being processed. Can be null.
      * @param worker      The SwingWorker that is being used to do the
      *                    processing, will be checked for task cancellation
-     *                    before processing each keyword.
+     *                    before processing each keyword. Can be null if the
+     *                    processing is not being done using a SwingWorker.
      * @param notifyInbox Whether or not to write a message to the ingest
      *                    messages inbox if there is a keyword hit in the text
      *                    exrtacted from the text source object.
@@ -161,7 +159,7 @@ void process(ProgressHandle progress, ProgressContributor subProgress, SwingWork
             /*
              * Cancellation check.
              */
-            if (worker.isCancelled()) {
+            if (worker != null && worker.isCancelled()) {
                 logger.log(Level.INFO, "Processing cancelled, exiting before processing search term {0}", keyword.getSearchTerm()); //NON-NLS
                 break;
             }
@@ -102,6 +102,7 @@ final class RegexQuery implements KeywordSearchQuery {
 
     private boolean escaped;
     private String escapedQuery;
+    private volatile Pattern pattern;
     private String field = Server.Schema.CONTENT_STR.toString();
 
     /**
@@ -232,16 +233,35 @@ public QueryResults performQuery() throws NoOpenCoreException {
     }
 
     private List<KeywordHit> createKeywordHits(SolrDocument solrDoc) throws TskCoreException {
+        final String docId = solrDoc.getFieldValue(Server.Schema.ID.toString()).toString();
+        final Integer chunkSize = (Integer) solrDoc.getFieldValue(Server.Schema.CHUNK_SIZE.toString());
+        final Collection<Object> content_str = solrDoc.getFieldValues(Server.Schema.CONTENT_STR.toString());
+        return createKeywordHits(docId, chunkSize, content_str);
+    }
+
+    /**
+     * Finds the hits for the regular expression in the text of a Solr
+     * document, which may not have been added to the index yet.
+     *
+     * @param docId       The id of the Solr document.
+     * @param chunkSize   The length of the text of the chunk, not including
+     *                    the window of text that overlaps the next chunk, or
+     *                    null if the document is not a chunk.
+     * @param content_str The text of the document.
+     *
+     * @return The hits, at most one for each distinct hit text.
+     *
+     * @throws TskCoreException If there is a problem matching the text.
+     */
+    List<KeywordHit> createKeywordHits(String docId, Integer chunkSize, Collection<?> content_str) throws TskCoreException {
 
         final HashMap<String, String> keywordsFoundInThisDocument = new HashMap<>();
 
         List<KeywordHit> hits = new ArrayList<>();
-        final String docId = solrDoc.getFieldValue(Server.Schema.ID.toString()).toString();
-        final Integer chunkSize = (Integer) solrDoc.getFieldValue(Server.Schema.CHUNK_SIZE.toString());
 
-        final Collection<Object> content_str = solrDoc.getFieldValues(Server.Schema.CONTENT_STR.toString());
-
-        final Pattern pattern = Pattern.compile(keywordString);
+        if (pattern == null) {
+            pattern = Pattern.compile(keywordString);
+        }
         try {
             for (Object content_obj : content_str) {
                 String content = (String) content_obj;
@@ -18,6 +18,7 @@
  */
 package org.sleuthkit.autopsy.keywordsearch;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.awt.event.ActionEvent;
 import java.beans.PropertyChangeListener;
 import java.io.BufferedReader;
@@ -42,16 +43,23 @@
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import javax.swing.AbstractAction;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrRequest;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.impl.ConcurrentUpdateSolrServer;
 import org.apache.solr.client.solrj.impl.HttpSolrServer;
 import org.apache.solr.client.solrj.impl.XMLResponseParser;
 import org.apache.solr.client.solrj.request.CoreAdminRequest;
+import org.apache.solr.client.solrj.request.LukeRequest;
 import org.apache.solr.client.solrj.response.CoreAdminResponse;
+import org.apache.solr.client.solrj.response.LukeResponse;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.client.solrj.response.TermsResponse;
 import org.apache.solr.common.SolrDocument;
@@ -168,6 +176,13 @@ public String toString() {
             public String toString() {
                 return "chunk_size"; //NON-NLS
             }
+        },
+        // optional, not present in the schema of older indexes
+        INDEXED_TIME {
+            @Override
+            public String toString() {
+                return "indexed_time"; //NON-NLS
+            }
         }
     };
 
@@ -182,7 +197,7 @@ public String toString() {
     private String javaPath = "java";
     public static final Charset DEFAULT_INDEXED_TEXT_CHARSET = Charset.forName("UTF-8"); ///< default Charset to index text as
     private Process curSolrProcess = null;
-    private static final int MAX_SOLR_MEM_MB = 512; //TODO set dynamically based on avail. system resources
+    private static final long RESOURCE_USAGE_INTERVAL_MINUTES = 5;
     static final String PROPERTIES_FILE = KeywordSearchSettings.MODULE_NAME;
     static final String PROPERTIES_CURRENT_SERVER_PORT = "IndexingServerPort"; //NON-NLS
     static final String PROPERTIES_CURRENT_STOP_PORT = "IndexingServerStopPort"; //NON-NLS
@@ -215,6 +230,8 @@ public enum CORE_EVT_STATES {
     private Path solrHome;
     private final ServerAction serverAction;
     private InputStreamPrinterThread errorRedirectThread;
+    private final ScheduledThreadPoolExecutor resourceMonitorExecutor;
+    private ScheduledFuture<?> resourceMonitorTask;
 
     /**
      * New instance for the server at the given URL
@@ -224,6 +241,7 @@ public enum CORE_EVT_STATES {
         initSettings();
 
         this.localSolrServer = new HttpSolrServer("http://localhost:" + currentSolrServerPort + "/solr"); //NON-NLS
+        this.resourceMonitorExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder().setNameFormat("solr-resource-monitor-%d").setDaemon(true).build()); //NON-NLS
         serverAction = new ServerAction();
         solrFolder = InstalledFileLocator.getDefault().locate("solr", Server.class.getPackage().getName(), false); //NON-NLS
         javaPath = PlatformUtil.getJavaPath();
@@ -355,17 +373,18 @@ public void run() {
     /**
      * Run a Solr command with the given arguments.
      *
+     * @param jvmArguments  Command line arguments to pass to the JVM, e.g.,
+     *                      the heap size.
      * @param solrArguments Command line arguments to pass to the Solr command.
      *
      * @return
      *
      * @throws IOException
      */
-    private Process runSolrCommand(List<String> solrArguments) throws IOException {
-        final String MAX_SOLR_MEM_MB_PAR = "-Xmx" + Integer.toString(MAX_SOLR_MEM_MB) + "m"; //NON-NLS
+    private Process runSolrCommand(List<String> jvmArguments, List<String> solrArguments) throws IOException {
         List<String> commandLine = new ArrayList<>();
         commandLine.add(javaPath);
-        commandLine.add(MAX_SOLR_MEM_MB_PAR);
+        commandLine.addAll(jvmArguments);
         commandLine.add("-DSTOP.PORT=" + currentSolrStopPort); //NON-NLS
         commandLine.add("-Djetty.port=" + currentSolrServerPort); //NON-NLS
         commandLine.add("-DSTOP.KEY=" + KEY); //NON-NLS
@@ -465,7 +484,7 @@ void start() throws KeywordSearchModuleException, SolrServerNoPortException {
         if (isPortAvailable(currentSolrServerPort)) {
             logger.log(Level.INFO, "Port [{0}] available, starting Solr", currentSolrServerPort); //NON-NLS
             try {
-                curSolrProcess = runSolrCommand(new ArrayList<>(
+                curSolrProcess = runSolrCommand(SolrResourceManager.getJvmArguments(), new ArrayList<>(
                         Arrays.asList("-Dbootstrap_confdir=../solr/configsets/AutopsyConfig/conf", //NON-NLS
                                 "-Dcollection.configName=AutopsyConfig"))); //NON-NLS
 
@@ -479,6 +498,13 @@ void start() throws KeywordSearchModuleException, SolrServerNoPortException {
 
                 final List<Long> pids = this.getSolrPIDs();
                 logger.log(Level.INFO, "New Solr process PID: {0}", pids); //NON-NLS
+
+                // Periodically report the heap usage of the new process
+                if (resourceMonitorTask != null) {
+                    resourceMonitorTask.cancel(false);
+                }
+                resourceMonitorTask = resourceMonitorExecutor.scheduleWithFixedDelay(() -> SolrResourceManager.reportResourceUsage(localSolrServer),
+                        RESOURCE_USAGE_INTERVAL_MINUTES, RESOURCE_USAGE_INTERVAL_MINUTES, TimeUnit.MINUTES);
             } catch (SecurityException ex) {
                 logger.log(Level.SEVERE, "Could not start Solr process!", ex); //NON-NLS
                 throw new KeywordSearchModuleException(
@@ -559,8 +585,13 @@ synchronized void stop() {
         try {
             logger.log(Level.INFO, "Stopping Solr server from: {0}", solrFolder.getAbsolutePath()); //NON-NLS
 
+            if (resourceMonitorTask != null) {
+                resourceMonitorTask.cancel(false);
+                resourceMonitorTask = null;
+            }
+
             //try graceful shutdown
-            Process process = runSolrCommand(new ArrayList<>(Arrays.asList("--stop"))); //NON-NLS
+            Process process = runSolrCommand(new ArrayList<>(), new ArrayList<>(Arrays.asList("--stop"))); //NON-NLS
 
             logger.log(Level.INFO, "Waiting for Solr server to stop"); //NON-NLS
             process.waitFor();
@@ -974,6 +1005,46 @@ public String getPort() {
         }
     }
 
+    /**
+     * Gets the number of requests sending documents to the current core in
+     * bulk that have failed since the core was opened. The documents of a
+     * failed request are not in the index, but since the requests are sent by
+     * background threads, the failures cannot be reported to the callers that
+     * added the documents.
+     *
+     * @return The count, zero if no core is open or bulk indexing is disabled.
+     */
+    long getBulkIndexingFailureCount() {
+        currentCoreLock.readLock().lock();
+        try {
+            return (null != currentCore) ? currentCore.getBulkIndexingFailureCount() : 0;
+        } finally {
+            currentCoreLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Queries whether the schema of the current core has the indexed time
+     * field, which is used to restrict searches to recently indexed documents.
+     * Indexes created with an older schema, including those on multi-user
+     * Solr servers that have not been updated, do not have the field.
+     *
+     * @return True or false.
+     *
+     * @throws NoOpenCoreException
+     */
+    boolean coreHasIndexedTimeField() throws NoOpenCoreException {
+        currentCoreLock.readLock().lock();
+        try {
+            if (null == currentCore) {
+                throw new NoOpenCoreException();
+            }
+            return currentCore.hasIndexedTimeField();
+        } finally {
+            currentCoreLock.readLock().unlock();
+        }
+    }
+
     /**
      * Commits current core if it exists
      *
@@ -1385,9 +1456,19 @@ class Core {
         // the server to access a core needs to be built from a URL with the
         // core in it, and is only good for core-specific operations
         private final HttpSolrServer solrCore;
+
+        // the server used to stream chunk documents to the core in bulk from
+        // background threads, null if bulk indexing is disabled
+        private final ConcurrentUpdateSolrServer bulkSolrCore;
+
+        // the number of bulk update requests that have failed
+        private final AtomicLong bulkIndexingFailures = new AtomicLong();
         
         private final int QUERY_TIMEOUT_MILLISECONDS = 86400000; // 24 Hours = 86,400,000 Milliseconds
 
+        // whether the schema has the indexed time field, null until checked
+        private volatile Boolean hasIndexedTimeField;
+
         private Core(String name, CaseType caseType, Index index) {
             this.name = name;
             this.caseType = caseType;
@@ -1407,6 +1488,25 @@ private Core(String name, CaseType caseType, Index index) {
             solrCore.setAllowCompression(true);
             solrCore.setParser(new XMLResponseParser()); // binary parser is used by default
 
+            /*
+             * Documents added through the bulk server are put in a bounded
+             * queue and streamed to Solr by a pool of sender threads, many
+             * documents per request. A full queue blocks the indexing thread,
+             * which keeps text extraction from getting too far ahead of Solr.
+             */
+            int batchSize = KeywordSearchSettings.getIndexingBatchSize();
+            if (batchSize > 1) {
+                this.bulkSolrCore = new ConcurrentUpdateSolrServer(currentSolrServer.getBaseURL() + "/" + name, batchSize, KeywordSearchSettings.getIndexingThreads()) { //NON-NLS
+                    @Override
+                    public void handleError(Throwable ex) {
+                        bulkIndexingFailures.incrementAndGet();
+                        logger.log(Level.SEVERE, "Could not add documents to index via bulk update handler", ex); //NON-NLS
+                    }
+                };
+                bulkSolrCore.setSoTimeout(QUERY_TIMEOUT_MILLISECONDS);
+            } else {
+                this.bulkSolrCore = null;
+            }
         }
 
         /**
@@ -1422,6 +1522,28 @@ private Index getIndexInfo() {
             return this.textIndex;
         }
 
+        private long getBulkIndexingFailureCount() {
+            return bulkIndexingFailures.get();
+        }
+
+        private boolean hasIndexedTimeField() {
+            Boolean hasField = hasIndexedTimeField;
+            if (null == hasField) {
+                try {
+                    LukeRequest lukeRequest = new LukeRequest();
+                    lukeRequest.setShowSchema(true);
+                    lukeRequest.setNumTerms(0);
+                    LukeResponse lukeResponse = lukeRequest.process(solrCore);
+                    hasField = lukeResponse.getFieldInfo() != null && lukeResponse.getFieldInfo().containsKey(Schema.INDEXED_TIME.toString());
+                } catch (SolrServerException | IOException | SolrException ex) {
+                    logger.log(Level.WARNING, "Could not get the schema fields of core " + name, ex); //NON-NLS
+                    hasField = false;
+                }
+                hasIndexedTimeField = hasField;
+            }
+            return hasField;
+        }
+
         private QueryResponse query(SolrQuery sq) throws SolrServerException, IOException {
             return solrCore.query(sq);
         }
@@ -1448,6 +1570,10 @@ private TermsResponse queryTerms(SolrQuery sq) throws SolrServerException, IOExc
 
         private void commit() throws SolrServerException {
             try {
+                // send any buffered documents before committing
+                if (null != bulkSolrCore) {
+                    bulkSolrCore.blockUntilFinished();
+                }
                 //commit and block
                 solrCore.commit(true, true);
             } catch (IOException e) {
@@ -1458,7 +1584,11 @@ private void commit() throws SolrServerException {
 
         void addDocument(SolrInputDocument doc) throws KeywordSearchModuleException {
             try {
-                solrCore.add(doc);
+                if (null != bulkSolrCore) {
+                    bulkSolrCore.add(doc);
+                } else {
+                    solrCore.add(doc);
+                }
             } catch (SolrServerException ex) {
                 logger.log(Level.SEVERE, "Could not add document to index via update handler: " + doc.getField("id"), ex); //NON-NLS
                 throw new KeywordSearchModuleException(
@@ -1515,6 +1645,11 @@ private String getSolrContent(long contentID, int chunkID) {
         }
 
         synchronized void close() throws KeywordSearchModuleException {
+            // Send any buffered documents and stop the bulk sender threads
+            if (null != bulkSolrCore) {
+                bulkSolrCore.shutdown();
+            }
+
             // We only unload cores for "single-user" cases.
             if (this.caseType == CaseType.MULTI_USER_CASE) {
                 return;
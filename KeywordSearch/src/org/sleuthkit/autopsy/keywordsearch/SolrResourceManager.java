@@ -0,0 +1,214 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.keywordsearch;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.impl.HttpSolrServer;
+import org.apache.solr.common.util.NamedList;
+import org.openide.modules.Places;
+import org.sleuthkit.autopsy.core.UserPreferences;
+import org.sleuthkit.autopsy.coreutils.Logger;
+import org.sleuthkit.autopsy.coreutils.PlatformUtil;
+import org.sleuthkit.autopsy.healthmonitor.EnterpriseHealthMonitor;
+
+/**
+ * Sizes the heap, indexing RAM buffer and segment merge threads of the local
+ * Solr server from the physical memory of the machine, the heap of this
+ * process and the number of file ingest threads, unless the user has
+ * configured them in the keyword search options, and reports the resource
+ * usage of the running server to the enterprise health monitor.
+ *
+ * The RAM buffer and merge settings are passed to Solr as system properties
+ * that are referenced by the solrconfig.xml of the Autopsy config set.
+ */
+final class SolrResourceManager {
+
+    private static final Logger logger = Logger.getLogger(SolrResourceManager.class.getName());
+    private static final long ONE_MB = 1024 * 1024;
+    private static final int MIN_HEAP_MB = 512;
+    private static final int MAX_HEAP_MB = 8192;
+    private static final int MAX_32_BIT_HEAP_MB = 1024;
+    private static final int HEAP_MB_PER_INGEST_THREAD = 1024;
+    private static final int G1_GC_MIN_HEAP_MB = 4096;
+    private static final int MIN_RAM_BUFFER_MB = 32;
+    private static final int MAX_RAM_BUFFER_MB = 512;
+    private static final int MIN_MAX_BUFFERED_DOCS = 200;
+    private static final int BUFFERED_DOCS_PER_MB = 16;
+    private static final int EXTRA_PENDING_MERGES = 5;
+    private static final String RAM_BUFFER_PROPERTY = "autopsy.solr.ramBufferSizeMB"; //NON-NLS
+    private static final String MAX_BUFFERED_DOCS_PROPERTY = "autopsy.solr.maxBufferedDocs"; //NON-NLS
+    private static final String MERGE_THREADS_PROPERTY = "autopsy.solr.mergeThreads"; //NON-NLS
+    private static final String MAX_MERGES_PROPERTY = "autopsy.solr.maxMergeCount"; //NON-NLS
+    private static final String SYSTEM_INFO_HANDLER = "/admin/info/system"; //NON-NLS
+    private static final String HEAP_USED_METRIC = "Solr: Heap used (MB)"; //NON-NLS
+    private static final String HEAP_USED_PERCENT_METRIC = "Solr: Heap used (%)"; //NON-NLS
+
+    private SolrResourceManager() {
+    }
+
+    /**
+     * Gets the maximum heap size for the local Solr server.
+     *
+     * @return The heap size in MB.
+     */
+    static int getMaxHeapMB() {
+        int configuredHeapMB = KeywordSearchSettings.getSolrMaxHeapMB();
+        if (configuredHeapMB != KeywordSearchSettings.AUTO_SIZED) {
+            return configuredHeapMB;
+        }
+
+        /*
+         * Give Solr a quarter of the memory that is not reserved for the heap
+         * of this process, with room for the indexing done by each file ingest
+         * thread, within fixed bounds.
+         */
+        long availableMB = Math.max(0, getTotalPhysicalMemoryMB() - Runtime.getRuntime().maxMemory() / ONE_MB);
+        long heapMB = Math.min(availableMB / 4, (long) HEAP_MB_PER_INGEST_THREAD * (1 + UserPreferences.numberOfFileIngestThreads()));
+        heapMB = Math.max(MIN_HEAP_MB, Math.min(MAX_HEAP_MB, heapMB));
+        if (!PlatformUtil.is64BitJVM()) {
+            heapMB = Math.min(heapMB, MAX_32_BIT_HEAP_MB);
+        }
+        return (int) heapMB;
+    }
+
+    /**
+     * Gets the size of the RAM buffer Lucene uses for documents added to the
+     * index before flushing them to a new segment.
+     *
+     * @return The buffer size in MB.
+     */
+    static int getRamBufferMB() {
+        int configuredBufferMB = KeywordSearchSettings.getSolrRamBufferMB();
+        if (configuredBufferMB != KeywordSearchSettings.AUTO_SIZED) {
+            return configuredBufferMB;
+        }
+        return Math.max(MIN_RAM_BUFFER_MB, Math.min(MAX_RAM_BUFFER_MB, getMaxHeapMB() / 8));
+    }
+
+    /**
+     * Gets the number of threads used to merge index segments in the
+     * background.
+     *
+     * @return The number of threads.
+     */
+    static int getMergeThreads() {
+        int configuredThreads = KeywordSearchSettings.getSolrMergeThreads();
+        if (configuredThreads != KeywordSearchSettings.AUTO_SIZED) {
+            return configuredThreads;
+        }
+        int maxThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return Math.max(1, Math.min(maxThreads, UserPreferences.numberOfFileIngestThreads() / 2));
+    }
+
+    /**
+     * Gets the JVM arguments for the local Solr server process.
+     *
+     * @return The arguments.
+     */
+    static List<String> getJvmArguments() {
+        int heapMB = getMaxHeapMB();
+        int ramBufferMB = getRamBufferMB();
+        int mergeThreads = getMergeThreads();
+        List<String> arguments = new ArrayList<>();
+        arguments.add("-Xmx" + heapMB + "m"); //NON-NLS
+        if (heapMB >= G1_GC_MIN_HEAP_MB) {
+            arguments.add("-XX:+UseG1GC"); //NON-NLS
+        }
+        arguments.addAll(getGcLogArguments());
+        arguments.add("-D" + RAM_BUFFER_PROPERTY + "=" + ramBufferMB); //NON-NLS
+        arguments.add("-D" + MAX_BUFFERED_DOCS_PROPERTY + "=" + Math.max(MIN_MAX_BUFFERED_DOCS, ramBufferMB * BUFFERED_DOCS_PER_MB)); //NON-NLS
+        arguments.add("-D" + MERGE_THREADS_PROPERTY + "=" + mergeThreads); //NON-NLS
+        arguments.add("-D" + MAX_MERGES_PROPERTY + "=" + (mergeThreads + EXTRA_PENDING_MERGES)); //NON-NLS
+        return arguments;
+    }
+
+    /**
+     * Gets the JVM arguments that write the garbage collection details of the
+     * local Solr server to the solr_gc.log file in the log directory. Solr is
+     * run with the same Java runtime as Autopsy, and the logging flags
+     * differ between Java 8 and Java 9 and later, where the Java 8 flags stop
+     * the JVM from starting.
+     *
+     * @return The arguments.
+     */
+    private static List<String> getGcLogArguments() {
+        String gcLogPath = Paths.get(Places.getUserDirectory().getAbsolutePath(), "var", "log", "solr_gc.log").toString(); //NON-NLS
+        List<String> arguments = new ArrayList<>();
+        if (System.getProperty("java.specification.version", "").startsWith("1.")) { //NON-NLS
+            arguments.add("-Xloggc:" + gcLogPath); //NON-NLS
+            arguments.add("-XX:+PrintGCDetails"); //NON-NLS
+            arguments.add("-XX:+PrintGCDateStamps"); //NON-NLS
+        } else {
+            // The path is quoted because a drive letter colon would end it
+            arguments.add("-Xlog:gc*:file=\"" + gcLogPath + "\":time"); //NON-NLS
+        }
+        return arguments;
+    }
+
+    /**
+     * Samples the heap usage of a Solr server and submits it to the
+     * enterprise health monitor. Garbage collection details for the local
+     * server are written to the solr_gc.log file in the log directory.
+     *
+     * @param solrServer The Solr server.
+     */
+    static void reportResourceUsage(HttpSolrServer solrServer) {
+        try {
+            SolrQuery query = new SolrQuery();
+            query.setRequestHandler(SYSTEM_INFO_HANDLER);
+            NamedList<Object> response = solrServer.query(query).getResponse();
+            Object memory = getPath(response, "jvm", "memory", "raw"); //NON-NLS
+            if (memory instanceof NamedList) {
+                Object used = ((NamedList<?>) memory).get("used"); //NON-NLS
+                Object usedPercent = ((NamedList<?>) memory).get("used%"); //NON-NLS
+                if (used instanceof Number) {
+                    EnterpriseHealthMonitor.submitValueMetric(HEAP_USED_METRIC, ((Number) used).doubleValue() / ONE_MB);
+                }
+                if (usedPercent instanceof Number) {
+                    EnterpriseHealthMonitor.submitValueMetric(HEAP_USED_PERCENT_METRIC, ((Number) usedPercent).doubleValue());
+                }
+            }
+        } catch (SolrServerException | HttpSolrServer.RemoteSolrException ex) {
+            logger.log(Level.WARNING, "Error getting Solr resource usage", ex); //NON-NLS
+        }
+    }
+
+    private static Object getPath(NamedList<Object> list, String... names) {
+        Object value = list;
+        for (String name : names) {
+            if (!(value instanceof NamedList)) {
+                return null;
+            }
+            value = ((NamedList<?>) value).get(name);
+        }
+        return value;
+    }
+
+    private static long getTotalPhysicalMemoryMB() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory
+                .getOperatingSystemMXBean()).getTotalPhysicalMemorySize() / ONE_MB;
+    }
+
+}
@@ -113,17 +113,18 @@ public void index(Content content) throws TskCoreException {
             }
             try {
                 ingester.indexMetaDataOnly(artifact);
-                ingester.indexText(new ArtifactTextExtractor(), artifact, null);
+                ingester.indexText(new ArtifactTextExtractor(), artifact, null, getKeywordScanner(artifact));
             } catch (Ingester.IngesterException ex) {
                 throw new TskCoreException(ex.getCause().getMessage(), ex);
             }
         } else {
+            KeywordScanner scanner = getKeywordScanner(content);
             try {
-                ingester.indexText(new TikaTextExtractor(), content, null);
+                ingester.indexText(new TikaTextExtractor(), content, null, scanner);
             } catch (Ingester.IngesterException ex) {
                 try {
                     // Try the StringsTextExtractor if Tika extractions fails.
-                    ingester.indexText(new StringsTextExtractor(), content, null);
+                    ingester.indexText(new StringsTextExtractor(), content, null, scanner);
                 } catch (Ingester.IngesterException ex1) {
                     throw new TskCoreException(ex.getCause().getMessage(), ex1);
                 }
@@ -438,10 +439,36 @@ public void indexArtifact(BlackboardArtifact artifact) throws TskCoreException {
 
         try {
             ingester.indexMetaDataOnly(artifact);
-            ingester.indexText(new ArtifactTextExtractor(), artifact, null);
+            ingester.indexText(new ArtifactTextExtractor(), artifact, null, getKeywordScanner(artifact));
         } catch (Ingester.IngesterException ex) {
             throw new TskCoreException(ex.getCause().getMessage(), ex);
         }
     }
 
+    /**
+     * Gets the keyword scanner registered for the data source of the content
+     * to be indexed. If the keyword search ingest module is searching for the
+     * keywords of the data source as the text is indexed, the index is not
+     * searched for them, so text indexed through this service has to be
+     * scanned as well, or its hits would be lost.
+     *
+     * @param content The content.
+     *
+     * @return The scanner, or null if the text does not need to be scanned.
+     */
+    private static KeywordScanner getKeywordScanner(Content content) {
+        try {
+            Content dataSource;
+            if (content instanceof BlackboardArtifact) {
+                dataSource = ArtifactTextExtractor.getDataSource((BlackboardArtifact) content);
+            } else {
+                dataSource = content.getDataSource();
+            }
+            return (dataSource != null) ? KeywordScanner.getRegistered(dataSource.getId()) : null;
+        } catch (TskCoreException ex) {
+            logger.log(Level.WARNING, String.format("Error getting the data source of content to be indexed (objId=%d)", content.getId()), ex); //NON-NLS
+            return null;
+        }
+    }
+
 }
@@ -37,11 +37,7 @@
 import org.apache.tika.metadata.Metadata;
 import org.apache.tika.parser.AutoDetectParser;
 import org.apache.tika.parser.ParseContext;
-import org.apache.tika.parser.Parser;
 import org.apache.tika.parser.ParsingReader;
-import org.apache.tika.parser.microsoft.OfficeParserConfig;
-import org.apache.tika.parser.ocr.TesseractOCRConfig;
-import org.apache.tika.parser.pdf.PDFParserConfig;
 import org.openide.util.NbBundle;
 import org.openide.modules.InstalledFileLocator;
 import org.sleuthkit.autopsy.coreutils.Logger;
@@ -50,8 +46,10 @@
 import org.sleuthkit.datamodel.ReadContentInputStream;
 
 /**
- * Extracts text from Tika supported content. Protects against Tika
- * parser hangs (for unexpected/corrupt content) using a timeout mechanism.
+ * Extracts text from Tika supported content. Protects against Tika parser
+ * hangs and crashes (for unexpected/corrupt content) by parsing the content in
+ * a pool of worker processes with timeouts, or, if the worker processes are
+ * disabled or cannot be started, in this process with a timeout.
  */
 class TikaTextExtractor extends ContentTextExtractor {
 
@@ -77,42 +75,54 @@ public void logWarning(final String msg, Exception ex) {
 
     @Override
     public Reader getReader(Content content) throws TextExtractorException {
-        ReadContentInputStream stream = new ReadContentInputStream(content);
-
-        Metadata metadata = new Metadata();
-        ParseContext parseContext = new ParseContext();
-        parseContext.set(Parser.class, parser);
-
-        // Use the more memory efficient Tika SAX parsers for DOCX and
-        // PPTX files (it already uses SAX for XLSX).
-        OfficeParserConfig officeParserConfig = new OfficeParserConfig();
-        officeParserConfig.setUseSAXPptxExtractor(true);
-        officeParserConfig.setUseSAXDocxExtractor(true);
-        parseContext.set(OfficeParserConfig.class, officeParserConfig);
-        
         // configure OCR if it is enabled in KWS settings and installed on the machine
+        String tesseractFolder = "";
         if (TESSERACT_PATH != null && KeywordSearchSettings.getOcrOption() && PlatformUtil.isWindowsOS() == true) {
-            
-            // configure PDFParser. 
-            PDFParserConfig pdfConfig = new PDFParserConfig();
-            
-            // Extracting the inline images and letting Tesseract run on each inline image.
-            // https://wiki.apache.org/tika/PDFParser%20%28Apache%20PDFBox%29
-            // https://tika.apache.org/1.7/api/org/apache/tika/parser/pdf/PDFParserConfig.html
-            pdfConfig.setExtractInlineImages(true); 
-            // Multiple pages within a PDF file might refer to the same underlying image.
-            pdfConfig.setExtractUniqueInlineImagesOnly(true);            
-            parseContext.set(PDFParserConfig.class, pdfConfig);
-            
-            // Configure Tesseract parser to perform OCR
-            TesseractOCRConfig ocrConfig = new TesseractOCRConfig();
-            String tesseractFolder = TESSERACT_PATH.getParent();
-            ocrConfig.setTesseractPath(tesseractFolder);
-            // Tesseract expects language data packs to be in a subdirectory of tesseractFolder, in a folder called "tessdata".
-            // If they are stored somewhere else, use ocrConfig.setTessdataPath(String tessdataPath) to point to them
-            ocrConfig.setLanguage("eng");
-            parseContext.set(TesseractOCRConfig.class, ocrConfig);
+            tesseractFolder = TESSERACT_PATH.getParent();
+        }
+
+        // Parse the file in a worker process, so that a parser that hangs or
+        // runs out of memory can be killed, unless the worker processes are
+        // disabled or could not be started
+        if (KeywordSearchSettings.getTikaOutOfProcess() && TikaWorkerPool.getInstance().isEnabled()) {
+            try {
+                TikaWorkerPool.WorkerReader workerReader = TikaWorkerPool.getInstance().extractText(new ReadContentInputStream(content), tesseractFolder, getTimeout(content.getSize()));
+                if (!workerReader.hasText()) {
+                    workerReader.close();
+                    throw new TextExtractorException("Unable to extract text: Tika returned empty reader for " + content);
+                }
+                return workerReader;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                final String msg = NbBundle.getMessage(this.getClass(), "AbstractFileTikaTextExtract.index.exception.tikaParse.msg", content.getId(), content.getName());
+                throw new TextExtractorException(msg, ex);
+            } catch (IOException ex) {
+                if (TikaWorkerPool.getInstance().isEnabled()) {
+                    final String msg = NbBundle.getMessage(this.getClass(), "AbstractFileTikaTextExtract.index.exception.tikaParse.msg", content.getId(), content.getName());
+                    logWarning(msg, ex);
+                    throw new TextExtractorException(msg, ex);
+                }
+            }
         }
+        return getReaderInProcess(content, tesseractFolder);
+    }
+
+    /**
+     * Extracts text from content with Tika in this process.
+     *
+     * @param content         The content.
+     * @param tesseractFolder The folder of the Tesseract executable, or an
+     *                        empty string if OCR is not to be done.
+     *
+     * @return A reader for the text, followed by the metadata of the content.
+     *
+     * @throws TextExtractorException If the text could not be extracted.
+     */
+    private Reader getReaderInProcess(Content content, String tesseractFolder) throws TextExtractorException {
+        ReadContentInputStream stream = new ReadContentInputStream(content);
+
+        Metadata metadata = new Metadata();
+        ParseContext parseContext = TikaWorkerProcess.createParseContext(parser, tesseractFolder);
 
         //Parse the file in a task, a convenient way to have a timeout...
         final Future<Reader> future = tikaParseExecutor.submit(() -> new ParsingReader(parser, stream, metadata, parseContext));
@@ -178,12 +188,23 @@ private static File locateTesseractExecutable() {
      * @return A CharSource for the given MetaData
      */
     static private CharSource getMetaDataCharSource(Metadata metadata) {
-        return CharSource.wrap(
-                new StringBuilder("\n\n------------------------------METADATA------------------------------\n\n")
-                        .append(Stream.of(metadata.names()).sorted()
-                                .map(key -> key + ": " + metadata.get(key))
-                                .collect(Collectors.joining("\n"))
-                        ));
+        return CharSource.wrap(formatMetaData(metadata));
+    }
+
+    /**
+     * Formats metadata extracted by Tika for indexing with the text of the
+     * content.
+     *
+     * @param metadata The metadata.
+     *
+     * @return The formatted metadata.
+     */
+    static String formatMetaData(Metadata metadata) {
+        return new StringBuilder("\n\n------------------------------METADATA------------------------------\n\n")
+                .append(Stream.of(metadata.names()).sorted()
+                        .map(key -> key + ": " + metadata.get(key))
+                        .collect(Collectors.joining("\n"))
+                ).toString();
     }
 
     @Override
@@ -0,0 +1,465 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.keywordsearch;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.tika.metadata.Metadata;
+import org.openide.modules.Places;
+import org.sleuthkit.autopsy.core.UserPreferences;
+import org.sleuthkit.autopsy.coreutils.Logger;
+import org.sleuthkit.autopsy.coreutils.PlatformUtil;
+
+/**
+ * A pool of child JVMs that extract text with Tika, so that parsers that hang
+ * or run out of memory on malformed documents can be killed and replaced
+ * without affecting the application, and so that documents can be parsed in
+ * parallel. The content to parse is streamed to a worker and the extracted
+ * text is streamed back; a worker that keeps its reader waiting for longer
+ * than the timeout for the content is killed, and a worker that runs out of
+ * memory exits. Workers are started as they are needed, up to the size of the
+ * pool.
+ */
+@ThreadSafe
+final class TikaWorkerPool {
+
+    private static final Logger logger = Logger.getLogger(TikaWorkerPool.class.getName());
+    private static final int READY_TIMEOUT_SECS = 60;
+    private static final int CONTENT_FRAME_SIZE = 64 * 1024;
+    private static TikaWorkerPool instance;
+    private final int maxWorkers;
+    private final LinkedBlockingQueue<Worker> idleWorkers = new LinkedBlockingQueue<>();
+    private final ExecutorService contentWriters = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("tika-worker-content-%d").setDaemon(true).build()); //NON-NLS
+    private final ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder().setNameFormat("tika-worker-watchdog").setDaemon(true).build()); //NON-NLS
+    @GuardedBy("this")
+    private int workerCount;
+    @GuardedBy("this")
+    private boolean disabled;
+
+    /**
+     * Gets the Tika worker pool.
+     *
+     * @return The pool.
+     */
+    static synchronized TikaWorkerPool getInstance() {
+        if (instance == null) {
+            instance = new TikaWorkerPool(KeywordSearchSettings.getTikaWorkerProcesses() != KeywordSearchSettings.AUTO_SIZED
+                    ? KeywordSearchSettings.getTikaWorkerProcesses()
+                    : UserPreferences.numberOfFileIngestThreads());
+        }
+        return instance;
+    }
+
+    private TikaWorkerPool(int maxWorkers) {
+        this.maxWorkers = Math.max(1, maxWorkers);
+        // the watchdog task for each wait for a worker is cancelled as soon
+        // as the worker responds, so don't keep the cancelled tasks queued
+        watchdog.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Queries whether text can be extracted by the pool. The pool is disabled
+     * if a worker process cannot be started.
+     *
+     * @return True or false.
+     */
+    synchronized boolean isEnabled() {
+        return !disabled;
+    }
+
+    /**
+     * Extracts text from content in a worker process. The worker is in use
+     * until the returned reader has been read to the end or closed. The
+     * timeout applies to the time the reader spends waiting for the worker,
+     * not to the time the caller spends with the text between reads, so that
+     * slow consumption of the text, e.g., by indexing, does not get a healthy
+     * worker killed. If the reader waits for the worker for longer than the
+     * timeout in total, the worker is killed and further reads from the reader
+     * fail.
+     *
+     * @param content         The content.
+     * @param tesseractFolder The folder of the Tesseract executable, or an
+     *                        empty string if OCR is not to be done.
+     * @param timeoutSecs     The time limit for waiting for the worker, in
+     *                        seconds.
+     *
+     * @return A reader for the extracted text, followed by the metadata of the
+     *         content.
+     *
+     * @throws IOException          If the pool is disabled, or there is a
+     *                              problem starting or communicating with a
+     *                              worker.
+     * @throws InterruptedException If interrupted while waiting for a worker.
+     */
+    WorkerReader extractText(InputStream content, String tesseractFolder, int timeoutSecs) throws IOException, InterruptedException {
+        Worker worker = acquireWorker();
+        try {
+            worker.toWorker.writeUTF(tesseractFolder);
+            worker.toWorker.flush();
+        } catch (IOException ex) {
+            releaseWorker(worker, false);
+            throw ex;
+        }
+        contentWriters.submit(() -> writeContent(worker, content));
+        return new WorkerReader(worker, TimeUnit.SECONDS.toNanos(timeoutSecs));
+    }
+
+    /**
+     * Kills all of the worker processes.
+     */
+    void shutDown() {
+        watchdog.shutdownNow();
+        contentWriters.shutdownNow();
+        synchronized (this) {
+            disabled = true;
+        }
+        Worker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            worker.kill();
+        }
+    }
+
+    private Worker acquireWorker() throws IOException, InterruptedException {
+        while (true) {
+            synchronized (this) {
+                if (disabled) {
+                    throw new IOException("Tika worker processes are not available"); //NON-NLS
+                }
+                Worker worker = idleWorkers.poll();
+                if (worker != null) {
+                    return worker;
+                }
+                if (workerCount < maxWorkers) {
+                    ++workerCount;
+                    break;
+                }
+            }
+            /*
+             * Wait for a worker to be returned to the pool, checking
+             * periodically for a worker that was killed rather than returned.
+             */
+            Worker worker = idleWorkers.poll(1, TimeUnit.SECONDS);
+            if (worker != null) {
+                return worker;
+            }
+        }
+        try {
+            return startWorker();
+        } catch (IOException ex) {
+            synchronized (this) {
+                --workerCount;
+                disabled = true;
+            }
+            logger.log(Level.SEVERE, "Failed to start Tika worker process, extracting text in process", ex); //NON-NLS
+            throw ex;
+        }
+    }
+
+    private void releaseWorker(Worker worker, boolean reusable) {
+        if (reusable && worker.process.isAlive()) {
+            idleWorkers.offer(worker);
+        } else {
+            worker.kill();
+            synchronized (this) {
+                --workerCount;
+            }
+        }
+    }
+
+    private Worker startWorker() throws IOException {
+        List<String> commandLine = new ArrayList<>();
+        commandLine.add(PlatformUtil.getJavaPath());
+        commandLine.add("-Xmx" + KeywordSearchSettings.getTikaWorkerHeapMB() + "m"); //NON-NLS
+        commandLine.add("-XX:+ExitOnOutOfMemoryError"); //NON-NLS
+        commandLine.add("-Djava.awt.headless=true"); //NON-NLS
+        commandLine.add("-cp"); //NON-NLS
+        commandLine.add(getWorkerClassPath());
+        commandLine.add(TikaWorkerProcess.class.getName());
+        ProcessBuilder processBuilder = new ProcessBuilder(commandLine);
+        processBuilder.redirectError(ProcessBuilder.Redirect.appendTo(Paths.get(Places.getUserDirectory().getAbsolutePath(), "var", "log", "tika_worker.log").toFile())); //NON-NLS
+        Process process = processBuilder.start();
+        Worker worker = new Worker(process);
+
+        /*
+         * Wait for the worker to load Tika, so that a worker that cannot be
+         * started is detected here rather than on the first document.
+         */
+        ScheduledFuture<?> timeout = watchdog.schedule(worker::kill, READY_TIMEOUT_SECS, TimeUnit.SECONDS);
+        try {
+            if (worker.fromWorker.readByte() != TikaWorkerProcess.READY) {
+                throw new IOException("Unexpected response from Tika worker process"); //NON-NLS
+            }
+        } catch (IOException ex) {
+            worker.kill();
+            throw ex;
+        } finally {
+            timeout.cancel(false);
+        }
+        logger.log(Level.INFO, "Started Tika worker process: {0}", commandLine); //NON-NLS
+        return worker;
+    }
+
+    /**
+     * Gets the class path for the worker processes, the jar of this module
+     * and the libraries it uses.
+     *
+     * @return The class path.
+     *
+     * @throws IOException If the jar of this module cannot be located.
+     */
+    private static String getWorkerClassPath() throws IOException {
+        try {
+            File moduleJar = new File(TikaWorkerProcess.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            File libraries = new File(moduleJar.getParentFile(), "ext"); //NON-NLS
+            return moduleJar.getAbsolutePath() + File.pathSeparator + libraries.getAbsolutePath() + File.separator + "*";
+        } catch (URISyntaxException | SecurityException | NullPointerException ex) {
+            throw new IOException("Unable to locate the keyword search module jar", ex); //NON-NLS
+        }
+    }
+
+    private static void writeContent(Worker worker, InputStream content) {
+        byte[] buffer = new byte[CONTENT_FRAME_SIZE];
+        int frameLength = TikaWorkerProcess.END_OF_CONTENT;
+        try {
+            try {
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    if (read > 0) {
+                        worker.toWorker.writeInt(read);
+                        worker.toWorker.write(buffer, 0, read);
+                    }
+                }
+            } catch (IOException ex) {
+                if (!worker.process.isAlive()) {
+                    return;
+                }
+                logger.log(Level.WARNING, "Error reading content for Tika worker process", ex); //NON-NLS
+                frameLength = TikaWorkerProcess.CONTENT_ERROR;
+            }
+            worker.toWorker.writeInt(frameLength);
+            worker.toWorker.flush();
+        } catch (IOException ex) {
+            // the worker exited or was killed, which the reader reports
+        }
+    }
+
+    /**
+     * A worker process and the streams used to communicate with it.
+     */
+    private static final class Worker {
+
+        private final Process process;
+        private final DataOutputStream toWorker;
+        private final DataInputStream fromWorker;
+
+        Worker(Process process) {
+            this.process = process;
+            this.toWorker = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.fromWorker = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        }
+
+        void kill() {
+            process.destroyForcibly();
+        }
+    }
+
+    /**
+     * A reader for the text extracted by a worker, followed by the metadata of
+     * the content. The worker is returned to the pool when all of the text has
+     * been read, or when the reader is closed after the worker has finished
+     * parsing the content, and killed if the reader is closed before then.
+     */
+    final class WorkerReader extends Reader {
+
+        private final Worker worker;
+        private long remainingWaitNanos;
+        private String text = "";
+        private int position;
+        private boolean metadataStarted;
+        private boolean textDone;
+        private boolean timedOut;
+        private boolean released;
+
+        private WorkerReader(Worker worker, long timeoutNanos) {
+            this.worker = worker;
+            this.remainingWaitNanos = timeoutNanos;
+        }
+
+        /**
+         * Queries whether any text was extracted from the content, not
+         * counting the metadata. Blocks until the worker has sent some text
+         * or finished parsing the content.
+         *
+         * @return True or false.
+         *
+         * @throws IOException If the worker could not parse the content,
+         *                     exited or was killed.
+         */
+        boolean hasText() throws IOException {
+            while (position == text.length() && !metadataStarted && !textDone) {
+                if (!nextMessage()) {
+                    break;
+                }
+            }
+            return !metadataStarted && position < text.length();
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (position == text.length()) {
+                if (textDone || !nextMessage()) {
+                    return -1;
+                }
+            }
+            int count = Math.min(len, text.length() - position);
+            text.getChars(position, position + count, cbuf, off);
+            position += count;
+            return count;
+        }
+
+        /**
+         * Reads the next message from the worker.
+         *
+         * @return False if there are no more messages for the request.
+         *
+         * @throws IOException If the worker could not parse the content,
+         *                     exited or was killed.
+         */
+        private boolean nextMessage() throws IOException {
+            byte type;
+            String errorMessage = null;
+            long waitStart = System.nanoTime();
+            ScheduledFuture<?> watchdogTask = watchdog.schedule(worker::kill, Math.max(0, remainingWaitNanos), TimeUnit.NANOSECONDS);
+            try {
+                type = worker.fromWorker.readByte();
+                switch (type) {
+                    case TikaWorkerProcess.TEXT:
+                        text = worker.fromWorker.readUTF();
+                        position = 0;
+                        break;
+                    case TikaWorkerProcess.METADATA:
+                        Metadata metadata = new Metadata();
+                        for (int count = worker.fromWorker.readInt(); count > 0; --count) {
+                            metadata.add(worker.fromWorker.readUTF(), worker.fromWorker.readUTF());
+                        }
+                        text = TikaTextExtractor.formatMetaData(metadata);
+                        position = 0;
+                        metadataStarted = true;
+                        break;
+                    case TikaWorkerProcess.ERROR:
+                        errorMessage = worker.fromWorker.readUTF();
+                        break;
+                    default:
+                        break;
+                }
+            } catch (EOFException ex) {
+                stopWatchdog(watchdogTask, waitStart);
+                release(false);
+                throw new IOException("Tika worker process exited or timed out", ex); //NON-NLS
+            } catch (IOException ex) {
+                stopWatchdog(watchdogTask, waitStart);
+                release(false);
+                throw ex;
+            }
+            stopWatchdog(watchdogTask, waitStart);
+
+            switch (type) {
+                case TikaWorkerProcess.TEXT:
+                case TikaWorkerProcess.METADATA:
+                    return true;
+                case TikaWorkerProcess.DONE:
+                    textDone = true;
+                    release(true);
+                    return false;
+                case TikaWorkerProcess.ERROR:
+                    release(true);
+                    throw new IOException("Tika worker process failed to parse content: " + errorMessage); //NON-NLS
+                default:
+                    release(false);
+                    throw new IOException("Unexpected response from Tika worker process"); //NON-NLS
+            }
+        }
+
+        /**
+         * Stops the watchdog task for a wait for the worker, and deducts the
+         * time waited from the time left for the content.
+         *
+         * @param watchdogTask The watchdog task.
+         * @param waitStart    The start time of the wait, in nanoseconds.
+         */
+        private void stopWatchdog(ScheduledFuture<?> watchdogTask, long waitStart) {
+            if (!watchdogTask.cancel(false)) {
+                timedOut = true;
+            }
+            remainingWaitNanos -= System.nanoTime() - waitStart;
+        }
+
+        /**
+         * Closes the reader. If the worker has finished parsing the content,
+         * e.g., because it extracted no text, the rest of its response is read
+         * so that the worker can be returned to the pool; otherwise the worker
+         * is killed.
+         */
+        @Override
+        public void close() {
+            if (!released && metadataStarted) {
+                try {
+                    while (nextMessage()) {
+                        // skip the rest of the metadata
+                    }
+                } catch (IOException ex) {
+                    // the worker has been released by nextMessage()
+                }
+            }
+            release(false);
+        }
+
+        private void release(boolean reusable) {
+            if (!released) {
+                released = true;
+                releaseWorker(worker, reusable && !timedOut);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,249 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.keywordsearch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.parser.ParsingReader;
+import org.apache.tika.parser.microsoft.OfficeParserConfig;
+import org.apache.tika.parser.ocr.TesseractOCRConfig;
+import org.apache.tika.parser.pdf.PDFParserConfig;
+
+/**
+ * The main class of the child JVMs that extract text with Tika for the Tika
+ * worker pool, so that a parser that hangs or runs out of memory on a
+ * malformed document can be killed without affecting the application.
+ *
+ * This class must only depend on Tika and the JDK, since the child JVMs do not
+ * run the NetBeans platform.
+ *
+ * A worker reads extraction requests from its standard input and writes the
+ * results to its standard output, one request at a time. A request is the
+ * path of the Tesseract folder (empty if OCR is not to be done), followed by
+ * the content in frames of a length and that many bytes, ended by a frame
+ * length of zero, or of -1 if the content could not be read. The result is a
+ * series of text messages, a metadata message, and a done message, or an
+ * error message if the content could not be parsed.
+ */
+final class TikaWorkerProcess {
+
+    static final byte READY = 1;
+    static final byte TEXT = 2;
+    static final byte METADATA = 3;
+    static final byte DONE = 4;
+    static final byte ERROR = 5;
+    static final int END_OF_CONTENT = 0;
+    static final int CONTENT_ERROR = -1;
+    static final int MAX_FRAME_CHARS = 8192;
+    private static final int MAX_METADATA_VALUE_CHARS = 16384;
+
+    private TikaWorkerProcess() {
+    }
+
+    /**
+     * Runs the worker until its standard input is closed.
+     *
+     * @param args Unused.
+     *
+     * @throws IOException If there is a problem communicating with the parent
+     *                     process.
+     */
+    public static void main(String[] args) throws IOException {
+        /*
+         * Keep anything the parsers print from being mixed in with the
+         * results.
+         */
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        System.setOut(System.err);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+
+        AutoDetectParser parser = new AutoDetectParser();
+        out.writeByte(READY);
+        out.flush();
+
+        while (true) {
+            String tesseractFolder;
+            try {
+                tesseractFolder = in.readUTF();
+            } catch (EOFException ex) {
+                return;
+            }
+            ContentInputStream content = new ContentInputStream(in);
+            Metadata metadata = new Metadata();
+            String error = null;
+            try (Reader reader = new ParsingReader(parser, content, metadata, createParseContext(parser, tesseractFolder))) {
+                char[] buffer = new char[MAX_FRAME_CHARS];
+                int read;
+                while ((read = reader.read(buffer)) != -1) {
+                    if (read > 0) {
+                        out.writeByte(TEXT);
+                        out.writeUTF(new String(buffer, 0, read));
+                    }
+                }
+            } catch (IOException | RuntimeException ex) {
+                error = (ex.getCause() != null) ? ex.getCause().toString() : ex.toString();
+            }
+
+            // the parser may not have read all of the content
+            content.skipToEnd();
+            if (content.hasError()) {
+                error = "Error reading content"; //NON-NLS
+            }
+
+            if (error != null) {
+                out.writeByte(ERROR);
+                out.writeUTF(error);
+            } else {
+                out.writeByte(METADATA);
+                String[] names = metadata.names();
+                out.writeInt(names.length);
+                for (String name : names) {
+                    String value = String.valueOf(metadata.get(name));
+                    out.writeUTF(name);
+                    out.writeUTF(value.length() > MAX_METADATA_VALUE_CHARS ? value.substring(0, MAX_METADATA_VALUE_CHARS) : value);
+                }
+                out.writeByte(DONE);
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Creates the parse context used to extract text with Tika.
+     *
+     * @param parser          The parser.
+     * @param tesseractFolder The folder of the Tesseract executable, or an
+     *                        empty string if OCR is not to be done.
+     *
+     * @return The parse context.
+     */
+    static ParseContext createParseContext(Parser parser, String tesseractFolder) {
+        ParseContext parseContext = new ParseContext();
+        parseContext.set(Parser.class, parser);
+
+        // Use the more memory efficient Tika SAX parsers for DOCX and
+        // PPTX files (it already uses SAX for XLSX).
+        OfficeParserConfig officeParserConfig = new OfficeParserConfig();
+        officeParserConfig.setUseSAXPptxExtractor(true);
+        officeParserConfig.setUseSAXDocxExtractor(true);
+        parseContext.set(OfficeParserConfig.class, officeParserConfig);
+
+        if (!tesseractFolder.isEmpty()) {
+            // configure PDFParser.
+            PDFParserConfig pdfConfig = new PDFParserConfig();
+
+            // Extracting the inline images and letting Tesseract run on each inline image.
+            // https://wiki.apache.org/tika/PDFParser%20%28Apache%20PDFBox%29
+            // https://tika.apache.org/1.7/api/org/apache/tika/parser/pdf/PDFParserConfig.html
+            pdfConfig.setExtractInlineImages(true);
+            // Multiple pages within a PDF file might refer to the same underlying image.
+            pdfConfig.setExtractUniqueInlineImagesOnly(true);
+            parseContext.set(PDFParserConfig.class, pdfConfig);
+
+            // Configure Tesseract parser to perform OCR
+            TesseractOCRConfig ocrConfig = new TesseractOCRConfig();
+            ocrConfig.setTesseractPath(tesseractFolder);
+            // Tesseract expects language data packs to be in a subdirectory of tesseractFolder, in a folder called "tessdata".
+            // If they are stored somewhere else, use ocrConfig.setTessdataPath(String tessdataPath) to point to them
+            ocrConfig.setLanguage("eng");
+            parseContext.set(TesseractOCRConfig.class, ocrConfig);
+        }
+        return parseContext;
+    }
+
+    /**
+     * An input stream over the frames of content of a request.
+     */
+    private static final class ContentInputStream extends InputStream {
+
+        private final DataInputStream in;
+        private int remainingInFrame;
+        private boolean endOfContent;
+        private boolean error;
+
+        ContentInputStream(DataInputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return (read(b, 0, 1) == -1) ? -1 : (b[0] & 0xFF);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (remainingInFrame == 0 && !nextFrame()) {
+                return -1;
+            }
+            int read = in.read(b, off, Math.min(len, remainingInFrame));
+            if (read == -1) {
+                throw new EOFException();
+            }
+            remainingInFrame -= read;
+            return read;
+        }
+
+        @Override
+        public void close() {
+            // the frames that have not been read are skipped by skipToEnd()
+        }
+
+        void skipToEnd() throws IOException {
+            while (remainingInFrame > 0 || nextFrame()) {
+                in.readFully(new byte[remainingInFrame]);
+                remainingInFrame = 0;
+            }
+        }
+
+        boolean hasError() {
+            return error;
+        }
+
+        private boolean nextFrame() throws IOException {
+            if (endOfContent) {
+                return false;
+            }
+            int length = in.readInt();
+            if (length <= END_OF_CONTENT) {
+                endOfContent = true;
+                error = (length == CONTENT_ERROR);
+                return false;
+            }
+            remainingInFrame = length;
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.keywordsearch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class AhoCorasickAutomatonTest {
+
+    public AhoCorasickAutomatonTest() {
+    }
+
+    @Test
+    public void testOverlappingMatches() {
+        System.out.println("overlappingMatches");
+        AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(Arrays.asList("he", "she", "his", "hers"));
+        List<String> matches = new ArrayList<>();
+        automaton.match("ushers", (patternIndex, start, end) -> matches.add(patternIndex + ":" + start + "-" + end));
+        assertEquals(Arrays.asList("1:1-4", "0:2-4", "3:2-6"), matches);
+    }
+
+    @Test
+    public void testMatchesIgnoreCase() {
+        System.out.println("matchesIgnoreCase");
+        AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(Arrays.asList("Secret"));
+        List<String> matches = new ArrayList<>();
+        automaton.match("top SECRET and secret", (patternIndex, start, end) -> matches.add(start + "-" + end));
+        assertEquals(Arrays.asList("4-10", "15-21"), matches);
+    }
+
+    @Test
+    public void testEmptyPatternNeverMatches() {
+        System.out.println("emptyPatternNeverMatches");
+        AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(Arrays.asList("", "x"));
+        List<Integer> matches = new ArrayList<>();
+        automaton.match("xyz", (patternIndex, start, end) -> matches.add(patternIndex));
+        assertEquals(Arrays.asList(1), matches);
+        automaton.match("", (patternIndex, start, end) -> matches.add(patternIndex));
+        assertTrue(matches.size() == 1);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.keywordsearch;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ChunkerTest {
+
+    private static final int MAX_CHUNK_SIZE_BYTES = 32760;
+
+    public ChunkerTest() {
+    }
+
+    @Test
+    public void testEmptyText() {
+        System.out.println("emptyText");
+        Chunker chunker = new Chunker(new StringReader(""));
+        assertTrue(chunker.hasNext());
+        Chunker.Chunk chunk = chunker.next();
+        assertEquals("", chunk.toString());
+        assertEquals(0, chunk.getChunkSizeBytes());
+        assertFalse(chunker.hasNext());
+        assertFalse(chunker.hasException());
+    }
+
+    @Test
+    public void testSmallTextIsOneChunk() {
+        System.out.println("smallTextIsOneChunk");
+        Chunker chunker = new Chunker(new StringReader("a small document"));
+        assertTrue(chunker.hasNext());
+        Chunker.Chunk chunk = chunker.next();
+        assertEquals("a small document", chunk.toString());
+        assertEquals(chunk.toString().length(), chunk.getBaseChunkLength());
+        assertEquals(16, chunk.getChunkSizeBytes());
+        assertFalse(chunker.hasNext());
+    }
+
+    @Test
+    public void testInvalidCharactersAreReplaced() {
+        System.out.println("invalidCharactersAreReplaced");
+        String text = "a\u0001b\uD800c\uD83D\uDE00d";
+        Chunker chunker = new Chunker(new StringReader(text));
+        assertEquals("a^b\uFFFDc\uD83D\uDE00d", chunker.next().toString());
+        assertFalse(chunker.hasNext());
+    }
+
+    @Test
+    public void testChunksCoverTextWithinSizeLimit() {
+        System.out.println("chunksCoverTextWithinSizeLimit");
+        Random random = new Random(0);
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 500000) {
+            int kind = random.nextInt(10);
+            if (kind < 6) {
+                text.append((char) ('a' + random.nextInt(26)));
+            } else if (kind < 7) {
+                text.append(' ');
+            } else if (kind < 8) {
+                text.append((char) (0x4e00 + random.nextInt(2000)));
+            } else if (kind < 9) {
+                text.appendCodePoint(0x1F600 + random.nextInt(50));
+            } else {
+                text.append((char) (0x400 + random.nextInt(200)));
+            }
+        }
+
+        Chunker chunker = new Chunker(new StringReader(text.toString()));
+        StringBuilder baseChunks = new StringBuilder();
+        int chunkCount = 0;
+        for (Chunker.Chunk chunk : chunker) {
+            String chunkText = chunk.toString();
+            int sizeBytes = chunkText.getBytes(StandardCharsets.UTF_8).length;
+            assertEquals(sizeBytes, chunk.getChunkSizeBytes());
+            assertTrue(sizeBytes <= MAX_CHUNK_SIZE_BYTES);
+            baseChunks.append(chunkText, 0, chunk.getBaseChunkLength());
+            chunkCount++;
+        }
+        assertFalse(chunker.hasException());
+        assertTrue(chunkCount > 1);
+        assertEquals(text.toString(), baseChunks.toString());
+    }
+}
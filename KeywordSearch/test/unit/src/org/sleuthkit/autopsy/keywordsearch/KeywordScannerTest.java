@@ -0,0 +1,75 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2018 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.keywordsearch;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class KeywordScannerTest {
+
+    private static final long DATA_SOURCE_ID = 42;
+    private static final long ARTIFACT_ID = Long.MIN_VALUE + 7;
+
+    public KeywordScannerTest() {
+    }
+
+    @Test
+    public void testArtifactTextIndexedForDataSourceIsScanned() {
+        System.out.println("artifactTextIndexedForDataSourceIsScanned");
+        KeywordList keywordList = new KeywordList(Arrays.asList(new Keyword("contraband", true, true)));
+        KeywordScanner jobScanner = new KeywordScanner(Collections.singletonList(keywordList));
+        KeywordScanner.register(DATA_SOURCE_ID, jobScanner);
+        try {
+            /*
+             * Text indexed for an artifact of the data source outside of the
+             * keyword search ingest module gets the scanner of the job, and
+             * its chunks are scanned the way the ingester scans them.
+             */
+            KeywordScanner scanner = KeywordScanner.getRegistered(DATA_SOURCE_ID);
+            assertSame(jobScanner, scanner);
+            KeywordScanner.Hits hits = new KeywordScanner.Hits();
+            int chunkNumber = 0;
+            for (Chunker.Chunk chunk : new Chunker(new StringReader("Message from alice: the contraband ships tonight"))) {
+                ++chunkNumber;
+                scanner.scanChunk(ARTIFACT_ID + "_" + chunkNumber, chunk.toString(), chunk.getBaseChunkLength(), hits);
+            }
+            assertFalse(hits.isEmpty());
+        } finally {
+            KeywordScanner.unregister(DATA_SOURCE_ID);
+        }
+        assertNull(KeywordScanner.getRegistered(DATA_SOURCE_ID));
+    }
+
+    @Test
+    public void testWholeWordKeywordDoesNotMatchInsideWord() {
+        System.out.println("wholeWordKeywordDoesNotMatchInsideWord");
+        KeywordList keywordList = new KeywordList(Arrays.asList(new Keyword("band", true, true)));
+        KeywordScanner scanner = new KeywordScanner(Collections.singletonList(keywordList));
+        KeywordScanner.Hits hits = new KeywordScanner.Hits();
+        String text = "the contraband ships tonight";
+        scanner.scanChunk(ARTIFACT_ID + "_1", text, text.length(), hits);
+        assertTrue(hits.isEmpty());
+    }
+}
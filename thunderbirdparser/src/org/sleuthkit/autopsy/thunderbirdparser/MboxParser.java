@@ -18,24 +18,21 @@
  */
 package org.sleuthkit.autopsy.thunderbirdparser;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedReader;
-import java.io.CharConversionException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.Charset;
-import java.nio.charset.CharsetEncoder;
-import java.nio.charset.IllegalCharsetNameException;
 import java.nio.charset.StandardCharsets;
-import java.nio.charset.UnsupportedCharsetException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.logging.Level;
+import java.util.regex.Pattern;
 import org.sleuthkit.autopsy.coreutils.Logger;
 import org.apache.james.mime4j.dom.BinaryBody;
 import org.apache.james.mime4j.dom.Body;
@@ -48,13 +45,9 @@
 import org.apache.james.mime4j.dom.address.MailboxList;
 import org.apache.james.mime4j.dom.field.ContentDispositionField;
 import org.apache.james.mime4j.dom.field.ContentTypeField;
-import org.apache.james.mime4j.mboxiterator.CharBufferWrapper;
-import org.apache.james.mime4j.mboxiterator.MboxIterator;
 import org.apache.james.mime4j.message.DefaultMessageBuilder;
 import org.apache.james.mime4j.stream.Field;
 import org.apache.james.mime4j.stream.MimeConfig;
-import org.apache.tika.parser.txt.CharsetDetector;
-import org.apache.tika.parser.txt.CharsetMatch;
 import org.openide.util.NbBundle;
 import org.sleuthkit.autopsy.casemodule.NoCurrentCaseException;
 import org.sleuthkit.autopsy.ingest.IngestServices;
@@ -99,61 +92,70 @@ static boolean isValidMimeTypeMbox(byte[] buffer) {
     }
 
     /**
-     * Parse the mbox file and get the email messages.
+     * Parse the mbox file one message at a time, handing each email message to
+     * a handler as soon as it has been extracted, so that only one message is
+     * held in memory at a time.
      *
-     * @param mboxFile
-     *
-     * @return a list of the email messages in the mbox file.
+     * @param mboxStream   A stream of the contents of the mbox file.
+     * @param fileID       The object id of the mbox file.
+     * @param emailHandler The handler for the email messages.
+     * @param cancelCheck  A function that returns true if parsing should be
+     *                     stopped.
      */
-    List<EmailMessage> parse(File mboxFile, long fileID) {
-        // Detect possible charsets
-        List<CharsetEncoder> encoders = getPossibleEncoders(mboxFile);
-
-        CharsetEncoder theEncoder = null;
-        Iterable<CharBufferWrapper> mboxIterator = null;
-        // Loop through the possible encoders and find the first one that works.
-        // That will usually be one of the first ones.
-        for (CharsetEncoder encoder : encoders) {
-            try {
-                mboxIterator = MboxIterator.fromFile(mboxFile).charset(encoder.charset()).build();
-                theEncoder = encoder;
-                break;
-            } catch (CharConversionException | UnsupportedCharsetException ex) {
-                // Not the right encoder
-            } catch (IllegalArgumentException ex) {
-                // Not the right encoder
-            } catch (IOException ex) {
-                logger.log(Level.WARNING, "couldn't find mbox file.", ex); //NON-NLS
-                addErrorMessage(NbBundle.getMessage(this.getClass(), "MboxParser.parse.errMsg.failedToReadFile"));
-                return new ArrayList<>();
-            }
-        }
-
-        // If no encoders work, post an error message and return.
-        if (mboxIterator == null || theEncoder == null) {
-            addErrorMessage(NbBundle.getMessage(this.getClass(), "MboxParser.parse.errMsg.couldntFindCharset"));
-            return new ArrayList<>();
-        }
-
-        List<EmailMessage> emails = new ArrayList<>();
+    void parse(InputStream mboxStream, long fileID, Consumer<EmailMessage> emailHandler, Supplier<Boolean> cancelCheck) {
         long failCount = 0;
-
-        // Parse each message and extract an EmailMessage structure
-        for (CharBufferWrapper message : mboxIterator) {
-            try {
-                Message msg = messageBuilder.parseMessage(message.asInputStream(theEncoder.charset()));
-                emails.add(extractEmail(msg, fileID));
-            } catch (RuntimeException | IOException ex) {
-                logger.log(Level.WARNING, "Failed to get message from mbox: {0}", ex.getMessage()); //NON-NLS
+        try (InputStream in = mboxStream) {
+            MboxLineReader reader = new MboxLineReader(in);
+            ByteArrayOutputStream message = null;
+            while (reader.readLine()) {
+                if (reader.isFromLine()) {
+                    // The From line separates messages and is not part of one.
+                    if (message != null && !parseMessage(message, fileID, emailHandler)) {
+                        failCount++;
+                    }
+                    if (cancelCheck.get()) {
+                        return;
+                    }
+                    message = new ByteArrayOutputStream();
+                } else if (message != null) {
+                    reader.writeLineTo(message);
+                }
+            }
+            if (message != null && !parseMessage(message, fileID, emailHandler)) {
                 failCount++;
             }
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Failed to read mbox file.", ex); //NON-NLS
+            addErrorMessage(NbBundle.getMessage(this.getClass(), "MboxParser.parse.errMsg.failedToReadFile"));
         }
 
         if (failCount > 0) {
             addErrorMessage(
                     NbBundle.getMessage(this.getClass(), "MboxParser.parse.errMsg.failedToParseNMsgs", failCount));
         }
-        return emails;
+    }
+
+    /**
+     * Parse a message from an mbox file and hand the email message extracted
+     * from it to a handler.
+     *
+     * @param message      The bytes of the message.
+     * @param fileID       The object id of the mbox file.
+     * @param emailHandler The handler for the email message.
+     *
+     * @return True if the message was parsed, false otherwise.
+     */
+    private boolean parseMessage(ByteArrayOutputStream message, long fileID, Consumer<EmailMessage> emailHandler) {
+        EmailMessage email;
+        try {
+            Message msg = messageBuilder.parseMessage(new ByteArrayInputStream(message.toByteArray()));
+            email = extractEmail(msg, fileID);
+        } catch (RuntimeException | IOException ex) {
+            logger.log(Level.WARNING, "Failed to get message from mbox: {0}", ex.getMessage()); //NON-NLS
+            return false;
+        }
+        emailHandler.accept(email);
+        return true;
     }
 
     String getErrors() {
@@ -373,57 +375,103 @@ private String getAddresses(AddressList addressList) {
         return (addressList == null) ? "" : getAddresses(addressList.flatten());
     }
 
+    private void addErrorMessage(String msg) {
+        errors.append("<li>").append(msg).append("</li>"); //NON-NLS
+    }
+
     /**
-     * Get a list of the possible encoders for the given mboxFile using Tika's
-     * CharsetDetector. At a minimum, returns the standard built in charsets.
-     *
-     * @param mboxFile
-     *
-     * @return
+     * Reads the lines of an mbox file as bytes, since the messages in an mbox
+     * file may each be in a different charset. Lines are kept with their line
+     * terminators so messages are passed to the message parser unchanged.
      */
-    private List<CharsetEncoder> getPossibleEncoders(File mboxFile) {
-        InputStream is;
-        List<CharsetEncoder> possibleEncoders = new ArrayList<>();
-
-        possibleEncoders.add(StandardCharsets.ISO_8859_1.newEncoder());
-        possibleEncoders.add(StandardCharsets.US_ASCII.newEncoder());
-        possibleEncoders.add(StandardCharsets.UTF_16.newEncoder());
-        possibleEncoders.add(StandardCharsets.UTF_16BE.newEncoder());
-        possibleEncoders.add(StandardCharsets.UTF_16LE.newEncoder());
-        possibleEncoders.add(StandardCharsets.UTF_8.newEncoder());
-
-        try {
-            is = new BufferedInputStream(new FileInputStream(mboxFile));
-        } catch (FileNotFoundException ex) {
-            logger.log(Level.WARNING, "Failed to find mbox file while detecting charset"); //NON-NLS
-            return possibleEncoders;
+    private static final class MboxLineReader {
+
+        /**
+         * Matches the From line that starts each message, in the same way as
+         * the mime4j mbox iterator.
+         */
+        private static final Pattern FROM_LINE_PATTERN = Pattern.compile("From \\S+.*\\d{4}"); //NON-NLS
+        private static final byte[] FROM_LINE_START = "From ".getBytes(StandardCharsets.US_ASCII); //NON-NLS
+        private static final int BUFFER_SIZE = 64 * 1024;
+        private final InputStream in;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int bufferPosition;
+        private int bufferLength;
+        private byte[] line = new byte[1024];
+        private int lineLength;
+
+        MboxLineReader(InputStream in) {
+            this.in = in;
         }
 
-        try {
-            CharsetDetector detector = new CharsetDetector();
-            detector.setText(is);
-            CharsetMatch[] matches = detector.detectAll();
-            for (CharsetMatch match : matches) {
-                try {
-                    possibleEncoders.add(Charset.forName(match.getName()).newEncoder());
-                } catch (UnsupportedCharsetException | IllegalCharsetNameException ex) {
-                    // Don't add unsupported charsets to the list
+        /**
+         * Reads the next line.
+         *
+         * @return False at the end of the file, true otherwise.
+         *
+         * @throws IOException If there is a problem reading the file.
+         */
+        boolean readLine() throws IOException {
+            lineLength = 0;
+            while (true) {
+                if (bufferPosition == bufferLength) {
+                    bufferLength = in.read(buffer);
+                    bufferPosition = 0;
+                    if (bufferLength <= 0) {
+                        bufferLength = 0;
+                        return lineLength > 0;
+                    }
+                }
+                int end = bufferPosition;
+                while (end < bufferLength && buffer[end] != '\n') {
+                    end++;
+                }
+                boolean endOfLine = end < bufferLength;
+                if (endOfLine) {
+                    end++;
+                }
+                appendToLine(end - bufferPosition);
+                if (endOfLine) {
+                    return true;
                 }
             }
-            return possibleEncoders;
-        } catch (IOException | IllegalArgumentException ex) {
-            logger.log(Level.WARNING, "Failed to detect charset of mbox file.", ex); //NON-NLS
-            return possibleEncoders;
-        } finally {
-            try {
-                is.close();
-            } catch (IOException ex) {
-                logger.log(Level.INFO, "Failed to close input stream"); //NON-NLS
+        }
+
+        /**
+         * Determines whether or not the line is a From line that starts a
+         * message.
+         *
+         * @return True or false.
+         */
+        boolean isFromLine() {
+            if (lineLength < FROM_LINE_START.length) {
+                return false;
             }
+            for (int i = 0; i < FROM_LINE_START.length; i++) {
+                if (line[i] != FROM_LINE_START[i]) {
+                    return false;
+                }
+            }
+            String fromLine = new String(line, 0, lineLength, StandardCharsets.ISO_8859_1).trim();
+            return FROM_LINE_PATTERN.matcher(fromLine).matches();
         }
-    }
 
-    private void addErrorMessage(String msg) {
-        errors.append("<li>").append(msg).append("</li>"); //NON-NLS
+        /**
+         * Writes the line, including its line terminator, to a stream.
+         *
+         * @param out The stream.
+         */
+        void writeLineTo(ByteArrayOutputStream out) {
+            out.write(line, 0, lineLength);
+        }
+
+        private void appendToLine(int length) {
+            if (lineLength + length > line.length) {
+                line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+            }
+            System.arraycopy(buffer, bufferPosition, line, lineLength, length);
+            lineLength += length;
+            bufferPosition += length;
+        }
     }
 }
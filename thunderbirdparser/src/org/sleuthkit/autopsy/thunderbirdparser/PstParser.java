@@ -30,6 +30,7 @@
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import org.sleuthkit.autopsy.coreutils.Logger;
 import org.openide.util.NbBundle;
@@ -56,15 +57,9 @@ class PstParser {
      */
     private static int PST_HEADER = 0x2142444E;
     private IngestServices services;
-    /**
-     * A map of PSTMessages to their Local path within the file's internal
-     * directory structure.
-     */
-    private List<EmailMessage> results;
     private StringBuilder errors;
 
     PstParser(IngestServices services) {
-        results = new ArrayList<>();
         this.services = services;
         errors = new StringBuilder();
     }
@@ -75,19 +70,23 @@ enum ParseResult {
     }
 
     /**
-     * Parse and extract email messages from the pst/ost file.
+     * Parse and extract email messages from the pst/ost file, handing each
+     * email message to a handler as soon as it has been extracted, so that
+     * only one message is held in memory at a time.
      *
-     * @param file A pst or ost file.
+     * @param file         A pst or ost file.
+     * @param fileID       The object id of the pst or ost file.
+     * @param emailHandler The handler for the email messages.
      *
      * @return ParseResult: OK on success, ERROR on an error, ENCRYPT if failed
      *         because the file is encrypted.
      */
-    ParseResult parse(File file, long fileID) {
+    ParseResult parse(File file, long fileID, Consumer<EmailMessage> emailHandler) {
         PSTFile pstFile;
         long failures;
         try {
             pstFile = new PSTFile(file);
-            failures = processFolder(pstFile.getRootFolder(), "\\", true, fileID);
+            failures = processFolder(pstFile.getRootFolder(), "\\", true, fileID, emailHandler);
             if (failures > 0) {
                 addErrorMessage(
                         NbBundle.getMessage(this.getClass(), "PstParser.parse.errMsg.failedToParseNMsgs", failures));
@@ -103,32 +102,24 @@ ParseResult parse(File file, long fileID) {
         }
     }
 
-    /**
-     * Get the results of the parsing.
-     *
-     * @return
-     */
-    List<EmailMessage> getResults() {
-        return results;
-    }
-
     String getErrors() {
         return errors.toString();
     }
 
     /**
-     * Process this folder and all subfolders, adding every email found to
-     * results. Accumulates the folder hierarchy path as it navigates the folder
+     * Process this folder and all subfolders, handing every email found to the
+     * email handler. Accumulates the folder hierarchy path as it navigates the folder
      * structure.
      *
      * @param folder The folder to navigate and process
      * @param path   The path to the folder within the pst/ost file's directory
      *               structure
+     * @param emailHandler The handler for the email messages.
      *
      * @throws PSTException
      * @throws IOException
      */
-    private long processFolder(PSTFolder folder, String path, boolean root, long fileID) {
+    private long processFolder(PSTFolder folder, String path, boolean root, long fileID, Consumer<EmailMessage> emailHandler) {
         String newPath = (root ? path : path + "\\" + folder.getDisplayName());
         long failCount = 0L; // Number of emails that failed
         if (folder.hasSubfolders()) {
@@ -141,7 +132,7 @@ private long processFolder(PSTFolder folder, String path, boolean root, long fil
             }
 
             for (PSTFolder f : subFolders) {
-                failCount += processFolder(f, newPath, false, fileID);
+                failCount += processFolder(f, newPath, false, fileID, emailHandler);
             }
         }
 
@@ -150,7 +141,7 @@ private long processFolder(PSTFolder folder, String path, boolean root, long fil
             // A folder's children are always emails, never other folders.
             try {
                 while ((email = (PSTMessage) folder.getNextChild()) != null) {
-                    results.add(extractEmailMessage(email, newPath, fileID));
+                    emailHandler.accept(extractEmailMessage(email, newPath, fileID));
                 }
             } catch (PSTException | IOException ex) {
                 failCount++;
@@ -25,6 +25,7 @@
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -52,6 +53,7 @@
 import org.sleuthkit.datamodel.BlackboardAttribute;
 import org.sleuthkit.datamodel.BlackboardAttribute.ATTRIBUTE_TYPE;
 import org.sleuthkit.datamodel.DerivedFile;
+import org.sleuthkit.datamodel.ReadContentInputStream;
 import org.sleuthkit.datamodel.Relationship;
 import org.sleuthkit.datamodel.TskCoreException;
 import org.sleuthkit.datamodel.TskData;
@@ -66,6 +68,7 @@
 public final class ThunderbirdMboxFileIngestModule implements FileIngestModule {
 
     private static final Logger logger = Logger.getLogger(ThunderbirdMboxFileIngestModule.class.getName());
+    private static final int EMAIL_BATCH_SIZE = 100;
     private IngestServices services = IngestServices.getInstance();
     private FileManager fileManager;
     private IngestJobContext context;
@@ -173,18 +176,22 @@ private ProcessResult processPst(AbstractFile abstractFile) {
             return ProcessResult.OK;
         }
 
+        Case openCase;
+        try {
+            openCase = Case.getCurrentCaseThrows();
+        } catch (NoCurrentCaseException ex) {
+            logger.log(Level.SEVERE, "Exception while getting open case.", ex); //NON-NLS
+            return ProcessResult.ERROR;
+        }
+
+        // Add artifacts for the emails as they are parsed
         PstParser parser = new PstParser(services);
-        PstParser.ParseResult result = parser.parse(file, abstractFile.getId());
+        EmailProcessor emailProcessor = new EmailProcessor(abstractFile, openCase);
+        PstParser.ParseResult result = parser.parse(file, abstractFile.getId(), emailProcessor);
+        emailProcessor.finish();
 
         if (result == PstParser.ParseResult.OK) {
-            try {
-                // parse success: Process email and add artifacts
-                processEmails(parser.getResults(), abstractFile);
-            } catch (NoCurrentCaseException ex) {
-                logger.log(Level.SEVERE, "Exception while getting open case.", ex); //NON-NLS
-                return ProcessResult.ERROR;
-            }
-
+            // parse success: artifacts have been added for the emails
         } else if (result == PstParser.ParseResult.ENCRYPT) {
             // encrypted pst: Add encrypted file artifact
             try {
@@ -249,46 +256,20 @@ private ProcessResult processMBox(AbstractFile abstractFile) {
         emailFolder = emailFolder + mboxFileName;
         emailFolder = emailFolder.replaceAll(".sbd", ""); //NON-NLS
 
-        String fileName;
+        Case openCase;
         try {
-            fileName = getTempPath() + File.separator + abstractFile.getName()
-                + "-" + String.valueOf(abstractFile.getId());
+            openCase = Case.getCurrentCaseThrows();
         } catch (NoCurrentCaseException ex) {
             logger.log(Level.SEVERE, "Exception while getting open case.", ex); //NON-NLS
             return ProcessResult.ERROR;
         }
-        File file = new File(fileName);
-
-        long freeSpace = services.getFreeDiskSpace();
-        if ((freeSpace != IngestMonitor.DISK_FREE_SPACE_UNKNOWN) && (abstractFile.getSize() >= freeSpace)) {
-            logger.log(Level.WARNING, "Not enough disk space to write file to disk."); //NON-NLS
-            postErrorMessage(
-                    NbBundle.getMessage(this.getClass(), "ThunderbirdMboxFileIngestModule.processMBox.errProcFile.msg",
-                            abstractFile.getName()),
-                    NbBundle.getMessage(this.getClass(),
-                            "ThunderbirdMboxFileIngestModule.processMBox.errProfFile.details"));
-            return ProcessResult.OK;
-        }
-
-        try {
-            ContentUtils.writeToFile(abstractFile, file, context::fileIngestIsCancelled);
-        } catch (IOException ex) {
-            logger.log(Level.WARNING, "Failed writing mbox file to disk.", ex); //NON-NLS
-            return ProcessResult.OK;
-        }
 
+        // Parse the mbox file straight from the image, adding artifacts for
+        // the emails as they are parsed
         MboxParser parser = new MboxParser(services, emailFolder);
-        List<EmailMessage> emails = parser.parse(file, abstractFile.getId());
-        try {
-            processEmails(emails, abstractFile);
-        } catch (NoCurrentCaseException ex) {
-            logger.log(Level.SEVERE, "Exception while getting open case.", ex); //NON-NLS
-            return ProcessResult.ERROR;
-        }
-
-        if (file.delete() == false) {
-            logger.log(Level.INFO, "Failed to delete temp file: {0}", file.getName()); //NON-NLS
-        }
+        EmailProcessor emailProcessor = new EmailProcessor(abstractFile, openCase);
+        parser.parse(new ReadContentInputStream(abstractFile), abstractFile.getId(), emailProcessor, context::fileIngestIsCancelled);
+        emailProcessor.finish();
 
         String errors = parser.getErrors();
         if (errors.isEmpty() == false) {
@@ -344,33 +325,63 @@ static String getRelModuleOutputPath() throws NoCurrentCaseException {
     }
 
     /**
-     * Take the extracted information in the email messages and add the
-     * appropriate artifacts and derived files.
-     *
-     * @param emails
-     * @param abstractFile
-     * @throws NoCurrentCaseException if there is no open case.
+     * Adds the appropriate artifacts and derived files for email messages as
+     * they are extracted from an email data file, and sends the derived files
+     * to ingest and fires the events for them in batches, so that nothing is
+     * held in memory for more than a batch of messages.
      */
-    private void processEmails(List<EmailMessage> emails, AbstractFile abstractFile) throws NoCurrentCaseException {
-        List<AbstractFile> derivedFiles = new ArrayList<>();
-        
-       
-        
-        for (EmailMessage email : emails) {
-            BlackboardArtifact msgArtifact = addArtifact(email, abstractFile);
-             
-            if ((msgArtifact != null) && (email.hasAttachment()))  {
-                derivedFiles.addAll(handleAttachments(email.getAttachments(), abstractFile, msgArtifact ));
+    private final class EmailProcessor implements Consumer<EmailMessage> {
+
+        private final AbstractFile abstractFile;
+        private final Case openCase;
+        private final List<AbstractFile> derivedFiles = new ArrayList<>();
+        private int emailsInBatch;
+
+        /**
+         * Constructs an object that adds the appropriate artifacts and derived
+         * files for email messages.
+         *
+         * @param abstractFile The email data file.
+         * @param openCase     The current case.
+         */
+        EmailProcessor(AbstractFile abstractFile, Case openCase) {
+            this.abstractFile = abstractFile;
+            this.openCase = openCase;
+        }
+
+        @Override
+        public void accept(EmailMessage email) {
+            BlackboardArtifact msgArtifact = addArtifact(email, abstractFile, openCase);
+
+            if ((msgArtifact != null) && (email.hasAttachment())) {
+                derivedFiles.addAll(handleAttachments(email.getAttachments(), abstractFile, msgArtifact));
+            }
+
+            emailsInBatch++;
+            if (emailsInBatch >= EMAIL_BATCH_SIZE) {
+                flush();
             }
         }
 
-        if (derivedFiles.isEmpty() == false) {
-            for (AbstractFile derived : derivedFiles) {
-                services.fireModuleContentEvent(new ModuleContentEvent(derived));
+        /**
+         * Sends the derived files for the last batch of email messages to
+         * ingest and fires the events for them.
+         */
+        void finish() {
+            flush();
+        }
+
+        private void flush() {
+            if (derivedFiles.isEmpty() == false) {
+                for (AbstractFile derived : derivedFiles) {
+                    services.fireModuleContentEvent(new ModuleContentEvent(derived));
+                }
+                context.addFilesToJob(new ArrayList<>(derivedFiles));
+                derivedFiles.clear();
             }
+            services.fireModuleDataEvent(new ModuleDataEvent(EmailParserModuleFactory.getModuleName(), BlackboardArtifact.ARTIFACT_TYPE.TSK_EMAIL_MSG));
+            emailsInBatch = 0;
         }
-        context.addFilesToJob(derivedFiles);
-        services.fireModuleDataEvent(new ModuleDataEvent(EmailParserModuleFactory.getModuleName(), BlackboardArtifact.ARTIFACT_TYPE.TSK_EMAIL_MSG));
     }
 
     /**
@@ -435,10 +446,10 @@ private Set<String> findEmailAddresess(String input) {
      *
      * @param email
      * @param abstractFile
-     * @throws NoCurrentCaseException if there is no open case.
+     * @param openCase     The current case.
      */
     @Messages({"ThunderbirdMboxFileIngestModule.addArtifact.indexError.message=Failed to index email message detected artifact for keyword search."})
-    private BlackboardArtifact addArtifact(EmailMessage email, AbstractFile abstractFile) throws NoCurrentCaseException {
+    private BlackboardArtifact addArtifact(EmailMessage email, AbstractFile abstractFile, Case openCase) {
         BlackboardArtifact bbart = null;
         List<BlackboardAttribute> bbattributes = new ArrayList<>();
         String to = email.getRecipients();
@@ -460,8 +471,6 @@ private BlackboardArtifact addArtifact(EmailMessage email, AbstractFile abstract
         
         AccountFileInstance senderAccountInstance = null;
 
-        Case openCase = Case.getCurrentCaseThrows();
-        
         if (senderAddressList.size() == 1) {
             senderAddress = senderAddressList.get(0);
             try {